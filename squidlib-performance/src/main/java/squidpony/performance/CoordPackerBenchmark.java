@@ -45,6 +45,7 @@ import squidpony.squidgrid.mapping.SerpentMapGenerator;
 import squidpony.squidmath.CoordPacker;
 import squidpony.squidmath.CrossHash;
 import squidpony.squidmath.GreasedRegion;
+import squidpony.squidmath.ParallelRegionOps;
 import squidpony.squidmath.StatefulRNG;
 
 import java.util.concurrent.TimeUnit;
@@ -507,6 +508,126 @@ public class CoordPackerBenchmark {
         long l = doFloodG(5) + doFloodG(10);
     }
 
+    public static final int LARGE = 1024;
+    public static final GreasedRegion largeG, largeBoundsG, largeTemp = new GreasedRegion(LARGE, LARGE);
+    static {
+        largeG = new GreasedRegion(new StatefulRNG(0x1337BEEFDEAL), 0.47, LARGE, LARGE).retract().expand8way();
+        largeBoundsG = new GreasedRegion(new StatefulRNG(0xBEEFBABEL), 0.62, LARGE, LARGE).expand().retract8way()
+                .expand(2);
+    }
+
+    public long doExpandLarge(int count)
+    {
+        long l = 0;
+        for (int i = 0; i < 16; i++) {
+            l += largeTemp.remake(largeG).expand(count).size();
+            l += largeTemp.remake(largeG).expand8way(count).size();
+        }
+        return l;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureExpandLarge() throws InterruptedException {
+        long l = doExpandLarge(1) + doExpandLarge(4);
+    }
+
+    public long doRetractLarge(int count)
+    {
+        long l = 0;
+        for (int i = 0; i < 16; i++) {
+            l += largeTemp.remake(largeG).retract(count).size();
+            l += largeTemp.remake(largeG).retract8way(count).size();
+        }
+        return l;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureRetractLarge() throws InterruptedException {
+        long l = doRetractLarge(1) + doRetractLarge(4);
+    }
+
+    public long doFringeSurfaceLarge(int count)
+    {
+        long l = 0;
+        for (int i = 0; i < 16; i++) {
+            l += largeTemp.remake(largeG).fringe(count).size();
+            l += largeTemp.remake(largeG).fringe8way(count).size();
+            l += largeTemp.remake(largeG).surface(count).size();
+            l += largeTemp.remake(largeG).surface8way(count).size();
+        }
+        return l;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureFringeSurfaceLarge() throws InterruptedException {
+        long l = doFringeSurfaceLarge(1) + doFringeSurfaceLarge(4);
+    }
+
+    public long doFloodLarge(int count)
+    {
+        StatefulRNG srng = new StatefulRNG(0x1337BEEFDEAL);
+        long l = 0;
+        for (int i = 0; i < 4; i++) {
+            largeTemp.remake(largeBoundsG).empty().insert(largeBoundsG.singleRandom(srng));
+            l += largeTemp.flood(largeBoundsG, count).size();
+            largeTemp.remake(largeBoundsG).empty().insert(largeBoundsG.singleRandom(srng));
+            l += largeTemp.flood8way(largeBoundsG, count).size();
+        }
+        return l;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureFloodLarge() throws InterruptedException {
+        long l = doFloodLarge(50) + doFloodLarge(200);
+    }
+
+    public static final ParallelRegionOps parallelOps = new ParallelRegionOps();
+
+    public long doExpandLargeParallel(int count)
+    {
+        long l = 0;
+        for (int i = 0; i < 16; i++) {
+            l += parallelOps.expand(largeTemp.remake(largeG), count).size();
+            l += parallelOps.expand8way(largeTemp.remake(largeG), count).size();
+        }
+        return l;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureExpandLargeParallel() throws InterruptedException {
+        long l = doExpandLargeParallel(1) + doExpandLargeParallel(4);
+    }
+
+    public long doFloodLargeParallel(int count)
+    {
+        StatefulRNG srng = new StatefulRNG(0x1337BEEFDEAL);
+        long l = 0;
+        for (int i = 0; i < 4; i++) {
+            largeTemp.remake(largeBoundsG).empty().insert(largeBoundsG.singleRandom(srng));
+            l += parallelOps.flood(largeTemp, largeBoundsG, count).size();
+            largeTemp.remake(largeBoundsG).empty().insert(largeBoundsG.singleRandom(srng));
+            l += parallelOps.flood8way(largeTemp, largeBoundsG, count).size();
+        }
+        return l;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureFloodLargeParallel() throws InterruptedException {
+        long l = doFloodLargeParallel(50) + doFloodLargeParallel(200);
+    }
+
 
     /*
      * ============================== HOW TO RUN THIS TEST: ====================================
@@ -49,6 +49,7 @@ import squidpony.performance.alternate.OldCustomDijkstraMap;
 import squidpony.squidmath.AStarSearch;
 import squidpony.squidai.CustomDijkstraMap;
 import squidpony.squidai.DijkstraMap;
+import squidpony.squidai.JumpPointSearch;
 import squidpony.squidgrid.Adjacency;
 import squidpony.squidgrid.Direction;
 import squidpony.squidgrid.mapping.DungeonGenerator;
@@ -157,7 +158,7 @@ public class DijkstraBenchmark {
     public static SerpentMapGenerator serpent = new SerpentMapGenerator(DIMENSION, DIMENSION,
             new StatefulRNG(0x1337BEEFDEAL));
     public static char[][] map;
-    public static double[][] astarMap;
+    public static double[][] astarMap, varyingCosts;
     public static GreasedRegion floors;
     public static double floorCount;
     public static Coord[][] nearbyMap;
@@ -171,6 +172,13 @@ public class DijkstraBenchmark {
         System.out.println("Floors: " + floorCount);
         System.out.println("Percentage walkable: " + floorCount * 100.0 / (DIMENSION * DIMENSION) + "%");
         astarMap = DungeonUtility.generateAStarCostMap(map, Collections.<Character, Double>emptyMap(), 1);
+        varyingCosts = new double[DIMENSION][DIMENSION];
+        StatefulRNG costRNG = new StatefulRNG(0xC057BEEFL);
+        for (int i = 0; i < DIMENSION; i++) {
+            for (int j = 0; j < DIMENSION; j++) {
+                varyingCosts[i][j] = map[i][j] == '#' ? DijkstraMap.WALL : 1.0 + costRNG.nextInt(4);
+            }
+        }
         nearbyMap = new Coord[DIMENSION][DIMENSION];
         customNearbyMap = new int[DIMENSION * DIMENSION];
         GreasedRegion tmp = new GreasedRegion(DIMENSION, DIMENSION);
@@ -216,6 +224,92 @@ public class DijkstraBenchmark {
         System.out.println(doScanDijkstra());
     }
 
+    public long doScanBucketDijkstra()
+    {
+        DijkstraMap dijkstra = new DijkstraMap(
+                map, DijkstraMap.Measurement.CHEBYSHEV, new StatefulRNG(0x1337BEEF));
+        dijkstra.setBlockingRequirement(0);
+
+        long scanned = 0;
+        for (int x = 1; x < DIMENSION - 1; x++) {
+            for (int y = 1; y < DIMENSION - 1; y++) {
+                if (map[x][y] == '#')
+                    continue;
+                dijkstra.setGoal(x, y);
+                dijkstra.bucketScan(null);
+                dijkstra.clearGoals();
+                dijkstra.resetMap();
+                scanned++;
+            }
+        }
+        return scanned;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureScanBucketDijkstra() throws InterruptedException {
+        System.out.println(doScanBucketDijkstra());
+    }
+
+    public long doScanCostDijkstra()
+    {
+        DijkstraMap dijkstra = new DijkstraMap(
+                map, DijkstraMap.Measurement.CHEBYSHEV, new StatefulRNG(0x1337BEEF));
+        dijkstra.setBlockingRequirement(0);
+        dijkstra.initializeCost(varyingCosts);
+
+        long scanned = 0;
+        for (int x = 1; x < DIMENSION - 1; x++) {
+            for (int y = 1; y < DIMENSION - 1; y++) {
+                if (map[x][y] == '#')
+                    continue;
+                dijkstra.setGoal(x, y);
+                dijkstra.scan(null);
+                dijkstra.clearGoals();
+                dijkstra.resetMap();
+                scanned++;
+            }
+        }
+        return scanned;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureScanCostDijkstra() throws InterruptedException {
+        System.out.println(doScanCostDijkstra());
+    }
+
+    public long doScanCostBucketDijkstra()
+    {
+        DijkstraMap dijkstra = new DijkstraMap(
+                map, DijkstraMap.Measurement.CHEBYSHEV, new StatefulRNG(0x1337BEEF));
+        dijkstra.setBlockingRequirement(0);
+        dijkstra.initializeCost(varyingCosts);
+
+        long scanned = 0;
+        for (int x = 1; x < DIMENSION - 1; x++) {
+            for (int y = 1; y < DIMENSION - 1; y++) {
+                if (map[x][y] == '#')
+                    continue;
+                dijkstra.setGoal(x, y);
+                dijkstra.bucketScan(null);
+                dijkstra.clearGoals();
+                dijkstra.resetMap();
+                scanned++;
+            }
+        }
+        return scanned;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureScanCostBucketDijkstra() throws InterruptedException {
+        System.out.println(doScanCostBucketDijkstra());
+    }
+
     public long doScanCustomDijkstra()
     {
         CustomDijkstraMap dijkstra = new CustomDijkstraMap(
@@ -382,6 +476,78 @@ public class DijkstraBenchmark {
         doTinyPathDijkstra();
     }
 
+    public long doPathJPS()
+    {
+        JumpPointSearch jps = new JumpPointSearch(map, DijkstraMap.Measurement.CHEBYSHEV);
+        jps.setBlockingRequirement(0);
+        Coord r;
+        long scanned = 0;
+        DungeonUtility utility = new DungeonUtility(new StatefulRNG(0x1337BEEFDEAL));
+        for (int x = 1; x < DIMENSION - 1; x++) {
+            for (int y = 1; y < DIMENSION - 1; y++) {
+                if (map[x][y] == '#')
+                    continue;
+                // this should ensure no blatant correlation between R and W
+                utility.rng.setState((x << 22) | (y << 16) | (x * y));
+                r = floors.singleRandom(utility.rng);
+                jps.findPath(PATH_LENGTH, null, r, Coord.get(x, y));
+                scanned += jps.path.size();
+            }
+        }
+        return scanned;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measurePathJPS() throws InterruptedException {
+        System.out.println(doPathJPS() / floorCount);
+        doPathJPS();
+    }
+
+    public long doPathLargeDijkstra()
+    {
+        DijkstraMap dijkstra = new DijkstraMap(
+                map, DijkstraMap.Measurement.CHEBYSHEV, new StatefulRNG(0x1337BEEF));
+        dijkstra.setBlockingRequirement(0);
+        dijkstra.initializeClearance();
+        GreasedRegion roomy = new GreasedRegion(DIMENSION, DIMENSION);
+        for (int x = 1; x < DIMENSION - 1; x++) {
+            for (int y = 1; y < DIMENSION - 1; y++) {
+                if (dijkstra.clearance[x][y] >= 2)
+                    roomy.insert(x, y);
+            }
+        }
+        Coord r;
+        Coord[] tgts = new Coord[1];
+        long scanned = 0;
+        DungeonUtility utility = new DungeonUtility(new StatefulRNG(0x1337BEEFDEAL));
+        for (int x = 1; x < DIMENSION - 1; x++) {
+            for (int y = 1; y < DIMENSION - 1; y++) {
+                if (!roomy.contains(x, y))
+                    continue;
+                // this should ensure no blatant correlation between R and W
+                utility.rng.setState((x << 22) | (y << 16) | (x * y));
+                ((StatefulRNG) dijkstra.rng).setState((x << 20) | (y << 14) | (x * y));
+                r = roomy.singleRandom(utility.rng);
+                tgts[0] = Coord.get(x, y);
+                dijkstra.findPathLarge(2, PATH_LENGTH, null, null, r, tgts);
+                dijkstra.clearGoals();
+                dijkstra.resetMap();
+                scanned += dijkstra.path.size();
+            }
+        }
+        return scanned;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measurePathLargeDijkstra() throws InterruptedException {
+        System.out.println(doPathLargeDijkstra() / floorCount);
+        doPathLargeDijkstra();
+    }
+
     public long doPathCustomDijkstra()
     {
         CustomDijkstraMap dijkstra = new CustomDijkstraMap(
@@ -729,6 +895,65 @@ public class DijkstraBenchmark {
         doTinyPathAStar2();
     }
 
+    public long doPathIndexedAStar()
+    {
+        IndexedAStarSearch astar = new IndexedAStarSearch(astarMap, AStarSearch.SearchType.CHEBYSHEV);
+        Coord r;
+        long scanned = 0;
+        DungeonUtility utility = new DungeonUtility(new StatefulRNG(0x1337BEEFDEAL));
+        int[] latestPath = new int[PATH_LENGTH];
+        int len;
+        for (int x = 1; x < DIMENSION - 1; x++) {
+            for (int y = 1; y < DIMENSION - 1; y++) {
+                if (map[x][y] == '#')
+                    continue;
+                // this should ensure no blatant correlation between R and W
+                utility.rng.setState((x << 22) | (y << 16) | (x * y));
+                r = floors.singleRandom(utility.rng);
+                len = astar.pathEncoded(r.x, r.y, x, y, latestPath);
+                if(len > 0)
+                    scanned += len;
+            }
+        }
+        return scanned;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measurePathIndexedAStar() throws InterruptedException {
+        System.out.println(doPathIndexedAStar() / floorCount);
+        doPathIndexedAStar();
+    }
+
+    public long doTinyPathIndexedAStar()
+    {
+        IndexedAStarSearch astar = new IndexedAStarSearch(astarMap, AStarSearch.SearchType.CHEBYSHEV);
+        Coord r;
+        long scanned = 0;
+        int[] latestPath = new int[PATH_LENGTH];
+        int len;
+        for (int x = 1; x < DIMENSION - 1; x++) {
+            for (int y = 1; y < DIMENSION - 1; y++) {
+                if (map[x][y] == '#')
+                    continue;
+                r = nearbyMap[x][y];
+                len = astar.pathEncoded(r.x, r.y, x, y, latestPath);
+                if(len > 0)
+                    scanned += len;
+            }
+        }
+        return scanned;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureTinyPathIndexedAStar() throws InterruptedException {
+        System.out.println(doTinyPathIndexedAStar() / floorCount);
+        doTinyPathIndexedAStar();
+    }
+
     class GridGraph implements IndexedGraph<Coord>
     {
         public ObjectIntMap<Coord> points = new ObjectIntMap<>(DIMENSION * DIMENSION);
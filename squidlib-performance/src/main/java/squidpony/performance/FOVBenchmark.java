@@ -0,0 +1,156 @@
+package squidpony.performance;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import squidpony.squidgrid.FOV;
+import squidpony.squidgrid.Radius;
+import squidpony.squidgrid.mapping.DungeonGenerator;
+import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidmath.GreasedRegion;
+import squidpony.squidmath.LightRNG;
+import squidpony.squidmath.StatefulRNG;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ripple FOV types against shadowcasting, lighting a torch-sized radius from every floor cell of a
+ * 100x100 dungeon with one FOV instance per type, the way a game reusing its FOV objects each frame would. Also
+ * measures shadowcasting into a GreasedRegion, for callers that only need to know whether a cell is visible.
+ */
+public class FOVBenchmark {
+
+    public static final int DIMENSION = 100, RADIUS = 8;
+    public static DungeonGenerator dungeonGen =
+            new DungeonGenerator(DIMENSION, DIMENSION, new StatefulRNG(new LightRNG(0x1337BEEFDEAL)));
+    public static final char[][] map = dungeonGen.generate();
+    public static final double[][] res = DungeonUtility.generateResistances(map);
+    public static final FOV shadow = new FOV(FOV.SHADOW), ripple = new FOV(FOV.RIPPLE),
+            rippleLoose = new FOV(FOV.RIPPLE_LOOSE), rippleTight = new FOV(FOV.RIPPLE_TIGHT),
+            rippleVeryLoose = new FOV(FOV.RIPPLE_VERY_LOOSE);
+
+    public long doFOV(FOV fov)
+    {
+        long lit = 0L;
+        double[][] calculated;
+        for (int i = 1; i < DIMENSION - 1; i++) {
+            for (int j = 1; j < DIMENSION - 1; j++) {
+                if (map[i][j] != '#') {
+                    calculated = fov.calculateFOV(res, i, j, RADIUS, Radius.CIRCLE);
+                    for (int k = Math.max(0, i - RADIUS); k <= i + RADIUS && k < DIMENSION; k++) {
+                        for (int l = Math.max(0, j - RADIUS); l <= j + RADIUS && l < DIMENSION; l++) {
+                            if(calculated[k][l] > 0.0) lit++;
+                        }
+                    }
+                }
+            }
+        }
+        return lit;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureShadow() throws InterruptedException {
+        System.out.println(doFOV(shadow));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureRipple() throws InterruptedException {
+        System.out.println(doFOV(ripple));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureRippleLoose() throws InterruptedException {
+        System.out.println(doFOV(rippleLoose));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureRippleTight() throws InterruptedException {
+        System.out.println(doFOV(rippleTight));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureRippleVeryLoose() throws InterruptedException {
+        System.out.println(doFOV(rippleVeryLoose));
+    }
+
+    public static final GreasedRegion visible = new GreasedRegion(DIMENSION, DIMENSION);
+
+    public long doRegionFOV()
+    {
+        long lit = 0L;
+        for (int i = 1; i < DIMENSION - 1; i++) {
+            for (int j = 1; j < DIMENSION - 1; j++) {
+                if (map[i][j] != '#') {
+                    lit += FOV.reuseFOV(res, visible, i, j, RADIUS, Radius.CIRCLE).size();
+                }
+            }
+        }
+        return lit;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureShadowRegion() throws InterruptedException {
+        System.out.println(doRegionFOV());
+    }
+
+    public long doConeFOV(FOV fov)
+    {
+        long lit = 0L;
+        double[][] calculated;
+        for (int i = 1; i < DIMENSION - 1; i++) {
+            for (int j = 1; j < DIMENSION - 1; j++) {
+                if (map[i][j] != '#') {
+                    calculated = fov.calculateFOV(res, i, j, RADIUS, Radius.CIRCLE, (i * 31 + j * 17) % 360, 90);
+                    for (int k = Math.max(0, i - RADIUS); k <= i + RADIUS && k < DIMENSION; k++) {
+                        for (int l = Math.max(0, j - RADIUS); l <= j + RADIUS && l < DIMENSION; l++) {
+                            if(calculated[k][l] > 0.0) lit++;
+                        }
+                    }
+                }
+            }
+        }
+        return lit;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureConeShadow() throws InterruptedException {
+        System.out.println(doConeFOV(shadow));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureConeRipple() throws InterruptedException {
+        System.out.println(doConeFOV(ripple));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(FOVBenchmark.class.getSimpleName())
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,244 @@
+package squidpony.performance;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import squidpony.squidmath.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the octave wrappers in Noise over a SeededNoise basis, which call their basis through the Noise3D or
+ * Noise4D interface once per octave, against the same octave loops written with direct calls to SeededNoise's static
+ * noise methods, which is what fusing the wrappers for SeededNoise would do. Both give identical results. Before
+ * measuring, each wrapper class is also run with a few other bases, so its per-octave call sites have seen several
+ * types the way they would in a game that uses more than one kind of noise.
+ * <br>
+ * Each run samples a 256x256 patch of the unit sphere like WorldMapGenerator.SphereMap does, with Layered3D terrain
+ * plus Ridged3D detail, or with Layered4D and Ridged4D as the tiling maps do.
+ * <br>
+ * On HotSpot 17 with one core, the direct calls are no faster on the sphere and slower on the tiling maps, where the
+ * larger inlined loop seems to hurt more than the interface call it removes; that call is cheap next to the noise
+ * calculation itself. An earlier attempt that also wrote the simplex calculation out inside each octave loop was
+ * within measurement error of the wrappers as well, so the wrappers are not specialized for SeededNoise.
+ * <pre>
+ * Benchmark                                    Mode  Cnt   Score   Error  Units
+ * FractalNoiseBenchmark.measureComposedSphere  avgt    8  57.679 ± 1.088  ms/op
+ * FractalNoiseBenchmark.measureComposedTiling  avgt    8  79.737 ± 6.167  ms/op
+ * FractalNoiseBenchmark.measureFusedSphere     avgt    8  56.951 ± 4.934  ms/op
+ * FractalNoiseBenchmark.measureFusedTiling     avgt    8  94.135 ± 5.133  ms/op
+ * </pre>
+ */
+public class FractalNoiseBenchmark {
+
+    public static final int SIZE = 256;
+
+    public static final Noise.Layered3D terrain3D = new Noise.Layered3D(SeededNoise.instance, 8, 0.7);
+    public static final Noise.Ridged3D detail3D = new Noise.Ridged3D(SeededNoise.instance, 6, 1.5);
+    public static final Noise.Layered4D terrain4D = new Noise.Layered4D(SeededNoise.instance, 8, 0.7);
+    public static final Noise.Ridged4D detail4D = new Noise.Ridged4D(SeededNoise.instance, 6, 1.5);
+    public static final double[] sinLon = new double[SIZE], cosLon = new double[SIZE],
+            sinLat = new double[SIZE], cosLat = new double[SIZE], exp4D = new double[6];
+    public static final double correct3D, correct4D;
+    static {
+        for (int i = 0; i < SIZE; i++) {
+            final double lon = i * Math.PI * 2.0 / SIZE, lat = (i + 0.5) * Math.PI / SIZE - Math.PI * 0.5;
+            sinLon[i] = Math.sin(lon);
+            cosLon[i] = Math.cos(lon);
+            sinLat[i] = Math.sin(lat);
+            cosLat[i] = Math.cos(lat);
+        }
+        // the same corrections Ridged3D and Ridged4D use for 6 octaves
+        double c = 0.0;
+        for (int o = 0; o < 6; o++) {
+            c += Math.pow(2.0, -o);
+        }
+        correct3D = 1.45 / c;
+        c = 0.0;
+        for (int i = 0; i < 6; i++) {
+            c += (exp4D[i] = Math.pow(2.0, -0.9 * i));
+        }
+        correct4D = 1.41 / c;
+        final Noise.Noise3D[] others3D = {WhirlingNoise.instance, MasonNoise.instance, ValueNoise.instance};
+        final Noise.Noise4D[] others4D = {WhirlingNoise.instance, MasonNoise.instance, ValueNoise.instance};
+        double total = 0.0;
+        for (int i = 0; i < others3D.length; i++) {
+            total += doSphere(new Noise.Layered3D(others3D[i], 8, 0.7), new Noise.Ridged3D(others3D[i], 6, 1.5));
+            total += doTiling(new Noise.Layered4D(others4D[i], 8, 0.7), new Noise.Ridged4D(others4D[i], 6, 1.5));
+        }
+        if (doSphere(terrain3D, detail3D) != doFusedSphere() || doTiling(terrain4D, detail4D) != doFusedTiling())
+            throw new IllegalStateException("fused octaves don't match the wrappers");
+        System.out.println(total);
+    }
+
+    public static double doSphere(Noise.Noise3D terrain, Noise.Noise3D detail)
+    {
+        double total = 0.0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                final double px = cosLat[y] * cosLon[x], py = cosLat[y] * sinLon[x], pz = sinLat[y];
+                total += terrain.getNoiseWithSeed(px, py, pz, 123456789)
+                        + detail.getNoiseWithSeed(px, py, pz, 987654321) * 0.25;
+            }
+        }
+        return total;
+    }
+
+    public static double doTiling(Noise.Noise4D terrain, Noise.Noise4D detail)
+    {
+        double total = 0.0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                final double pa = cosLon[y], pb = sinLon[y], pc = cosLon[x], pd = sinLon[x];
+                total += terrain.getNoiseWithSeed(pa, pb, pc, pd, 123456789)
+                        + detail.getNoiseWithSeed(pa, pb, pc, pd, 987654321) * 0.25;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * The octave loop of Layered3D.getNoiseWithSeed() with 8 octaves and frequency 0.7, calling SeededNoise directly.
+     */
+    public static double layered3D(double x, double y, double z, int seed)
+    {
+        x *= 0.7;
+        y *= 0.7;
+        z *= 0.7;
+        int s = 1 << 7;
+        double n = 0.0, i_s = 2.0;
+        for (int o = 0; o < 8; o++, s >>= 1) {
+            n += SeededNoise.noise(x * (i_s *= 0.5), y * i_s, z * i_s, (seed += 0x9E3779B9)) * s;
+        }
+        return n / ((1 << 8) - 1.0);
+    }
+
+    /**
+     * The octave loop of Ridged3D.getNoiseWithSeed() with 6 octaves and frequency 1.5, calling SeededNoise directly.
+     */
+    public static double ridged3D(double x, double y, double z, int seed)
+    {
+        double sum = 0, amp = 1.0;
+        x *= 1.5;
+        y *= 1.5;
+        z *= 1.5;
+        for (int i = 0; i < 6; ++i) {
+            seed = PintRNG.determine(seed);
+            double n = SeededNoise.noise(x, y, z, (seed += 0x9E3779B9));
+            n = 1.0 - Math.abs(n);
+            sum += amp * n;
+            amp *= 0.5;
+            x *= 2.0;
+            y *= 2.0;
+            z *= 2.0;
+        }
+        return sum * correct3D - 1.0;
+    }
+
+    /**
+     * The octave loop of Layered4D.getNoiseWithSeed() with 8 octaves and frequency 0.7, calling SeededNoise directly.
+     */
+    public static double layered4D(double x, double y, double z, double w, int seed)
+    {
+        x *= 0.7;
+        y *= 0.7;
+        z *= 0.7;
+        w *= 0.7;
+        int s = 1 << 7;
+        double n = 0.0, i_s = 2.0;
+        for (int o = 0; o < 8; o++, s >>= 1) {
+            n += SeededNoise.noise(x * (i_s *= 0.5), y * i_s, z * i_s, w * i_s, (seed += 0x9E3779B9)) * s;
+        }
+        return n / ((1 << 8) - 1.0);
+    }
+
+    /**
+     * The octave loop of Ridged4D.getNoiseWithSeed() with 6 octaves and frequency 1.5, calling SeededNoise directly.
+     */
+    public static double ridged4D(double x, double y, double z, double w, int seed)
+    {
+        double sum = 0, n;
+        x *= 1.5;
+        y *= 1.5;
+        z *= 1.5;
+        w *= 1.5;
+        for (int i = 0; i < 6; ++i) {
+            n = SeededNoise.noise(x, y, z, w, (seed += 0x9E3779B9));
+            n = 1.0 - Math.abs(n);
+            sum += n * n * exp4D[i];
+            x *= 2.0;
+            y *= 2.0;
+            z *= 2.0;
+            w *= 2.0;
+        }
+        return sum * correct4D - 1.0;
+    }
+
+    public static double doFusedSphere()
+    {
+        double total = 0.0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                final double px = cosLat[y] * cosLon[x], py = cosLat[y] * sinLon[x], pz = sinLat[y];
+                total += layered3D(px, py, pz, 123456789) + ridged3D(px, py, pz, 987654321) * 0.25;
+            }
+        }
+        return total;
+    }
+
+    public static double doFusedTiling()
+    {
+        double total = 0.0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                final double pa = cosLon[y], pb = sinLon[y], pc = cosLon[x], pd = sinLon[x];
+                total += layered4D(pa, pb, pc, pd, 123456789) + ridged4D(pa, pb, pc, pd, 987654321) * 0.25;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double measureComposedSphere() {
+        return doSphere(terrain3D, detail3D);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double measureFusedSphere() {
+        return doFusedSphere();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double measureComposedTiling() {
+        return doTiling(terrain4D, detail4D);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double measureFusedTiling() {
+        return doFusedTiling();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(FractalNoiseBenchmark.class.getSimpleName())
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
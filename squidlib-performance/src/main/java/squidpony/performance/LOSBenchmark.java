@@ -87,6 +87,21 @@ public class LOSBenchmark {
             }
         }
     }
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureSymmetric() throws InterruptedException {
+        LOS los = new LOS(LOS.SYMMETRIC, 128);
+        for (int x = 1; x <= END_X; x++) {
+            for (int y = 1; y <= END_Y; y++) {
+                los.isReachable(map, x, y, 1, 1);
+                los.isReachable(map, x, y, 1, END_Y);
+                los.isReachable(map, x, y, END_X, 1);
+                los.isReachable(map, x, y, END_X, END_Y);
+            }
+        }
+    }
+
     public static void main(String[] args) throws RunnerException{
 
         Options opt = new OptionsBuilder()
@@ -313,6 +313,173 @@ public class NoiseBenchmark {
         System.out.println(doSeeded6D());
     }
 
+    /*
+     * Filling whole grids of noise at a time, comparing one getNoiseWithSeed call per cell against the bulk fillNoise
+     * methods (and ParallelNoise splitting them over all processors), for a 512x512 grid and a 2048x1024 grid with 32
+     * cells per unit of noise space.
+     */
+    public static final int SMALL_WIDTH = 512, SMALL_HEIGHT = 512, LARGE_WIDTH = 2048, LARGE_HEIGHT = 1024;
+    public static final float[] smallGrid = new float[SMALL_WIDTH * SMALL_HEIGHT],
+            largeGrid = new float[LARGE_WIDTH * LARGE_HEIGHT];
+    public static final ParallelNoise parallelNoise = new ParallelNoise();
+
+    public double doCells(Noise.Noise2D generator, float[] grid, int width, int height)
+    {
+        double sum = 0.0;
+        for (int row = 0, idx = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                sum += grid[idx++] = (float) generator.getNoiseWithSeed(col * 0x1p-5, row * 0x1p-5, 9000);
+            }
+        }
+        return sum;
+    }
+
+    public double doFill(Noise.Bulk2D generator, float[] grid, int width, int height)
+    {
+        generator.fillNoise(grid, width, height, 0.0, 0.0, 0x1p-5, 0x1p-5, 9000);
+        double sum = 0.0;
+        for (int i = 0; i < grid.length; i++) {
+            sum += grid[i];
+        }
+        return sum;
+    }
+
+    public double doParallelFill(Noise.Bulk2D generator, float[] grid, int width, int height)
+    {
+        parallelNoise.fillNoise(generator, grid, width, height, 0.0, 0.0, 0x1p-5, 0x1p-5, 9000);
+        double sum = 0.0;
+        for (int i = 0; i < grid.length; i++) {
+            sum += grid[i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureSeededCells512() throws InterruptedException {
+        System.out.println(doCells(SeededNoise.instance, smallGrid, SMALL_WIDTH, SMALL_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureSeededFill512() throws InterruptedException {
+        System.out.println(doFill(SeededNoise.instance, smallGrid, SMALL_WIDTH, SMALL_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureSeededCells2048() throws InterruptedException {
+        System.out.println(doCells(SeededNoise.instance, largeGrid, LARGE_WIDTH, LARGE_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureSeededFill2048() throws InterruptedException {
+        System.out.println(doFill(SeededNoise.instance, largeGrid, LARGE_WIDTH, LARGE_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureSeededParallel2048() throws InterruptedException {
+        System.out.println(doParallelFill(SeededNoise.instance, largeGrid, LARGE_WIDTH, LARGE_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureWhirlingCells512() throws InterruptedException {
+        System.out.println(doCells(WhirlingNoise.instance, smallGrid, SMALL_WIDTH, SMALL_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureWhirlingFill512() throws InterruptedException {
+        System.out.println(doFill(WhirlingNoise.instance, smallGrid, SMALL_WIDTH, SMALL_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureWhirlingCells2048() throws InterruptedException {
+        System.out.println(doCells(WhirlingNoise.instance, largeGrid, LARGE_WIDTH, LARGE_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureWhirlingFill2048() throws InterruptedException {
+        System.out.println(doFill(WhirlingNoise.instance, largeGrid, LARGE_WIDTH, LARGE_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureWhirlingParallel2048() throws InterruptedException {
+        System.out.println(doParallelFill(WhirlingNoise.instance, largeGrid, LARGE_WIDTH, LARGE_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureMasonCells512() throws InterruptedException {
+        System.out.println(doCells(MasonNoise.instance, smallGrid, SMALL_WIDTH, SMALL_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureMasonFill512() throws InterruptedException {
+        System.out.println(doFill(MasonNoise.instance, smallGrid, SMALL_WIDTH, SMALL_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureMasonCells2048() throws InterruptedException {
+        System.out.println(doCells(MasonNoise.instance, largeGrid, LARGE_WIDTH, LARGE_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureMasonFill2048() throws InterruptedException {
+        System.out.println(doFill(MasonNoise.instance, largeGrid, LARGE_WIDTH, LARGE_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureValueCells512() throws InterruptedException {
+        System.out.println(doCells(ValueNoise.instance, smallGrid, SMALL_WIDTH, SMALL_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureValueFill512() throws InterruptedException {
+        System.out.println(doFill(ValueNoise.instance, smallGrid, SMALL_WIDTH, SMALL_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureValueCells2048() throws InterruptedException {
+        System.out.println(doCells(ValueNoise.instance, largeGrid, LARGE_WIDTH, LARGE_HEIGHT));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureValueFill2048() throws InterruptedException {
+        System.out.println(doFill(ValueNoise.instance, largeGrid, LARGE_WIDTH, LARGE_HEIGHT));
+    }
+
     /*
      * ============================== HOW TO RUN THIS TEST: ====================================
      *
@@ -39,13 +39,19 @@ import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
+import squidpony.squidai.DijkstraMap;
+import squidpony.squidai.HierarchicalPathfinder;
 import squidpony.squidai.WaypointPathfinder;
 import squidpony.squidgrid.Radius;
 import squidpony.squidgrid.mapping.DungeonGenerator;
 import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidgrid.mapping.SectionDungeonGenerator;
+import squidpony.squidgrid.mapping.SectionMap;
 import squidpony.squidgrid.mapping.SerpentMapGenerator;
+import squidpony.squidgrid.mapping.styled.TilesetType;
 import squidpony.squidmath.Coord;
 import squidpony.squidmath.CoordPacker;
+import squidpony.squidmath.GreasedRegion;
 import squidpony.squidmath.LightRNG;
 import squidpony.squidmath.StatefulRNG;
 
@@ -167,6 +173,100 @@ public class WaypointBenchmark {
         System.out.println(doPath3());
     }
 
+    public HierarchicalPathfinder hierarchical()
+    {
+        return new HierarchicalPathfinder(map, DijkstraMap.Measurement.CHEBYSHEV);
+    }
+
+    public long doPathHierarchical()
+    {
+        HierarchicalPathfinder hpa = hierarchical();
+        Coord r;
+        long scanned = 0;
+        DungeonUtility utility = new DungeonUtility(new StatefulRNG(0x1337BEEFDEAL));
+        for (int x = 1; x < DIMENSION - 1; x++) {
+            for (int y = 1; y < DIMENSION - 1; y++) {
+                if (map[x][y] == '#')
+                    continue;
+                // this should ensure no blatant correlation between R and W
+                utility.rng.setState((x << 22) | (y << 16) | (x * y));
+                r = utility.randomCell(floors);
+                hpa.findPath(r, Coord.get(x, y));
+                scanned++;
+            }
+        }
+        return scanned;
+    }
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measurePathHierarchical() throws InterruptedException {
+        System.out.println(doPathHierarchical());
+    }
+
+    /**
+     * Only built when a large-map benchmark runs, since generating a 512x512 dungeon takes a while. WaypointPathfinder
+     * isn't measured on this map; its chokepoint analysis does a full-map scan per waypoint, and its packed modes use
+     * CoordPacker, which is limited to 256x256.
+     */
+    static class Large {
+        static final int LARGE_DIMENSION = 512, QUERIES = 1000;
+        static final char[][] largeMap;
+        static final SectionMap sections;
+        static final GreasedRegion largeFloors;
+        static final HierarchicalPathfinder hpa;
+        static {
+            SectionDungeonGenerator gen = new SectionDungeonGenerator(LARGE_DIMENSION, LARGE_DIMENSION,
+                    new StatefulRNG(0x1337BEEFDEAL));
+            largeMap = gen.generate(TilesetType.DEFAULT_DUNGEON);
+            sections = new SectionMap(gen.finder);
+            largeFloors = new GreasedRegion(largeMap, '.');
+            hpa = new HierarchicalPathfinder(largeMap, sections, DijkstraMap.Measurement.CHEBYSHEV);
+        }
+    }
+
+    public long doLargePathHierarchical()
+    {
+        StatefulRNG rng = new StatefulRNG(0x1337BEEFDEAL);
+        long scanned = 0;
+        for (int i = 0; i < Large.QUERIES; i++) {
+            scanned += Large.hpa.findPath(Large.largeFloors.singleRandom(rng), Large.largeFloors.singleRandom(rng)).size();
+        }
+        return scanned;
+    }
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureLargePathHierarchical() throws InterruptedException {
+        System.out.println(doLargePathHierarchical());
+    }
+
+    public long doLargePathDijkstra()
+    {
+        DijkstraMap dijkstra = new DijkstraMap(Large.largeMap, DijkstraMap.Measurement.CHEBYSHEV);
+        StatefulRNG rng = new StatefulRNG(0x1337BEEFDEAL);
+        long scanned = 0;
+        for (int i = 0; i < Large.QUERIES; i++) {
+            Coord start = Large.largeFloors.singleRandom(rng), target = Large.largeFloors.singleRandom(rng);
+            scanned += dijkstra.findPath(Large.LARGE_DIMENSION * Large.LARGE_DIMENSION, null, null, start, target).size();
+            dijkstra.clearGoals();
+            dijkstra.resetMap();
+        }
+        return scanned;
+    }
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureLargePathDijkstra() throws InterruptedException {
+        System.out.println(doLargePathDijkstra());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureHierarchical() throws InterruptedException {
+        HierarchicalPathfinder h = hierarchical();
+    }
     @Benchmark
     @BenchmarkMode(Mode.AverageTime)
     @OutputTimeUnit(TimeUnit.NANOSECONDS)
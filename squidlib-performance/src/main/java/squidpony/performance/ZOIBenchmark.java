@@ -0,0 +1,119 @@
+package squidpony.performance;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import squidpony.squidai.ZOI;
+import squidpony.squidgrid.Radius;
+import squidpony.squidgrid.mapping.DungeonGenerator;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.GreasedRegion;
+import squidpony.squidmath.LightRNG;
+import squidpony.squidmath.StatefulRNG;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ZOI's calculate(), which scans a DijkstraMap and then grows each group's zone separately, against label(),
+ * which finds every group's zone in one multi-source search, for 32 factions with 2 influences each on a 120x120
+ * dungeon, recalculating the zones 10 times like a strategy layer would each turn.
+ */
+public class ZOIBenchmark {
+
+    public static final int DIMENSION = 120, FACTIONS = 32;
+    public static DungeonGenerator dungeonGen =
+            new DungeonGenerator(DIMENSION, DIMENSION, new StatefulRNG(new LightRNG(0x1337BEEFDEAL)));
+    public static final char[][] map = dungeonGen.generate();
+    public static final Coord[][] influences = new Coord[FACTIONS][];
+    static {
+        GreasedRegion floors = new GreasedRegion(map, '.');
+        StatefulRNG rng = new StatefulRNG(new LightRNG(0xBEEFD00DL));
+        for (int i = 0; i < FACTIONS; i++) {
+            influences[i] = floors.randomPortion(rng, 2);
+        }
+    }
+    public static final ZOI zoi = new ZOI(influences, map, Radius.CIRCLE);
+    public static GreasedRegion[] regions = null;
+
+    public long doCalculate()
+    {
+        long total = 0L;
+        for (int i = 0; i < 10; i++) {
+            zoi.setInfluences(influences);
+            total += zoi.calculate()[i].length;
+        }
+        return total;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureCalculate() throws InterruptedException {
+        System.out.println(doCalculate());
+    }
+
+    public long doLabel()
+    {
+        long total = 0L;
+        for (int i = 0; i < 10; i++) {
+            total += zoi.label()[i];
+        }
+        return total;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureLabel() throws InterruptedException {
+        System.out.println(doLabel());
+    }
+
+    public long doRegions()
+    {
+        long total = 0L;
+        for (int i = 0; i < 10; i++) {
+            regions = zoi.calculateRegions(regions);
+            total += regions[i].size();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measureRegions() throws InterruptedException {
+        System.out.println(doRegions());
+    }
+
+    public long doPacked()
+    {
+        long total = 0L;
+        for (int i = 0; i < 10; i++) {
+            total += zoi.calculatePacked()[i].length;
+        }
+        return total;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void measurePacked() throws InterruptedException {
+        System.out.println(doPacked());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ZOIBenchmark.class.getSimpleName())
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
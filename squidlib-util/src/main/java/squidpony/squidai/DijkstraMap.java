@@ -163,6 +163,15 @@ public class DijkstraMap implements Serializable {
      * class' WALL static final field. Floors, however, are never given FLOOR as a value, and default to 1.0 .
      */
     public double[][] costMap = null;
+    /**
+     * The true clearance of each cell, used when scanning for creatures larger than 1x1 cell: the side length of the
+     * largest square that has its minimum-x, minimum-y corner at that cell, contains no walls, and stays within the
+     * map. Walls have a clearance of 0, and a creature of size n can stand with its minimum-x, minimum-y cell anywhere
+     * the clearance is at least n. This is null until the first scan for a large creature needs it, and is then built
+     * once from physicalMap and kept up to date by {@link #setWall(int, int, boolean)}. If you change physicalMap
+     * directly, call {@link #updateClearance(int, int)} for each changed cell or {@link #initializeClearance()}.
+     */
+    public int[][] clearance = null;
 
     public boolean standardCosts = true;
     /**
@@ -220,6 +229,18 @@ public class DijkstraMap implements Serializable {
 
     private int blockingRequirement = 2;
 
+    /**
+     * The most buckets {@link #bucketScan(Coord, Collection)} will use before it widens each bucket.
+     */
+    private static final int BUCKET_LIMIT = 0x10000;
+    private static final int[] BUCKET_X = {0, 0, -1, 1, -1, 1, -1, 1}, BUCKET_Y = {-1, 1, 0, 0, -1, -1, 1, 1};
+    private transient double[] bucketDistances, bucketCosts;
+    private transient int[] bucketHeads, bucketNext, bucketPrev, bucketKeys;
+    private transient int bucketCount;
+    private transient int[] repairChecked, repairInvalid, repairHeap;
+    private transient double[] repairKeys;
+    private transient int repairGeneration, repairSize;
+
     /**
      * Construct a DijkstraMap without a level to actually scan. If you use this constructor, you must call an
      * initialize() method before using this class.
@@ -348,6 +369,7 @@ public class DijkstraMap implements Serializable {
         physicalMap = new double[width][height];
         costMap = new double[width][height];
         targetMap = new Coord[width][height];
+        clearance = null;
         for (int x = 0; x < width; x++) {
             System.arraycopy(level[x], 0, gradientMap[x], 0, height);
             System.arraycopy(level[x], 0, physicalMap[x], 0, height);
@@ -373,6 +395,7 @@ public class DijkstraMap implements Serializable {
         physicalMap = new double[width][height];
         costMap = new double[width][height];
         targetMap = new Coord[width][height];
+        clearance = null;
         for (int x = 0; x < width; x++) {
             Arrays.fill(costMap[x], 1.0);
             for (int y = 0; y < height; y++) {
@@ -403,6 +426,7 @@ public class DijkstraMap implements Serializable {
         physicalMap = new double[width][height];
         costMap = new double[width][height];
         targetMap = new Coord[width][height];
+        clearance = null;
         for (int x = 0; x < width; x++) {
             Arrays.fill(costMap[x], 1.0);
             for (int y = 0; y < height; y++) {
@@ -478,6 +502,36 @@ public class DijkstraMap implements Serializable {
         return this;
     }
 
+    /**
+     * Initializes this DijkstraMap so it uses the same physicalMap and costMap as another DijkstraMap, sharing those
+     * arrays by reference instead of copying them, while giving this its own gradientMap and goals. The measurement,
+     * blocking requirement, and whether costs are standard are copied from other. This is meant for cases where many
+     * DijkstraMaps scan the same terrain at once, such as in {@link DijkstraPool}; neither DijkstraMap should have its
+     * physicalMap or costMap changed while the other is in use, since the changes would affect both. If other has
+     * already built its {@link #clearance} for large creatures, that is shared as well.
+     *
+     * @param other an initialized DijkstraMap whose physicalMap and costMap will be shared with this one
+     * @return this for chaining
+     */
+    public DijkstraMap initializeShared(final DijkstraMap other) {
+        if (!other.initialized) throw new IllegalStateException("The DijkstraMap to share must be initialized first!");
+        width = other.width;
+        height = other.height;
+        physicalMap = other.physicalMap;
+        costMap = other.costMap;
+        standardCosts = other.standardCosts;
+        measurement = other.measurement;
+        blockingRequirement = other.blockingRequirement;
+        gradientMap = new double[width][height];
+        targetMap = new Coord[width][height];
+        clearance = other.clearance;
+        for (int x = 0; x < width; x++) {
+            System.arraycopy(physicalMap[x], 0, gradientMap[x], 0, height);
+        }
+        initialized = true;
+        return this;
+    }
+
     /**
      * Internally, DijkstraMap uses int primitives instead of Coord objects, but the specific encoding depends on
      * this DijkstraMap's width and height. This method converts from a Coord to an encoded int that stores the same
@@ -743,6 +797,24 @@ public class DijkstraMap implements Serializable {
         gradientMap[x][y] = WALL;
     }
 
+    /**
+     * Permanently changes whether a cell is a wall, such as when a door opens or closes or a wall is dug through. This
+     * changes physicalMap as well as gradientMap, and resets the cell's cost to 1.0; it does not update the distances
+     * of any other cells, so you should either call {@link #repair(Collection)} with this cell afterwards, or scan again.
+     *
+     * @param x the x coordinate of the cell to change
+     * @param y the y coordinate of the cell to change
+     * @param wall true if the cell should become a wall, false if it should become a floor
+     */
+    public void setWall(int x, int y, boolean wall) {
+        if (!initialized || x < 0 || x >= width || y < 0 || y >= height) return;
+        physicalMap[x][y] = wall ? WALL : FLOOR;
+        gradientMap[x][y] = wall ? WALL : FLOOR;
+        costMap[x][y] = 1.0;
+        if(clearance != null)
+            updateClearance(x, y);
+    }
+
     /**
      * Reverts a cell to the value stored in the original state of the level as known by physicalMap.
      *
@@ -941,6 +1013,467 @@ public class DijkstraMap implements Serializable {
         }
     }
 
+    /**
+     * Recalculate the Dijkstra map and return it, using a bucket queue (Dial's algorithm) to settle cells in order of
+     * their distance instead of the breadth-first wavefront {@link #scan(Collection)} uses. The results are the same
+     * as scan(Collection) would produce, but when {@link #costMap} has non-uniform values, this avoids re-relaxing the
+     * same cells over and over as cheaper routes are discovered later, which can make it much faster on maps with
+     * varied terrain costs. Cells that were marked as goals with setGoal will have a value of 0, and cells
+     * progressively further from goals will have a value equal to the distance from the nearest goal. The exceptions
+     * are walls, which will have a value defined by the WALL constant in this class, and areas that the scan was
+     * unable to reach, which will have a value defined by the DARK constant in this class. This uses the current
+     * measurement. The result is stored in the {@link #gradientMap} field and a copy is returned.
+     *
+     * @param impassable A Collection of Coord keys representing the locations of enemies or other moving obstacles to a
+     *                   path that cannot be moved through; this can be null if there are no such obstacles.
+     * @return A 2D double[width][height] using the width and height of what this knows about the physical map.
+     */
+    public double[][] bucketScan(final Collection<Coord> impassable) {
+        bucketScan(null, impassable);
+        double[][] gradientClone = new double[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (gradientMap[x][y] == FLOOR) {
+                    gradientMap[x][y] = DARK;
+                }
+            }
+            System.arraycopy(gradientMap[x], 0, gradientClone[x], 0, height);
+        }
+
+        return gradientClone;
+    }
+
+    /**
+     * Recalculate the Dijkstra map using a bucket queue (Dial's algorithm), storing the result in {@link #gradientMap}
+     * and returning nothing. Distances are quantized into buckets no wider than the cheapest cost to enter any cell, so
+     * every cell is settled exactly once, in cost order, and the scan can stop as soon as start is settled even when
+     * {@link #costMap} has non-uniform values (the wavefront in {@link #scan(Coord, Collection)} can only stop early
+     * when {@link #standardCosts} is true). If the costs span too wide a range to keep the bucket count reasonable,
+     * the buckets are made wider and some cells may be settled more than once, but the results are still exact. All
+     * internal state is kept in flat arrays that are allocated on the first call and reused by later calls.
+     * <br>
+     * Any passable cell in gradientMap with a value lower than {@link #FLOOR} is treated as a source, not just goals,
+     * so you should call {@link #resetMap()} or {@link #reset()} between scans as you would with scan(). If start is
+     * non-null, cells that didn't need to be settled to find the distance to start may have the value {@link #FLOOR}
+     * or a distance that is too high; cells with a distance less than start's are always exact.
+     *
+     * @param start a Coord representing the location of the pathfinder; may be null, which has this scan the whole map
+     * @param impassable A Collection of Coord keys representing the locations of enemies or other moving obstacles to a
+     *                   path that cannot be moved through; this can be null if there are no such obstacles.
+     */
+    public void bucketScan(final Coord start, final Collection<Coord> impassable) {
+        if (!initialized) return;
+        if (impassable != null && !impassable.isEmpty()) {
+            for (Coord pt : impassable) {
+                if(pt != null && pt.isWithin(width, height))
+                    gradientMap[pt.x][pt.y] = WALL;
+            }
+        }
+        int dec;
+        for (int i = 0; i < goals.size; i++) {
+            dec = goals.get(i);
+            gradientMap[decodeX(dec)][decodeY(dec)] = GOAL;
+        }
+        final int size = width * height;
+        if(bucketDistances == null || bucketDistances.length != size)
+        {
+            bucketDistances = new double[size];
+            bucketCosts = new double[size];
+            bucketNext = new int[size];
+            bucketPrev = new int[size];
+            bucketKeys = new int[size];
+        }
+        final double[] dists = bucketDistances, costs = bucketCosts;
+        final int[] keys = bucketKeys;
+        double minCost = Double.POSITIVE_INFINITY, maxCost = 0.0,
+                lowSeed = Double.POSITIVE_INFINITY, highSeed = Double.NEGATIVE_INFINITY, g, c;
+        for (int x = 0, idx = 0; x < width; x++) {
+            final double[] gradientColumn = gradientMap[x], costColumn = costMap[x];
+            for (int y = 0; y < height; y++, idx++) {
+                dists[idx] = g = gradientColumn[y];
+                keys[idx] = -1;
+                if (g > FLOOR)
+                    continue;
+                costs[idx] = c = standardCosts ? 1.0 : costColumn[y];
+                if (c < minCost) minCost = c;
+                if (c > maxCost && c < FLOOR) maxCost = c;
+                if (g < FLOOR) {
+                    if (g < lowSeed) lowSeed = g;
+                    if (g > highSeed) highSeed = g;
+                }
+            }
+        }
+        mappedCount = 0;
+        if (lowSeed > highSeed) {
+            // no goals and no other sources, so nothing can be reached
+            restoreImpassable(impassable);
+            return;
+        }
+        final double diagonal = (measurement == Measurement.EUCLIDEAN) ? root2 : 1.0,
+                span = Math.max(maxCost * diagonal, highSeed - lowSeed);
+        double quantum = Math.max(minCost, 0x1p-10);
+        boolean exact = true;
+        if (span / quantum > BUCKET_LIMIT - 2) {
+            quantum = span / (BUCKET_LIMIT - 2);
+            exact = false;
+        }
+        bucketCount = (int) Math.ceil(span / quantum) + 2;
+        if (bucketHeads == null || bucketHeads.length < bucketCount)
+            bucketHeads = new int[bucketCount];
+        Arrays.fill(bucketHeads, 0, bucketCount, -1);
+        final double inverse = 1.0 / quantum;
+        int queued = 0;
+        for (int idx = 0; idx < size; idx++) {
+            if (dists[idx] < FLOOR) {
+                bucketLink(idx, (int) ((dists[idx] - lowSeed) * inverse));
+                queued++;
+            }
+        }
+        final int dirCount = measurement.directionCount(),
+                startIdx = (start == null || !start.isWithin(width, height)) ? -1 : start.x * height + start.y;
+        int current = 0, cen, cenX, cenY, adjX, adjY, adj, key;
+        double dist, cs;
+        SCANNING:
+        while (queued > 0) {
+            while ((cen = bucketHeads[current % bucketCount]) != -1) {
+                bucketUnlink(cen);
+                queued--;
+                mappedCount++;
+                if (cen == startIdx && exact)
+                    break SCANNING;
+                cenX = cen / height;
+                cenY = cen - cenX * height;
+                dist = dists[cen];
+                for (int d = 0; d < dirCount; d++) {
+                    adjX = cenX + BUCKET_X[d];
+                    adjY = cenY + BUCKET_Y[d];
+                    if (adjX < 0 || adjY < 0 || width <= adjX || height <= adjY)
+                        /* Outside the map */
+                        continue;
+                    adj = adjX * height + adjY;
+                    if (dists[adj] > FLOOR)
+                        continue;
+                    if (d >= 4 && blockingRequirement > 0) // diagonal
+                    {
+                        if ((dists[adjX * height + cenY] > FLOOR ? 1 : 0)
+                                + (dists[cenX * height + adjY] > FLOOR ? 1 : 0)
+                                >= blockingRequirement) {
+                            continue;
+                        }
+                    }
+                    cs = dist + (d >= 4 ? diagonal : 1.0) * costs[adj];
+                    if (cs < dists[adj]) {
+                        if (keys[adj] >= 0) {
+                            bucketUnlink(adj);
+                            queued--;
+                        }
+                        dists[adj] = cs;
+                        key = (int) ((cs - lowSeed) * inverse);
+                        bucketLink(adj, key < current ? current : key);
+                        queued++;
+                    }
+                }
+            }
+            current++;
+        }
+        for (int x = 0, idx = 0; x < width; x++) {
+            System.arraycopy(dists, idx, gradientMap[x], 0, height);
+            idx += height;
+        }
+        restoreImpassable(impassable);
+    }
+
+    private void restoreImpassable(final Collection<Coord> impassable) {
+        if (impassable != null && !impassable.isEmpty()) {
+            for (Coord pt : impassable) {
+                if(pt != null && pt.isWithin(width, height))
+                    gradientMap[pt.x][pt.y] = physicalMap[pt.x][pt.y];
+            }
+        }
+    }
+
+    private void bucketLink(final int idx, final int key) {
+        final int slot = key % bucketCount, head = bucketHeads[slot];
+        bucketKeys[idx] = key;
+        bucketPrev[idx] = -1;
+        bucketNext[idx] = head;
+        if (head != -1)
+            bucketPrev[head] = idx;
+        bucketHeads[slot] = idx;
+    }
+
+    private void bucketUnlink(final int idx) {
+        final int p = bucketPrev[idx], n = bucketNext[idx];
+        if (p != -1)
+            bucketNext[p] = n;
+        else
+            bucketHeads[bucketKeys[idx] % bucketCount] = n;
+        if (n != -1)
+            bucketPrev[n] = p;
+        bucketKeys[idx] = -1;
+    }
+
+    /**
+     * Updates gradientMap after a few cells have changed, recalculating only the cells whose distances could have
+     * been affected instead of scanning the whole map again. Before calling this, gradientMap must hold the results of
+     * a full scan of the current goals, such as one made by {@link #scan(Collection)} or
+     * {@link #bucketScan(Collection)}, and each cell in changed must have been altered since then by
+     * {@link #setCost(int, int, double)}, {@link #setOccupied(int, int)}, {@link #resetCell(int, int)}, or
+     * {@link #setWall(int, int, boolean)}. Any number of changes can be made before one call to this, and goals are
+     * left as they were. Cells marked with setOccupied() are treated as walls until resetCell() is called on them and
+     * they are repaired again; impassable Coords passed to scan() are not remembered, so they aren't considered here.
+     * <br>
+     * This works in two passes, similar to the way LPA* and D* Lite repair a search. First, starting at the changed
+     * cells and moving away from the goals, any cell whose distance can no longer be explained by a neighbor that is
+     * still valid is marked invalid. Then the invalid cells are given the best distance their valid neighbors can
+     * offer, and those cells and the neighbors of the changed cells are used to start a Dijkstra search that only
+     * continues while it keeps finding shorter distances. When only a handful of cells change, as when a door opens or
+     * a wall is dug through, this usually touches a small area around the change, though closing off a large part of
+     * the map still requires recalculating that part. The result is the same as scanning again from scratch, with
+     * unreachable cells set to {@link #DARK}, as long as every cost is greater than 0.
+     *
+     * @param changed the cells that were changed since gradientMap was last scanned or repaired
+     * @return the number of cells that were recalculated or given a new distance
+     */
+    public int repair(final Collection<Coord> changed) {
+        if (!initialized || changed == null || changed.isEmpty())
+            return 0;
+        final int size = width * height;
+        if (repairChecked == null || repairChecked.length != size) {
+            repairChecked = new int[size];
+            repairInvalid = new int[size];
+            repairHeap = new int[256];
+            repairKeys = new double[256];
+            repairGeneration = 0;
+        }
+        if (++repairGeneration == 0) {
+            Arrays.fill(repairChecked, 0);
+            Arrays.fill(repairInvalid, 0);
+            repairGeneration = 1;
+        }
+        final int gen = repairGeneration, dirCount = (measurement == Measurement.MANHATTAN) ? 4 : 8;
+        int cen, cenX, cenY, adj, adjX, adjY, count;
+        double dist, cs;
+        fresh.clear();
+        repairSize = 0;
+        for (Coord pt : changed) {
+            if (pt == null || !pt.isWithin(width, height))
+                continue;
+            cen = pt.x * height + pt.y;
+            if (repairInvalid[cen] == gen)
+                continue;
+            repairInvalid[cen] = repairChecked[cen] = gen;
+            fresh.add(cen);
+        }
+        final int changedCount = count = fresh.size;
+        // cells next to a changed cell can lose their support through it, including a diagonal move that it now blocks
+        for (int i = 0; i < count; i++) {
+            cen = fresh.get(i);
+            cenX = cen / height;
+            cenY = cen % height;
+            for (int d = 0; d < 8; d++) {
+                adjX = cenX + BUCKET_X[d];
+                adjY = cenY + BUCKET_Y[d];
+                if (adjX < 0 || adjY < 0 || adjX >= width || adjY >= height)
+                    continue;
+                adj = adjX * height + adjY;
+                if (repairChecked[adj] != gen && gradientMap[adjX][adjY] < FLOOR) {
+                    repairChecked[adj] = gen;
+                    repairPush(adj, gradientMap[adjX][adjY]);
+                }
+            }
+        }
+        // first pass: invalidate, in order of increasing distance, every cell that lost all of its supporting neighbors
+        while (repairSize > 0) {
+            cen = repairPop();
+            cenX = cen / height;
+            cenY = cen % height;
+            if (repairSupported(cenX, cenY, gen, dirCount))
+                continue;
+            repairInvalid[cen] = gen;
+            fresh.add(cen);
+            dist = gradientMap[cenX][cenY];
+            for (int d = 0; d < dirCount; d++) {
+                adjX = cenX + BUCKET_X[d];
+                adjY = cenY + BUCKET_Y[d];
+                if (adjX < 0 || adjY < 0 || adjX >= width || adjY >= height)
+                    continue;
+                adj = adjX * height + adjY;
+                if (repairChecked[adj] != gen && gradientMap[adjX][adjY] > dist && gradientMap[adjX][adjY] < FLOOR) {
+                    repairChecked[adj] = gen;
+                    repairPush(adj, gradientMap[adjX][adjY]);
+                }
+            }
+        }
+        count = fresh.size;
+        for (int i = 0; i < count; i++) {
+            cen = fresh.get(i);
+            cenX = cen / height;
+            cenY = cen % height;
+            if (!repairBlocked(cenX, cenY))
+                gradientMap[cenX][cenY] = FLOOR;
+        }
+        // second pass: give each invalid cell the best distance from valid neighbors, then let shorter distances spread
+        for (int i = 0; i < count; i++) {
+            cen = fresh.get(i);
+            cenX = cen / height;
+            cenY = cen % height;
+            if (repairBlocked(cenX, cenY))
+                continue;
+            if (goals.contains(cenX + cenY * width)) {
+                gradientMap[cenX][cenY] = GOAL;
+                repairPush(cen, GOAL);
+                continue;
+            }
+            dist = FLOOR;
+            for (int d = 0; d < dirCount; d++) {
+                adjX = cenX - BUCKET_X[d];
+                adjY = cenY - BUCKET_Y[d];
+                if (adjX < 0 || adjY < 0 || adjX >= width || adjY >= height
+                        || repairInvalid[adjX * height + adjY] == gen || gradientMap[adjX][adjY] >= FLOOR
+                        || (d >= 4 && !repairDiagonal(adjX, adjY, cenX, cenY)))
+                    continue;
+                cs = gradientMap[adjX][adjY] + measurement.heuristic(Direction.OUTWARDS[d]) * costMap[cenX][cenY];
+                if (cs < dist)
+                    dist = cs;
+            }
+            if (dist < FLOOR) {
+                gradientMap[cenX][cenY] = dist;
+                repairPush(cen, dist);
+            }
+        }
+        // a changed cell that became cheaper or opened up can offer its neighbors, or let them offer each other, a
+        // shorter route
+        for (int i = 0; i < changedCount; i++) {
+            cen = fresh.get(i);
+            cenX = cen / height;
+            cenY = cen % height;
+            for (int d = 0; d < 8; d++) {
+                adjX = cenX + BUCKET_X[d];
+                adjY = cenY + BUCKET_Y[d];
+                if (adjX < 0 || adjY < 0 || adjX >= width || adjY >= height)
+                    continue;
+                adj = adjX * height + adjY;
+                if (repairInvalid[adj] != gen && gradientMap[adjX][adjY] < FLOOR)
+                    repairPush(adj, gradientMap[adjX][adjY]);
+            }
+        }
+        while (repairSize > 0) {
+            dist = repairKeys[0];
+            cen = repairPop();
+            cenX = cen / height;
+            cenY = cen % height;
+            if (gradientMap[cenX][cenY] != dist)
+                continue;
+            for (int d = 0; d < dirCount; d++) {
+                adjX = cenX + BUCKET_X[d];
+                adjY = cenY + BUCKET_Y[d];
+                if (adjX < 0 || adjY < 0 || adjX >= width || adjY >= height || repairBlocked(adjX, adjY)
+                        || (d >= 4 && !repairDiagonal(cenX, cenY, adjX, adjY)))
+                    continue;
+                cs = dist + measurement.heuristic(Direction.OUTWARDS[d]) * costMap[adjX][adjY];
+                if (cs < gradientMap[adjX][adjY] && cs < FLOOR) {
+                    adj = adjX * height + adjY;
+                    if (repairInvalid[adj] != gen) {
+                        repairInvalid[adj] = gen;
+                        fresh.add(adj);
+                    }
+                    gradientMap[adjX][adjY] = cs;
+                    repairPush(adj, cs);
+                }
+            }
+        }
+        count = fresh.size;
+        for (int i = 0; i < count; i++) {
+            cen = fresh.get(i);
+            cenX = cen / height;
+            cenY = cen % height;
+            if (gradientMap[cenX][cenY] == FLOOR)
+                gradientMap[cenX][cenY] = DARK;
+        }
+        fresh.clear();
+        return count;
+    }
+
+    /**
+     * Updates gradientMap after a few cells have changed, recalculating only the cells whose distances could have
+     * been affected. See {@link #repair(Collection)} for details.
+     *
+     * @param changed the cells that were changed since gradientMap was last scanned or repaired
+     * @return the number of cells that were recalculated or given a new distance
+     */
+    public int repair(final Coord... changed) {
+        return repair(Arrays.asList(changed));
+    }
+
+    private boolean repairBlocked(final int x, final int y) {
+        return physicalMap[x][y] > FLOOR || gradientMap[x][y] == WALL;
+    }
+
+    private boolean repairDiagonal(final int fromX, final int fromY, final int toX, final int toY) {
+        return blockingRequirement <= 0 || (repairBlocked(toX, fromY) ? 1 : 0) + (repairBlocked(fromX, toY) ? 1 : 0)
+                < blockingRequirement;
+    }
+
+    /**
+     * Checks whether the distance at x,y can still be reached in one step from a neighbor that hasn't been invalidated.
+     */
+    private boolean repairSupported(final int x, final int y, final int gen, final int dirCount) {
+        final double dist = gradientMap[x][y];
+        if (dist == GOAL)
+            return true;
+        int adjX, adjY;
+        for (int d = 0; d < dirCount; d++) {
+            adjX = x - BUCKET_X[d];
+            adjY = y - BUCKET_Y[d];
+            if (adjX < 0 || adjY < 0 || adjX >= width || adjY >= height
+                    || repairInvalid[adjX * height + adjY] == gen || gradientMap[adjX][adjY] >= dist
+                    || (d >= 4 && !repairDiagonal(adjX, adjY, x, y)))
+                continue;
+            if (gradientMap[adjX][adjY] + measurement.heuristic(Direction.OUTWARDS[d]) * costMap[x][y] == dist)
+                return true;
+        }
+        return false;
+    }
+
+    private void repairPush(final int idx, final double key) {
+        if (repairSize == repairHeap.length) {
+            repairHeap = Arrays.copyOf(repairHeap, repairSize << 1);
+            repairKeys = Arrays.copyOf(repairKeys, repairSize << 1);
+        }
+        int i = repairSize++, parent;
+        while (i > 0) {
+            parent = (i - 1) >>> 1;
+            if (repairKeys[parent] <= key)
+                break;
+            repairHeap[i] = repairHeap[parent];
+            repairKeys[i] = repairKeys[parent];
+            i = parent;
+        }
+        repairHeap[i] = idx;
+        repairKeys[i] = key;
+    }
+
+    private int repairPop() {
+        final int top = repairHeap[0], idx = repairHeap[--repairSize];
+        final double key = repairKeys[repairSize];
+        final int half = repairSize >>> 1;
+        int i = 0, child;
+        while (i < half) {
+            child = (i << 1) + 1;
+            if (child + 1 < repairSize && repairKeys[child + 1] < repairKeys[child])
+                child++;
+            if (repairKeys[child] >= key)
+                break;
+            repairHeap[i] = repairHeap[child];
+            repairKeys[i] = repairKeys[child];
+            i = child;
+        }
+        repairHeap[i] = idx;
+        repairKeys[i] = key;
+        return top;
+    }
+
     /**
      * Recalculate the Dijkstra map up to a limit and return it. Cells that were marked as goals with setGoal will have
      * a value of 0, the cells adjacent to goals will have a value of 1, and cells progressively further
@@ -1317,6 +1850,130 @@ public class DijkstraMap implements Serializable {
         return found;
     }
 
+    /**
+     * Builds the {@link #clearance} array from physicalMap, replacing any clearance values this already had. This is
+     * called automatically the first time a scan for a creature larger than 1x1 cell needs it, so you only need to
+     * call it yourself if you have changed many cells of physicalMap directly. It takes time proportional to the area
+     * of the map, regardless of how large the creatures that use it are.
+     *
+     * @return this for chaining
+     */
+    public DijkstraMap initializeClearance() {
+        if (!initialized) throw new IllegalStateException("DijkstraMap must be initialized first!");
+        if (clearance == null || clearance.length != width || clearance[0].length != height)
+            clearance = new int[width][height];
+        for (int x = width - 1; x >= 0; x--) {
+            for (int y = height - 1; y >= 0; y--) {
+                clearance[x][y] = clearanceAt(x, y);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Updates the {@link #clearance} array after the cell at x,y in physicalMap has changed between a wall and a floor.
+     * This is called by {@link #setWall(int, int, boolean)}, so you only need to call it if you change physicalMap
+     * directly. Only cells above and to the left of x,y can be affected, and this stops as soon as their clearance
+     * values stop changing, so it usually only touches a few cells. If the clearance hasn't been built yet, this
+     * does nothing, since it will be built from the current physicalMap when it is needed.
+     *
+     * @param x the x coordinate of the cell that changed
+     * @param y the y coordinate of the cell that changed
+     */
+    public void updateClearance(final int x, final int y) {
+        if (!initialized || clearance == null || x < 0 || x >= width || y < 0 || y >= height) return;
+        // rows changed in the column to the right of the current one; empty at first
+        int prevLow = height + 1, prevHigh = -1, low, high, c;
+        boolean below;
+        for (int i = x; i >= 0; i--) {
+            low = height + 1;
+            high = -1;
+            below = false;
+            for (int j = (i == x) ? Math.max(y, prevHigh) : prevHigh; j >= 0; j--) {
+                // a cell depends on the cells to its right, below it, and diagonally between those
+                if (!below && (j < prevLow - 1 || j > prevHigh) && (i != x || j != y)) {
+                    if (j < prevLow - 1) break;
+                    continue;
+                }
+                c = clearanceAt(i, j);
+                if (c != clearance[i][j]) {
+                    clearance[i][j] = c;
+                    below = true;
+                    if (j < low) low = j;
+                    if (j > high) high = j;
+                }
+                else
+                    below = false;
+            }
+            if (high < 0)
+                break;
+            prevLow = low;
+            prevHigh = high;
+        }
+    }
+
+    private int clearanceAt(final int x, final int y) {
+        if (physicalMap[x][y] > FLOOR)
+            return 0;
+        if (x + 1 >= width || y + 1 >= height)
+            return 1;
+        return 1 + Math.min(clearance[x + 1][y + 1], Math.min(clearance[x + 1][y], clearance[x][y + 1]));
+    }
+
+    /**
+     * Makes the starting gradient for a scan by a creature with the given size, as a copy of gradientMap where every
+     * cell that the creature's minimum-x, minimum-y cell can't occupy is WALL, and every cell where it can stand while
+     * overlapping a goal is GOAL. Static walls are found from {@link #clearance}, so only cells blocked by creatures or
+     * setOccupied() need their footprints filled in here, and the scan itself can treat the creature as 1x1.
+     */
+    private double[][] largeGradient(final Collection<Coord> impassable, final int size) {
+        if (clearance == null || clearance.length != width || clearance[0].length != height)
+            initializeClearance();
+        final double[][] gradientClone = new double[width][height];
+        for (int x = 0; x < width; x++) {
+            final double[] gradientColumn = gradientMap[x], physicalColumn = physicalMap[x],
+                    cloneColumn = gradientClone[x];
+            final int[] clearanceColumn = clearance[x];
+            for (int y = 0; y < height; y++) {
+                if (clearanceColumn[y] < size)
+                    cloneColumn[y] = WALL;
+                else
+                    cloneColumn[y] = gradientColumn[y];
+                if (gradientColumn[y] > FLOOR && physicalColumn[y] <= FLOOR)
+                    fillLarge(gradientClone, x, y, size, false);
+            }
+        }
+        if (impassable != null && !impassable.isEmpty()) {
+            for (Coord pt : impassable) {
+                if(pt != null && pt.isWithin(width, height))
+                    fillLarge(gradientClone, pt.x, pt.y, size, false);
+            }
+        }
+        int dec;
+        for (int i = 0; i < goals.size; i++) {
+            dec = goals.get(i);
+            for (int xs = decodeX(dec), xi = 0; xi < size && xs >= 0; xs--, xi++) {
+                for (int ys = decodeY(dec), yi = 0; yi < size && ys >= 0; ys--, yi++) {
+                    if(clearance[xs][ys] >= size)
+                        gradientClone[xs][ys] = GOAL;
+                }
+            }
+        }
+        return gradientClone;
+    }
+
+    /**
+     * Sets every cell where a creature of the given size would overlap x,y to WALL, or if restore is true, sets those
+     * cells back to their values in physicalMap unless walls keep the creature from standing there.
+     */
+    private void fillLarge(final double[][] gradient, final int x, final int y, final int size, final boolean restore) {
+        for (int xs = x, xi = 0; xi < size && xs >= 0; xs--, xi++) {
+            for (int ys = y, yi = 0; yi < size && ys >= 0; ys--, yi++) {
+                gradient[xs][ys] = (restore && clearance[xs][ys] >= size) ? physicalMap[xs][ys] : WALL;
+            }
+        }
+    }
+
     /**
      * Recalculate the Dijkstra map for a creature that is potentially larger than 1x1 cell and return it. The value of
      * a cell in the returned Dijkstra map assumes that a creature is square, with a side length equal to the passed
@@ -1383,37 +2040,8 @@ public class DijkstraMap implements Serializable {
     public void scan(final Coord start, final Collection<Coord> impassable, final int size) {
 
         if (!initialized) return;
-        double[][] gradientClone = ArrayTools.copy(gradientMap);
-        if (impassable != null && !impassable.isEmpty()) {
-            for (Coord pt : impassable) {
-                if(pt != null && pt.isWithin(width, height))
-                    gradientMap[pt.x][pt.y] = WALL;
-            }
-        }
-        for (int xx = size; xx < width; xx++) {
-            for (int yy = size; yy < height; yy++) {
-                if(gradientMap[xx][yy] > FLOOR) {
-                    for (int xs = xx, xi = 0; xi < size && xs >= 0; xs--, xi++) {
-                        for (int ys = yy, yi = 0; yi < size && ys >= 0; ys--, yi++) {
-                            gradientClone[xs][ys] = WALL;
-                        }
-                    }
-                }
-            }
-        }
-        int dec, adjX, adjY, cen, cenX, cenY;
-
-        PER_GOAL:
-        for (int i = 0; i < goals.size; i++) {
-            dec = goals.get(i);
-            for (int xs = decodeX(dec), xi = 0; xi < size && xs >= 0; xs--, xi++) {
-                for (int ys = decodeY(dec), yi = 0; yi < size && ys >= 0; ys--, yi++) {
-                    if(physicalMap[xs][ys] > FLOOR)
-                        continue PER_GOAL;
-                    gradientClone[xs][ys] = GOAL;
-                }
-            }
-        }
+        final double[][] gradientClone = largeGradient(impassable, size);
+        int adjX, adjY, cen, cenX, cenY;
         double currentLowest = 999000, cs, dist;
         fresh.clear();
         for (int y = 0; y < height; y++) {
@@ -1460,20 +2088,16 @@ public class DijkstraMap implements Serializable {
                     double h = measurement.heuristic(dirs[d]);
                     cs = dist + h * costMap[adjX][adjY];
                     if (gradientClone[adjX][adjY] <= FLOOR && cs < gradientClone[adjX][adjY]) {
-                        setFresh(adjX, adjY, cs);
+                        gradientClone[adjX][adjY] = cs;
+                        fresh.add(encode(adjX, adjY));
                         ++numAssigned;
                         ++mappedCount;
                         if(start != null && start.x == adjX && start.y == adjY && standardCosts)
                         {
                             if (impassable != null && !impassable.isEmpty()) {
                                 for (Coord pt : impassable) {
-                                    if(pt != null && pt.isWithin(width, height)) {
-                                        for (int xs = pt.x, xi = 0; xi < size && xs >= 0; xs--, xi++) {
-                                            for (int ys = pt.y, yi = 0; yi < size && ys >= 0; ys--, yi++) {
-                                                gradientClone[xs][ys] = physicalMap[xs][ys];
-                                            }
-                                        }
-                                    }
+                                    if(pt != null && pt.isWithin(width, height))
+                                        fillLarge(gradientClone, pt.x, pt.y, size, true);
                                 }
                             }
                             gradientMap = gradientClone;
@@ -1485,13 +2109,8 @@ public class DijkstraMap implements Serializable {
         }
         if (impassable != null && !impassable.isEmpty()) {
             for (Coord pt : impassable) {
-                if(pt != null && pt.isWithin(width, height)) {
-                    for (int xs = pt.x, xi = 0; xi < size && xs >= 0; xs--, xi++) {
-                        for (int ys = pt.y, yi = 0; yi < size && ys >= 0; ys--, yi++) {
-                            gradientClone[xs][ys] = physicalMap[xs][ys];
-                        }
-                    }
-                }
+                if(pt != null && pt.isWithin(width, height))
+                    fillLarge(gradientClone, pt.x, pt.y, size, true);
             }
         }
         gradientMap = gradientClone;
@@ -1564,37 +2183,8 @@ public class DijkstraMap implements Serializable {
     public void partialScan(final int limit, final Coord start, final Collection<Coord> impassable, final int size) {
 
         if (!initialized || limit <= 0) return;
-        double[][] gradientClone = ArrayTools.copy(gradientMap);
-        if (impassable != null && !impassable.isEmpty()) {
-            for (Coord pt : impassable) {
-                if(pt != null && pt.isWithin(width, height))
-                    gradientMap[pt.x][pt.y] = WALL;
-            }
-        }
-        for (int xx = size; xx < width; xx++) {
-            for (int yy = size; yy < height; yy++) {
-                if(gradientMap[xx][yy] > FLOOR) {
-                    for (int xs = xx, xi = 0; xi < size && xs >= 0; xs--, xi++) {
-                        for (int ys = yy, yi = 0; yi < size && ys >= 0; ys--, yi++) {
-                            gradientClone[xs][ys] = WALL;
-                        }
-                    }
-                }
-            }
-        }
-        int dec, adjX, adjY, cen, cenX, cenY;
-
-        PER_GOAL:
-        for (int i = 0; i < goals.size; i++) {
-            dec = goals.get(i);
-            for (int xs = decodeX(dec), xi = 0; xi < size && xs >= 0; xs--, xi++) {
-                for (int ys = decodeY(dec), yi = 0; yi < size && ys >= 0; ys--, yi++) {
-                    if(physicalMap[xs][ys] > FLOOR)
-                        continue PER_GOAL;
-                    gradientClone[xs][ys] = GOAL;
-                }
-            }
-        }
+        final double[][] gradientClone = largeGradient(impassable, size);
+        int adjX, adjY, cen, cenX, cenY;
         double currentLowest = 999000, cs, dist;
         fresh.clear();
         for (int y = 0; y < height; y++) {
@@ -1642,20 +2232,16 @@ public class DijkstraMap implements Serializable {
                     double h = measurement.heuristic(dirs[d]);
                     cs = dist + h * costMap[adjX][adjY];
                     if (gradientClone[adjX][adjY] <= FLOOR && cs < gradientClone[adjX][adjY]) {
-                        setFresh(adjX, adjY, cs);
+                        gradientClone[adjX][adjY] = cs;
+                        fresh.add(encode(adjX, adjY));
                         ++numAssigned;
                         ++mappedCount;
                         if(start != null && start.x == adjX && start.y == adjY && standardCosts)
                         {
                             if (impassable != null && !impassable.isEmpty()) {
                                 for (Coord pt : impassable) {
-                                    if(pt != null && pt.isWithin(width, height)) {
-                                        for (int xs = pt.x, xi = 0; xi < size && xs >= 0; xs--, xi++) {
-                                            for (int ys = pt.y, yi = 0; yi < size && ys >= 0; ys--, yi++) {
-                                                gradientClone[xs][ys] = physicalMap[xs][ys];
-                                            }
-                                        }
-                                    }
+                                    if(pt != null && pt.isWithin(width, height))
+                                        fillLarge(gradientClone, pt.x, pt.y, size, true);
                                 }
                             }
                             gradientMap = gradientClone;
@@ -1667,13 +2253,8 @@ public class DijkstraMap implements Serializable {
         }
         if (impassable != null && !impassable.isEmpty()) {
             for (Coord pt : impassable) {
-                if(pt != null && pt.isWithin(width, height)) {
-                    for (int xs = pt.x, xi = 0; xi < size && xs >= 0; xs--, xi++) {
-                        for (int ys = pt.y, yi = 0; yi < size && ys >= 0; ys--, yi++) {
-                            gradientClone[xs][ys] = physicalMap[xs][ys];
-                        }
-                    }
-                }
+                if(pt != null && pt.isWithin(width, height))
+                    fillLarge(gradientClone, pt.x, pt.y, size, true);
             }
         }
         gradientMap = gradientClone;
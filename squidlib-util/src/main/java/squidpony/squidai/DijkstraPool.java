@@ -0,0 +1,196 @@
+package squidpony.squidai;
+
+import squidpony.annotation.GwtIncompatible;
+import squidpony.squidmath.Coord;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Scans many independent sets of goals on the same map at once, spreading the work over a ForkJoinPool so that the
+ * time spent scanning for many monsters in a turn scales with the number of cores instead of only the number of
+ * monsters. All scans share one physicalMap and costMap, taken from a DijkstraMap given to the constructor (these are
+ * shared by reference and must not be changed while a scan is running), and each running scan gets its own gradient
+ * buffer from a pool of reusable double[][] arrays, so a large batch doesn't need to allocate a full map per scan.
+ * <br>
+ * The gradients returned by {@link #scanAll(List, Collection)} are the same buffers the scans wrote into, not copies
+ * as {@link DijkstraMap#scan(Collection)} returns; once you are done with them, you can give them back to this pool
+ * with {@link #release(double[][])} or {@link #releaseAll(double[][][])} so later batches can reuse them. Each gradient
+ * has the same contents DijkstraMap's scan(Collection) would produce for that goal set, including {@link
+ * DijkstraMap#DARK} for unreachable cells, and can be used with {@link DijkstraMap#gradientMap} for methods such as
+ * {@link DijkstraMap#findPathPreScanned(Coord)}.
+ * <br>
+ * When the game is closed or the pool is no longer needed, call {@link #destroy()} to shut down its threads.
+ */
+@GwtIncompatible
+public class DijkstraPool {
+    /**
+     * The DijkstraMap that holds the physicalMap and costMap shared by every scan. You can change its costs or call its
+     * initialize methods between batches, but not while {@link #scanAll(List, Collection)} is running.
+     */
+    public DijkstraMap terrain;
+    protected final int threadCount;
+    private final ExecutorService executor;
+    private final ConcurrentLinkedQueue<DijkstraMap> idle = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<double[][]> spare = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructs a DijkstraPool for the given map, where '#' is a wall and anything else is a floor, using the given
+     * measurement and one thread for each available processor.
+     * @param map a char[][] that uses '#' for walls
+     * @param measurement the Measurement to use for distances
+     */
+    public DijkstraPool(final char[][] map, final DijkstraMap.Measurement measurement) {
+        this(new DijkstraMap(map, measurement));
+    }
+
+    /**
+     * Constructs a DijkstraPool that shares the physicalMap and costMap of terrain, and copies its measurement and
+     * blocking requirement, using one thread for each available processor.
+     * @param terrain an initialized DijkstraMap that will provide the map and costs for every scan
+     */
+    public DijkstraPool(final DijkstraMap terrain) {
+        this(terrain, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a DijkstraPool that shares the physicalMap and costMap of terrain, and copies its measurement and
+     * blocking requirement, using the given number of threads.
+     * @param terrain an initialized DijkstraMap that will provide the map and costs for every scan
+     * @param threads how many threads to scan with; should be at least 1
+     */
+    public DijkstraPool(final DijkstraMap terrain, final int threads) {
+        this.terrain = terrain;
+        threadCount = Math.max(1, threads);
+        executor = new ForkJoinPool(threadCount);
+    }
+
+    /**
+     * Scans each goal set in goalSets separately, in parallel, treating the cells in impassable as walls for every
+     * scan, and returns one gradient for each goal set in the same order. Each goal set can be any Iterable of Coord,
+     * including a List, a Set, or a GreasedRegion. The returned gradients belong to the caller until they are given
+     * back with {@link #release(double[][])}; they are not copied, and this pool won't write to them again unless they
+     * are released. If a scan fails for any reason, its entry in the returned array will be null.
+     * @param goalSets a List of goal sets, where each goal set will produce one gradient
+     * @param impassable a Collection of Coord that are impassable for every scan; may be null; must not be modified
+     *                   while this runs
+     * @return an array of gradients as double[width][height], one per goal set, in the same order as goalSets
+     */
+    public double[][][] scanAll(final List<? extends Iterable<Coord>> goalSets, final Collection<Coord> impassable) {
+        final int count = goalSets.size();
+        final double[][][] gradients = new double[count][][];
+        final ArrayList<ScanUnit> units = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            units.add(new ScanUnit(goalSets.get(i), impassable));
+        }
+        try {
+            final List<Future<double[][]>> invoke = executor.invokeAll(units);
+            for (int i = 0; i < count; i++) {
+                try {
+                    gradients[i] = invoke.get(i).get();
+                } catch (ExecutionException e) {
+                    e.printStackTrace();
+                }
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        return gradients;
+    }
+
+    /**
+     * Gives a gradient produced by {@link #scanAll(List, Collection)} back to this pool so a later scan can reuse it.
+     * You must not use the gradient after releasing it. Does nothing if gradient is null or is the wrong size.
+     * @param gradient a gradient returned by scanAll() that is no longer needed
+     */
+    public void release(final double[][] gradient) {
+        if (gradient != null && gradient.length == terrain.width && gradient[0].length == terrain.height)
+            spare.offer(gradient);
+    }
+
+    /**
+     * Gives every gradient produced by one call to {@link #scanAll(List, Collection)} back to this pool so later
+     * scans can reuse them. You must not use the gradients after releasing them.
+     * @param gradients an array of gradients returned by scanAll() that are no longer needed
+     */
+    public void releaseAll(final double[][][] gradients) {
+        for (int i = 0; i < gradients.length; i++) {
+            release(gradients[i]);
+        }
+    }
+
+    /**
+     * Removes any idle scanners and spare gradient buffers this has kept, freeing their memory; this is a good idea if
+     * {@link #terrain} is re-initialized with a different width or height, since the old buffers can't be reused.
+     */
+    public void clearPool() {
+        idle.clear();
+        spare.clear();
+    }
+
+    /**
+     * Shuts down any threads that may prevent the game from closing properly.
+     * You don't have to do anything special after you call this, other than not using this DijkstraPool any more.
+     */
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    @GwtIncompatible
+    protected class ScanUnit implements Callable<double[][]>
+    {
+        protected Iterable<Coord> goals;
+        protected Collection<Coord> impassable;
+
+        public ScanUnit(Iterable<Coord> goals, Collection<Coord> impassable)
+        {
+            this.goals = goals;
+            this.impassable = impassable;
+        }
+
+        /**
+         * Computes a result, or throws an exception if unable to do so.
+         *
+         * @return computed result
+         * @throws Exception if unable to compute a result
+         */
+        @Override
+        public double[][] call() throws Exception {
+            DijkstraMap scanner = idle.poll();
+            if (scanner == null)
+                scanner = new DijkstraMap().initializeShared(terrain);
+            else {
+                // terrain may have been given new costs or settings since this scanner last ran
+                scanner.width = terrain.width;
+                scanner.height = terrain.height;
+                scanner.physicalMap = terrain.physicalMap;
+                scanner.costMap = terrain.costMap;
+                scanner.standardCosts = terrain.standardCosts;
+                scanner.measurement = terrain.measurement;
+                scanner.setBlockingRequirement(terrain.getBlockingRequirement());
+            }
+            final int width = terrain.width, height = terrain.height;
+            final double[][] physical = terrain.physicalMap;
+            double[][] buffer = spare.poll();
+            if (buffer == null || buffer.length != width || buffer[0].length != height)
+                buffer = new double[width][height];
+            for (int x = 0; x < width; x++) {
+                System.arraycopy(physical[x], 0, buffer[x], 0, height);
+            }
+            scanner.gradientMap = buffer;
+            scanner.clearGoals();
+            scanner.setGoals(goals);
+            scanner.bucketScan(null, impassable);
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    if (buffer[x][y] == DijkstraMap.FLOOR)
+                        buffer[x][y] = DijkstraMap.DARK;
+                }
+            }
+            idle.offer(scanner);
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package squidpony.squidai;
+
+import squidpony.squidgrid.Direction;
+import squidpony.squidmath.Coord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stores the gradients produced by scanning a {@link DijkstraMap} so that many pathfinders chasing the same goals can
+ * share one scan, instead of each one scanning the whole map. When many monsters chase the player, scanning once per
+ * monster costs about as much as one full-map scan per monster per turn; with this, the first request for a goal set
+ * scans the map, and every later request for the same goal set (until the map changes) only needs to look up the
+ * cached result, so the cost is one scan plus a small amount of work per monster.
+ * <br>
+ * Gradients are cached by their goal set (the order of goals and any duplicates don't matter) and by a map version,
+ * which you should change with {@link #mapChanged()} or {@link #setVersion(int)} whenever walls or costs in the
+ * DijkstraMap change, so stale gradients aren't used. Each cached goal set can keep its full gradient, 8 bytes per cell,
+ * and/or a direction field that stores only which way to step from each cell, 1 byte per cell; if compact is true, only
+ * direction fields are kept, which lets 8 times as many goal sets fit in the same memory budget but means
+ * {@link #gradient(Iterable)} must scan again. When the total size of cached entries would exceed the memory budget,
+ * the least recently used entries are discarded.
+ * <br>
+ * Pathfinders can use {@link #direction(Iterable, int, int)} to get the next step toward the nearest goal, or
+ * {@link #findPath(Iterable, Coord, int)} to follow the gradient for several steps. Both always take a step along a
+ * shortest path, preferring orthogonal directions when several steps are equally good, so they behave the same way
+ * every time and don't involve any randomness.
+ */
+public class FlowFieldCache {
+    /**
+     * The DijkstraMap that provides the walls, costs, measurement, and blocking requirement for every scan. Call
+     * {@link #mapChanged()} after changing anything in it.
+     */
+    public DijkstraMap terrain;
+    /**
+     * If true, only direction fields are cached, not full gradients.
+     */
+    public final boolean compact;
+    protected long budget, used;
+    protected int version;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private DijkstraMap scanner;
+    private double[][] spare;
+
+    /**
+     * Constructs a FlowFieldCache that scans using the given DijkstraMap's walls and costs, and keeps full gradients
+     * as long as they fit in about 16 MB.
+     * @param terrain an initialized DijkstraMap that will provide the map and costs for every scan
+     */
+    public FlowFieldCache(DijkstraMap terrain) {
+        this(terrain, 16L << 20, false);
+    }
+
+    /**
+     * Constructs a FlowFieldCache that scans using the given DijkstraMap's walls and costs, and keeps cached entries as
+     * long as their total size, in bytes, is at most budget. The most recently used entry is always kept, even if it is
+     * larger than budget.
+     * @param terrain an initialized DijkstraMap that will provide the map and costs for every scan
+     * @param budget the most memory, in bytes, that cached gradients and direction fields should take up
+     * @param compact if true, only direction fields (1 byte per cell) are kept instead of gradients (8 bytes per cell)
+     */
+    public FlowFieldCache(DijkstraMap terrain, long budget, boolean compact) {
+        this.terrain = terrain;
+        this.budget = budget;
+        this.compact = compact;
+    }
+
+    /**
+     * Marks the map as changed, so any gradients scanned before now won't be used again, and discards them.
+     */
+    public void mapChanged() {
+        setVersion(version + 1);
+    }
+
+    /**
+     * @return the current map version; gradients are only reused if they were scanned with this version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the map version, such as to a revision number your game already tracks for its map. Cached entries from
+     * other versions are discarded.
+     * @param version the new map version
+     */
+    public void setVersion(int version) {
+        this.version = version;
+        final Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        Map.Entry<Key, Entry> e;
+        while (it.hasNext()) {
+            e = it.next();
+            if (e.getKey().version != version) {
+                used -= e.getValue().size();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the memory budget in bytes
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Changes the memory budget, discarding least recently used entries if they no longer fit.
+     * @param budget the most memory, in bytes, that cached gradients and direction fields should take up
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+        evict();
+    }
+
+    /**
+     * @return the approximate memory used by cached entries, in bytes
+     */
+    public long getUsed() {
+        return used;
+    }
+
+    /**
+     * @return how many goal sets currently have cached results
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Discards all cached entries.
+     */
+    public void clear() {
+        entries.clear();
+        used = 0;
+    }
+
+    /**
+     * Gets the gradient for the given goal set, scanning the map only if it isn't already cached for the current map
+     * version. The result uses the same values as {@link DijkstraMap#scan(java.util.Collection)}, including
+     * {@link DijkstraMap#DARK} for cells that can't reach a goal, and must not be modified, since it is shared with
+     * every other caller that asks for the same goal set. If {@link #compact} is true, the gradient isn't kept, so
+     * this scans each time it is called (though the direction field is still cached).
+     * @param goals any Iterable of Coord to use as goals, such as a List, a Set, or a GreasedRegion
+     * @return the gradient as a double[width][height]; do not modify it
+     */
+    public double[][] gradient(Iterable<Coord> goals) {
+        final Key key = new Key(goals);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.gradient != null)
+            return entry.gradient;
+        final double[][] g = scan(key);
+        if (compact) {
+            if (entry == null)
+                store(key, new Entry(null, directionsFrom(g)));
+            return g;
+        }
+        if (entry == null)
+            store(key, new Entry(g, null));
+        return g;
+    }
+
+    /**
+     * Gets the direction field for the given goal set, scanning the map only if neither the field nor the gradient is
+     * cached for the current map version. The direction field has one byte per cell, indexed by
+     * {@code x + y * width}; each byte is the index in {@link Direction#OUTWARDS} of the direction to move from that
+     * cell to get closer to the nearest goal, or -1 if the cell is a goal, a wall, or can't reach any goal. The result
+     * must not be modified, since it is shared with every other caller that asks for the same goal set.
+     * @param goals any Iterable of Coord to use as goals, such as a List, a Set, or a GreasedRegion
+     * @return the direction field as a byte array; do not modify it
+     */
+    public byte[] directions(Iterable<Coord> goals) {
+        final Key key = new Key(goals);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            final double[][] g = scan(key);
+            if (compact) {
+                entry = new Entry(null, directionsFrom(g));
+                spare = g;
+            } else
+                entry = new Entry(g, directionsFrom(g));
+            store(key, entry);
+        } else if (entry.directions == null) {
+            entry.directions = directionsFrom(entry.gradient);
+            used += entry.directions.length;
+            evict();
+        }
+        return entry.directions;
+    }
+
+    /**
+     * Gets the Direction to move from the cell at x,y to get closer to the nearest goal in the given goal set,
+     * scanning the map only if this goal set isn't already cached for the current map version. Returns
+     * {@link Direction#NONE} if x,y is a goal, a wall, outside the map, or can't reach any goal.
+     * @param goals any Iterable of Coord to use as goals, such as a List, a Set, or a GreasedRegion
+     * @param x the x coordinate of the cell to move from
+     * @param y the y coordinate of the cell to move from
+     * @return the Direction to move in, or Direction.NONE if there is no better cell to move to
+     */
+    public Direction direction(Iterable<Coord> goals, int x, int y) {
+        if (x < 0 || y < 0 || x >= terrain.width || y >= terrain.height)
+            return Direction.NONE;
+        final byte d = directions(goals)[x + y * terrain.width];
+        return d < 0 ? Direction.NONE : Direction.OUTWARDS[d];
+    }
+
+    /**
+     * Gets the Direction to move from start to get closer to the nearest goal in the given goal set; see
+     * {@link #direction(Iterable, int, int)}.
+     * @param goals any Iterable of Coord to use as goals, such as a List, a Set, or a GreasedRegion
+     * @param start the cell to move from
+     * @return the Direction to move in, or Direction.NONE if there is no better cell to move to
+     */
+    public Direction direction(Iterable<Coord> goals, Coord start) {
+        return direction(goals, start.x, start.y);
+    }
+
+    /**
+     * Follows the cached direction field for the given goal set from start, returning up to length steps in the same
+     * format as {@link DijkstraMap#findPath(int, java.util.Collection, java.util.Collection, Coord, Coord...)}: the
+     * path doesn't include start, but does include each step toward the nearest goal, ending at the goal if length
+     * allows. Only scans if the goal set isn't already cached for the current map version.
+     * @param goals any Iterable of Coord to use as goals, such as a List, a Set, or a GreasedRegion
+     * @param start the cell to start from
+     * @param length the most steps to include; negative to include every step to the goal
+     * @return an ArrayList of Coord going from next to start toward the nearest goal; empty if there is no path
+     */
+    public ArrayList<Coord> findPath(Iterable<Coord> goals, Coord start, int length) {
+        final ArrayList<Coord> path = new ArrayList<>();
+        if (start == null || !start.isWithin(terrain.width, terrain.height))
+            return path;
+        final byte[] dirs = directions(goals);
+        final int width = terrain.width;
+        int x = start.x, y = start.y;
+        byte d;
+        while (path.size() != length && (d = dirs[x + y * width]) >= 0) {
+            x += Direction.OUTWARDS[d].deltaX;
+            y += Direction.OUTWARDS[d].deltaY;
+            path.add(Coord.get(x, y));
+        }
+        return path;
+    }
+
+    private void store(Key key, Entry entry) {
+        entries.put(key, entry);
+        used += entry.size();
+        evict();
+    }
+
+    private void evict() {
+        final Iterator<Entry> it = entries.values().iterator();
+        Entry e;
+        // the most recently used entry is last in iteration order, and is always kept
+        while (used > budget && entries.size() > 1) {
+            e = it.next();
+            used -= e.size();
+            it.remove();
+        }
+    }
+
+    private double[][] scan(Key key) {
+        final int width = terrain.width, height = terrain.height;
+        if (scanner == null)
+            scanner = new DijkstraMap().initializeShared(terrain);
+        else {
+            // terrain may have been given new costs or settings since the last scan
+            scanner.width = width;
+            scanner.height = height;
+            scanner.physicalMap = terrain.physicalMap;
+            scanner.costMap = terrain.costMap;
+            scanner.standardCosts = terrain.standardCosts;
+            scanner.measurement = terrain.measurement;
+            scanner.setBlockingRequirement(terrain.getBlockingRequirement());
+        }
+        double[][] buffer = spare;
+        spare = null;
+        if (buffer == null || buffer.length != width || buffer[0].length != height)
+            buffer = new double[width][height];
+        for (int x = 0; x < width; x++) {
+            System.arraycopy(terrain.physicalMap[x], 0, buffer[x], 0, height);
+        }
+        scanner.gradientMap = buffer;
+        scanner.clearGoals();
+        for (int i = 0; i < key.goals.length; i++) {
+            scanner.setGoal(key.goals[i] % width, key.goals[i] / width);
+        }
+        scanner.bucketScan(null, null);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (buffer[x][y] == DijkstraMap.FLOOR)
+                    buffer[x][y] = DijkstraMap.DARK;
+            }
+        }
+        return buffer;
+    }
+
+    private byte[] directionsFrom(double[][] gradient) {
+        final int width = terrain.width, height = terrain.height, blocking = terrain.getBlockingRequirement(),
+                dirCount = terrain.measurement == DijkstraMap.Measurement.MANHATTAN ? 4 : 8;
+        final double[][] physical = terrain.physicalMap, costs = terrain.costMap;
+        final byte[] dirs = new byte[width * height];
+        double current, best, through;
+        int nx, ny;
+        byte choice;
+        Direction dir;
+        for (int y = 0, i = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, i++) {
+                choice = -1;
+                best = current = gradient[x][y];
+                if (current > DijkstraMap.GOAL && current < DijkstraMap.FLOOR) {
+                    // a step is on a shortest path when the neighbor's distance plus the cost of the step is smallest
+                    best = Double.POSITIVE_INFINITY;
+                    for (byte d = 0; d < dirCount; d++) {
+                        dir = Direction.OUTWARDS[d];
+                        nx = x + dir.deltaX;
+                        ny = y + dir.deltaY;
+                        if (nx < 0 || ny < 0 || nx >= width || ny >= height || gradient[nx][ny] >= current)
+                            continue;
+                        if (d >= 4 && blocking > 0 && (physical[nx][y] > DijkstraMap.FLOOR ? 1 : 0)
+                                + (physical[x][ny] > DijkstraMap.FLOOR ? 1 : 0) >= blocking)
+                            continue;
+                        through = gradient[nx][ny] + terrain.measurement.heuristic(dir) * costs[x][y];
+                        if (through < best) {
+                            best = through;
+                            choice = d;
+                        }
+                    }
+                }
+                dirs[i] = choice;
+            }
+        }
+        return dirs;
+    }
+
+    /**
+     * A goal set, stored as sorted, distinct encoded cells, with the map version it was scanned for.
+     */
+    private final class Key {
+        final int[] goals;
+        final int version;
+        final int hash;
+
+        Key(Iterable<Coord> pts) {
+            final int width = terrain.width, height = terrain.height;
+            int[] enc = new int[16];
+            int n = 0;
+            for (Coord c : pts) {
+                if (c == null || !c.isWithin(width, height))
+                    continue;
+                if (n == enc.length)
+                    enc = Arrays.copyOf(enc, n << 1);
+                enc[n++] = c.x + c.y * width;
+            }
+            Arrays.sort(enc, 0, n);
+            int distinct = 0;
+            for (int i = 0; i < n; i++) {
+                if (distinct == 0 || enc[distinct - 1] != enc[i])
+                    enc[distinct++] = enc[i];
+            }
+            goals = Arrays.copyOf(enc, distinct);
+            version = FlowFieldCache.this.version;
+            hash = 31 * Arrays.hashCode(goals) + version;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return version == k.version && hash == k.hash && Arrays.equals(goals, k.goals);
+        }
+    }
+
+    private static final class Entry {
+        double[][] gradient;
+        byte[] directions;
+
+        Entry(double[][] gradient, byte[] directions) {
+            this.gradient = gradient;
+            this.directions = directions;
+        }
+
+        long size() {
+            long s = 0;
+            if (gradient != null)
+                s += (long) gradient.length * gradient[0].length * 8L;
+            if (directions != null)
+                s += directions.length;
+            return s;
+        }
+    }
+}
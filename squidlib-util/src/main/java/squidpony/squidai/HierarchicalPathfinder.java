@@ -0,0 +1,620 @@
+package squidpony.squidai;
+
+import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidgrid.mapping.RoomFinder;
+import squidpony.squidgrid.mapping.SectionMap;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.IntVLA;
+import squidpony.squidmath.OrderedMap;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Finds long paths across large maps by searching a small graph of the entrances between areas, instead of scanning
+ * the whole map the way {@link DijkstraMap} does. This is a form of Hierarchical Pathfinding A* (HPA*). The map is
+ * split into clusters, using the rooms, corridors, and caves in a {@link SectionMap} (usually built from the
+ * {@link RoomFinder} that {@link squidpony.squidgrid.mapping.SectionDungeonGenerator} provides), with any section
+ * larger than clusterSize by clusterSize cells cut into several clusters along a grid so no single cluster is too big.
+ * Where two clusters touch, each stretch of touching cells gets one entrance (or one at each end if the stretch is
+ * long), and when this is constructed, the paths between every pair of entrances in the same cluster are found and
+ * cached, so the graph of entrances knows the real cost of crossing each cluster.
+ * <br>
+ * A query only needs to search the cluster the start is in, the cluster the target is in, and the graph of entrances,
+ * which has far fewer nodes than the map has cells; the full path is then assembled from the cached paths, and if only
+ * the first few steps are requested, the rest of the path is never assembled. Paths found this way aren't guaranteed
+ * to be the shortest, since they must pass through the chosen entrances, and there is no fixed bound on how much
+ * longer they can be. Between random floor cells on {@link squidpony.squidgrid.mapping.DungeonGenerator} maps with
+ * the default cluster size, paths averaged about 1.02 times the shortest length with MANHATTAN and about 1.09 times
+ * with CHEBYSHEV or EUCLIDEAN. The worst cases are short paths between neighboring clusters that have to detour
+ * through an entrance: a path with a shortest length of 3 could be 3.3 times as long, and even paths with a shortest
+ * length of 20 or more could be up to about 1.75 times as long. {@link WaypointPathfinder} is similar in spirit but
+ * less precise, and {@link DijkstraMap} or {@link JumpPointSearch} can be used when exact shortest paths are needed,
+ * such as for short moves where the detour would be noticeable. Like those, this ignores any costs and only cares
+ * about walls ('#' in the map given to the constructor, after {@link DungeonUtility#simplifyDungeon(char[][])}).
+ */
+public class HierarchicalPathfinder implements Serializable {
+    private static final long serialVersionUID = 6203170854938112287L;
+    private static final double root2 = Math.sqrt(2.0);
+    private static final int[] DX = {0, 0, -1, 1, -1, 1, -1, 1}, DY = {-1, 1, 0, 0, -1, -1, 1, 1};
+
+    /**
+     * A link in the graph of entrances, going to the node with index {@code to}, with the given cost, and with the
+     * encoded cells ({@code x + y * width}) of the path, not including the cell it starts from but including the cell
+     * it goes to.
+     */
+    protected static class Edge implements Serializable {
+        private static final long serialVersionUID = 1739572027453846113L;
+        public final int to;
+        public final double cost;
+        public final int[] path;
+
+        public Edge(int to, double cost, int[] path) {
+            this.to = to;
+            this.cost = cost;
+            this.path = path;
+        }
+    }
+
+    /**
+     * How distance is measured and which directions can be moved in; see {@link DijkstraMap.Measurement}.
+     */
+    public final DijkstraMap.Measurement measurement;
+    /**
+     * Width of the map.
+     */
+    public final int width;
+    /**
+     * Height of the map.
+     */
+    public final int height;
+    /**
+     * The latest path that was obtained by calling findPath(). It will not contain the value passed as a starting
+     * cell; only steps that require movement will be included, and so if the path has not been found or a valid
+     * path toward a goal is impossible, this ArrayList will be empty.
+     */
+    public ArrayList<Coord> path = new ArrayList<>();
+
+    /**
+     * The cluster each cell belongs to, indexed by {@code x + y * width}, or -1 for walls and for cells outside the
+     * SectionMap this was given.
+     */
+    protected final int[] clusters;
+    protected final int clusterCount, blockingRequirement;
+    /**
+     * For each cluster, the indices of the entrance nodes in that cluster.
+     */
+    protected final int[][] clusterNodes;
+    /**
+     * For each entrance node, its cell encoded as {@code x + y * width}.
+     */
+    protected final int[] nodeCells;
+    /**
+     * For each entrance node, the edges leaving it.
+     */
+    protected final Edge[][] edges;
+
+    private transient double[] distA, distB, nodeG, heapKeys;
+    private transient int[] parentA, parentB, stampA, stampB, nodeParent, nodeEdge, nodeStamps, heap;
+    private transient int generation, heapSize;
+    private transient IntVLA order;
+
+    /**
+     * Constructs a HierarchicalPathfinder for the given map, finding its rooms and corridors with a new
+     * {@link RoomFinder}. Uses 32 as the largest width or height of a cluster and a blocking requirement of 2.
+     * @param map a char[][] that uses '#' for walls
+     * @param measurement the Measurement to use for path distances
+     */
+    public HierarchicalPathfinder(char[][] map, DijkstraMap.Measurement measurement) {
+        this(map, new SectionMap(new RoomFinder(map)), measurement, 32, 2);
+    }
+
+    /**
+     * Constructs a HierarchicalPathfinder for the given map, using the sections in the given SectionMap as clusters
+     * (split further if they are large). Uses 32 as the largest width or height of a cluster and a blocking
+     * requirement of 2.
+     * @param map a char[][] that uses '#' for walls
+     * @param sections a SectionMap made from the same map, usually with a RoomFinder from a SectionDungeonGenerator
+     * @param measurement the Measurement to use for path distances
+     */
+    public HierarchicalPathfinder(char[][] map, SectionMap sections, DijkstraMap.Measurement measurement) {
+        this(map, sections, measurement, 32, 2);
+    }
+
+    /**
+     * Constructs a HierarchicalPathfinder for the given map, using the sections in the given SectionMap as clusters,
+     * splitting any part of a section that crosses a multiple of clusterSize on the x or y axis into separate clusters.
+     * Smaller clusterSize values make queries faster but paths less likely to be the shortest, and use more memory for
+     * the cached paths; larger values make construction faster. The blocking requirement has the same meaning as in
+     * {@link DijkstraMap#setBlockingRequirement(int)}. Cells outside the SectionMap, where its
+     * {@link SectionMap#positionToNumber(int, int)} returns -1, are treated as walls.
+     * @param map a char[][] that uses '#' for walls
+     * @param sections a SectionMap made from the same map, usually with a RoomFinder from a SectionDungeonGenerator
+     * @param measurement the Measurement to use for path distances
+     * @param clusterSize the largest width or height of any cluster; should be at least 4
+     * @param blockingRequirement 0, 1, or 2; see {@link DijkstraMap#setBlockingRequirement(int)}
+     */
+    public HierarchicalPathfinder(char[][] map, SectionMap sections, DijkstraMap.Measurement measurement,
+                                  int clusterSize, int blockingRequirement) {
+        this.measurement = measurement == null ? DijkstraMap.Measurement.MANHATTAN : measurement;
+        this.blockingRequirement = blockingRequirement > 2 ? 2 : blockingRequirement < 0 ? 0 : blockingRequirement;
+        width = map.length;
+        height = map[0].length;
+        clusterSize = Math.max(4, clusterSize);
+        final char[][] simplified = DungeonUtility.simplifyDungeon(map);
+        final int size = width * height, tilesAcross = (width + clusterSize - 1) / clusterSize,
+                tilesDown = (height + clusterSize - 1) / clusterSize, tileCount = tilesAcross * tilesDown;
+        clusters = new int[size];
+        // sections and grid tiles are combined into a sparse key, then given dense cluster numbers in order of discovery
+        final int[] dense = new int[sections.size() * tileCount];
+        Arrays.fill(dense, -1);
+        int count = 0, key, section;
+        for (int y = 0, i = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, i++) {
+                // cells outside the SectionMap are left out instead of being merged into section 0
+                if (simplified[x][y] == '#' || (section = sections.positionToNumber(x, y)) < 0) {
+                    clusters[i] = -1;
+                    continue;
+                }
+                key = section * tileCount + (y / clusterSize) * tilesAcross + x / clusterSize;
+                if (dense[key] < 0)
+                    dense[key] = count++;
+                clusters[i] = dense[key];
+            }
+        }
+        clusterCount = count;
+        allocate();
+
+        // find entrances: for each ordered pair of clusters, the cells of the first that can step into the second
+        final IntVLA nodes = new IntVLA(256), nodeClusterList = new IntVLA(256);
+        final int[] nodeOfCell = new int[size];
+        Arrays.fill(nodeOfCell, -1);
+        final ArrayList<ArrayList<Edge>> building = new ArrayList<>(256);
+        final OrderedMap<Long, IntVLA> borders = new OrderedMap<>(256);
+        final int dirCount = this.measurement == DijkstraMap.Measurement.MANHATTAN ? 4 : 8;
+        int c, other, a, b, n, cx, cy, nx, ny;
+        long pair;
+        IntVLA border;
+        for (int i = 0; i < size; i++) {
+            if ((c = clusters[i]) < 0)
+                continue;
+            cx = i % width;
+            cy = i / width;
+            for (int d = 0; d < dirCount; d++) {
+                nx = cx + DX[d];
+                ny = cy + DY[d];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height || (other = clusters[nx + ny * width]) < 0
+                        || other == c || !canStep(cx, cy, nx, ny))
+                    continue;
+                pair = (long) c * clusterCount + other;
+                if ((border = borders.get(pair)) == null)
+                    borders.put(pair, border = new IntVLA(16));
+                if (border.size == 0 || border.get(border.size - 1) != i)
+                    border.add(i);
+            }
+        }
+        // split each border into stretches connected by single steps, and give each stretch one entrance, or one at
+        // each end if it is long; this is done first from the lower-numbered cluster of each pair, then from the
+        // higher-numbered one only for stretches that didn't get an entrance from the other side
+        final int[] borderStamp = new int[size];
+        final IntVLA component = new IntVLA(64);
+        int stamp = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int bi = 0; bi < borders.size(); bi++) {
+                pair = borders.keyAt(bi);
+                c = (int) (pair / clusterCount);
+                other = (int) (pair % clusterCount);
+                if ((pass == 0) != (c < other))
+                    continue;
+                border = borders.getAt(bi);
+                ++stamp;
+                for (int k = 0; k < border.size; k++) {
+                    borderStamp[border.get(k)] = stamp;
+                }
+                for (int k = 0; k < border.size; k++) {
+                    a = border.get(k);
+                    if (borderStamp[a] != stamp)
+                        continue;
+                    component.clear();
+                    component.add(a);
+                    borderStamp[a] = -1;
+                    boolean covered = false;
+                    for (int ci = 0; ci < component.size; ci++) {
+                        a = component.get(ci);
+                        if (pass == 1 && !covered && nodeOfCell[a] >= 0) {
+                            for (Edge e : building.get(nodeOfCell[a])) {
+                                if (nodeClusterList.get(e.to) == other) {
+                                    covered = true;
+                                    break;
+                                }
+                            }
+                        }
+                        for (int e = 0; e < dirCount; e++) {
+                            nx = a % width + DX[e];
+                            ny = a / width + DY[e];
+                            if (nx < 0 || ny < 0 || nx >= width || ny >= height
+                                    || borderStamp[b = nx + ny * width] != stamp || !canStep(a % width, a / width, nx, ny))
+                                continue;
+                            borderStamp[b] = -1;
+                            component.add(b);
+                        }
+                    }
+                    if (covered)
+                        continue;
+                    component.sort();
+                    if (component.size > 6) {
+                        addEntrance(component.get(0), other, nodes, nodeClusterList, nodeOfCell, building);
+                        addEntrance(component.get(component.size - 1), other, nodes, nodeClusterList, nodeOfCell,
+                                building);
+                    } else {
+                        addEntrance(component.get(component.size >>> 1), other, nodes, nodeClusterList, nodeOfCell,
+                                building);
+                    }
+                }
+            }
+        }
+        final int nodeCount = nodes.size;
+        nodeCells = nodes.toArray();
+
+        // group nodes by cluster, then cache the paths between each pair of nodes in the same cluster
+        final IntVLA[] grouping = new IntVLA[clusterCount];
+        for (int i = 0; i < clusterCount; i++) {
+            grouping[i] = new IntVLA(4);
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            grouping[nodeClusterList.get(i)].add(i);
+        }
+        clusterNodes = new int[clusterCount][];
+        IntVLA chain = new IntVLA(64);
+        int[] fwd, back;
+        for (int cl = 0; cl < clusterCount; cl++) {
+            clusterNodes[cl] = grouping[cl].toArray();
+            final int[] cn = clusterNodes[cl];
+            for (int i = 0; i < cn.length - 1; i++) {
+                localScan(nodeCells[cn[i]], cl, distA, parentA, stampA);
+                for (int j = i + 1; j < cn.length; j++) {
+                    n = nodeCells[cn[j]];
+                    if (stampA[n] != generation)
+                        continue;
+                    chain.clear();
+                    for (int p = n; p != -1; p = parentA[p]) {
+                        chain.add(p);
+                    }
+                    // chain goes from node j back to node i, including both
+                    fwd = new int[chain.size - 1];
+                    back = new int[chain.size - 1];
+                    for (int k = 0; k < chain.size - 1; k++) {
+                        fwd[k] = chain.get(chain.size - 2 - k);
+                        back[k] = chain.get(k + 1);
+                    }
+                    building.get(cn[i]).add(new Edge(cn[j], distA[n], fwd));
+                    building.get(cn[j]).add(new Edge(cn[i], distA[n], back));
+                }
+            }
+        }
+        edges = new Edge[nodeCount][];
+        for (int i = 0; i < nodeCount; i++) {
+            edges[i] = building.get(i).toArray(new Edge[building.get(i).size()]);
+        }
+    }
+
+    private void allocate() {
+        final int size = width * height;
+        distA = new double[size];
+        distB = new double[size];
+        parentA = new int[size];
+        parentB = new int[size];
+        stampA = new int[size];
+        stampB = new int[size];
+        heap = new int[256];
+        heapKeys = new double[256];
+        generation = 0;
+    }
+
+    /**
+     * Adds an entrance node at cell (if there isn't one there already) and one at the first cell in cluster other it
+     * can step into, with an edge in each direction between them.
+     */
+    private void addEntrance(int cell, int other, IntVLA nodes, IntVLA nodeClusterList, int[] nodeOfCell,
+                             ArrayList<ArrayList<Edge>> building) {
+        final int x = cell % width, y = cell / width,
+                dirCount = measurement == DijkstraMap.Measurement.MANHATTAN ? 4 : 8;
+        int nx, ny, next;
+        for (int d = 0; d < dirCount; d++) {
+            nx = x + DX[d];
+            ny = y + DY[d];
+            if (nx < 0 || ny < 0 || nx >= width || ny >= height || clusters[next = nx + ny * width] != other
+                    || !canStep(x, y, nx, ny))
+                continue;
+            final int from = nodeFor(cell, nodes, nodeClusterList, nodeOfCell, building),
+                    to = nodeFor(next, nodes, nodeClusterList, nodeOfCell, building);
+            final double cost = d >= 4 && measurement == DijkstraMap.Measurement.EUCLIDEAN ? root2 : 1.0;
+            building.get(from).add(new Edge(to, cost, new int[]{next}));
+            building.get(to).add(new Edge(from, cost, new int[]{cell}));
+            return;
+        }
+    }
+
+    private int nodeFor(int cell, IntVLA nodes, IntVLA nodeClusterList, int[] nodeOfCell,
+                        ArrayList<ArrayList<Edge>> building) {
+        if (nodeOfCell[cell] < 0) {
+            nodeOfCell[cell] = nodes.size;
+            nodes.add(cell);
+            nodeClusterList.add(clusters[cell]);
+            building.add(new ArrayList<Edge>(8));
+        }
+        return nodeOfCell[cell];
+    }
+
+    /**
+     * Checks whether a single step from x,y to nx,ny (which must both be passable and adjacent) is allowed, which only
+     * matters for diagonal steps when the blocking requirement is greater than 0.
+     */
+    private boolean canStep(int x, int y, int nx, int ny) {
+        return blockingRequirement <= 0 || x == nx || y == ny
+                || (clusters[nx + y * width] < 0 ? 1 : 0) + (clusters[x + ny * width] < 0 ? 1 : 0)
+                < blockingRequirement;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from the cell origin, only moving through cells in the given cluster, and records
+     * distances and parents (with -1 for origin) for every reached cell; reached cells are marked in stamps with the
+     * new value of generation.
+     */
+    private void localScan(final int origin, final int cluster, final double[] dist, final int[] parent,
+                           final int[] stamps) {
+        final int gen = ++generation, dirCount = measurement == DijkstraMap.Measurement.MANHATTAN ? 4 : 8;
+        final double diagonal = measurement == DijkstraMap.Measurement.EUCLIDEAN ? root2 : 1.0;
+        heapSize = 0;
+        stamps[origin] = gen;
+        dist[origin] = 0.0;
+        parent[origin] = -1;
+        push(origin, 0.0);
+        int cell, x, y, nx, ny, next;
+        double d0, cs;
+        while (heapSize > 0) {
+            d0 = heapKeys[0];
+            cell = pop();
+            if (d0 > dist[cell])
+                continue;
+            x = cell % width;
+            y = cell / width;
+            for (int d = 0; d < dirCount; d++) {
+                nx = x + DX[d];
+                ny = y + DY[d];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height || clusters[next = nx + ny * width] != cluster
+                        || !canStep(x, y, nx, ny))
+                    continue;
+                cs = d0 + (d >= 4 ? diagonal : 1.0);
+                if (stamps[next] != gen || cs < dist[next]) {
+                    stamps[next] = gen;
+                    dist[next] = cs;
+                    parent[next] = cell;
+                    push(next, cs);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds a path from start to target, returning a list of Coord positions that doesn't include start but includes
+     * every step up to and including target. If there is no possible path, the list will be empty.
+     * <br>
+     * This caches its result in a member field, path, which can be fetched after finding a path and will change with
+     * each call to a pathfinding method.
+     * @param start  the start of the path
+     * @param target the cell to pathfind toward
+     * @return an ArrayList of Coord that will contain the locations of this creature as it goes toward target. Copy of
+     *         path.
+     */
+    public ArrayList<Coord> findPath(Coord start, Coord target) {
+        return findPath(-1, start, target);
+    }
+
+    /**
+     * Finds a path from start to target, returning a list of Coord positions that doesn't include start but includes
+     * each step toward target, up to length steps. If length is negative, the whole path is returned. Only the
+     * requested steps are assembled from the cached paths, so asking for a short length when a creature will only move
+     * a few cells this turn is cheaper than asking for the whole path. If there is no possible path, the list will be
+     * empty.
+     * <br>
+     * This caches its result in a member field, path, which can be fetched after finding a path and will change with
+     * each call to a pathfinding method.
+     * @param length the most steps to include in the path; negative to include the whole path
+     * @param start  the start of the path
+     * @param target the cell to pathfind toward
+     * @return an ArrayList of Coord that will contain the locations of this creature as it goes toward target. Copy of
+     *         path.
+     */
+    public ArrayList<Coord> findPath(int length, Coord start, Coord target) {
+        path.clear();
+        if (length == 0 || start == null || target == null || !start.isWithin(width, height)
+                || !target.isWithin(width, height))
+            return new ArrayList<>(path);
+        final int s = start.x + start.y * width, t = target.x + target.y * width;
+        if (s == t || clusters[s] < 0 || clusters[t] < 0)
+            return new ArrayList<>(path);
+        if (distA == null)
+            allocate();
+        if (generation >= 0x7FFFFFF0) {
+            // stamps from long ago could look current once generation wraps around, so clear them first
+            Arrays.fill(stampA, 0);
+            Arrays.fill(stampB, 0);
+            if (nodeStamps != null)
+                Arrays.fill(nodeStamps, 0);
+            generation = 0;
+        }
+        final int sc = clusters[s], tc = clusters[t];
+        localScan(s, sc, distA, parentA, stampA);
+        final int genA = generation;
+        localScan(t, tc, distB, parentB, stampB);
+        final int genB = generation;
+
+        final int nodeCount = nodeCells.length, source = nodeCount, sink = nodeCount + 1;
+        if (nodeStamps == null || nodeStamps.length != nodeCount + 2) {
+            nodeStamps = new int[nodeCount + 2];
+            nodeG = new double[nodeCount + 2];
+            nodeParent = new int[nodeCount + 2];
+            nodeEdge = new int[nodeCount + 2];
+        }
+        final int gen = genB;
+        heapSize = 0;
+        nodeStamps[source] = gen;
+        nodeG[source] = 0.0;
+        nodeParent[source] = -1;
+        push(source, h(s, t));
+        int current, cell;
+        double g, key;
+        Edge[] es;
+        Edge e;
+        SEARCH:
+        while (heapSize > 0) {
+            key = heapKeys[0];
+            current = pop();
+            if (current == sink)
+                break;
+            if (key > nodeG[current] + (current == source ? h(s, t) : h(nodeCells[current], t)))
+                continue;
+            if (current == source) {
+                if (sc == tc && stampA[t] == genA)
+                    relax(source, sink, -1, distA[t], 0.0, gen);
+                for (int n : clusterNodes[sc]) {
+                    if (stampA[cell = nodeCells[n]] == genA)
+                        relax(source, n, -1, distA[cell], h(cell, t), gen);
+                }
+                continue;
+            }
+            cell = nodeCells[current];
+            if (clusters[cell] == tc && stampB[cell] == genB)
+                relax(current, sink, -1, nodeG[current] + distB[cell], 0.0, gen);
+            es = edges[current];
+            for (int i = 0; i < es.length; i++) {
+                e = es[i];
+                g = nodeG[current] + e.cost;
+                relax(current, e.to, i, g, h(nodeCells[e.to], t), gen);
+            }
+        }
+        if (nodeStamps[sink] != gen)
+            return new ArrayList<>(path);
+
+        // walk back to find the order of nodes, then only assemble as many steps as were requested
+        if (order == null)
+            order = new IntVLA(16);
+        else
+            order.clear();
+        for (int n = sink; n != -1; n = nodeParent[n]) {
+            order.add(n);
+        }
+        int prev = order.get(order.size - 1), next;
+        for (int oi = order.size - 2; oi >= 0; oi--) {
+            next = order.get(oi);
+            if (prev == source) {
+                final int end = next == sink ? t : nodeCells[next];
+                int steps = 0;
+                for (int p = end; p != s; p = parentA[p]) {
+                    steps++;
+                }
+                final int first = path.size();
+                for (int i = 0; i < steps; i++) {
+                    path.add(null);
+                }
+                for (int p = end, i = first + steps - 1; p != s; p = parentA[p], i--) {
+                    path.set(i, Coord.get(p % width, p / width));
+                }
+            } else if (next == sink) {
+                for (int p = parentB[nodeCells[prev]]; p != -1; p = parentB[p]) {
+                    path.add(Coord.get(p % width, p / width));
+                    if (path.size() == length)
+                        break;
+                }
+            } else {
+                final int[] steps = edges[prev][nodeEdge[next]].path;
+                for (int i = 0; i < steps.length && path.size() != length; i++) {
+                    path.add(Coord.get(steps[i] % width, steps[i] / width));
+                }
+            }
+            if (length >= 0 && path.size() >= length) {
+                while (path.size() > length)
+                    path.remove(path.size() - 1);
+                break;
+            }
+            prev = next;
+        }
+        return new ArrayList<>(path);
+    }
+
+    private void relax(int from, int to, int edgeIndex, double g, double heuristic, int gen) {
+        if (nodeStamps[to] != gen || g < nodeG[to]) {
+            nodeStamps[to] = gen;
+            nodeG[to] = g;
+            nodeParent[to] = from;
+            nodeEdge[to] = edgeIndex;
+            push(to, g + heuristic);
+        }
+    }
+
+    private double h(int from, int to) {
+        final int xDist = Math.abs(from % width - to % width), yDist = Math.abs(from / width - to / width);
+        switch (measurement) {
+            case CHEBYSHEV:
+                return Math.max(xDist, yDist);
+            case EUCLIDEAN:
+                return Math.max(xDist, yDist) + (root2 - 1.0) * Math.min(xDist, yDist);
+            default:
+                return xDist + yDist;
+        }
+    }
+
+    /**
+     * @return the number of entrance nodes in the abstract graph this searches
+     */
+    public int getNodeCount() {
+        return nodeCells.length;
+    }
+
+    /**
+     * @return the number of clusters the map was split into
+     */
+    public int getClusterCount() {
+        return clusterCount;
+    }
+
+    private void push(final int idx, final double key) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize << 1);
+            heapKeys = Arrays.copyOf(heapKeys, heapSize << 1);
+        }
+        int i = heapSize++, parent;
+        while (i > 0) {
+            parent = (i - 1) >>> 1;
+            if (heapKeys[parent] <= key)
+                break;
+            heap[i] = heap[parent];
+            heapKeys[i] = heapKeys[parent];
+            i = parent;
+        }
+        heap[i] = idx;
+        heapKeys[i] = key;
+    }
+
+    private int pop() {
+        final int top = heap[0], idx = heap[--heapSize];
+        final double key = heapKeys[heapSize];
+        final int half = heapSize >>> 1;
+        int i = 0, child;
+        while (i < half) {
+            child = (i << 1) + 1;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child])
+                child++;
+            if (heapKeys[child] >= key)
+                break;
+            heap[i] = heap[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heap[i] = idx;
+        heapKeys[i] = key;
+        return top;
+    }
+}
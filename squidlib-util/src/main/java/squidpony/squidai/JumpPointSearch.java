@@ -0,0 +1,530 @@
+package squidpony.squidai;
+
+import squidpony.squidmath.Coord;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Finds shortest paths on maps where every walkable cell costs the same to enter, using Jump Point Search (JPS).
+ * Instead of adding every neighbor of a cell to the open set, as A* or a {@link DijkstraMap} scan would, JPS moves in
+ * straight and diagonal lines from each cell it expands, skipping over cells that any optimal path could just as well
+ * pass through without turning, and only stops at "jump points" where a wall edge makes a turn worthwhile. From each
+ * jump point, it only searches onward in the directions that continue the way it arrived, plus any that the wall edge
+ * opens up, since every other neighbor can be reached at least as cheaply without passing through that jump point.
+ * On the open rooms and long corridors that {@link squidpony.squidgrid.mapping.DungeonGenerator} and similar
+ * generators produce, this touches only a small fraction of the cells a full scan would, so long paths across a large
+ * map are often an order of magnitude faster to find than with {@link DijkstraMap#findPath(int, Collection,
+ * Collection, Coord, Coord...)}.
+ * <br>
+ * This takes the same char[][] maps as DijkstraMap (with '#' as a wall, or another char you specify), or can take its
+ * walls, measurement, and blocking requirement from an existing DijkstraMap; it ignores {@link DijkstraMap#costMap},
+ * which is why it should only be used when {@link DijkstraMap#standardCosts} is true. Paths are returned in the same
+ * format as DijkstraMap's findPath(), as an ArrayList of Coord that doesn't include the start but does include each
+ * step up to and including the target. The {@link #setBlockingRequirement(int) blocking requirement} controls whether
+ * diagonal moves can cut around corners, with the same meaning as in DijkstraMap.
+ * <br>
+ * With {@link DijkstraMap.Measurement#MANHATTAN}, only orthogonal moves are allowed, and jumps in one axis check for
+ * jump points in the other axis as they go. With CHEBYSHEV, diagonal moves cost as much as orthogonal ones, and with
+ * EUCLIDEAN, diagonal moves cost the square root of 2; paths are optimal for the chosen measurement either way. All
+ * search state is kept in flat arrays that are reused by every query, and cells visited by older queries are told
+ * apart by a stamp instead of by clearing the arrays.
+ */
+public class JumpPointSearch implements Serializable {
+    private static final long serialVersionUID = -3307219413285736590L;
+    private static final double root2 = Math.sqrt(2.0);
+    private static final int[] DX = {0, 0, -1, 1, -1, 1, -1, 1}, DY = {-1, 1, 0, 0, -1, -1, 1, 1},
+            // the bit for each direction in DX and DY, indexed by (dx + 1) + (dy + 1) * 3
+            BITS = {1 << 4, 1, 1 << 5, 1 << 2, 0, 1 << 3, 1 << 6, 1 << 1, 1 << 7};
+
+    /**
+     * How distance is measured and which directions can be moved in; see {@link DijkstraMap.Measurement}.
+     */
+    public DijkstraMap.Measurement measurement = DijkstraMap.Measurement.MANHATTAN;
+    /**
+     * Width of the map. Don't change this, instead call initialize().
+     */
+    public int width;
+    /**
+     * Height of the map. Don't change this, instead call initialize().
+     */
+    public int height;
+    /**
+     * The latest path that was obtained by calling findPath(). It will not contain the value passed as a starting
+     * cell; only steps that require movement will be included, and so if the path has not been found or a valid
+     * path toward a goal is impossible, this ArrayList will be empty.
+     */
+    public ArrayList<Coord> path = new ArrayList<>();
+
+    /**
+     * Which cells are walkable, with a border of unwalkable cells around the map so no bounds checks are needed; a cell
+     * at x,y is stored at index {@code (x + 1) + (y + 1) * (width + 2)}.
+     */
+    protected boolean[] physical, walkable;
+    private int blockingRequirement = 2, paddedWidth;
+
+    private transient int[] stamps, parents, heapIndices, heap;
+    private transient double[] gScores, fScores;
+    private transient int generation, heapSize, target, targetX, targetY;
+
+    /**
+     * Construct a JumpPointSearch without a level to actually search. If you use this constructor, you must call an
+     * initialize() method before using this class.
+     */
+    public JumpPointSearch() {
+    }
+
+    /**
+     * Constructor meant to take a char[][] returned by DungeonGenerator.generate(), or any other char[][] where '#'
+     * means a wall and anything else is a walkable tile. Uses MANHATTAN measurement.
+     * @param level a char[][] where '#' is a wall
+     */
+    public JumpPointSearch(final char[][] level) {
+        this(level, DijkstraMap.Measurement.MANHATTAN);
+    }
+
+    /**
+     * Constructor meant to take a char[][] returned by DungeonGenerator.generate(), or any other char[][] where '#'
+     * means a wall and anything else is a walkable tile, using the given measurement.
+     * @param level a char[][] where '#' is a wall
+     * @param measurement the Measurement to use; MANHATTAN only allows orthogonal moves
+     */
+    public JumpPointSearch(final char[][] level, final DijkstraMap.Measurement measurement) {
+        this.measurement = measurement;
+        initialize(level, '#');
+    }
+
+    /**
+     * Constructs a JumpPointSearch that uses the walls, measurement, and blocking requirement of an initialized
+     * DijkstraMap. The DijkstraMap's costMap is ignored; any cell in its physicalMap that is no higher than
+     * {@link DijkstraMap#FLOOR} is walkable. Later changes to the DijkstraMap don't affect this.
+     * @param dijkstra an initialized DijkstraMap to take the map and settings from
+     */
+    public JumpPointSearch(final DijkstraMap dijkstra) {
+        measurement = dijkstra.measurement;
+        blockingRequirement = dijkstra.getBlockingRequirement();
+        initialize(dijkstra.physicalMap);
+    }
+
+    /**
+     * Used to initialize or re-initialize a JumpPointSearch with a new map, treating alternateWall as a wall and
+     * anything else as walkable.
+     * @param level a 2D char array that this will use to establish which cells are walls
+     * @param alternateWall the char to consider a wall when it appears in level
+     * @return this for chaining
+     */
+    public JumpPointSearch initialize(final char[][] level, final char alternateWall) {
+        width = level.length;
+        height = level[0].length;
+        paddedWidth = width + 2;
+        physical = new boolean[paddedWidth * (height + 2)];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0, i = x + 1 + paddedWidth; y < height; y++, i += paddedWidth) {
+                physical[i] = level[x][y] != alternateWall;
+            }
+        }
+        walkable = Arrays.copyOf(physical, physical.length);
+        stamps = null;
+        return this;
+    }
+
+    /**
+     * Used to initialize or re-initialize a JumpPointSearch with a new map, treating any value higher than
+     * {@link DijkstraMap#FLOOR} as a wall, like DijkstraMap's physicalMap does.
+     * @param level a 2D double array like DijkstraMap's physicalMap
+     * @return this for chaining
+     */
+    public JumpPointSearch initialize(final double[][] level) {
+        width = level.length;
+        height = level[0].length;
+        paddedWidth = width + 2;
+        physical = new boolean[paddedWidth * (height + 2)];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0, i = x + 1 + paddedWidth; y < height; y++, i += paddedWidth) {
+                physical[i] = level[x][y] <= DijkstraMap.FLOOR;
+            }
+        }
+        walkable = Arrays.copyOf(physical, physical.length);
+        stamps = null;
+        return this;
+    }
+
+    /**
+     * Changes whether a single cell is walkable, such as when a door is opened or a wall is dug through.
+     * @param x the x coordinate of the cell to change
+     * @param y the y coordinate of the cell to change
+     * @param isWalkable true if the cell can now be entered, false if it is now a wall
+     */
+    public void setWalkable(int x, int y, boolean isWalkable) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return;
+        physical[x + 1 + (y + 1) * paddedWidth] = isWalkable;
+        walkable[x + 1 + (y + 1) * paddedWidth] = isWalkable;
+    }
+
+    /**
+     * If you want obstacles present in orthogonal cells to prevent pathfinding along the diagonal between them, this
+     * can be used to make thin diagonal walls non-viable to move through, or even to prevent diagonal moves that
+     * would cut a corner. The meaning is the same as {@link DijkstraMap#setBlockingRequirement(int)}: 0 allows all
+     * diagonal moves, 1 prevents a diagonal move if either orthogonal neighbor on the way is a wall, and 2 (the
+     * default) prevents a diagonal move only if both are walls.
+     * @param blockingRequirement the desired blocking requirement; will be clamped between 0 and 2 inclusive
+     */
+    public void setBlockingRequirement(int blockingRequirement) {
+        this.blockingRequirement = blockingRequirement > 2 ? 2 : blockingRequirement < 0 ? 0 : blockingRequirement;
+    }
+
+    /**
+     * @return the current blocking requirement, between 0 and 2 inclusive
+     * @see #setBlockingRequirement(int)
+     */
+    public int getBlockingRequirement() {
+        return blockingRequirement;
+    }
+
+    /**
+     * Finds the shortest path from start to target, returning a list of Coord positions that doesn't include start but
+     * includes every step up to and including target. If there is no possible path, the list will be empty.
+     * <br>
+     * This caches its result in a member field, path, which can be fetched after finding a path and will change with
+     * each call to a pathfinding method.
+     * @param start  the start of the path
+     * @param target the cell to pathfind toward
+     * @return an ArrayList of Coord that will contain the locations of this creature as it goes toward target. Copy of
+     *         path.
+     */
+    public ArrayList<Coord> findPath(Coord start, Coord target) {
+        return findPath(-1, null, start, target);
+    }
+
+    /**
+     * Finds the shortest path from start to target that avoids the cells in impassable, returning a list of Coord
+     * positions that doesn't include start but includes each step toward target, up to length steps. If length is
+     * negative, the whole path is returned. If there is no possible path, the list will be empty.
+     * <br>
+     * This caches its result in a member field, path, which can be fetched after finding a path and will change with
+     * each call to a pathfinding method.
+     * @param length     the most steps to include in the path; negative to include the whole path
+     * @param impassable a Collection of impassable Coord positions that may change (not constant like walls); can be
+     *                   null; ignored if it contains target
+     * @param start      the start of the path
+     * @param target     the cell to pathfind toward
+     * @return an ArrayList of Coord that will contain the locations of this creature as it goes toward target. Copy of
+     *         path.
+     */
+    public ArrayList<Coord> findPath(int length, Collection<Coord> impassable, Coord start, Coord target) {
+        path.clear();
+        if (walkable == null || length == 0 || !start.isWithin(width, height) || !target.isWithin(width, height))
+            return new ArrayList<>(path);
+        if (impassable != null) {
+            for (Coord pt : impassable) {
+                if (pt != null && pt.isWithin(width, height) && !pt.equals(target))
+                    walkable[pt.x + 1 + (pt.y + 1) * paddedWidth] = false;
+            }
+        }
+        final int found = search(start.x, start.y, target.x, target.y);
+        if (impassable != null) {
+            for (Coord pt : impassable) {
+                if (pt != null && pt.isWithin(width, height))
+                    walkable[pt.x + 1 + (pt.y + 1) * paddedWidth] = physical[pt.x + 1 + (pt.y + 1) * paddedWidth];
+            }
+        }
+        if (found >= 0) {
+            // collect jump points from target back to start, then fill in the straight runs between them
+            final int begin = start.x + 1 + (start.y + 1) * paddedWidth;
+            int count = 0;
+            for (int p = found; p != begin; p = parents[p]) {
+                heap[count++] = p;
+            }
+            int cx = start.x, cy = start.y, nx, ny, sx, sy;
+            PATHING:
+            for (int i = count - 1; i >= 0; i--) {
+                nx = heap[i] % paddedWidth - 1;
+                ny = heap[i] / paddedWidth - 1;
+                sx = Integer.signum(nx - cx);
+                sy = Integer.signum(ny - cy);
+                while (cx != nx || cy != ny) {
+                    cx += sx;
+                    cy += sy;
+                    path.add(Coord.get(cx, cy));
+                    if (path.size() == length)
+                        break PATHING;
+                }
+            }
+        }
+        return new ArrayList<>(path);
+    }
+
+    /**
+     * Runs A* over jump points from the start cell to the target cell. Cells are referred to by their index in the
+     * padded walkable array.
+     * @return the padded index of the target if it was reached, or -1 if there is no path
+     */
+    protected int search(final int startX, final int startY, final int targetX, final int targetY) {
+        final int size = walkable.length;
+        if (stamps == null || stamps.length != size) {
+            stamps = new int[size];
+            parents = new int[size];
+            heapIndices = new int[size];
+            heap = new int[size];
+            gScores = new double[size];
+            fScores = new double[size];
+            generation = 0;
+        }
+        if (++generation == 0) {
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+        final int gen = generation, start = startX + 1 + (startY + 1) * paddedWidth;
+        target = targetX + 1 + (targetY + 1) * paddedWidth;
+        this.targetX = targetX;
+        this.targetY = targetY;
+        if (start == target)
+            return target;
+        if (!walkable[target])
+            return -1;
+        final boolean orthogonal = measurement == DijkstraMap.Measurement.MANHATTAN;
+        final int dirCount = orthogonal ? 4 : 8;
+        final double diagonal = measurement == DijkstraMap.Measurement.EUCLIDEAN ? root2 : 1.0;
+        heapSize = 0;
+        stamps[start] = gen;
+        gScores[start] = 0.0;
+        parents[start] = -1;
+        fScores[start] = h(startX, startY);
+        push(start);
+        int current, cx, cy, dx, dy, next, nx, ny, steps, parent, directions;
+        double g;
+        while (heapSize > 0) {
+            current = pop();
+            if (current == target)
+                return target;
+            cx = current % paddedWidth;
+            cy = current / paddedWidth;
+            if ((parent = parents[current]) < 0)
+                directions = 0xFF;
+            else
+                directions = successors(current, Integer.signum(cx - parent % paddedWidth),
+                        Integer.signum(cy - parent / paddedWidth));
+            for (int d = 0; d < dirCount; d++) {
+                if ((directions & 1 << d) == 0)
+                    continue;
+                dx = DX[d];
+                dy = DY[d];
+                if (dx != 0 && dy != 0)
+                    next = jumpDiagonal(current, dx, dy * paddedWidth);
+                else if (orthogonal)
+                    next = dx != 0 ? jumpOrthogonal(current, dx, paddedWidth, false)
+                            : jumpOrthogonal(current, dy * paddedWidth, 1, true);
+                else
+                    next = dx != 0 ? jumpStraight(current, dx, paddedWidth) : jumpStraight(current, dy * paddedWidth, 1);
+                if (next < 0)
+                    continue;
+                nx = next % paddedWidth;
+                ny = next / paddedWidth;
+                steps = Math.max(Math.abs(nx - cx), Math.abs(ny - cy));
+                g = gScores[current] + (dx != 0 && dy != 0 ? steps * diagonal : steps);
+                if (stamps[next] != gen) {
+                    stamps[next] = gen;
+                    gScores[next] = g;
+                    fScores[next] = g + h(nx - 1, ny - 1);
+                    parents[next] = current;
+                    push(next);
+                } else if (g < gScores[next] && heapIndices[next] >= 0) {
+                    fScores[next] -= gScores[next] - g;
+                    gScores[next] = g;
+                    parents[next] = current;
+                    siftUp(heapIndices[next]);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the directions worth searching from a jump point that was reached by moving in the direction dx,dy, as bits
+     * matching the order of DX and DY. These are the natural neighbors, which keep going the same way, plus any forced
+     * neighbors, which can only be reached by a shortest path through this cell because a wall blocks the way around
+     * it. Every other neighbor can be reached at least as cheaply from the previous cell without passing through this
+     * one, so searching it from here would only find paths that are already being found some other way. The rules for
+     * forced neighbors match the conditions the jump methods stop at for each blocking requirement and measurement.
+     * @param i the padded index of the jump point
+     * @param dx the x direction of the last step taken to reach i; -1, 0, or 1
+     * @param dy the y direction of the last step taken to reach i; -1, 0, or 1
+     * @return a bit mask of the directions to search from i
+     */
+    private int successors(final int i, final int dx, final int dy) {
+        final boolean[] w = walkable;
+        final int step = dx + dy * paddedWidth;
+        int bits = BITS[dx + 1 + (dy + 1) * 3];
+        if (measurement == DijkstraMap.Measurement.MANHATTAN) {
+            // vertical jumps stop wherever a horizontal jump would find something, so both turns are natural there
+            if (dx == 0)
+                return bits | BITS[3] | BITS[5];
+            if (w[i - paddedWidth] && !w[i - step - paddedWidth])
+                bits |= BITS[1];
+            if (w[i + paddedWidth] && !w[i - step + paddedWidth])
+                bits |= BITS[7];
+            return bits;
+        }
+        if (dx != 0 && dy != 0) {
+            bits |= BITS[dx + 1 + 3] | BITS[1 + (dy + 1) * 3];
+            // without corner cutting, a diagonal step needs both sides open, so nothing can be forced
+            if (blockingRequirement != 1) {
+                if (!w[i - dx] && w[i - dx + dy * paddedWidth])
+                    bits |= BITS[1 - dx + (dy + 1) * 3];
+                if (!w[i - dy * paddedWidth] && w[i + dx - dy * paddedWidth])
+                    bits |= BITS[dx + 1 + (1 - dy) * 3];
+            }
+            return bits;
+        }
+        // a straight step; px,py is each side in turn, perpendicular to the step
+        for (int px = dy, py = dx, side, k = 0; k < 2; k++, px = -px, py = -py) {
+            side = px + py * paddedWidth;
+            if (blockingRequirement == 1) {
+                // the side just opened up, so turning to it or stepping diagonally onto it can't be done earlier
+                if (w[i + side] && !w[i - step + side])
+                    bits |= BITS[px + 1 + (py + 1) * 3] | BITS[dx + px + 1 + (dy + py + 1) * 3];
+            } else if (!w[i + side] && w[i + step + side])
+                bits |= BITS[dx + px + 1 + (dy + py + 1) * 3];
+        }
+        return bits;
+    }
+
+    private double h(final int x, final int y) {
+        final int xDist = Math.abs(x - targetX), yDist = Math.abs(y - targetY);
+        switch (measurement) {
+            case CHEBYSHEV:
+                return Math.max(xDist, yDist);
+            case EUCLIDEAN:
+                return Math.max(xDist, yDist) + (root2 - 1.0) * Math.min(xDist, yDist);
+            default:
+                return xDist + yDist;
+        }
+    }
+
+    /**
+     * Moves from the padded index i by step (either 1 or -1 to move horizontally, or paddedWidth or -paddedWidth to
+     * move vertically) until it reaches the target, a cell with a forced neighbor, or a wall. The side is the offset
+     * perpendicular to step, paddedWidth when moving horizontally and 1 when moving vertically.
+     * @return the padded index of the jump point, or -1 if there is none in this direction
+     */
+    private int jumpStraight(int i, final int step, final int side) {
+        final boolean[] w = walkable;
+        if (blockingRequirement == 1) {
+            while (true) {
+                i += step;
+                if (!w[i])
+                    return -1;
+                if (i == target
+                        || (w[i - side] && !w[i - step - side]) || (w[i + side] && !w[i - step + side]))
+                    return i;
+            }
+        }
+        while (true) {
+            i += step;
+            if (!w[i])
+                return -1;
+            if (i == target
+                    || (!w[i - side] && w[i + step - side]) || (!w[i + side] && w[i + step + side]))
+                return i;
+        }
+    }
+
+    /**
+     * Moves diagonally from the padded index i, by stepX (1 or -1) and stepY (paddedWidth or -paddedWidth) each time,
+     * until it reaches the target, a cell with a forced neighbor, a cell from which a straight jump finds a jump point,
+     * or a diagonal move that isn't allowed.
+     * @return the padded index of the jump point, or -1 if there is none in this direction
+     */
+    private int jumpDiagonal(int i, final int stepX, final int stepY) {
+        final boolean[] w = walkable;
+        while (true) {
+            if (!w[i + stepX + stepY] || (blockingRequirement > 0
+                    && (w[i + stepX] ? 0 : 1) + (w[i + stepY] ? 0 : 1) >= blockingRequirement))
+                return -1;
+            i += stepX + stepY;
+            if (i == target)
+                return i;
+            if (blockingRequirement != 1
+                    && ((!w[i - stepX] && w[i - stepX + stepY]) || (!w[i - stepY] && w[i + stepX - stepY])))
+                return i;
+            if (jumpStraight(i, stepX, paddedWidth) >= 0 || jumpStraight(i, stepY, 1) >= 0)
+                return i;
+        }
+    }
+
+    /**
+     * Used when only orthogonal moves are allowed; moves from the padded index i by step until it reaches the target,
+     * a wall, or a cell next to an opening that the previous cell didn't have. If checkSides is true (used when moving
+     * vertically), this also stops at cells from which a jump along side finds a jump point.
+     * @return the padded index of the jump point, or -1 if there is none in this direction
+     */
+    private int jumpOrthogonal(int i, final int step, final int side, final boolean checkSides) {
+        final boolean[] w = walkable;
+        while (true) {
+            i += step;
+            if (!w[i])
+                return -1;
+            if (i == target
+                    || (w[i - side] && !w[i - step - side]) || (w[i + side] && !w[i - step + side]))
+                return i;
+            if (checkSides && (jumpOrthogonal(i, side, paddedWidth, false) >= 0
+                    || jumpOrthogonal(i, -side, paddedWidth, false) >= 0))
+                return i;
+        }
+    }
+
+    private boolean before(final int a, final int b) {
+        return fScores[a] < fScores[b] || (fScores[a] == fScores[b] && gScores[a] > gScores[b]);
+    }
+
+    private void push(final int cell) {
+        heap[heapSize] = cell;
+        heapIndices[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        final int top = heap[0];
+        heapIndices[top] = -1;
+        if (--heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndices[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        final int cell = heap[i];
+        int parent;
+        while (i > 0) {
+            parent = (i - 1) >>> 1;
+            if (!before(cell, heap[parent]))
+                break;
+            heap[i] = heap[parent];
+            heapIndices[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = cell;
+        heapIndices[cell] = i;
+    }
+
+    private void siftDown(int i) {
+        final int cell = heap[i], half = heapSize >>> 1;
+        int child;
+        while (i < half) {
+            child = (i << 1) + 1;
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child]))
+                child++;
+            if (!before(heap[child], cell))
+                break;
+            heap[i] = heap[child];
+            heapIndices[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = cell;
+        heapIndices[cell] = i;
+    }
+}
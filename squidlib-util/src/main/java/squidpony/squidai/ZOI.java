@@ -4,15 +4,25 @@ import squidpony.squidgrid.Direction;
 import squidpony.squidgrid.Radius;
 import squidpony.squidmath.Coord;
 import squidpony.squidmath.CoordPacker;
+import squidpony.squidmath.GreasedRegion;
+import squidpony.squidmath.IntVLA;
 import squidpony.squidmath.OrderedSet;
 import squidpony.squidmath.ShortVLA;
 
+import java.util.Arrays;
 import java.util.Collections;
 
 /**
  * Calculates the Zone of Influence, also known as Zone of Control, for different points on a map.
  * Uses CoordPacker for more efficient storage and manipulation of zones; it's recommended if you use this class to be
  * somewhat familiar with the methods for manipulating packed data in that class.
+ * <br>
+ * If you recalculate zones often, such as for many factions every turn, {@link #label()} is much faster than
+ * {@link #calculate()}: it finds the nearest influence group for every cell in one search from all influences at once,
+ * storing the results in int arrays that are reused between calls, and {@link #calculateRegions()} and
+ * {@link #calculatePacked()} turn those labels into one GreasedRegion or packed short[] per group. Zones found this way
+ * only overlap on cells that are exactly as far from two or more groups, where calculate() gives borders between 1 and 2
+ * cells wide.
  * Created by Tommy Ettinger on 10/27/2015.
  */
 public class ZOI {
@@ -22,6 +32,12 @@ public class ZOI {
     private short[][] packedGroups;
     private boolean completed = false;
     private Radius radius;
+    private DijkstraMap.Measurement measurement;
+    private int width, height;
+    private boolean labeled = false;
+    private int[] labels, ties, order, heap;
+    private double[] distances, heapKeys;
+    private final IntVLA tieGroups = new IntVLA(64), gathered = new IntVLA(8);
     /**
      * Constructs a Zone of Influence map. Takes a (quite possibly jagged) array of arrays of Coord influences, where
      * the elements of the outer array represent different groups of influencing "factions" or groups that exert control
@@ -40,7 +56,9 @@ public class ZOI {
         packedGroups = new short[influences.length][];
         this.map = map;
         radius = measurement;
-        dijkstra = new DijkstraMap(map, DijkstraMap.findMeasurement(measurement));
+        this.measurement = DijkstraMap.findMeasurement(measurement);
+        width = map.length;
+        height = width == 0 ? 0 : map[0].length;
     }
     /**
      * Constructs a Zone of Influence map. Takes an arrays of Coord influences, where each Coord is treated as both a
@@ -65,7 +83,9 @@ public class ZOI {
         packedGroups = new short[influences.length][];
         this.map = map;
         radius = measurement;
-        dijkstra = new DijkstraMap(map, DijkstraMap.findMeasurement(measurement));
+        this.measurement = DijkstraMap.findMeasurement(measurement);
+        width = map.length;
+        height = width == 0 ? 0 : map[0].length;
     }
 
     /**
@@ -89,6 +109,8 @@ public class ZOI {
      */
     public short[][] calculate()
     {
+        if(dijkstra == null)
+            dijkstra = new DijkstraMap(map, measurement);
         for (int i = 0; i < influences.length; i++) {
             for (int j = 0; j < influences[i].length; j++) {
                 dijkstra.setGoal(influences[i][j]);
@@ -180,7 +202,7 @@ public class ZOI {
     public int[] nearestInfluences(Coord point)
     {
         if(!completed)
-            return new int[0];
+            return labeled ? labelsAt(point.x, point.y) : new int[0];
         ShortVLA found = new ShortVLA(4);
         for (short i = 0; i < packedGroups.length; i++) {
             if(CoordPacker.queryPacked(packedGroups[i], point.x, point.y))
@@ -189,6 +211,303 @@ public class ZOI {
         return found.asInts();
     }
 
+    /**
+     * Finds the nearest influence group to every cell in one multi-source search, spreading out from every influence at
+     * once, and stores it as a label: the index of the group in the influences this was constructed with (or given by
+     * {@link #setInfluences(Coord[][])}). Distance is measured the same way as {@link DijkstraMap} measures it for the
+     * Radius this was constructed with, with '#' as walls, and diagonal moves between two walls blocked. Cells that are
+     * exactly as far from more than one group are tied; their label is the lowest of those group indices, and
+     * {@link #labelsAt(int, int)} gets all of them. Walls and cells no influence can reach are labeled -1.
+     * <br>
+     * The returned array is indexed by {@code x * height + y} and is reused by later calls, as are all other arrays
+     * this needs, so calling this every turn doesn't allocate once the arrays exist. It is what
+     * {@link #calculateRegions()} and {@link #calculatePacked()} use, and you don't need to call it before them.
+     * @return the label of each cell, indexed by {@code x * height + y}; reused by later calls
+     */
+    public int[] label()
+    {
+        final int n = width * height;
+        if(labels == null || labels.length != n)
+        {
+            labels = new int[n];
+            ties = new int[n];
+            order = new int[n];
+            distances = new double[n];
+        }
+        Arrays.fill(labels, -1);
+        Arrays.fill(ties, -1);
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        tieGroups.clear();
+        int count = 0;
+        for (int g = 0; g < influences.length; g++) {
+            for (int i = 0; i < influences[g].length; i++) {
+                final Coord c = influences[g][i];
+                if(c == null || c.x < 0 || c.y < 0 || c.x >= width || c.y >= height || map[c.x][c.y] == '#')
+                    continue;
+                final int idx = c.x * height + c.y;
+                if(distances[idx] != 0.0) {
+                    distances[idx] = 0.0;
+                    labels[idx] = g;
+                    order[count++] = idx;
+                }
+                else if(labels[idx] != g)
+                    addTie(idx, g);
+            }
+        }
+        final int sources = count;
+        final boolean euclidean = measurement == DijkstraMap.Measurement.EUCLIDEAN;
+        final Direction[] dirs = (measurement == DijkstraMap.Measurement.MANHATTAN)
+                ? Direction.CARDINALS : Direction.OUTWARDS;
+        if(euclidean)
+            count = settleWeighted(sources, dirs);
+        else {
+            // every move costs 1, so a breadth-first search settles cells in order of distance; order is the queue
+            for (int head = 0; head < count; head++) {
+                final int idx = order[head], x = idx / height, y = idx - x * height;
+                final double next = distances[idx] + 1.0;
+                for (int d = 0; d < dirs.length; d++) {
+                    final int ax = x + dirs[d].deltaX, ay = y + dirs[d].deltaY;
+                    if(canMove(x, y, ax, ay, d) && distances[ax * height + ay] == Double.POSITIVE_INFINITY)
+                    {
+                        distances[ax * height + ay] = next;
+                        order[count++] = ax * height + ay;
+                    }
+                }
+            }
+        }
+        // cells are visited in order of distance, so every cell a shortest path arrives from is already labeled
+        for (int k = sources; k < count; k++) {
+            final int idx = order[k], x = idx / height, y = idx - x * height;
+            final double dist = distances[idx];
+            gathered.clear();
+            for (int d = 0; d < dirs.length; d++) {
+                final int ax = x + dirs[d].deltaX, ay = y + dirs[d].deltaY;
+                if(!canMove(x, y, ax, ay, d))
+                    continue;
+                final int adj = ax * height + ay;
+                if(Math.abs(distances[adj] + (d >= 4 && euclidean ? Math.sqrt(2.0) : 1.0) - dist) <= 0x1p-20)
+                {
+                    if(ties[adj] < 0)
+                        gathered.add(labels[adj]);
+                    else
+                        gathered.addAll(tieGroups.items, ties[adj] + 1, tieGroups.items[ties[adj]]);
+                }
+            }
+            setGathered(idx);
+        }
+        labeled = true;
+        return labels;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm with a binary heap for Euclidean measurement, where diagonal moves cost more than
+     * orthogonal ones, filling order with cells in the order they are settled; returns how many cells were settled.
+     */
+    private int settleWeighted(int count, final Direction[] dirs)
+    {
+        if(heap == null)
+        {
+            heap = new int[256];
+            heapKeys = new double[256];
+        }
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            size = push(size, order[i], 0.0);
+        }
+        count = 0;
+        final double root2 = Math.sqrt(2.0);
+        while (size > 0) {
+            final int idx = heap[0];
+            final double key = heapKeys[0];
+            size = pop(size);
+            // a cell is only pushed again with a strictly smaller key, so stale entries are the only ones to skip
+            if(key > distances[idx])
+                continue;
+            order[count++] = idx;
+            final int x = idx / height, y = idx - x * height;
+            for (int d = 0; d < dirs.length; d++) {
+                final int ax = x + dirs[d].deltaX, ay = y + dirs[d].deltaY;
+                if(!canMove(x, y, ax, ay, d))
+                    continue;
+                final int adj = ax * height + ay;
+                final double next = key + (d >= 4 ? root2 : 1.0);
+                if(next < distances[adj])
+                {
+                    distances[adj] = next;
+                    size = push(size, adj, next);
+                }
+            }
+        }
+        return count;
+    }
+
+    private int push(int size, final int idx, final double key)
+    {
+        if(size == heap.length)
+        {
+            heap = Arrays.copyOf(heap, size << 1);
+            heapKeys = Arrays.copyOf(heapKeys, size << 1);
+        }
+        int i = size++, parent;
+        while (i > 0 && heapKeys[parent = i - 1 >>> 1] > key)
+        {
+            heap[i] = heap[parent];
+            heapKeys[i] = heapKeys[parent];
+            i = parent;
+        }
+        heap[i] = idx;
+        heapKeys[i] = key;
+        return size;
+    }
+
+    private int pop(int size)
+    {
+        final int idx = heap[--size];
+        final double key = heapKeys[size];
+        int i = 0, child;
+        while ((child = (i << 1) + 1) < size)
+        {
+            if(child + 1 < size && heapKeys[child + 1] < heapKeys[child])
+                child++;
+            if(heapKeys[child] >= key)
+                break;
+            heap[i] = heap[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heap[i] = idx;
+        heapKeys[i] = key;
+        return size;
+    }
+
+    /**
+     * Checks if a move from x,y to ax,ay in the direction with index d is on the map, isn't into a wall, and isn't a
+     * diagonal move between two walls.
+     */
+    private boolean canMove(final int x, final int y, final int ax, final int ay, final int d)
+    {
+        return ax >= 0 && ay >= 0 && ax < width && ay < height && map[ax][ay] != '#'
+                && (d < 4 || map[ax][y] != '#' || map[x][ay] != '#');
+    }
+
+    /**
+     * Adds group g to the groups tied at idx, which already has at least one group.
+     */
+    private void addTie(final int idx, final int g)
+    {
+        gathered.clear();
+        if(ties[idx] < 0)
+            gathered.add(labels[idx]);
+        else
+            gathered.addAll(tieGroups.items, ties[idx] + 1, tieGroups.items[ties[idx]]);
+        gathered.add(g);
+        setGathered(idx);
+    }
+
+    /**
+     * Sorts and removes duplicates from the groups in gathered, then stores them as the label (and ties) of idx.
+     */
+    private void setGathered(final int idx)
+    {
+        final int[] items = gathered.items;
+        int size = gathered.size;
+        Arrays.sort(items, 0, size);
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if(i == 0 || items[i] != items[i - 1])
+                items[unique++] = items[i];
+        }
+        labels[idx] = unique == 0 ? -1 : items[0];
+        if(unique > 1)
+        {
+            ties[idx] = tieGroups.size;
+            tieGroups.add(unique);
+            tieGroups.addAll(items, 0, unique);
+        }
+        else
+            ties[idx] = -1;
+    }
+
+    /**
+     * Gets the indices of every influence group nearest to x,y after the last call to {@link #label()} (or
+     * {@link #calculateRegions()} or {@link #calculatePacked()}); this has one item unless there is a tie, and none if
+     * x,y is a wall, can't be reached, or is outside the map.
+     * @param x the x position to check
+     * @param y the y position to check
+     * @return a new int array of group indices, sorted from lowest to highest
+     */
+    public int[] labelsAt(final int x, final int y)
+    {
+        if(!labeled || x < 0 || y < 0 || x >= width || y >= height || labels[x * height + y] < 0)
+            return new int[0];
+        final int idx = x * height + y;
+        if(ties[idx] < 0)
+            return new int[]{labels[idx]};
+        return Arrays.copyOfRange(tieGroups.items, ties[idx] + 1, ties[idx] + 1 + tieGroups.items[ties[idx]]);
+    }
+
+    /**
+     * Finds the zone of influence for each group with {@link #label()}, and returns one GreasedRegion per group, in the
+     * same order as the influences. Each cell is in the zone of its nearest group; a cell that is equally near to
+     * several groups is in all of their zones.
+     * @return a new array of GreasedRegion, one for each influence group
+     */
+    public GreasedRegion[] calculateRegions()
+    {
+        return calculateRegions(null);
+    }
+
+    /**
+     * Finds the zone of influence for each group with {@link #label()}, and writes them into the given array of
+     * GreasedRegion, reusing any that already have the right size, so a caller that keeps the array between turns
+     * doesn't need to allocate. Each cell is in the zone of its nearest group; a cell that is equally near to several
+     * groups is in all of their zones.
+     * @param regions an array of GreasedRegion to reuse; if null or the wrong length, a new array is made
+     * @return regions, or a new array if it couldn't be reused, with one GreasedRegion for each influence group
+     */
+    public GreasedRegion[] calculateRegions(GreasedRegion[] regions)
+    {
+        label();
+        if(regions == null || regions.length != influences.length)
+            regions = new GreasedRegion[influences.length];
+        for (int i = 0; i < regions.length; i++) {
+            if(regions[i] == null)
+                regions[i] = new GreasedRegion(width, height);
+            else
+                regions[i].resizeAndEmpty(width, height);
+        }
+        for (int x = 0, idx = 0; x < width; x++) {
+            for (int y = 0; y < height; y++, idx++) {
+                if(labels[idx] < 0)
+                    continue;
+                if(ties[idx] < 0)
+                    regions[labels[idx]].insert(x, y);
+                else {
+                    for (int t = ties[idx] + 1, end = t + tieGroups.items[ties[idx]]; t < end; t++) {
+                        regions[tieGroups.items[t]].insert(x, y);
+                    }
+                }
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Like {@link #calculate()}, returns one packed short[] per influence group for use with CoordPacker, but finds
+     * the zones with {@link #label()}, so it is much faster; zones only overlap on cells that are tied between groups.
+     * As with any packed data, the map must fit in 256x256. The results can be used with
+     * {@link #nearestInfluences(short[][], Coord)}, and {@link #nearestInfluences(Coord)} also works after this.
+     * @return an array of short[] storing the zones' areas; each can be used as packed data with CoordPacker
+     */
+    public short[][] calculatePacked()
+    {
+        final GreasedRegion[] regions = calculateRegions(null);
+        for (int i = 0; i < regions.length; i++) {
+            packedGroups[i] = CoordPacker.pack(regions[i].decode());
+        }
+        return packedGroups;
+    }
+
     /**
      * Gets the influencing groups; ideally the result should not be changed without setting it back with setInfluences.
      * @return influences a jagged array of Coord arrays, where the inner arrays are groups of influences
@@ -206,5 +525,6 @@ public class ZOI {
         this.influences = influences;
         packedGroups = new short[influences.length][];
         completed = false;
+        labeled = false;
     }
 }
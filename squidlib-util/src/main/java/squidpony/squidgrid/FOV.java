@@ -3,6 +3,7 @@ package squidpony.squidgrid;
 import squidpony.ArrayTools;
 import squidpony.GwtCompatibility;
 import squidpony.squidmath.Coord;
+import squidpony.squidmath.GreasedRegion;
 
 import java.io.Serializable;
 import java.util.*;
@@ -94,8 +95,35 @@ public class FOV implements Serializable {
 	/**
 	 * Data allocated in the previous calls to the public API, if any. Used to
 	 * save allocations when multiple calls are done on the same instance.
+	 * @deprecated The ripple types now use {@link #rippleIndirect} instead, and this is no longer assigned or read;
+	 * it is only kept so subclasses that refer to it still compile.
 	 */
+	@Deprecated
     protected boolean[][] nearLight;
+	/**
+	 * Scratch light values for the ripple types, indexed as {@code x * height + y} so a cell's neighbors are fixed
+	 * offsets away. Kept between calls and cleared only where the last ripple could reach, so repeated ripple FOV on
+	 * the same instance doesn't allocate.
+	 */
+    protected transient double[] rippleLight;
+	/**
+	 * Scratch flags for the ripple types, marking cells that were only lit indirectly; same layout as
+	 * {@link #rippleLight}.
+	 */
+    protected transient boolean[] rippleIndirect;
+	/**
+	 * FIFO ring buffer of cell indices for the ripple types; grows as needed and is kept between calls.
+	 */
+    protected transient int[] rippleQueue;
+	/**
+	 * Distances from the origin of a ripple to every offset in a square with sides {@code rippleSpan * 2 + 1},
+	 * measured with {@link #rippleKind}. Only rebuilt when the Radius changes or a larger span is needed.
+	 */
+    protected transient double[] rippleDistances;
+    protected transient Radius rippleKind;
+    protected transient int rippleSpan = -1;
+    private transient int[] rippleOrder;
+    private transient double[] rippleKeys, rippleSteps;
 
     protected static final Direction[] ccw = new Direction[]
             {Direction.UP_RIGHT, Direction.UP_LEFT, Direction.DOWN_LEFT, Direction.DOWN_RIGHT, Direction.UP_RIGHT},
@@ -186,8 +214,7 @@ public class FOV implements Serializable {
             case RIPPLE_LOOSE:
             case RIPPLE_TIGHT:
             case RIPPLE_VERY_LOOSE:
-                initializeNearLight(width, height);
-                doRippleFOV(light, rippleValue(type), startX, startY, startX, startY, decay, rad, resistanceMap, nearLight, radiusTechnique);
+                doRippleFOV(light, rippleValue(type), startX, startY, decay, rad, resistanceMap, radiusTechnique, 0.0, -1.0);
                 break;
             case SHADOW:
                	// hotfix for too large radius -> set to longest possible straight-line Manhattan distance instead
@@ -246,8 +273,7 @@ public class FOV implements Serializable {
             case RIPPLE_LOOSE:
             case RIPPLE_TIGHT:
             case RIPPLE_VERY_LOOSE:
-                initializeNearLight(width, height);
-                doRippleFOV(light, rippleValue(type), startX, startY, startX, startY, decay, radius, resistanceMap, nearLight, radiusTechnique, angle, span);
+                doRippleFOV(light, rippleValue(type), startX, startY, decay, radius, resistanceMap, radiusTechnique, angle, span);
                 break;
             case SHADOW:
                 light = shadowCastLimited(1, 1.0, 0.0, 0, 1, 1, 0, radius, startX, startY, decay, light, resistanceMap, radiusTechnique, angle, span);
@@ -407,6 +433,88 @@ public class FOV implements Serializable {
         return light;
     }
 
+    /**
+     * Calculates which cells are visible from the given x, y coordinates using shadowcasting, and stores only that
+     * yes-or-no visibility in the given GreasedRegion, which uses one bit per cell instead of a double. The region is
+     * emptied first (and resized to match resistanceMap if needed), then the visible cells are turned on; a cell is
+     * on exactly when {@link #reuseFOV(double[][], double[][], int, int, double, Radius)} would give it a light value
+     * greater than 0. Like the other static methods here, this keeps no state and makes no allocations when the
+     * region already has the right size, so many entities can each keep their own visibility cheaply.
+     * @param resistanceMap the grid of cells to calculate on; the kind made by DungeonUtility.generateResistances()
+     * @param visible the GreasedRegion to assign to; will be emptied and possibly resized, then filled
+     * @param startX the horizontal component of the starting location
+     * @param startY the vertical component of the starting location
+     * @param radius the distance the light will extend to
+     * @param radiusTechnique provides a means to calculate the radius as desired
+     * @return visible, after modifications, with all cells that can be seen from the start turned on
+     */
+    public static GreasedRegion reuseFOV(double[][] resistanceMap, GreasedRegion visible, int startX, int startY,
+                                         double radius, Radius radiusTechnique) {
+        visible.resizeAndEmpty(resistanceMap.length, resistanceMap[0].length);
+        return insertFOV(resistanceMap, visible, startX, startY, radius, radiusTechnique);
+    }
+
+    /**
+     * Calculates which cells are visible from the given x, y coordinates using shadowcasting, and turns those cells on
+     * in visible without turning any cells off, so it can be called repeatedly to build up the union of several
+     * viewers' sight. The GreasedRegion must have the same size as resistanceMap; use
+     * {@link #reuseFOV(double[][], GreasedRegion, int, int, double, Radius)} to clear and size it first.
+     * @param resistanceMap the grid of cells to calculate on; the kind made by DungeonUtility.generateResistances()
+     * @param visible a GreasedRegion with the same width and height as resistanceMap; cells will only be turned on
+     * @param startX the horizontal component of the starting location
+     * @param startY the vertical component of the starting location
+     * @param radius the distance the light will extend to
+     * @param radiusTechnique provides a means to calculate the radius as desired
+     * @return visible, after modifications
+     */
+    public static GreasedRegion insertFOV(double[][] resistanceMap, GreasedRegion visible, int startX, int startY,
+                                          double radius, Radius radiusTechnique) {
+        radius = Math.max(1, radius);
+        double decay = 1.0 / radius;
+        visible.insert(startX, startY);
+        for (Direction d : Direction.DIAGONALS) {
+            shadowCastRegion(1, 1.0, 0.0, 0, d.deltaX, d.deltaY, 0, radius, startX, startY, decay, visible, resistanceMap, radiusTechnique);
+            shadowCastRegion(1, 1.0, 0.0, d.deltaX, 0, 0, d.deltaY, radius, startX, startY, decay, visible, resistanceMap, radiusTechnique);
+        }
+        return visible;
+    }
+
+    /**
+     * Calculates the union of what every one of the given viewers can see, using shadowcasting with the same radius
+     * for each, and stores it in visible, which is emptied first and resized to match resistanceMap if needed. This
+     * suits team or faction vision; the result can be intersected with other GreasedRegions using
+     * {@link GreasedRegion#and(GreasedRegion)} or tested with {@link GreasedRegion#contains(int, int)}.
+     * @param resistanceMap the grid of cells to calculate on; the kind made by DungeonUtility.generateResistances()
+     * @param visible the GreasedRegion to assign to; will be emptied and possibly resized, then filled
+     * @param radius the distance each viewer's sight will extend to
+     * @param radiusTechnique provides a means to calculate the radius as desired
+     * @param viewers the positions of all viewers; may be a GreasedRegion, since that is Iterable of Coord
+     * @return visible, after modifications, with every cell seen by at least one viewer turned on
+     */
+    public static GreasedRegion unionFOV(double[][] resistanceMap, GreasedRegion visible, double radius,
+                                         Radius radiusTechnique, Iterable<Coord> viewers) {
+        visible.resizeAndEmpty(resistanceMap.length, resistanceMap[0].length);
+        for (Coord viewer : viewers) {
+            insertFOV(resistanceMap, visible, viewer.x, viewer.y, radius, radiusTechnique);
+        }
+        return visible;
+    }
+
+    /**
+     * Calculates the union of what every one of the given viewers can see, using shadowcasting with the same radius
+     * for each, and stores it in visible, which is emptied first and resized to match resistanceMap if needed.
+     * @param resistanceMap the grid of cells to calculate on; the kind made by DungeonUtility.generateResistances()
+     * @param visible the GreasedRegion to assign to; will be emptied and possibly resized, then filled
+     * @param radius the distance each viewer's sight will extend to
+     * @param radiusTechnique provides a means to calculate the radius as desired
+     * @param viewers the positions of all viewers, as an array or vararg
+     * @return visible, after modifications, with every cell seen by at least one viewer turned on
+     */
+    public static GreasedRegion unionFOV(double[][] resistanceMap, GreasedRegion visible, double radius,
+                                         Radius radiusTechnique, Coord... viewers) {
+        return unionFOV(resistanceMap, visible, radius, radiusTechnique, Arrays.asList(viewers));
+    }
+
     /**
      * Reuses the existing light 2D array and fills it with a straight-line bouncing path of light that reflects its way
      * through the given resistanceMap from startX, startY until it uses up the given distance. The angle the path
@@ -490,29 +598,6 @@ public class FOV implements Serializable {
 		}
 	}
 
-	/**
-	 * @param width
-	 *            The width that {@link #nearLight} should have.
-	 * @param height
-	 *            The height that {@link #nearLight} should have.
-	 */
-	private void initializeNearLight(int width, int height) {
-		if (nearLight == null)
-			nearLight = new boolean[width][height];
-		else {
-			if (nearLight.length != width || nearLight[0].length != height)
-				/* Size changed */
-				nearLight = new boolean[width][height];
-			else {
-				/*
-				 * Size did not change, we simply need to erase the previous
-				 * result
-				 */
-				ArrayTools.fill(nearLight, false);
-			}
-		}
-	}
-
 	private static int rippleValue(int type) {
 		switch (type) {
 		case RIPPLE:
@@ -529,135 +614,146 @@ public class FOV implements Serializable {
 		}
 	}
 
-    private static void doRippleFOV(double[][] lightMap, int ripple, int x, int y, int startx, int starty, double decay, double radius, double[][] map, boolean[][] indirect, Radius radiusStrategy) {
-    	/* Not using Deque's interface, it isn't GWT compatible */
-        final LinkedList<Coord> dq = new LinkedList<>();
-        int width = lightMap.length;
-        int height = lightMap[0].length;
-        dq.offer(Coord.get(x, y));
-        while (!dq.isEmpty()) {
-            Coord p = dq.removeFirst();
-            if (lightMap[p.x][p.y] <= 0 || indirect[p.x][p.y]) {
-                continue;//no light to spread
-            }
-
-            for (Direction dir : Direction.OUTWARDS) {
-                int x2 = p.x + dir.deltaX;
-                int y2 = p.y + dir.deltaY;
-                if (x2 < 0 || x2 >= width || y2 < 0 || y2 >= height //out of bounds
-                        || radiusStrategy.radius(startx, starty, x2, y2) >= radius + 1) {//+1 to cover starting tile
-                    continue;
-                }
-
-                double surroundingLight = nearRippleLight(x2, y2, ripple, startx, starty, decay, lightMap, map, indirect, radiusStrategy);
-                if (lightMap[x2][y2] < surroundingLight) {
-                    lightMap[x2][y2] = surroundingLight;
-                    if (map[x2][y2] < 1) {//make sure it's not a wall
-                        dq.offer(Coord.get(x2, y2));//redo neighbors since this one's light changed
-                    }
+    /**
+     * Makes sure the ripple scratch buffers fit a map of the given size, and that {@link #rippleDistances} covers
+     * offsets up to span away from the origin using the given Radius.
+     */
+    private void prepareRipple(int width, int height, int span, Radius radiusStrategy) {
+        int size = width * height;
+        if (rippleLight == null || rippleLight.length != size) {
+            rippleLight = new double[size];
+            rippleIndirect = new boolean[size];
+        }
+        if (rippleQueue == null) {
+            rippleQueue = new int[256];
+            rippleOrder = new int[8];
+            rippleKeys = new double[8];
+            rippleSteps = new double[8];
+        }
+        if (rippleKind != radiusStrategy || rippleSpan < span) {
+            int side = span * 2 + 1;
+            if (rippleDistances == null || rippleDistances.length < side * side)
+                rippleDistances = new double[side * side];
+            for (int dy = -span, i = 0; dy <= span; dy++) {
+                for (int dx = -span; dx <= span; dx++) {
+                    rippleDistances[i++] = radiusStrategy.radius(dx, dy);
                 }
             }
+            rippleKind = radiusStrategy;
+            rippleSpan = span;
+        }
+        for (int d = 0; d < 8; d++) {
+            rippleSteps[d] = radiusStrategy.radius(Direction.OUTWARDS[d].deltaX, Direction.OUTWARDS[d].deltaY);
         }
     }
 
-
-
-    private static void doRippleFOV(double[][] lightMap, int ripple, int x, int y, int startx, int starty, double decay, double radius, double[][] map, boolean[][] indirect, Radius radiusStrategy, double angle, double span) {
-    	/* Not using Deque's interface, it isn't GWT compatible */
-        final LinkedList<Coord> dq = new LinkedList<>();
-        int width = lightMap.length;
-        int height = lightMap[0].length;
-        dq.offer(Coord.get(x, y));
-        while (!dq.isEmpty()) {
-            Coord p = dq.removeFirst();
-            if (lightMap[p.x][p.y] <= 0 || indirect[p.x][p.y]) {
+    /**
+     * Ripple FOV over the flat scratch buffers; the result is copied into lightMap, which must already be cleared
+     * except for the origin. If span is negative, all directions are lit; otherwise only a cone centered on angle
+     * (both in radians) is. Neighbors are visited in the same order and the queue is FIFO, so the output matches the
+     * allocating implementation this replaced exactly.
+     */
+    private void doRippleFOV(double[][] lightMap, int ripple, int startx, int starty, double decay, double radius,
+                             double[][] map, Radius radiusStrategy, double angle, double span) {
+        final int width = lightMap.length, height = lightMap[0].length;
+        final int reach = (int) Math.min(Math.ceil(radius) + 3.0, Math.max(width, height));
+        prepareRipple(width, height, reach, radiusStrategy);
+        final double[] lit = rippleLight, distances = rippleDistances, steps = rippleSteps, keys = rippleKeys;
+        final boolean[] indirect = rippleIndirect;
+        final int[] order = rippleOrder;
+        final int side = rippleSpan * 2 + 1, center = rippleSpan * side + rippleSpan;
+        final boolean cone = span >= 0.0;
+        final Direction[] outer = cone ? ccw_full : Direction.OUTWARDS;
+        final double limit = radius + 1;//+1 to cover starting tile
+        int[] queue = rippleQueue;
+        int mask = queue.length - 1, head = 0, count = 1;
+        queue[0] = startx * height + starty;
+        lit[queue[0]] = 1;
+        while (count > 0) {
+            final int p = queue[head];
+            head = head + 1 & mask;
+            count--;
+            if (lit[p] <= 0 || indirect[p]) {
                 continue;//no light to spread
             }
-
-            for (Direction dir : ccw_full) {
-                int x2 = p.x + dir.deltaX;
-                int y2 = p.y + dir.deltaY;
+            final int px = p / height, py = p - px * height;
+            for (int o = 0; o < 8; o++) {
+                final Direction dir = outer[o];
+                final int x2 = px + dir.deltaX, y2 = py + dir.deltaY;
                 if (x2 < 0 || x2 >= width || y2 < 0 || y2 >= height //out of bounds
-                        || radiusStrategy.radius(startx, starty, x2, y2) >= radius + 1) {//+1 to cover starting tile
+                        || distances[center + x2 - startx + (y2 - starty) * side] >= limit) {
                     continue;
                 }
-                double newAngle = Math.atan2(y2 - starty, x2 - startx) + Math.PI * 2;
-				if (Math.abs(GwtCompatibility.IEEEremainder(angle - newAngle + Math.PI * 8, Math.PI * 2)) > span / 2.0)
-					continue;
-
-                double surroundingLight = nearRippleLight(x2, y2, ripple, startx, starty, decay, lightMap, map, indirect, radiusStrategy );
-                if (lightMap[x2][y2] < surroundingLight) {
-                    lightMap[x2][y2] = surroundingLight;
-                    if (map[x2][y2] < 1) {//make sure it's not a wall
-                        dq.offer(Coord.get(x2, y2));//redo neighbors since this one's light changed
+                if (cone) {
+                    double newAngle = Math.atan2(y2 - starty, x2 - startx) + Math.PI * 2;
+                    if (Math.abs(GwtCompatibility.IEEEremainder(angle - newAngle + Math.PI * 8, Math.PI * 2)) > span / 2.0)
+                        continue;
+                }
+                final int q = x2 * height + y2;
+                double surroundingLight;
+                if (x2 == startx && y2 == starty) {
+                    surroundingLight = 1;
+                } else {
+                    // stable insertion sort of in-bounds neighbors by distance from the origin, like the old List did
+                    int n = 0;
+                    for (int d = 0; d < 8; d++) {
+                        final int x3 = x2 + Direction.OUTWARDS[d].deltaX, y3 = y2 + Direction.OUTWARDS[d].deltaY;
+                        if (x3 >= 0 && x3 < width && y3 >= 0 && y3 < height) {
+                            final double k = distances[center + x3 - startx + (y3 - starty) * side];
+                            int j = n++;
+                            while (j > 0 && keys[j - 1] > k) {
+                                keys[j] = keys[j - 1];
+                                order[j] = order[j - 1];
+                                j--;
+                            }
+                            keys[j] = k;
+                            order[j] = d;
+                        }
+                    }
+                    surroundingLight = 0;
+                    int litCount = 0, indirects = 0;
+                    for (int i = 0, e = Math.min(n, ripple); i < e; i++) {
+                        final int d = order[i], r = q + Direction.OUTWARDS[d].deltaX * height + Direction.OUTWARDS[d].deltaY;
+                        if (lit[r] > 0) {
+                            litCount++;
+                            if (indirect[r]) {
+                                indirects++;
+                            }
+                            surroundingLight = Math.max(surroundingLight, lit[r] - steps[d] * decay - map[x2 + Direction.OUTWARDS[d].deltaX][y2 + Direction.OUTWARDS[d].deltaY]);
+                        }
+                    }
+                    if (map[x2][y2] >= 1 || indirects >= litCount) {
+                        indirect[q] = true;
                     }
                 }
-            }
-        }
-    }
-
-    private static double nearRippleLight(int x, int y, int rippleNeighbors, int startx, int starty, double decay, double[][] lightMap, double[][] map, boolean[][] indirect, Radius radiusStrategy) {
-        if (x == startx && y == starty) {
-            return 1;
-        }
-        int width = lightMap.length;
-        int height = lightMap[0].length;
-        List<Coord> neighbors = new ArrayList<>();
-        double tmpDistance = 0, testDistance;
-        Coord c;
-        for (Direction di : Direction.OUTWARDS) {
-            int x2 = x + di.deltaX;
-            int y2 = y + di.deltaY;
-            if (x2 >= 0 && x2 < width && y2 >= 0 && y2 < height) {
-                tmpDistance = radiusStrategy.radius(startx, starty, x2, y2);
-                int idx = 0;
-                for(int i = 0; i < neighbors.size() && i <= rippleNeighbors; i++)
-                {
-                    c = neighbors.get(i);
-                    testDistance = radiusStrategy.radius(startx, starty, c.x, c.y);
-                    if(tmpDistance < testDistance) {
-                        break;
+                if (lit[q] < surroundingLight) {
+                    lit[q] = surroundingLight;
+                    if (map[x2][y2] < 1) {//make sure it's not a wall
+                        if (count == queue.length) {
+                            int[] bigger = new int[queue.length << 1];
+                            System.arraycopy(queue, head, bigger, 0, queue.length - head);
+                            System.arraycopy(queue, 0, bigger, queue.length - head, head);
+                            head = 0;
+                            queue = rippleQueue = bigger;
+                            mask = queue.length - 1;
+                        }
+                        queue[head + count & mask] = q;//redo neighbors since this one's light changed
+                        count++;
                     }
-                    idx++;
                 }
-                neighbors.add(idx, Coord.get(x2, y2));
-            }
-        }
-
-        if (neighbors.isEmpty()) {
-            return 0;
-        }
-        neighbors = neighbors.subList(0, Math.min(neighbors.size(), rippleNeighbors));
-/*
-        while (neighbors.size() > rippleNeighbors) {
-            Coord p = neighbors.remove(0);
-            double dist = radiusStrategy.radius(startx, starty, p.x, p.y);
-            double dist2 = 0;
-            for (Coord p2 : neighbors) {
-                dist2 = Math.max(dist2, radiusStrategy.radius(startx, starty, p2.x, p2.y));
-            }
-            if (dist < dist2) {//not the largest, put it back
-                neighbors.add(p);
             }
         }
-*/
-        double light = 0;
-        int lit = 0, indirects = 0;
-        for (Coord p : neighbors) {
-            if (lightMap[p.x][p.y] > 0) {
-                lit++;
-                if (indirect[p.x][p.y]) {
-                    indirects++;
-                }
-                double dist = radiusStrategy.radius(x, y, p.x, p.y);
-                light = Math.max(light, lightMap[p.x][p.y] - dist * decay - map[p.x][p.y]);
+        // copy out and clear only the area the ripple could have reached
+        final int minX = Math.max(0, startx - reach), maxX = Math.min(width - 1, startx + reach),
+                minY = Math.max(0, starty - reach), maxY = Math.min(height - 1, starty + reach);
+        for (int x = minX; x <= maxX; x++) {
+            final double[] column = lightMap[x];
+            for (int y = minY, i = x * height + minY; y <= maxY; y++, i++) {
+                column[y] = lit[i];
+                lit[i] = 0;
+                indirect[i] = false;
             }
         }
-
-        if (map[x][y] >= 1 || indirects >= lit) {
-            indirect[x][y] = true;
-        }
-        return light;
     }
 
     private static double[][] shadowCast(int row, double start, double end, int xx, int xy, int yx, int yy,
@@ -709,6 +805,53 @@ public class FOV implements Serializable {
         }
         return lightMap;
     }
+    private static void shadowCastRegion(int row, double start, double end, int xx, int xy, int yx, int yy,
+                                         double radius, int startx, int starty, double decay, GreasedRegion visible,
+                                         double[][] map, Radius radiusStrategy) {
+        double newStart = 0;
+        if (start < end) {
+            return;
+        }
+        final int width = visible.width, height = visible.height, ySections = height + 63 >> 6;
+        final long[] data = visible.data;
+
+        boolean blocked = false;
+        for (int distance = row; distance <= radius && distance < width + height && !blocked; distance++) {
+            int deltaY = -distance;
+            for (int deltaX = -distance; deltaX <= 0; deltaX++) {
+                int currentX = startx + deltaX * xx + deltaY * xy;
+                int currentY = starty + deltaX * yx + deltaY * yy;
+                double leftSlope = (deltaX - 0.5f) / (deltaY + 0.5f);
+                double rightSlope = (deltaX + 0.5f) / (deltaY - 0.5f);
+
+                if (!(currentX >= 0 && currentY >= 0 && currentX < width && currentY < height) || start < rightSlope) {
+                    continue;
+                } else if (end > leftSlope) {
+                    break;
+                }
+                //same test as shadowCast uses, so the region matches the cells it would light above 0
+                if (1 - decay * radiusStrategy.radius(deltaX, deltaY) > 0) {
+                    data[currentX * ySections + (currentY >> 6)] |= 1L << (currentY & 63);
+                }
+
+                if (blocked) { //previous cell was a blocking one
+                    if (map[currentX][currentY] >= 1) {//hit a wall
+                        newStart = rightSlope;
+                    } else {
+                        blocked = false;
+                        start = newStart;
+                    }
+                } else {
+                    if (map[currentX][currentY] >= 1 && distance < radius) {//hit a wall within sight line
+                        blocked = true;
+                        shadowCastRegion(distance + 1, start, leftSlope, xx, xy, yx, yy, radius, startx, starty, decay, visible, map, radiusStrategy);
+                        newStart = rightSlope;
+                    }
+                }
+            }
+        }
+    }
+
     private static double[][] shadowCastLimited(int row, double start, double end, int xx, int xy, int yx, int yy,
                                          double radius, int startx, int starty, double decay, double[][] lightMap,
                                          double[][] map, Radius radiusStrategy, double angle, double span) {
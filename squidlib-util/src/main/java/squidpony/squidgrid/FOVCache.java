@@ -78,6 +78,7 @@ import static squidpony.squidmath.CoordPacker.*;
  * squidlib-performance that is not distributed with SquidLib but is available if you download the SquidLib source code.
  *
  * @see squidpony.squidmath.CoordPacker has various utilities for operating on compressed data of this kind.
+ * @see TiledFOVCache calculates FOV lazily and has no limit on map size, for maps too large for this class.
  * Created by Tommy Ettinger on 10/7/2015.
  * @author Tommy Ettinger
  */
@@ -134,10 +135,10 @@ public class FOVCache extends FOV {
         width = map.length;
         height = map[0].length;
         if(width > 256 || height > 256)
-            throw new UnsupportedOperationException("Map size is too large to efficiently cache, aborting");
+            throw new UnsupportedOperationException("Map size is too large to efficiently cache, aborting; TiledFOVCache can handle larger maps");
         mapLimit = width * height;
         if(maxRadius <= 0 || maxRadius >= 63)
-            throw new UnsupportedOperationException("FOV radius is incorrect. Must be 0 < maxRadius < 63");
+            throw new UnsupportedOperationException("FOV radius is incorrect. Must be 0 < maxRadius < 63; TiledFOVCache allows larger radii");
         fov = new FOV(FOV.SHADOW);
         gradedFOV = new FOV(RIPPLE);
         resMap = DungeonUtility.generateResistances(map);
@@ -201,10 +202,10 @@ public class FOVCache extends FOV {
         width = map.length;
         height = map[0].length;
         if(width > 256 || height > 256)
-            throw new UnsupportedOperationException("Map size is too large to efficiently cache, aborting");
+            throw new UnsupportedOperationException("Map size is too large to efficiently cache, aborting; TiledFOVCache can handle larger maps");
         mapLimit = width * height;
         if(maxRadius <= 0 || maxRadius >= 63)
-            throw new UnsupportedOperationException("FOV radius is incorrect. Must be 0 < maxRadius < 63");
+            throw new UnsupportedOperationException("FOV radius is incorrect. Must be 0 < maxRadius < 63; TiledFOVCache allows larger radii");
         if(maxLOSRadius <= 0 || maxLOSRadius >= 63)
             throw new UnsupportedOperationException("LOS radius is incorrect. Must be 0 < maxLOSRadius < 63");
         fov = new FOV(FOV.SHADOW);
@@ -273,10 +274,10 @@ public class FOVCache extends FOV {
         width = map.length;
         height = map[0].length;
         if(width > 256 || height > 256)
-            throw new UnsupportedOperationException("Map size is too large to efficiently cache, aborting");
+            throw new UnsupportedOperationException("Map size is too large to efficiently cache, aborting; TiledFOVCache can handle larger maps");
         mapLimit = width * height;
         if(maxRadius <= 0 || maxRadius >= 63)
-            throw new UnsupportedOperationException("FOV radius is incorrect. Must be 0 < maxRadius < 63");
+            throw new UnsupportedOperationException("FOV radius is incorrect. Must be 0 < maxRadius < 63; TiledFOVCache allows larger radii");
         if(maxLOSRadius <= 0 || maxLOSRadius >= 63)
             throw new UnsupportedOperationException("LOS radius is incorrect. Must be 0 < maxLOSRadius < 63");
         fov = new FOV(FOV.SHADOW);
@@ -1290,6 +1291,8 @@ public class FOVCache extends FOV {
      * to the FOVCache constructor. It runs these on another thread, without interrupting this one. Before using the
      * cache, you should call awaitRefresh() to ensure this method has finished on its own thread, but be aware that
      * this will cause the thread that calls awaitRefresh() to essentially freeze until FOV calculations are over.
+     * Only cells that could see a changed cell are recalculated, the same as with
+     * {@link #refreshCells(char[][], Collection)}, which you can call instead if you already know which cells changed.
      */
     public void refreshCache(char[][] newMap)
     {
@@ -1323,6 +1326,118 @@ public class FOVCache extends FOV {
     }
 
 
+    /**
+     * Updates the cache after a few cells of the map have changed, such as when a door opens or closes, recalculating
+     * only the cached FOV and LOS of cells that could see at least one of the changed cells. Unlike
+     * {@link #refreshCache(char[][])}, this runs on the calling thread (using this FOVCache's worker threads for the
+     * calculations) and returns once the cache is up to date, and it only looks at the cells in changed, so any other
+     * differences between newMap and the map this was using are ignored. A viewer's FOV only needs to be recalculated
+     * if the changed cell is within maxRadius and in the viewer's FOV or LOS (walls are always seen when they block
+     * sight, so opening a door is handled the same way as closing one), and its LOS only needs to be recalculated if
+     * the changed cell is in its LOS. The symmetry and distant lighting step from {@link #cacheAll()} is then run again
+     * for each viewer that had its FOV or LOS recalculated.
+     * <br>
+     * This should be called after {@link #awaitCache()} has returned true; if caching was started but has not finished,
+     * this waits for it, and if caching was never started, this only updates the map, so the next call to cacheAll()
+     * will use it.
+     * @param newMap the map after the changes, with the same width and height as the map this was constructed with
+     * @param changed the cells that changed in newMap; a GreasedRegion or any other Collection of Coord will work
+     * @return how many cells had their FOV or LOS recalculated
+     */
+    public int refreshCells(char[][] newMap, Collection<Coord> changed)
+    {
+        if(qualityThread != null && !qualityComplete)
+            awaitCache();
+        double[][] res = DungeonUtility.generateResistances(newMap);
+        if(!qualityComplete) {
+            for (Coord c : changed) {
+                if (c != null && c.isWithin(width, height))
+                    resMap[c.x][c.y] = res[c.x][c.y];
+            }
+            updateWalls();
+            return 0;
+        }
+        return refreshChanged(res, changed);
+    }
+
+    /**
+     * Finds every viewer that can see a cell in changed, copies the changed cells from res into resMap, then
+     * recalculates the FOV, LOS, and symmetry of just those viewers. Assumes the cache is complete.
+     * @return how many viewers had their FOV or LOS recalculated
+     */
+    protected int refreshChanged(double[][] res, Collection<Coord> changed)
+    {
+        boolean[] fovChange = new boolean[mapLimit], losChange = new boolean[mapLimit];
+        int idx, count = 0;
+        for (Coord c : changed) {
+            if (c == null || !c.isWithin(width, height))
+                continue;
+            fovChange[c.x + c.y * width] = true;
+            losChange[c.x + c.y * width] = true;
+            for (int x = Math.max(0, c.x - maxLOSRadius); x <= Math.min(width - 1, c.x + maxLOSRadius); x++) {
+                for (int y = Math.max(0, c.y - maxLOSRadius); y <= Math.min(height - 1, c.y + maxLOSRadius); y++) {
+                    idx = x + y * width;
+                    if (resMap[x][y] >= 1.0 || (fovChange[idx] && losChange[idx]))
+                        continue;
+                    if (queryPacked(losCache[idx], c.x, c.y)) {
+                        losChange[idx] = true;
+                        if (Math.abs(x - c.x) <= maxRadius && Math.abs(y - c.y) <= maxRadius)
+                            fovChange[idx] = true;
+                    }
+                    else if (Math.abs(x - c.x) <= maxRadius && Math.abs(y - c.y) <= maxRadius
+                            && queryPacked(cache[idx][0], c.x, c.y))
+                        fovChange[idx] = true;
+                }
+            }
+        }
+        for (Coord c : changed) {
+            if (c != null && c.isWithin(width, height))
+                resMap[c.x][c.y] = res[c.x][c.y];
+        }
+        updateWalls();
+        List<LOSUnit> losUnits = new ArrayList<>(256);
+        List<FOVUnit> fovUnits = new ArrayList<>(256);
+        List<SymmetryUnit> symUnits = new ArrayList<>(256);
+        for (int i = 0; i < mapLimit; i++) {
+            if (losChange[i])
+                losUnits.add(new LOSUnit(i));
+            if (fovChange[i])
+                fovUnits.add(new FOVUnit(i));
+            if (losChange[i] || fovChange[i]) {
+                symUnits.add(new SymmetryUnit(i));
+                count++;
+            }
+        }
+        // the symmetry step reads the FOV of other cells from cache, so its results go into a copy
+        tmpCache = Arrays.copyOf(cache, mapLimit);
+        try {
+            for (Future<Long> future : executor.invokeAll(losUnits)) {
+                future.get();
+            }
+            for (Future<Long> future : executor.invokeAll(fovUnits)) {
+                future.get();
+            }
+            for (Future<Long> future : executor.invokeAll(symUnits)) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+        }
+        cache = tmpCache;
+        return count;
+    }
+
+    private void updateWalls()
+    {
+        boolean[][] walls = new boolean[width][height];
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                walls[i][j] = resMap[i][j] >= 1.0;
+            }
+        }
+        wallMap = pack(walls);
+    }
+
     @SuppressWarnings("unused")
 	private byte heuristic(Direction target) {
         switch (radiusKind) {
@@ -2020,62 +2135,14 @@ public class FOVCache extends FOV {
          */
         @Override
         public void run() {
-            System.arraycopy(cache, 0, tmpCache, 0, tmpCache.length);
-            short[] needsChange = new short[0];
+            ArrayList<Coord> changed = new ArrayList<>(64);
             for (int i = 0; i < width; i++) {
                 for (int j = 0; j < height; j++) {
                     if(resMap[i][j] != res[i][j])
-                    {
-                        needsChange = unionPacked(needsChange, losCache[i + j * width]);
-                    }
-                }
-            }
-            needsChange = differencePacked(needsChange, wallMap);
-            resMap = res;
-            Coord[] changingCoords = allPacked(needsChange);
-            List<LOSUnit> losUnits = new ArrayList<>(changingCoords.length);
-            List<FOVUnit> fovUnits = new ArrayList<>(changingCoords.length);
-            List<SymmetryUnit> symUnits = new ArrayList<>(changingCoords.length);
-
-            for (int i = 0, idx; i < changingCoords.length; i++)
-            {
-                idx = changingCoords[i].x + changingCoords[i].y * width;
-                losUnits.add(new LOSUnit(idx));
-                fovUnits.add(new FOVUnit(idx));
-                symUnits.add(new SymmetryUnit(idx));
-            }
-
-            try {
-                final List<Future<Long>> invoke = executor.invokeAll(losUnits);
-                for (Future<Long> future : invoke) {
-                    //threadTime +=
-                    future.get();
-                    //System.out.println(t);
-                }
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
-            }
-            try {
-                final List<Future<Long>> invoke = executor.invokeAll(fovUnits);
-                for (Future<Long> future : invoke) {
-                    //threadTime +=
-                    future.get();
-                    //System.out.println(t);
+                        changed.add(Coord.get(i, j));
                 }
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
             }
-            try {
-                final List<Future<Long>> invoke = executor.invokeAll(symUnits);
-                for (Future<Long> future : invoke) {
-                    //threadTime +=
-                    future.get();
-                    //System.out.println(t);
-                }
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
-            }
-            cache = tmpCache;
+            refreshChanged(res, changed);
             refreshComplete = true;
         }
     }
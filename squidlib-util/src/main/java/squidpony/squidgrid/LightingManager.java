@@ -0,0 +1,377 @@
+package squidpony.squidgrid;
+
+import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.OrderedMap;
+
+import java.util.Collection;
+
+/**
+ * Keeps track of many light sources on one map and the total light they give, updating that total incrementally.
+ * Each light's FOV is calculated only within the small window around it that the light could possibly reach, cached
+ * with the light, and added into {@link #lighting} scaled by the light's intensity. When a light moves, changes its
+ * radius or Radius, or a cell inside its window changes resistance, only that light is recalculated, and its old
+ * contribution is subtracted from the total before the new one is added; changing only the intensity just adds the
+ * difference. Nothing is recalculated until {@link #update()} is called, so many changes can be batched per frame.
+ * <br>
+ * This is meant to replace calling {@link FOV#calculateFOV(double[][], int, int, double, Radius)} for every light and
+ * merging the results with {@link FOV#addFOVs(double[][]...)} each frame. The values in lighting are not clamped, so
+ * overlapping lights can sum past 1.0; use {@link #lightAt(int, int)} or {@link #intoClamped(double[][])} to get
+ * values clamped like addFOVs() would give. If you want colored light, one LightingManager per color channel can share
+ * the same resistance map.
+ */
+public class LightingManager {
+    /**
+     * One light source. The position, radius, intensity, and Radius kind can be read here, but should only be changed
+     * through the LightingManager that owns the light, so it knows what needs recalculating.
+     */
+    public static class Light {
+        public final int id;
+        public int x, y;
+        public double radius, intensity;
+        public Radius radiusKind;
+        /**
+         * The FOV this light uses; its light buffer is the cached contribution, covering only the window.
+         */
+        protected final FOV fov;
+        /**
+         * The resistances inside this light's window, copied from the manager's full map before each calculation.
+         */
+        protected double[][] window;
+        /**
+         * The contribution of this light before scaling by intensity, or null if it has not been calculated yet.
+         */
+        protected double[][] contribution;
+        /**
+         * The lowest x and y of the window in the full map, and the intensity used when contribution was added.
+         */
+        protected int startX, startY;
+        protected double applied;
+        protected boolean dirty = true;
+
+        protected Light(int id, int x, int y, double radius, double intensity, Radius radiusKind, int fovType) {
+            this.id = id;
+            this.x = x;
+            this.y = y;
+            this.radius = radius;
+            this.intensity = intensity;
+            this.radiusKind = radiusKind;
+            fov = new FOV(fovType);
+        }
+
+        /**
+         * @param cx the x-position of a cell in the full map
+         * @param cy the y-position of a cell in the full map
+         * @return true if the cell is inside the window this light's contribution was last calculated for
+         */
+        public boolean windowContains(int cx, int cy) {
+            return window != null && cx >= startX && cy >= startY
+                    && cx < startX + window.length && cy < startY + window[0].length;
+        }
+    }
+
+    /**
+     * The resistance of each cell, as made by {@link DungeonUtility#generateResistances(char[][])}. Don't change this
+     * directly; use {@link #setResistance(int, int, double)} or {@link #setResistances(double[][], Collection)} so
+     * lights near changed cells get recalculated.
+     */
+    public double[][] resistances;
+    /**
+     * The total light from all lights as of the last {@link #update()}, each light's FOV scaled by its intensity and
+     * summed without clamping.
+     */
+    public double[][] lighting;
+    public int width, height;
+    /**
+     * The FOV type new lights will use, such as {@link FOV#SHADOW} (the default) or {@link FOV#RIPPLE}.
+     */
+    public int fovType = FOV.SHADOW;
+    protected OrderedMap<Integer, Light> lights = new OrderedMap<>();
+    protected int nextID = 0;
+
+    /**
+     * Constructs an empty LightingManager; you must call {@link #initialize(double[][])} before adding lights.
+     */
+    public LightingManager() {
+    }
+
+    /**
+     * Constructs a LightingManager for the given char[][] map, treating walls and doors as
+     * {@link DungeonUtility#generateResistances(char[][])} does, with lights that use shadowcasting.
+     * @param map a char[][] dungeon map, as produced by DungeonGenerator
+     */
+    public LightingManager(char[][] map) {
+        initialize(DungeonUtility.generateResistances(map));
+    }
+
+    /**
+     * Constructs a LightingManager for the given resistance map, with lights that use the given FOV type.
+     * @param resistances a resistance map, as made by DungeonUtility.generateResistances(); not copied
+     * @param fovType an FOV type constant, such as {@link FOV#SHADOW} or {@link FOV#RIPPLE}
+     */
+    public LightingManager(double[][] resistances, int fovType) {
+        this.fovType = fovType;
+        initialize(resistances);
+    }
+
+    /**
+     * Sets the resistance map this uses and clears all light; existing lights are kept and will be recalculated on
+     * the next call to {@link #update()}.
+     * @param resistances a resistance map, as made by DungeonUtility.generateResistances(); not copied
+     * @return this for chaining
+     */
+    public LightingManager initialize(double[][] resistances) {
+        this.resistances = resistances;
+        width = resistances.length;
+        height = resistances[0].length;
+        lighting = new double[width][height];
+        for (Light light : lights.values()) {
+            light.contribution = null;
+            light.window = null;
+            light.applied = 0.0;
+            light.dirty = true;
+        }
+        return this;
+    }
+
+    /**
+     * Adds a light; it will be lit starting with the next call to {@link #update()}.
+     * @param x the x-position of the light
+     * @param y the y-position of the light
+     * @param radius how far the light reaches
+     * @param intensity how bright the light is at its center; its FOV will be multiplied by this
+     * @param radiusKind the shape of the light, such as {@link Radius#CIRCLE}
+     * @return an id that can be used to move, change, or remove the light
+     */
+    public int addLight(int x, int y, double radius, double intensity, Radius radiusKind) {
+        int id = nextID++;
+        lights.put(id, new Light(id, x, y, radius, intensity, radiusKind, fovType));
+        return id;
+    }
+
+    /**
+     * Adds a circular light with intensity 1.0; it will be lit starting with the next call to {@link #update()}.
+     * @param position the position of the light
+     * @param radius how far the light reaches
+     * @return an id that can be used to move, change, or remove the light
+     */
+    public int addLight(Coord position, double radius) {
+        return addLight(position.x, position.y, radius, 1.0, Radius.CIRCLE);
+    }
+
+    /**
+     * Gets the light with the given id, which should not be modified directly.
+     * @param id an id returned by addLight()
+     * @return the Light with that id, or null if there is none
+     */
+    public Light getLight(int id) {
+        return lights.get(id);
+    }
+
+    /**
+     * @return how many lights this currently has
+     */
+    public int lightCount() {
+        return lights.size();
+    }
+
+    /**
+     * Removes a light, taking its contribution out of {@link #lighting} immediately.
+     * @param id an id returned by addLight()
+     * @return true if a light was removed
+     */
+    public boolean removeLight(int id) {
+        Light light = lights.remove(id);
+        if (light == null)
+            return false;
+        apply(light, -light.applied);
+        return true;
+    }
+
+    /**
+     * Removes all lights, leaving {@link #lighting} dark.
+     */
+    public void clearLights() {
+        lights.clear();
+        if (lighting != null) {
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    lighting[x][y] = 0.0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves a light; it will be recalculated on the next call to {@link #update()}.
+     * @param id an id returned by addLight()
+     * @param x the new x-position
+     * @param y the new y-position
+     */
+    public void moveLight(int id, int x, int y) {
+        Light light = lights.get(id);
+        if (light == null || (light.x == x && light.y == y))
+            return;
+        light.x = x;
+        light.y = y;
+        light.dirty = true;
+    }
+
+    /**
+     * Changes how far a light reaches and its shape; it will be recalculated on the next call to {@link #update()}.
+     * @param id an id returned by addLight()
+     * @param radius how far the light reaches
+     * @param radiusKind the shape of the light, such as {@link Radius#CIRCLE}
+     */
+    public void setRadius(int id, double radius, Radius radiusKind) {
+        Light light = lights.get(id);
+        if (light == null || (light.radius == radius && light.radiusKind == radiusKind))
+            return;
+        light.radius = radius;
+        light.radiusKind = radiusKind;
+        light.dirty = true;
+    }
+
+    /**
+     * Changes how bright a light is. This never needs the light's FOV to be recalculated; the difference is applied
+     * to {@link #lighting} on the next call to {@link #update()}.
+     * @param id an id returned by addLight()
+     * @param intensity how bright the light is at its center
+     */
+    public void setIntensity(int id, double intensity) {
+        Light light = lights.get(id);
+        if (light != null)
+            light.intensity = intensity;
+    }
+
+    /**
+     * Changes the resistance of one cell, marking every light whose window contains that cell for recalculation.
+     * @param x the x-position of the changed cell
+     * @param y the y-position of the changed cell
+     * @param resistance the new resistance, from 0.0 (transparent) to 1.0 (opaque)
+     * @return the number of lights that will be recalculated because of this change
+     */
+    public int setResistance(int x, int y, double resistance) {
+        resistances[x][y] = resistance;
+        return touch(x, y);
+    }
+
+    /**
+     * Copies the resistances of the given changed cells from newResistances into {@link #resistances}, marking every
+     * light whose window contains any of those cells for recalculation. Cells not in changed are not compared.
+     * @param newResistances a resistance map with the same size as the current one
+     * @param changed the cells that may have different resistance
+     * @return the number of lights that will be recalculated because of these changes
+     */
+    public int setResistances(double[][] newResistances, Collection<Coord> changed) {
+        int marked = 0;
+        for (Coord c : changed) {
+            resistances[c.x][c.y] = newResistances[c.x][c.y];
+            marked += touch(c.x, c.y);
+        }
+        return marked;
+    }
+
+    private int touch(int x, int y) {
+        int marked = 0;
+        for (Light light : lights.values()) {
+            if (!light.dirty && light.windowContains(x, y)) {
+                light.dirty = true;
+                marked++;
+            }
+        }
+        return marked;
+    }
+
+    /**
+     * Recalculates every light that moved, changed shape, or had a cell in its window change, and applies those
+     * changes and any intensity changes to {@link #lighting}.
+     * @return the number of lights whose FOV was recalculated
+     */
+    public int update() {
+        int recalculated = 0;
+        for (Light light : lights.values()) {
+            if (light.dirty) {
+                apply(light, -light.applied);
+                calculate(light);
+                apply(light, light.intensity);
+                recalculated++;
+            } else if (light.applied != light.intensity) {
+                apply(light, light.intensity - light.applied);
+            }
+        }
+        return recalculated;
+    }
+
+    /**
+     * Calculates a light's FOV within the window it could possibly reach, clipped to the map. The window extends 3
+     * cells past the radius so that ripple FOV sees the same neighbors it would on the full map.
+     */
+    protected void calculate(Light light) {
+        light.dirty = false;
+        if (light.x < 0 || light.y < 0 || light.x >= width || light.y >= height) {
+            light.contribution = null;
+            light.window = null;
+            return;
+        }
+        int reach = (int) Math.min(Math.ceil(light.radius) + 3.0, Math.max(width, height)),
+                x0 = Math.max(0, light.x - reach), y0 = Math.max(0, light.y - reach),
+                w = Math.min(width, light.x + reach + 1) - x0, h = Math.min(height, light.y + reach + 1) - y0;
+        if (light.window == null || light.window.length != w || light.window[0].length != h)
+            light.window = new double[w][h];
+        light.startX = x0;
+        light.startY = y0;
+        for (int x = 0; x < w; x++) {
+            System.arraycopy(resistances[x0 + x], y0, light.window[x], 0, h);
+        }
+        light.contribution = light.fov.calculateFOV(light.window, light.x - x0, light.y - y0,
+                light.radius, light.radiusKind);
+    }
+
+    /**
+     * Adds a light's cached contribution, multiplied by amount, to {@link #lighting}; amount is negative to subtract.
+     * Values that come within a tiny margin of 0 after subtracting are snapped to 0, so rounding error from many
+     * updates doesn't leave faint light behind.
+     */
+    protected void apply(Light light, double amount) {
+        light.applied += amount;
+        if (light.contribution == null || amount == 0.0)
+            return;
+        final double[][] con = light.contribution;
+        final int w = con.length, h = con[0].length;
+        for (int x = 0; x < w; x++) {
+            final double[] column = lighting[light.startX + x], c = con[x];
+            for (int y = 0, ly = light.startY; y < h; y++, ly++) {
+                if (c[y] != 0.0) {
+                    column[ly] += c[y] * amount;
+                    if (amount < 0.0 && column[ly] < 1e-9 && column[ly] > -1e-9)
+                        column[ly] = 0.0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the light at a cell, clamped to at most 1.0 as FOV.addFOVs() would.
+     * @param x the x-position of the cell
+     * @param y the y-position of the cell
+     * @return the total light at that cell from all lights, up to 1.0
+     */
+    public double lightAt(int x, int y) {
+        return Math.min(1.0, lighting[x][y]);
+    }
+
+    /**
+     * Copies the total light into the given 2D array, clamping each value to at most 1.0.
+     * @param into a 2D double array with the same size as the map; will be modified
+     * @return into, after modifications
+     */
+    public double[][] intoClamped(double[][] into) {
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                into[x][y] = Math.min(1.0, lighting[x][y]);
+            }
+        }
+        return into;
+    }
+}
@@ -0,0 +1,479 @@
+package squidpony.squidgrid;
+
+import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.GreasedRegion;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A lazily-filled FOV cache for maps of any size, including ones much larger than the 256x256 limit of
+ * {@link FOVCache}, with FOV radii up to 254 instead of less than 63. Where FOVCache calculates FOV for every cell on
+ * the map ahead of time and keeps all of it, this calculates the FOV for a viewer the first time it is queried and
+ * keeps it until the memory budget is exceeded. Viewers are grouped into square tiles of cells (16x16 by default), and
+ * when cached FOV takes up more memory than the budget allows, the tiles that were least recently queried are discarded
+ * as a whole, to be calculated again if they are needed later. Since most games only query FOV near the player and
+ * the monsters that are awake, a 1024x1024 overworld only needs a small fraction of its viewers cached at any time.
+ * <br>
+ * The FOV is calculated with the same slope shadowcasting FOVCache uses before its symmetry step, and each viewer
+ * stores only the smallest rectangle around it that contains every cell it can see, with one byte per cell for the
+ * distance to that cell, so one entry holds every radius up to maxRadius at once. Like FOVCache, walls can't see
+ * anything, and {@link #isCellVisible(int, int, int, int, int)} checks in both directions if you need symmetry.
+ * <br>
+ * This doesn't use any threads, and queries change which tiles are cached, so a TiledFOVCache shouldn't be shared
+ * between threads without synchronizing on it.
+ * @see FOVCache for smaller maps, where calculating everything ahead of time allows distant lights and symmetry
+ */
+public class TiledFOVCache {
+    private static final byte[] NOTHING = new byte[0];
+
+    protected int maxRadius, width, height, tileSize, tilesWide, side;
+    protected Radius radiusKind;
+    protected double[][] resMap;
+    /**
+     * For each cell in a (maxRadius * 2 + 1) square window centered on a viewer, 1 plus that cell's distance from the
+     * viewer, or 0 if it is too far away to ever be seen.
+     */
+    protected byte[] distances;
+    protected long budget, used;
+    private final LinkedHashMap<Integer, Tile> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private transient byte[] window;
+    private transient int lastKey = -1;
+    private transient Tile lastTile;
+
+    /**
+     * Creates a TiledFOVCache for the given map, which can cache FOV for every radius from 1 to maxRadius, using 16x16
+     * tiles and a memory budget of 64 MB.
+     * @param map a char[][] as returned by SquidLib's map generators
+     * @param maxRadius the longest radius that will ever be queried, from 1 to 254
+     * @param radiusKind a Radius enum that determines the shape of each FOV area
+     */
+    public TiledFOVCache(char[][] map, int maxRadius, Radius radiusKind) {
+        this(map, maxRadius, radiusKind, 16, 64L << 20);
+    }
+
+    /**
+     * Creates a TiledFOVCache for the given map, which can cache FOV for every radius from 1 to maxRadius, grouping
+     * viewers into tiles with the given side length and keeping cached FOV as long as its total size is at most budget.
+     * @param map a char[][] as returned by SquidLib's map generators
+     * @param maxRadius the longest radius that will ever be queried, from 1 to 254
+     * @param radiusKind a Radius enum that determines the shape of each FOV area
+     * @param tileSize the side length of the square tiles viewers are grouped into; 8 to 32 work well
+     * @param budget the most memory, in bytes, that cached FOV should take up; the most recent tile is always kept
+     */
+    public TiledFOVCache(char[][] map, int maxRadius, Radius radiusKind, int tileSize, long budget) {
+        if(map == null || map.length == 0)
+            throw new UnsupportedOperationException("The map used by TiledFOVCache must not be null or empty");
+        if(maxRadius <= 0 || maxRadius > 254)
+            throw new UnsupportedOperationException("FOV radius is incorrect. Must be 0 < maxRadius < 255");
+        if(tileSize <= 0)
+            throw new UnsupportedOperationException("Tile size must be positive");
+        width = map.length;
+        height = map[0].length;
+        this.maxRadius = maxRadius;
+        this.radiusKind = radiusKind == null ? Radius.SQUARE : radiusKind;
+        this.tileSize = tileSize;
+        this.budget = budget;
+        tilesWide = (width + tileSize - 1) / tileSize;
+        resMap = DungeonUtility.generateResistances(map);
+        side = maxRadius * 2 + 1;
+        distances = new byte[side * side];
+        int d;
+        for (int x = -maxRadius, i = 0; x <= maxRadius; x++) {
+            for (int y = -maxRadius; y <= maxRadius; y++, i++) {
+                d = distance(x, y) / 2;
+                if(d <= maxRadius)
+                    distances[i] = (byte) (d + 1);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the viewer can see the target at the given vision range, calculating and caching the viewer's FOV
+     * if it isn't cached yet. This is not symmetrical; see {@link #isCellVisible(int, int, int, int, int)} for that.
+     * @param visionRange how far the viewer can see; ranges above maxRadius are treated as maxRadius
+     * @param viewerX the x position of the viewer
+     * @param viewerY the y position of the viewer
+     * @param targetX the x position of the cell to check
+     * @param targetY the y position of the cell to check
+     * @return true if the target is in the viewer's FOV
+     */
+    public boolean queryCache(int visionRange, int viewerX, int viewerY, int targetX, int targetY) {
+        final int d = visibleDistance(viewerX, viewerY, targetX, targetY);
+        return d >= 0 && d <= visionRange;
+    }
+
+    /**
+     * Checks whether the viewer can see the target or the target can see the viewer, at the given vision range. This
+     * may need to calculate FOV for both cells, and is symmetrical, unlike {@link #queryCache(int, int, int, int, int)}.
+     * @param visionRange how far the viewer can see; ranges above maxRadius are treated as maxRadius
+     * @param viewerX the x position of the viewer
+     * @param viewerY the y position of the viewer
+     * @param targetX the x position of the cell to check
+     * @param targetY the y position of the cell to check
+     * @return true if either cell is in the other's FOV
+     */
+    public boolean isCellVisible(int visionRange, int viewerX, int viewerY, int targetX, int targetY) {
+        return queryCache(visionRange, viewerX, viewerY, targetX, targetY)
+                || queryCache(visionRange, targetX, targetY, viewerX, viewerY);
+    }
+
+    /**
+     * Checks whether the viewer has line of sight to the target at any distance up to maxRadius.
+     * @param viewerX the x position of the viewer
+     * @param viewerY the y position of the viewer
+     * @param targetX the x position of the cell to check
+     * @param targetY the y position of the cell to check
+     * @return true if the target is in the viewer's FOV at maxRadius
+     */
+    public boolean queryLOS(int viewerX, int viewerY, int targetX, int targetY) {
+        return visibleDistance(viewerX, viewerY, targetX, targetY) >= 0;
+    }
+
+    /**
+     * Gets the distance from the viewer to the target, measured with this cache's Radius, if the viewer can see the
+     * target at maxRadius, or -1 if it can't. The viewer's own cell is at distance 0, and the target can be seen at any
+     * vision range at least as large as the returned distance.
+     * @param viewerX the x position of the viewer
+     * @param viewerY the y position of the viewer
+     * @param targetX the x position of the cell to check
+     * @param targetY the y position of the cell to check
+     * @return the distance to the target, or -1 if the viewer can't see it
+     */
+    public int visibleDistance(int viewerX, int viewerY, int targetX, int targetY) {
+        if(viewerX < 0 || viewerY < 0 || viewerX >= width || viewerY >= height)
+            return -1;
+        final int dx = targetX - viewerX, dy = targetY - viewerY;
+        if(dx < -maxRadius || dx > maxRadius || dy < -maxRadius || dy > maxRadius)
+            return -1;
+        final Tile tile = tile(viewerX, viewerY);
+        final int index = (viewerX % tileSize) * tileSize + viewerY % tileSize;
+        final byte[] seen = tile.entry(index, viewerX, viewerY);
+        final int b = index << 2,
+                wx = dx + maxRadius - tile.boxes[b], wy = dy + maxRadius - tile.boxes[b + 1],
+                w = tile.boxes[b + 2], h = tile.boxes[b + 3];
+        if(wx < 0 || wy < 0 || wx >= w || wy >= h)
+            return -1;
+        return (seen[wx * h + wy] & 0xFF) - 1;
+    }
+
+    /**
+     * Fills into with every cell the viewer can see at the given vision range, resizing it to this map's size first.
+     * This is meant for maps too large for a double[][] per FOV call to be reasonable.
+     * @param visionRange how far the viewer can see; ranges above maxRadius are treated as maxRadius
+     * @param viewerX the x position of the viewer
+     * @param viewerY the y position of the viewer
+     * @param into a GreasedRegion that will be emptied and then filled with the FOV; will be modified
+     * @return into, after modifications
+     */
+    public GreasedRegion fillFOV(int visionRange, int viewerX, int viewerY, GreasedRegion into) {
+        into.resizeAndEmpty(width, height);
+        if(viewerX < 0 || viewerY < 0 || viewerX >= width || viewerY >= height)
+            return into;
+        final Tile tile = tile(viewerX, viewerY);
+        final int index = (viewerX % tileSize) * tileSize + viewerY % tileSize;
+        final byte[] seen = tile.entry(index, viewerX, viewerY);
+        final int b = index << 2,
+                left = viewerX - maxRadius + tile.boxes[b], top = viewerY - maxRadius + tile.boxes[b + 1],
+                w = tile.boxes[b + 2], h = tile.boxes[b + 3], range = Math.min(visionRange, maxRadius) + 1;
+        int v;
+        for (int x = 0, i = 0; x < w; x++) {
+            for (int y = 0; y < h; y++, i++) {
+                v = seen[i] & 0xFF;
+                if(v != 0 && v <= range)
+                    into.insert(left + x, top + y);
+            }
+        }
+        return into;
+    }
+
+    /**
+     * @return the memory budget in bytes
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Changes the memory budget, discarding least recently used tiles if they no longer fit.
+     * @param budget the most memory, in bytes, that cached FOV should take up
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+        evict();
+    }
+
+    /**
+     * @return the approximate memory used by cached FOV, in bytes
+     */
+    public long approximateMemoryUsage() {
+        return used;
+    }
+
+    /**
+     * @return how many tiles currently have at least some cached FOV
+     */
+    public int tileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * Discards all cached FOV, such as after the map has changed; use {@link #resetMap(char[][])} to change the map.
+     */
+    public void clear() {
+        tiles.clear();
+        used = 0;
+        lastKey = -1;
+        lastTile = null;
+    }
+
+    /**
+     * Changes the map this uses to a new one with the same size and discards all cached FOV.
+     * @param map a char[][] with the same width and height as the map this was constructed with
+     */
+    public void resetMap(char[][] map) {
+        if(map.length != width || map[0].length != height)
+            throw new UnsupportedOperationException("The new map must be the same size as the old one");
+        resMap = DungeonUtility.generateResistances(map);
+        clear();
+    }
+
+    /**
+     * Updates the map after a few cells have changed, such as when a door opens or closes, discarding only the cached
+     * FOV of viewers that could see a changed cell (or that are a changed cell); those viewers will have their FOV
+     * calculated again the next time they are queried. Only the cells in changed are read from newMap.
+     * @param newMap the map after the changes, with the same width and height as the map this was constructed with
+     * @param changed the cells that changed in newMap; a GreasedRegion or any other Collection of Coord will work
+     * @return how many cached viewers were discarded
+     */
+    public int refreshCells(char[][] newMap, Collection<Coord> changed) {
+        final char[][] single = new char[1][1];
+        int count = 0, dx, dy, b, wx, wy, tx, ty;
+        Tile tile;
+        byte[] s;
+        for (Coord c : changed) {
+            if(c == null || !c.isWithin(width, height))
+                continue;
+            single[0][0] = newMap[c.x][c.y];
+            resMap[c.x][c.y] = DungeonUtility.generateResistances(single)[0][0];
+            // iterating entries, unlike get(), doesn't change the access order that evict() and lastTile rely on
+            for (Map.Entry<Integer, Tile> e : tiles.entrySet()) {
+                tx = e.getKey() % tilesWide;
+                ty = e.getKey() / tilesWide;
+                if(tx < (c.x - maxRadius) / tileSize || tx > (c.x + maxRadius) / tileSize
+                        || ty < (c.y - maxRadius) / tileSize || ty > (c.y + maxRadius) / tileSize)
+                    continue;
+                tile = e.getValue();
+                for (int i = 0, x = tx * tileSize; i < tileSize; i++, x++) {
+                    for (int j = 0, y = ty * tileSize; j < tileSize; j++, y++) {
+                        if((s = tile.seen[i * tileSize + j]) == null)
+                            continue;
+                        dx = c.x - x;
+                        dy = c.y - y;
+                        if(dx < -maxRadius || dx > maxRadius || dy < -maxRadius || dy > maxRadius)
+                            continue;
+                        b = (i * tileSize + j) << 2;
+                        wx = dx + maxRadius - tile.boxes[b];
+                        wy = dy + maxRadius - tile.boxes[b + 1];
+                        if((dx == 0 && dy == 0) || (wx >= 0 && wy >= 0 && wx < tile.boxes[b + 2]
+                                && wy < tile.boxes[b + 3] && s[wx * tile.boxes[b + 3] + wy] != 0)) {
+                            tile.discard(i * tileSize + j);
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    public int getMaxRadius() {
+        return maxRadius;
+    }
+
+    public Radius getRadiusKind() {
+        return radiusKind;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    private Tile tile(final int viewerX, final int viewerY) {
+        final int key = viewerX / tileSize + viewerY / tileSize * tilesWide;
+        if(key == lastKey)
+            return lastTile;
+        Tile tile = tiles.get(key);
+        if(tile == null) {
+            tile = new Tile();
+            tiles.put(key, tile);
+            used += tile.size;
+            evict();
+        }
+        lastKey = key;
+        return lastTile = tile;
+    }
+
+    private void evict() {
+        final Iterator<Tile> it = tiles.values().iterator();
+        Tile t;
+        // the most recently used tile is last in iteration order, and is always kept
+        while (used > budget && tiles.size() > 1) {
+            t = it.next();
+            used -= t.size;
+            it.remove();
+        }
+    }
+
+    /**
+     * Calculates the FOV for a viewer into a window centered on it, and returns the smallest rectangle of that window
+     * that holds every visible cell, storing the rectangle's position and size in box at offset.
+     */
+    protected byte[] calculate(final int viewerX, final int viewerY, final short[] box, final int offset) {
+        if(resMap[viewerX][viewerY] >= 1.0) {
+            box[offset] = box[offset + 1] = box[offset + 2] = box[offset + 3] = 0;
+            return NOTHING;
+        }
+        if(window == null)
+            window = new byte[side * side];
+        final byte[] window = this.window;
+        Arrays.fill(window, (byte) 0);
+        window[maxRadius * side + maxRadius] = 1;
+        for (Direction d : Direction.DIAGONALS) {
+            slopeShadowCast(1, 1.0, 0.0, 0, d.deltaX, d.deltaY, 0, viewerX, viewerY);
+            slopeShadowCast(1, 1.0, 0.0, d.deltaX, 0, 0, d.deltaY, viewerX, viewerY);
+        }
+        int minX = maxRadius, maxX = maxRadius, minY = maxRadius, maxY = maxRadius;
+        for (int x = 0, i = 0; x < side; x++) {
+            for (int y = 0; y < side; y++, i++) {
+                if(window[i] != 0) {
+                    if(x < minX) minX = x;
+                    if(x > maxX) maxX = x;
+                    if(y < minY) minY = y;
+                    if(y > maxY) maxY = y;
+                }
+            }
+        }
+        final int w = maxX - minX + 1, h = maxY - minY + 1;
+        final byte[] seen = new byte[w * h];
+        for (int x = 0; x < w; x++) {
+            System.arraycopy(window, (minX + x) * side + minY, seen, x * h, h);
+        }
+        box[offset] = (short) minX;
+        box[offset + 1] = (short) minY;
+        box[offset + 2] = (short) w;
+        box[offset + 3] = (short) h;
+        return seen;
+    }
+
+    private void slopeShadowCast(int row, double start, double end, int xx, int xy, int yx, int yy,
+                                 int viewerX, int viewerY) {
+        double newStart = 0;
+        if (start < end) {
+            return;
+        }
+        boolean blocked = false;
+        int wx, wy;
+        for (int distance = row; distance <= maxRadius && !blocked; distance++) {
+            int deltaY = -distance;
+            for (int deltaX = -distance; deltaX <= 0; deltaX++) {
+                int currentX = viewerX + deltaX * xx + deltaY * xy;
+                int currentY = viewerY + deltaX * yx + deltaY * yy;
+                double leftSlope = (deltaX - 0.5f) / (deltaY + 0.5f);
+                double rightSlope = (deltaX + 0.5f) / (deltaY - 0.5f);
+
+                if (!(currentX >= 0 && currentY >= 0 && currentX < width && currentY < height)
+                        || start < rightSlope) {
+                    continue;
+                } else if (end > leftSlope) {
+                    break;
+                }
+                wx = currentX - viewerX + maxRadius;
+                wy = currentY - viewerY + maxRadius;
+                window[wx * side + wy] = distances[wx * side + wy];
+
+                if (blocked) { //previous cell was a blocking one
+                    if (resMap[currentX][currentY] >= 0.5) {//hit a wall
+                        newStart = rightSlope;
+                    } else {
+                        blocked = false;
+                        start = newStart;
+                    }
+                } else {
+                    if (resMap[currentX][currentY] >= 0.5 && distance < maxRadius) {//hit a wall within sight line
+                        blocked = true;
+                        slopeShadowCast(distance + 1, start, leftSlope, xx, xy, yx, yy, viewerX, viewerY);
+                        newStart = rightSlope;
+                    }
+                }
+            }
+        }
+    }
+
+    private int distance(int xPos, int yPos) {
+        int x = Math.abs(xPos), y = Math.abs(yPos);
+        switch (radiusKind) {
+            case CIRCLE:
+            case SPHERE:
+            {
+                if(x == y)
+                    return 3 * x;
+                else if(x < y)
+                    return 3 * x + 2 * (y - x);
+                else
+                    return 3 * y + 2 * (x - y);
+            }
+            case DIAMOND:
+            case OCTAHEDRON:
+                return 2 * (x + y);
+            default:
+                return 2 * Math.max(x, y);
+        }
+    }
+
+    /**
+     * The cached FOV for one square tile of viewers; each viewer's entry is calculated the first time it is needed.
+     */
+    protected class Tile {
+        protected final byte[][] seen = new byte[tileSize * tileSize][];
+        protected final short[] boxes = new short[tileSize * tileSize * 4];
+        protected long size = 32L + 24L + 8L * tileSize * tileSize + 16L + 8L * tileSize * tileSize;
+
+        protected byte[] entry(final int index, final int viewerX, final int viewerY) {
+            byte[] s = seen[index];
+            if(s == null) {
+                seen[index] = s = calculate(viewerX, viewerY, boxes, index << 2);
+                if(s != NOTHING) {
+                    final long bytes = 16L + ((s.length + 7) & -8);
+                    size += bytes;
+                    used += bytes;
+                    if(used > budget)
+                        evict();
+                }
+            }
+            return s;
+        }
+
+        protected void discard(final int index) {
+            final byte[] s = seen[index];
+            if(s != null && s != NOTHING) {
+                final long bytes = 16L + ((s.length + 7) & -8);
+                size -= bytes;
+                used -= bytes;
+            }
+            seen[index] = null;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package squidpony.squidgrid.mapping;
+
+import squidpony.annotation.Beta;
+import squidpony.squidmath.GreasedRegion;
+
+/**
+ * Holds the height, heat, and moisture of a generated world map in flat arrays of floats, or of shorts quantized over
+ * each layer's range, instead of the {@code double[][]} arrays {@link WorldMapGenerator} uses, along with height codes
+ * as bytes and the land, river, and lake regions. Floats use half the memory of doubles and shorts use a quarter, which
+ * matters when a big world, or many tiles of a {@link TiledWorldMap}, need to be kept around after being generated;
+ * the noise the maps are made from doesn't have more precision than a float anyway. Quantized shorts split each
+ * layer's range into 65535 steps and round to the nearest one, so they are off by at most half a step (1/131070 of the
+ * range). That is plenty for most uses, but it does mean a cell whose heat or moisture is within half a step of a biome
+ * boundary can land on the other side of it, and get a different biome than the unquantized map would give; this
+ * affects only a handful of cells in a typical map. {@link WorldMapGenerator.SimpleBiomeMapper} can read one of these
+ * directly with {@link WorldMapGenerator.SimpleBiomeMapper#makeBiomes(CompactWorldMap)}.
+ * <br>
+ * This only saves memory after a world has been generated. {@link WorldMapGenerator} still generates into its own
+ * {@code double[][]} fields, which are public and final and written in place by every projection, so making a
+ * CompactWorldMap from one with {@link #CompactWorldMap(WorldMapGenerator, boolean)} needs as much memory as the
+ * generator at its peak, plus this copy. The savings come from keeping this copy and discarding or reusing the
+ * generator, or from {@link TiledWorldMap} with {@link TiledWorldMap#compact} set, where each tile is written straight
+ * into a CompactWorldMap and only the heights of the tile being made (with its border) are held as doubles.
+ * <br>
+ * Every array is indexed by {@code x * height + y}, so cells in the same column are next to each other, the same order
+ * the rows of WorldMapGenerator's 2D arrays are in. Only one of the float or short arrays for each layer is non-null,
+ * depending on {@link #quantized}; {@link #getHeight(int, int)} and similar methods work with either.
+ */
+@Beta
+public class CompactWorldMap {
+    public final int width, height;
+    /**
+     * If true, layers are stored in the short arrays; otherwise in the float arrays.
+     */
+    public final boolean quantized;
+    public final float[] heightFloats, heatFloats, moistureFloats;
+    public final short[] heightShorts, heatShorts, moistureShorts;
+    public final byte[] heightCodeData;
+    public final GreasedRegion landData, riverData, lakeData;
+    /**
+     * The range of heat and moisture values this stores; when quantized, values outside these are clamped to them.
+     * Height is always between -1.0 and 1.0.
+     */
+    public final double minHeat, maxHeat, minWet, maxWet;
+    private final double heatScale, wetScale, i_heatScale, i_wetScale;
+
+    /**
+     * Makes an empty CompactWorldMap that can be filled with {@link #set(int, int, double, double, double, int)}.
+     * @param width the width of the map
+     * @param height the height of the map
+     * @param quantized true to store layers as shorts, false to store them as floats
+     * @param minHeat the lowest heat that will be stored
+     * @param maxHeat the highest heat that will be stored
+     * @param minWet the lowest moisture that will be stored
+     * @param maxWet the highest moisture that will be stored
+     */
+    public CompactWorldMap(final int width, final int height, final boolean quantized,
+                           final double minHeat, final double maxHeat, final double minWet, final double maxWet) {
+        this.width = width;
+        this.height = height;
+        this.quantized = quantized;
+        this.minHeat = minHeat;
+        this.maxHeat = maxHeat;
+        this.minWet = minWet;
+        this.maxWet = maxWet;
+        final int size = width * height;
+        if (quantized) {
+            heightShorts = new short[size];
+            heatShorts = new short[size];
+            moistureShorts = new short[size];
+            heightFloats = heatFloats = moistureFloats = null;
+        } else {
+            heightFloats = new float[size];
+            heatFloats = new float[size];
+            moistureFloats = new float[size];
+            heightShorts = heatShorts = moistureShorts = null;
+        }
+        heightCodeData = new byte[size];
+        heatScale = maxHeat > minHeat ? 65535.0 / (maxHeat - minHeat) : 0.0;
+        wetScale = maxWet > minWet ? 65535.0 / (maxWet - minWet) : 0.0;
+        i_heatScale = (maxHeat - minHeat) / 65535.0;
+        i_wetScale = (maxWet - minWet) / 65535.0;
+        landData = new GreasedRegion(width, height);
+        riverData = new GreasedRegion(width, height);
+        lakeData = new GreasedRegion(width, height);
+    }
+
+    /**
+     * Copies the last world produced by the given WorldMapGenerator, including its rivers and lakes at the current
+     * zoom if it generates them. The WorldMapGenerator can be discarded or reused afterwards.
+     * @param world a WorldMapGenerator that should have generated at least one map
+     * @param quantized true to store layers as shorts, false to store them as floats
+     */
+    public CompactWorldMap(final WorldMapGenerator world, final boolean quantized) {
+        this(world.width, world.height, quantized, world.minHeat, world.maxHeat, world.minWet, world.maxWet);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                set(x, y, world.heightData[x][y], world.heatData[x][y], world.moistureData[x][y],
+                        world.heightCodeData[x][y]);
+            }
+        }
+        landData.remake(world.landData);
+        if (world.generateRivers) {
+            riverData.remake(world.partialRiverData);
+            lakeData.remake(world.partialLakeData);
+        }
+    }
+
+    private static short quantize(final double value, final double low, final double scale) {
+        return (short) (Math.max(0L, Math.min(65535L, Math.round((value - low) * scale))) - 32768);
+    }
+
+    /**
+     * Stores the height, heat, moisture, and height code of one cell. This doesn't change {@link #landData}.
+     */
+    public void set(final int x, final int y, final double height, final double heat, final double moisture,
+                    final int heightCode) {
+        final int i = x * this.height + y;
+        if (quantized) {
+            heightShorts[i] = quantize(height, -1.0, 32767.5);
+            heatShorts[i] = quantize(heat, minHeat, heatScale);
+            moistureShorts[i] = quantize(moisture, minWet, wetScale);
+        } else {
+            heightFloats[i] = (float) height;
+            heatFloats[i] = (float) heat;
+            moistureFloats[i] = (float) moisture;
+        }
+        heightCodeData[i] = (byte) heightCode;
+    }
+
+    public double getHeight(final int x, final int y) {
+        final int i = x * height + y;
+        return quantized ? (heightShorts[i] + 32768) / 32767.5 - 1.0 : heightFloats[i];
+    }
+
+    public double getHeat(final int x, final int y) {
+        final int i = x * height + y;
+        return quantized ? (heatShorts[i] + 32768) * i_heatScale + minHeat : heatFloats[i];
+    }
+
+    public double getMoisture(final int x, final int y) {
+        final int i = x * height + y;
+        return quantized ? (moistureShorts[i] + 32768) * i_wetScale + minWet : moistureFloats[i];
+    }
+
+    public int getHeightCode(final int x, final int y) {
+        return heightCodeData[x * height + y];
+    }
+}
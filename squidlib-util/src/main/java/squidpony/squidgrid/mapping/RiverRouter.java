@@ -0,0 +1,689 @@
+package squidpony.squidgrid.mapping;
+
+import squidpony.annotation.Beta;
+import squidpony.annotation.GwtIncompatible;
+import squidpony.squidgrid.Direction;
+import squidpony.squidmath.GreasedRegion;
+import squidpony.squidmath.IntVLA;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Places rivers and lakes on a map made by a {@link WorldMapGenerator} by routing water over its heights, as an
+ * alternative to the random walks that WorldMapGenerator's own river generation takes from each river source. Water
+ * flows from every land cell to its steepest-downhill neighbor (D8 flow), after filling every depression that has no
+ * way out up to the level where it would spill over; the number of cells that drain through each cell (its flow
+ * accumulation) then decides where rivers are, and filled depressions that enough water drains into become lakes. The
+ * result only depends on the heights, so it is the same every time for the same seed, and it doesn't use the
+ * WorldMapGenerator's RNG at all.
+ * <br>
+ * The work is split into square tiles of {@link #tileSize} cells on a side, handled in parallel on a ForkJoinPool.
+ * Depression filling floods each tile separately, labeling which edge cell or body of water every cell drains to,
+ * and only the much smaller graph of how those labels connect is solved for the whole map; flow accumulation likewise
+ * sums each tile on its own and then passes totals between tiles along the cells where flow crosses tile edges. The
+ * parts that are not split into tiles only touch tile edges and filled lakes, which are small next to the whole map.
+ * <br>
+ * To use: generate a map with a WorldMapGenerator that has {@link WorldMapGenerator#generateRivers} set to false (so
+ * it doesn't spend time on rivers that will be replaced), then call {@link #route(WorldMapGenerator)}, which fills
+ * its riverData, lakeData, partialRiverData, and partialLakeData and sets generateRivers to true so zooming in and
+ * {@link WorldMapGenerator.SimpleBiomeMapper} use them; or call {@link #generate(WorldMapGenerator, long)}, which does
+ * both. Routing should be done at zoom 0, where the map covers the whole world; later zooms enlarge the routed rivers
+ * the same way they do for WorldMapGenerator's own rivers. When the game is closed or this is no longer needed, call
+ * {@link #destroy()} to shut down its threads.
+ */
+@Beta
+@GwtIncompatible
+public class RiverRouter {
+    /**
+     * The width and height of the tiles the map is split into; should be at least 8. Defaults to 64.
+     */
+    public int tileSize = 64;
+    /**
+     * How many land cells must drain through a cell for it to be a river. Defaults to 32, which gives rivers on about
+     * as much of the land as WorldMapGenerator's own rivers at sizes from 256x128 to 1024x512.
+     */
+    public int riverThreshold = 32;
+    /**
+     * How many land cells must drain into a filled depression for it to be a lake. Defaults to 128.
+     */
+    public int lakeThreshold = 128;
+    /**
+     * How deep a filled depression must get at its deepest point, in the units of
+     * {@link WorldMapGenerator#heightData}, for it to be a lake. Defaults to 0.06.
+     */
+    public double lakeDepth = 0.06;
+
+    protected final int threadCount;
+    private final ExecutorService executor;
+
+    private static final int FLOOD = 0, FILL = 1, DIRECT = 2, ACCUMULATE = 3, FINISH = 4;
+    private static final int[] OPPOSITE = {1, 0, 3, 2, 7, 6, 5, 4};
+    private static final int[] DX = new int[8], DY = new int[8];
+    static {
+        for (int d = 0; d < 8; d++) {
+            DX[d] = Direction.OUTWARDS[d].deltaX;
+            DY[d] = Direction.OUTWARDS[d].deltaY;
+        }
+    }
+
+    private int width, height;
+    private boolean wrapY;
+    private double[][] heights;
+    private int[][] codes;
+    private double[] level, spill;
+    private int[] label, acc, exitOf, inflow;
+    private byte[] dir;
+    private TileWork[] tiles;
+
+    /**
+     * Constructs a RiverRouter that uses one thread for each available processor.
+     */
+    public RiverRouter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a RiverRouter that uses the given number of threads.
+     * @param threads how many threads to split routing over; should be at least 1
+     */
+    public RiverRouter(final int threads) {
+        threadCount = Math.max(1, threads);
+        executor = new ForkJoinPool(threadCount);
+    }
+
+    /**
+     * Generates a map with the given WorldMapGenerator and state without its own rivers, then routes rivers and lakes
+     * over it with {@link #route(WorldMapGenerator)}.
+     * @param world a WorldMapGenerator at zoom 0; its generateRivers field will be true afterwards
+     * @param state the state to generate with, as in {@link WorldMapGenerator#generate(long)}
+     * @throws IllegalStateException if routing fails; see {@link #route(WorldMapGenerator)}
+     */
+    public void generate(final WorldMapGenerator world, final long state) {
+        world.generateRivers = false;
+        world.generate(state);
+        route(world);
+    }
+
+    /**
+     * Routes rivers and lakes over the last map the given WorldMapGenerator made, replacing its riverData, lakeData,
+     * partialRiverData, and partialLakeData, and sets its generateRivers field to true. Maps from
+     * {@link WorldMapGenerator.SphereMap} only wrap east-to-west here; other maps wrap in both directions.
+     * <br>
+     * If routing any tile fails, this throws an IllegalStateException before anything is written to the world, so
+     * its river and lake data and its generateRivers field stay as they were.
+     * @param world a WorldMapGenerator that has generated a map and is at zoom 0
+     * @throws IllegalStateException if a tile fails to route or the routing threads are interrupted
+     */
+    public synchronized void route(final WorldMapGenerator world) {
+        width = world.width;
+        height = world.height;
+        heights = world.heightData;
+        codes = world.heightCodeData;
+        wrapY = !(world instanceof WorldMapGenerator.SphereMap);
+        final int size = width * height, side = Math.max(8, tileSize),
+                tileColumns = (width + side - 1) / side, tileRows = (height + side - 1) / side;
+        level = new double[size];
+        label = new int[size];
+        acc = new int[size];
+        exitOf = new int[size];
+        inflow = new int[size];
+        dir = new byte[size];
+        tiles = new TileWork[tileColumns * tileRows];
+        for (int tx = 0, t = 0; tx < tileColumns; tx++) {
+            for (int ty = 0; ty < tileRows; ty++) {
+                tiles[t++] = new TileWork(tx * side, ty * side,
+                        Math.min(side, width - tx * side), Math.min(side, height - ty * side));
+            }
+        }
+        try {
+            runAll(FLOOD);
+            solveSpills();
+            runAll(FILL);
+            runAll(DIRECT);
+            resolveFlats();
+            runAll(ACCUMULATE);
+            solveExits();
+            runAll(FINISH);
+            mark(world);
+        } finally {
+            heights = null;
+            codes = null;
+            level = spill = null;
+            label = acc = exitOf = inflow = null;
+            dir = null;
+            tiles = null;
+        }
+    }
+
+    /**
+     * Shuts down any threads that may prevent the game from closing properly.
+     * You don't have to do anything special after you call this, other than not using this RiverRouter any more.
+     */
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private void runAll(final int phase) {
+        final List<Callable<Void>> units = new ArrayList<>(tiles.length);
+        for (int i = 0; i < tiles.length; i++) {
+            units.add(new TileUnit(tiles[i], phase));
+        }
+        try {
+            final List<Future<Void>> invoke = executor.invokeAll(units);
+            for (int i = 0; i < invoke.size(); i++) {
+                invoke.get(i).get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("RiverRouter failed to route a tile", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("RiverRouter was interrupted while routing", e);
+        }
+    }
+
+    /**
+     * Gets the index of the cell next to the cell at x,y in direction d, wrapping as the map does, or -1 if there is
+     * no such cell.
+     */
+    private int neighbor(final int x, final int y, final int d) {
+        final int nx = (x + DX[d] + width) % width;
+        int ny = y + DY[d];
+        if (ny < 0 || ny >= height) {
+            if (!wrapY)
+                return -1;
+            ny = (ny + height) % height;
+        }
+        return nx * height + ny;
+    }
+
+    /**
+     * Cells with a height code of 3 or less are water, which every other cell eventually drains into.
+     */
+    private boolean isWater(final int idx) {
+        return codes[idx / height][idx % height] <= 3;
+    }
+
+    private double heightAt(final int idx) {
+        return heights[idx / height][idx % height];
+    }
+
+    private int target(final int idx) {
+        final int d = dir[idx];
+        return d < 0 ? -1 : neighbor(idx / height, idx % height, d);
+    }
+
+    /**
+     * Finds the lowest level each flood label can drain at, by a bottleneck shortest-path search from the label
+     * shared by all water cells, 0, over the edges every tile recorded between labels.
+     */
+    private void solveSpills() {
+        final int labels = width * height + 1;
+        final int[] start = new int[labels + 1];
+        for (int t = 0; t < tiles.length; t++) {
+            final TileWork work = tiles[t];
+            for (int e = 0; e < work.edgeCount; e++) {
+                start[work.edgeA[e] + 1]++;
+                start[work.edgeB[e] + 1]++;
+            }
+        }
+        for (int i = 0; i < labels; i++) {
+            start[i + 1] += start[i];
+        }
+        final int[] fill = Arrays.copyOf(start, labels), other = new int[start[labels]];
+        final double[] weight = new double[start[labels]];
+        for (int t = 0; t < tiles.length; t++) {
+            final TileWork work = tiles[t];
+            for (int e = 0; e < work.edgeCount; e++) {
+                final int a = work.edgeA[e], b = work.edgeB[e];
+                other[fill[a]] = b;
+                weight[fill[a]++] = work.edgeWeight[e];
+                other[fill[b]] = a;
+                weight[fill[b]++] = work.edgeWeight[e];
+            }
+            work.edgeA = work.edgeB = null;
+            work.edgeWeight = null;
+        }
+        spill = new double[labels];
+        Arrays.fill(spill, Double.POSITIVE_INFINITY);
+        spill[0] = Double.NEGATIVE_INFINITY;
+        final Heap heap = new Heap(64);
+        heap.push(Double.NEGATIVE_INFINITY, 0);
+        while (heap.size > 0) {
+            final double key = heap.peekKey();
+            final int a = heap.pop();
+            if (key != spill[a])
+                continue;
+            for (int e = start[a]; e < start[a + 1]; e++) {
+                final int b = other[e];
+                final double candidate = Math.max(key, weight[e]);
+                if (candidate < spill[b]) {
+                    spill[b] = candidate;
+                    heap.push(candidate, b);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives a direction to every cell that is on a flat, filled surface with no lower neighbor, pointing along the
+     * shortest path over that flat to a cell that does drain; cells that can't reach one are left as sinks.
+     */
+    private void resolveFlats() {
+        final IntVLA flats = new IntVLA(256), queue = new IntVLA(256), firstDirs = new IntVLA(256);
+        for (int t = 0; t < tiles.length; t++) {
+            flats.addAll(tiles[t].flats);
+            tiles[t].flats = null;
+        }
+        // the same order no matter how the map was split into tiles
+        Arrays.sort(flats.items, 0, flats.size);
+        for (int i = 0; i < flats.size; i++) {
+            final int c = flats.items[i], x = c / height, y = c % height;
+            for (int d = 0; d < 8; d++) {
+                final int n = neighbor(x, y, d);
+                if (n >= 0 && dir[n] >= -1 && level[n] == level[c]) {
+                    queue.add(c);
+                    firstDirs.add(d);
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < queue.size; i++) {
+            dir[queue.items[i]] = (byte) firstDirs.items[i];
+        }
+        for (int i = 0; i < queue.size; i++) {
+            final int c = queue.items[i], x = c / height, y = c % height;
+            for (int d = 0; d < 8; d++) {
+                final int n = neighbor(x, y, d);
+                if (n >= 0 && dir[n] == -2 && level[n] == level[c]) {
+                    dir[n] = (byte) OPPOSITE[d];
+                    queue.add(n);
+                }
+            }
+        }
+        for (int i = 0; i < dir.length; i++) {
+            if (dir[i] == -2)
+                dir[i] = -1;
+        }
+    }
+
+    /**
+     * Passes flow accumulation between tiles. Each cell whose flow leaves its tile adds its total to the cell it flows
+     * into, and from there to the cell where that flow leaves the next tile, in upstream-to-downstream order.
+     */
+    private void solveExits() {
+        final int[] pending = new int[width * height];
+        for (int t = 0; t < tiles.length; t++) {
+            final IntVLA exits = tiles[t].exits;
+            for (int i = 0; i < exits.size; i++) {
+                final int q = exitOf[target(exits.items[i])];
+                if (q >= 0)
+                    pending[q]++;
+            }
+        }
+        final IntVLA queue = new IntVLA(256);
+        for (int t = 0; t < tiles.length; t++) {
+            final IntVLA exits = tiles[t].exits;
+            for (int i = 0; i < exits.size; i++) {
+                if (pending[exits.items[i]] == 0)
+                    queue.add(exits.items[i]);
+            }
+            tiles[t].exits = null;
+        }
+        for (int i = 0; i < queue.size; i++) {
+            final int p = queue.items[i], r = target(p), q = exitOf[r];
+            inflow[r] += acc[p];
+            if (q >= 0) {
+                acc[q] += acc[p];
+                if (--pending[q] == 0)
+                    queue.add(q);
+            }
+        }
+    }
+
+    /**
+     * Fills the river and lake data of world from the finished flow accumulation.
+     */
+    private void mark(final WorldMapGenerator world) {
+        final int size = width * height;
+        final GreasedRegion riverData = world.riverData.empty(), lakeData = world.lakeData.empty();
+        // exitOf is reused here for the last filled cell each filled cell drains through, and spill for the deepest
+        // point of the depression that ends at that cell
+        Arrays.fill(exitOf, -2);
+        final double[] deepest = spill;
+        Arrays.fill(deepest, 0.0);
+        final IntVLA path = new IntVLA(64);
+        for (int i = 0; i < size; i++) {
+            if (exitOf[i] != -2 || isWater(i) || level[i] <= heightAt(i))
+                continue;
+            int c = i, end;
+            path.clear();
+            while (true) {
+                path.add(c);
+                final int t = target(c);
+                if (t < 0 || isWater(t) || level[t] <= heightAt(t)) {
+                    end = c;
+                    break;
+                }
+                if (exitOf[t] != -2) {
+                    end = exitOf[t];
+                    break;
+                }
+                c = t;
+            }
+            for (int j = 0; j < path.size; j++) {
+                final int p = path.items[j];
+                exitOf[p] = end;
+                deepest[end] = Math.max(deepest[end], level[p] - heightAt(p));
+            }
+        }
+        for (int x = 0, i = 0; x < width; x++) {
+            for (int y = 0; y < height; y++, i++) {
+                if (codes[x][y] < 4)
+                    continue;
+                final int end = exitOf[i];
+                if (end >= 0 && acc[end] >= lakeThreshold && deepest[end] >= lakeDepth)
+                    lakeData.insert(x, y);
+                if (acc[i] >= riverThreshold) {
+                    riverData.insert(x, y);
+                    final int d = dir[i];
+                    // keeps diagonal steps 4-connected, using the lower of the two cells between them
+                    if (d >= 4) {
+                        final int a = neighbor(x, y, DX[d] < 0 ? 2 : 3), b = neighbor(x, y, DY[d] < 0 ? 0 : 1);
+                        final int between = (b < 0 || (a >= 0 && level[a] <= level[b])) ? a : b;
+                        if (between >= 0 && !isWater(between))
+                            riverData.insert(between / height, between % height);
+                    }
+                }
+            }
+        }
+        world.partialRiverData.remake(riverData);
+        world.partialLakeData.remake(lakeData);
+        world.generateRivers = true;
+    }
+
+    /**
+     * The part of the map one tile covers, plus what its tasks produce for the steps that run over the whole map.
+     */
+    private static class TileWork {
+        final int startX, startY, width, height;
+        int[] edgeA = new int[64], edgeB = new int[64];
+        double[] edgeWeight = new double[64];
+        int edgeCount;
+        IntVLA flats = new IntVLA(16), exits = new IntVLA(16);
+        int[] order;
+
+        TileWork(final int startX, final int startY, final int width, final int height) {
+            this.startX = startX;
+            this.startY = startY;
+            this.width = width;
+            this.height = height;
+        }
+
+        void addEdge(final int a, final int b, final double w) {
+            if (edgeCount == edgeA.length) {
+                edgeA = Arrays.copyOf(edgeA, edgeCount << 1);
+                edgeB = Arrays.copyOf(edgeB, edgeCount << 1);
+                edgeWeight = Arrays.copyOf(edgeWeight, edgeCount << 1);
+            }
+            edgeA[edgeCount] = a;
+            edgeB[edgeCount] = b;
+            edgeWeight[edgeCount++] = w;
+        }
+
+        boolean contains(final int x, final int y) {
+            return x >= startX && y >= startY && x < startX + width && y < startY + height;
+        }
+    }
+
+    private class TileUnit implements Callable<Void> {
+        private final TileWork work;
+        private final int phase;
+
+        TileUnit(final TileWork work, final int phase) {
+            this.work = work;
+            this.phase = phase;
+        }
+
+        @Override
+        public Void call() {
+            switch (phase) {
+                case FLOOD:
+                    flood();
+                    break;
+                case FILL:
+                    for (int x = work.startX; x < work.startX + work.width; x++) {
+                        for (int y = work.startY, i = x * height + y; y < work.startY + work.height; y++, i++) {
+                            final double s = spill[label[i]];
+                            if (s > level[i] && s != Double.POSITIVE_INFINITY)
+                                level[i] = s;
+                        }
+                    }
+                    break;
+                case DIRECT:
+                    direct();
+                    break;
+                case ACCUMULATE:
+                    accumulate();
+                    break;
+                case FINISH:
+                    finish();
+                    break;
+            }
+            return null;
+        }
+
+        private int seedLabel(final int idx) {
+            return isWater(idx) ? 0 : idx + 1;
+        }
+
+        /**
+         * Priority-floods the tile from its water cells and its edge cells, which each get their own label; every
+         * other cell takes the label of the cell it was reached from and the highest level on the way there. Where
+         * two labels meet, the level water would need to reach to cross between them is recorded as an edge.
+         */
+        private void flood() {
+            final int w = work.width, h = work.height, x0 = work.startX, y0 = work.startY;
+            final Heap heap = new Heap(w * h);
+            for (int lx = 0; lx < w; lx++) {
+                for (int ly = 0; ly < h; ly++) {
+                    final int x = x0 + lx, y = y0 + ly, i = x * height + y;
+                    if (codes[x][y] <= 3 || lx == 0 || ly == 0 || lx == w - 1 || ly == h - 1) {
+                        label[i] = seedLabel(i);
+                        level[i] = heights[x][y];
+                        heap.push(level[i], i);
+                        // edges to the cells next to this one in other tiles, which are always seeds there
+                        for (int d = 0; d < 8; d++) {
+                            if (work.contains(x + DX[d], y + DY[d]))
+                                continue;
+                            final int n = neighbor(x, y, d);
+                            if (n > i) {
+                                final int nl = seedLabel(n);
+                                if (nl != label[i])
+                                    work.addEdge(label[i], nl, Math.max(level[i], heightAt(n)));
+                            }
+                        }
+                    } else {
+                        label[i] = -1;
+                    }
+                }
+            }
+            while (heap.size > 0) {
+                final double f = heap.peekKey();
+                final int c = heap.pop(), lc = label[c], x = c / height, y = c % height;
+                for (int d = 0; d < 8; d++) {
+                    if (!work.contains(x + DX[d], y + DY[d]))
+                        continue;
+                    final int n = (x + DX[d]) * height + y + DY[d];
+                    if (label[n] == -1) {
+                        label[n] = lc;
+                        level[n] = Math.max(heights[x + DX[d]][y + DY[d]], f);
+                        heap.push(level[n], n);
+                    } else if (label[n] != lc) {
+                        work.addEdge(lc, label[n], Math.max(f, level[n]));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Points every land cell at its steepest-downhill neighbor on the filled surface, or marks it as flat.
+         */
+        private void direct() {
+            for (int x = work.startX; x < work.startX + work.width; x++) {
+                for (int y = work.startY, i = x * height + y; y < work.startY + work.height; y++, i++) {
+                    if (codes[x][y] <= 3) {
+                        dir[i] = -1;
+                        continue;
+                    }
+                    double best = 0.0;
+                    int choice = -2;
+                    for (int d = 0; d < 8; d++) {
+                        final int n = neighbor(x, y, d);
+                        if (n < 0)
+                            continue;
+                        final double drop = (level[i] - level[n]) * (d < 4 ? 1.0 : 0.7071067811865476);
+                        if (drop > best) {
+                            best = drop;
+                            choice = d;
+                        }
+                    }
+                    dir[i] = (byte) choice;
+                    if (choice == -2)
+                        work.flats.add(i);
+                }
+            }
+        }
+
+        /**
+         * Sums flow within the tile in upstream-to-downstream order, remembering that order, and finds the cell each
+         * cell's flow leaves the tile from.
+         */
+        private void accumulate() {
+            final int w = work.width, h = work.height, x0 = work.startX, y0 = work.startY;
+            final int[] pending = new int[w * h], order = work.order = new int[w * h];
+            for (int x = x0; x < x0 + w; x++) {
+                for (int y = y0, i = x * height + y; y < y0 + h; y++, i++) {
+                    final int t = target(i);
+                    if (t >= 0 && work.contains(t / height, t % height))
+                        pending[(t / height - x0) * h + t % height - y0]++;
+                }
+            }
+            int count = 0;
+            for (int x = x0, li = 0; x < x0 + w; x++) {
+                for (int y = y0; y < y0 + h; y++, li++) {
+                    if (pending[li] == 0)
+                        order[count++] = x * height + y;
+                }
+            }
+            for (int k = 0; k < count; k++) {
+                final int t = target(order[k]);
+                if (t >= 0 && work.contains(t / height, t % height)
+                        && --pending[(t / height - x0) * h + t % height - y0] == 0)
+                    order[count++] = t;
+            }
+            sum(0);
+            for (int k = count - 1; k >= 0; k--) {
+                final int c = order[k], t = target(c);
+                if (t < 0)
+                    exitOf[c] = -1;
+                else if (work.contains(t / height, t % height))
+                    exitOf[c] = exitOf[t];
+                else {
+                    exitOf[c] = c;
+                    work.exits.add(c);
+                }
+            }
+        }
+
+        private void finish() {
+            sum(1);
+            work.order = null;
+        }
+
+        /**
+         * Accumulates flow along the remembered order, with every land cell starting at 1 plus, if withInflow is 1,
+         * the flow entering it from other tiles.
+         */
+        private void sum(final int withInflow) {
+            final int[] order = work.order;
+            for (int k = 0; k < order.length; k++) {
+                final int c = order[k];
+                acc[c] = (isWater(c) ? 0 : 1) + inflow[c] * withInflow;
+            }
+            for (int k = 0; k < order.length; k++) {
+                final int c = order[k], t = target(c);
+                if (t >= 0 && work.contains(t / height, t % height))
+                    acc[t] += acc[c];
+            }
+        }
+    }
+
+    /**
+     * A binary min-heap of int values ordered by double keys, with ties broken by the smaller value.
+     */
+    private static class Heap {
+        double[] keys;
+        int[] values;
+        int size;
+
+        Heap(final int capacity) {
+            keys = new double[Math.max(capacity, 4)];
+            values = new int[keys.length];
+        }
+
+        private boolean less(final int a, final int b) {
+            return keys[a] < keys[b] || (keys[a] == keys[b] && values[a] < values[b]);
+        }
+
+        private void swap(final int a, final int b) {
+            final double k = keys[a];
+            keys[a] = keys[b];
+            keys[b] = k;
+            final int v = values[a];
+            values[a] = values[b];
+            values[b] = v;
+        }
+
+        void push(final double key, final int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size << 1);
+                values = Arrays.copyOf(values, size << 1);
+            }
+            keys[size] = key;
+            values[size] = value;
+            for (int i = size++; i > 0; ) {
+                final int parent = (i - 1) >>> 1;
+                if (!less(i, parent))
+                    break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        double peekKey() {
+            return keys[0];
+        }
+
+        int pop() {
+            final int top = values[0];
+            keys[0] = keys[--size];
+            values[0] = values[size];
+            for (int i = 0; ; ) {
+                final int l = (i << 1) + 1, r = l + 1;
+                int least = i;
+                if (l < size && less(l, least))
+                    least = l;
+                if (r < size && less(r, least))
+                    least = r;
+                if (least == i)
+                    break;
+                swap(i, least);
+                i = least;
+            }
+            return top;
+        }
+    }
+}
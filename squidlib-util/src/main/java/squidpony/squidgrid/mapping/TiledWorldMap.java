@@ -0,0 +1,903 @@
+package squidpony.squidgrid.mapping;
+
+import squidpony.annotation.Beta;
+import squidpony.annotation.GwtIncompatible;
+import squidpony.squidgrid.Direction;
+import squidpony.squidmath.GreasedRegion;
+import squidpony.squidmath.LightRNG;
+import squidpony.squidmath.Noise;
+import squidpony.squidmath.Noise.Noise3D;
+import squidpony.squidmath.Noise.Noise4D;
+import squidpony.squidmath.SeededNoise;
+import squidpony.squidmath.StatefulRNG;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Generates the same kind of world map as {@link WorldMapGenerator}, but in fixed-size square tiles that are only made
+ * when they are requested, so a world can be far larger than what fits in memory at once. A 16384x8192 world would
+ * need several gigabytes as a WorldMapGenerator, but here only the tiles in use are kept; the most recently used
+ * {@link #maxTiles} tiles are cached, and older ones are dropped and made again if they are requested later. Each tile
+ * is a {@link Tile} with the same height, heat, moisture, height code, land, river, and lake data a WorldMapGenerator
+ * has, covering just its part of the world.
+ * <br>
+ * Every cell only depends on the seed and its own position, so a tile is the same no matter when it is made, what
+ * other tiles exist, or what order tiles are requested in. The one thing that needs the whole world is normalizing
+ * height, heat, and moisture to the ranges WorldMapGenerator uses; this estimates those ranges once, in the
+ * constructor, from a preview grid of at most {@link #PREVIEW_SIZE} by PREVIEW_SIZE cells spread evenly over the
+ * world. If the world is no larger than the preview in both dimensions, the preview covers every cell, and tiles have
+ * exactly the same data a WorldMapGenerator of the world's size would have at zoom 0, other than rivers and lakes.
+ * On larger worlds, a few cells the preview missed can go slightly past the usual ranges.
+ * <br>
+ * Rivers can't be found one cell at a time, since they flow across the world. Each tile is generated with an extra
+ * border of {@link #halo} cells around it, river sources are picked by hashing each high cell's position, and rivers
+ * flow steepest-downhill from their sources until they reach water, a lake in a pit, or the edge of the border.
+ * Because the heights and sources are the same for every tile, a river that starts within halo cells of a tile follows
+ * the same path in that tile as in its neighbors, so rivers line up across tile edges. Rivers that start farther away
+ * than that are missing in the tile, so a larger halo gives more complete rivers at the cost of more work per tile.
+ * <br>
+ * Tiles requested together with {@link #getTiles(int, int, int, int)} or {@link #prefetch(int, int, int, int)} are
+ * made in parallel on a ForkJoinPool; {@link #getTile(int, int)} makes a missing tile on the calling thread. All of
+ * these can be called from any thread. When the game is closed or this is no longer needed, call {@link #destroy()} to
+ * shut down its threads.
+ */
+@Beta
+@GwtIncompatible
+public abstract class TiledWorldMap {
+    /**
+     * The most cells on each side of the preview grid used to estimate the ranges of height, heat, and moisture.
+     */
+    public static final int PREVIEW_SIZE = 256;
+    /**
+     * The chance that a cell with a height code of 6 or more starts a river; the same fraction of those cells that
+     * {@link WorldMapGenerator} uses.
+     */
+    public static final double RIVER_SOURCE_CHANCE = 0.0036;
+
+    public final int worldWidth, worldHeight, tileSize, halo, tileColumns, tileRows, maxTiles;
+    public final long seed;
+    public final double waterModifier, coolingModifier;
+    /**
+     * If false, tiles are made without rivers or lakes, and without the extra border that rivers need. Each tile uses
+     * the value this had when the tile was first requested, so changing this only affects tiles requested afterwards;
+     * call {@link #clearCache()} to remake cached tiles.
+     */
+    public boolean generateRivers = true;
+    /**
+     * If true, tiles store their height, heat, and moisture in a {@link CompactWorldMap} in {@link Tile#compact}, as
+     * floats or (if {@link #quantized} is also true) as shorts, and leave their {@code double[][]} fields null. This
+     * lets two to four times as many tiles be cached in the same memory. Like {@link #generateRivers}, changing this
+     * only affects tiles requested afterwards; call {@link #clearCache()} to remake cached tiles.
+     */
+    public boolean compact = false;
+    /**
+     * If true and {@link #compact} is also true, tiles store layers as shorts instead of floats.
+     */
+    public boolean quantized = false;
+    /**
+     * The estimated ranges of the final heat and moisture values, as in {@link WorldMapGenerator#minHeat} and so on.
+     */
+    public double minHeat, maxHeat, minWet, maxWet;
+    protected final int seedA, seedB, seedC;
+    protected final long riverSeed;
+    protected double minHeightRaw, maxHeightRaw, minHeat0, maxHeat0, minHeat1, maxHeat1, minWet0, maxWet0,
+            heightDiff, heatDiff0, heatDiff1, wetDiff;
+    protected final int threadCount;
+    private final ExecutorService executor;
+    private final LinkedHashMap<Long, FutureTask<Tile>> cache;
+
+    /**
+     * Sets up the size, tiling, and random modifiers of the world. Subclasses must create their noise and then call
+     * {@link #estimateRanges()} before any tiles are requested.
+     * @param seed the seed for the whole world, used like the state given to {@link WorldMapGenerator#generate(long)}
+     * @param worldWidth the width of the whole world, in cells
+     * @param worldHeight the height of the whole world, in cells
+     * @param tileSize the width and height of each tile, in cells; tiles on the right and bottom edges may be smaller
+     * @param halo how many cells of extra border to generate around each tile for rivers
+     * @param maxTiles how many tiles to keep cached at most
+     * @param threads how many threads to make tiles with; should be at least 1
+     * @param waterMod should be between 0.85 and 1.2; a random value will be used if this is negative
+     * @param coolMod should be between 0.85 and 1.4; a random value will be used if this is negative
+     */
+    protected TiledWorldMap(final long seed, final int worldWidth, final int worldHeight, final int tileSize,
+                            final int halo, final int maxTiles, final int threads,
+                            final double waterMod, final double coolMod) {
+        this.seed = seed;
+        this.worldWidth = Math.max(1, worldWidth);
+        this.worldHeight = Math.max(1, worldHeight);
+        this.tileSize = Math.max(1, tileSize);
+        this.halo = Math.max(0, halo);
+        this.maxTiles = Math.max(1, maxTiles);
+        tileColumns = (this.worldWidth + this.tileSize - 1) / this.tileSize;
+        tileRows = (this.worldHeight + this.tileSize - 1) / this.tileSize;
+        StatefulRNG rng = new StatefulRNG(seed);
+        seedA = rng.nextInt();
+        seedB = rng.nextInt();
+        seedC = rng.nextInt();
+        waterModifier = (waterMod <= 0) ? rng.nextDouble(0.29) + 0.91 : waterMod;
+        coolingModifier = (coolMod <= 0) ? rng.nextDouble(0.45) * (rng.nextDouble() - 0.5) + 1.1 : coolMod;
+        riverSeed = rng.nextLong();
+        threadCount = Math.max(1, threads);
+        executor = new ForkJoinPool(threadCount);
+        cache = new LinkedHashMap<Long, FutureTask<Tile>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, FutureTask<Tile>> eldest) {
+                return size() > TiledWorldMap.this.maxTiles;
+            }
+        };
+    }
+
+    /**
+     * Gets the raw height of a cell, before it is normalized, given the sine and cosine of the angles for its column
+     * and row.
+     */
+    protected abstract double rawHeight(double sinX, double cosX, double sinY, double cosY);
+
+    /**
+     * Gets the raw heat of a cell, before it is adjusted for height and latitude, given the sine and cosine of the
+     * angles for its column and row.
+     */
+    protected abstract double rawHeat(double sinX, double cosX, double sinY, double cosY);
+
+    /**
+     * Gets the raw moisture of a cell, before it is normalized, given the sine and cosine of the angles for its column
+     * and row.
+     */
+    protected abstract double rawMoisture(double sinX, double cosX, double sinY, double cosY);
+
+    /**
+     * Gets the angle that the sine and cosine given to the raw methods are taken from for the given row.
+     */
+    protected abstract double rowAngle(int worldY);
+
+    /**
+     * Gets the position used to find how far the given row is from the equator, in the same units WorldMapGenerator
+     * uses for its latitude-based cooling.
+     */
+    protected abstract double latitude(int worldY);
+
+    /**
+     * Keeps a row that may be outside the world, such as one in a tile's border, within the world.
+     */
+    protected abstract int wrapRow(int worldY);
+
+    /**
+     * Keeps a row of tiles that may be outside the world within the world.
+     */
+    protected abstract int wrapTileRow(int tileY);
+
+    protected int wrapColumn(final int worldX) {
+        return (worldX % worldWidth + worldWidth) % worldWidth;
+    }
+
+    protected double columnAngle(final int worldX) {
+        return worldX * (6.283185307179586 / worldWidth);
+    }
+
+    /**
+     * The same as {@link WorldMapGenerator#codeHeight(double)}.
+     * @param high a normalized height
+     * @return a height code from 0 to 8 inclusive
+     */
+    public static int codeHeight(final double high) {
+        if (high < WorldMapGenerator.deepWaterUpper)
+            return 0;
+        if (high < WorldMapGenerator.mediumWaterUpper)
+            return 1;
+        if (high < WorldMapGenerator.shallowWaterUpper)
+            return 2;
+        if (high < WorldMapGenerator.coastalWaterUpper)
+            return 3;
+        if (high < WorldMapGenerator.sandUpper)
+            return 4;
+        if (high < WorldMapGenerator.grassUpper)
+            return 5;
+        if (high < WorldMapGenerator.forestUpper)
+            return 6;
+        if (high < WorldMapGenerator.rockUpper)
+            return 7;
+        return 8;
+    }
+
+    /**
+     * Gets how much heat is multiplied by at the given row, cooling the poles, like WorldMapGenerator does.
+     */
+    protected double latitudeFactor(final int worldY) {
+        final double halfHeight = (worldHeight - 1) * 0.5, i_half = 1.0 / halfHeight;
+        double temp = Math.abs(latitude(worldY) - halfHeight) * i_half;
+        temp *= (2.4 - temp);
+        return 2.2 - temp;
+    }
+
+    /**
+     * Adjusts raw heat for the height of its cell and for latitude, the same way WorldMapGenerator does before its
+     * last normalization step.
+     */
+    protected double adjustHeat(final double rawHeat, double h, final int code, final double latitudeFactor) {
+        double hMod = 1.0;
+        switch (code) {
+            case 0:
+            case 1:
+            case 2:
+            case 3:
+                h = 0.4;
+                hMod = 0.2;
+                break;
+            case 6:
+                h = -0.1 * (h - WorldMapGenerator.forestLower - 0.08);
+                break;
+            case 7:
+                h *= -0.25;
+                break;
+            case 8:
+                h *= -0.4;
+                break;
+            default:
+                h *= 0.05;
+        }
+        return (((rawHeat - minHeat0) * heatDiff0 * hMod) + h + 0.6) * latitudeFactor;
+    }
+
+    /**
+     * Samples the preview grid and finds the ranges every tile is normalized with. Subclasses call this at the end of
+     * their constructors, once their noise is ready.
+     */
+    protected void estimateRanges() {
+        final int pw = Math.min(worldWidth, PREVIEW_SIZE), ph = Math.min(worldHeight, PREVIEW_SIZE);
+        final int[] xs = new int[pw], ys = new int[ph];
+        for (int i = 0; i < pw; i++) {
+            xs[i] = (int) ((long) i * worldWidth / pw);
+        }
+        for (int i = 0; i < ph; i++) {
+            ys[i] = (int) ((long) i * worldHeight / ph);
+        }
+        final double[][] heights = new double[pw][ph], heats = new double[pw][ph], wets = new double[pw][ph];
+        final int bands = Math.min(pw, threadCount * 2);
+        final List<Callable<Void>> units = new ArrayList<>(bands);
+        for (int b = 0; b < bands; b++) {
+            units.add(new PreviewUnit(xs, ys, heights, heats, wets, pw * b / bands, pw * (b + 1) / bands));
+        }
+        try {
+            final List<Future<Void>> invoke = executor.invokeAll(units);
+            for (int i = 0; i < bands; i++) {
+                try {
+                    invoke.get(i).get();
+                } catch (ExecutionException e) {
+                    e.printStackTrace();
+                }
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        minHeightRaw = Double.POSITIVE_INFINITY;
+        maxHeightRaw = Double.NEGATIVE_INFINITY;
+        minHeat0 = Double.POSITIVE_INFINITY;
+        maxHeat0 = Double.NEGATIVE_INFINITY;
+        minWet0 = Double.POSITIVE_INFINITY;
+        maxWet0 = Double.NEGATIVE_INFINITY;
+        for (int x = 0; x < pw; x++) {
+            for (int y = 0; y < ph; y++) {
+                minHeightRaw = Math.min(minHeightRaw, heights[x][y]);
+                maxHeightRaw = Math.max(maxHeightRaw, heights[x][y]);
+                minHeat0 = Math.min(minHeat0, heats[x][y]);
+                maxHeat0 = Math.max(maxHeat0, heats[x][y]);
+                minWet0 = Math.min(minWet0, wets[x][y]);
+                maxWet0 = Math.max(maxWet0, wets[x][y]);
+            }
+        }
+        heightDiff = 2.0 / (maxHeightRaw - minHeightRaw);
+        heatDiff0 = 0.8 / (maxHeat0 - minHeat0);
+        wetDiff = 1.0 / (maxWet0 - minWet0);
+        minHeat1 = Double.POSITIVE_INFINITY;
+        maxHeat1 = Double.NEGATIVE_INFINITY;
+        for (int y = 0; y < ph; y++) {
+            final double lat = latitudeFactor(ys[y]);
+            for (int x = 0; x < pw; x++) {
+                final double h = (heights[x][y] - minHeightRaw) * heightDiff - 1.0;
+                heats[x][y] = adjustHeat(heats[x][y], h, codeHeight(h), lat);
+                minHeat1 = Math.min(minHeat1, heats[x][y]);
+                maxHeat1 = Math.max(maxHeat1, heats[x][y]);
+            }
+        }
+        heatDiff1 = coolingModifier / (maxHeat1 - minHeat1);
+        minHeat = Double.POSITIVE_INFINITY;
+        maxHeat = Double.NEGATIVE_INFINITY;
+        minWet = Double.POSITIVE_INFINITY;
+        maxWet = Double.NEGATIVE_INFINITY;
+        for (int x = 0; x < pw; x++) {
+            for (int y = 0; y < ph; y++) {
+                final double heat = (heats[x][y] - minHeat1) * heatDiff1, wet = (wets[x][y] - minWet0) * wetDiff;
+                minHeat = Math.min(minHeat, heat);
+                maxHeat = Math.max(maxHeat, heat);
+                minWet = Math.min(minWet, wet);
+                maxWet = Math.max(maxWet, wet);
+            }
+        }
+    }
+
+    /**
+     * Gets the tile at the given tile position, making it on the calling thread if it isn't cached. The tile at tileX,
+     * tileY covers the cells from {@code tileX * tileSize, tileY * tileSize} up to, but not including, the next tile.
+     * Tile positions outside the world are wrapped east-to-west, and wrapped or clamped north-to-south depending on
+     * whether the world tiles that way.
+     * @param tileX the tile column
+     * @param tileY the tile row
+     * @return the Tile at that position, or null if making it failed
+     */
+    public Tile getTile(final int tileX, final int tileY) {
+        return await(request(tileX, tileY, false));
+    }
+
+    /**
+     * Gets the tile that contains the given world cell, making it on the calling thread if it isn't cached.
+     * @param worldX the x position of a cell in the world
+     * @param worldY the y position of a cell in the world
+     * @return the Tile that contains that cell, or null if making it failed
+     */
+    public Tile tileAt(final int worldX, final int worldY) {
+        return getTile(worldX >= 0 ? worldX / tileSize : (worldX + 1) / tileSize - 1,
+                worldY >= 0 ? worldY / tileSize : (worldY + 1) / tileSize - 1);
+    }
+
+    /**
+     * Gets a rectangle of tiles, making any that aren't cached in parallel, and waits for all of them. If more tiles
+     * are requested than {@link #maxTiles}, all are still returned, but only the last ones stay cached.
+     * @param startTileX the first tile column
+     * @param startTileY the first tile row
+     * @param countX how many tile columns to get
+     * @param countY how many tile rows to get
+     * @return a Tile[countX][countY] array, where {@code [0][0]} is the tile at startTileX, startTileY
+     */
+    public Tile[][] getTiles(final int startTileX, final int startTileY, final int countX, final int countY) {
+        final List<FutureTask<Tile>> tasks = new ArrayList<>(countX * countY);
+        for (int x = 0; x < countX; x++) {
+            for (int y = 0; y < countY; y++) {
+                tasks.add(request(startTileX + x, startTileY + y, true));
+            }
+        }
+        final Tile[][] tiles = new Tile[countX][countY];
+        for (int x = 0, i = 0; x < countX; x++) {
+            for (int y = 0; y < countY; y++) {
+                tiles[x][y] = await(tasks.get(i++));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Starts making any tiles in the given rectangle that aren't cached, in parallel, without waiting for them; later
+     * calls to get those tiles will wait only as long as they still need. This is meant for tiles that will probably
+     * be needed soon, such as those next to the area a player is looking at.
+     * @param startTileX the first tile column
+     * @param startTileY the first tile row
+     * @param countX how many tile columns to prepare
+     * @param countY how many tile rows to prepare
+     */
+    public void prefetch(final int startTileX, final int startTileY, final int countX, final int countY) {
+        for (int x = 0; x < countX; x++) {
+            for (int y = 0; y < countY; y++) {
+                request(startTileX + x, startTileY + y, true);
+            }
+        }
+    }
+
+    /**
+     * @return how many tiles are currently cached, including ones still being made
+     */
+    public int cachedTiles() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Removes every tile from the cache, so they will be made again when they are next requested.
+     */
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Shuts down any threads that may prevent the game from closing properly.
+     * You don't have to do anything special after you call this, other than not using this TiledWorldMap any more.
+     */
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private FutureTask<Tile> request(int tileX, int tileY, final boolean parallel) {
+        tileX = (tileX % tileColumns + tileColumns) % tileColumns;
+        tileY = wrapTileRow(tileY);
+        final Long key = (long) tileX << 32 | tileY;
+        FutureTask<Tile> task;
+        boolean created = false;
+        synchronized (cache) {
+            task = cache.get(key);
+            if (task == null) {
+                task = new TileTask(key, new TileUnit(tileX, tileY, generateRivers, compact, quantized));
+                cache.put(key, task);
+                created = true;
+            }
+        }
+        if (created) {
+            if (parallel)
+                executor.execute(task);
+            else
+                task.run();
+        }
+        return task;
+    }
+
+    private static Tile await(final FutureTask<Tile> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Makes the tile at the given (already wrapped) tile position. This doesn't use or change the cache, and takes the
+     * settings to use as parameters instead of reading {@link #generateRivers}, {@link #compact}, and
+     * {@link #quantized}, since those can change while the tile is being made on another thread.
+     * @param tileX the tile column, from 0 to tileColumns - 1
+     * @param tileY the tile row, from 0 to tileRows - 1
+     * @param rivers true to make rivers and lakes, as with {@link #generateRivers}
+     * @param compact true to store layers in a CompactWorldMap, as with {@link #compact}
+     * @param quantized true to store compact layers as shorts, as with {@link #quantized}
+     * @return a new Tile
+     */
+    protected Tile makeTile(final int tileX, final int tileY, final boolean rivers, final boolean compact,
+                            final boolean quantized) {
+        final int startX = tileX * tileSize, startY = tileY * tileSize,
+                width = Math.min(tileSize, worldWidth - startX), height = Math.min(tileSize, worldHeight - startY),
+                pad = rivers ? halo : 0, fullWidth = width + pad * 2, fullHeight = height + pad * 2;
+        final CompactWorldMap layers = compact
+                ? new CompactWorldMap(width, height, quantized, minHeat, maxHeat, minWet, maxWet) : null;
+        final Tile tile = new Tile(tileX, tileY, startX, startY, width, height, layers);
+        final double[] sinX = new double[fullWidth], cosX = new double[fullWidth],
+                sinY = new double[fullHeight], cosY = new double[fullHeight];
+        final int[] rows = new int[fullHeight];
+        for (int i = 0; i < fullWidth; i++) {
+            final double p = columnAngle(wrapColumn(startX - pad + i));
+            sinX[i] = Math.sin(p);
+            cosX[i] = Math.cos(p);
+        }
+        for (int j = 0; j < fullHeight; j++) {
+            final double q = rowAngle(rows[j] = wrapRow(startY - pad + j));
+            sinY[j] = Math.sin(q);
+            cosY[j] = Math.cos(q);
+        }
+        final boolean direct = pad == 0 && layers == null;
+        final double[][] heights = direct ? tile.heightData : new double[fullWidth][fullHeight];
+        final int[][] codes = direct ? tile.heightCodeData : new int[fullWidth][fullHeight];
+        for (int i = 0; i < fullWidth; i++) {
+            for (int j = 0; j < fullHeight; j++) {
+                final double h = (rawHeight(sinX[i], cosX[i], sinY[j], cosY[j]) - minHeightRaw) * heightDiff - 1.0;
+                heights[i][j] = h;
+                codes[i][j] = codeHeight(h);
+            }
+        }
+        for (int y = 0, j = pad; y < height; y++, j++) {
+            final double lat = latitudeFactor(rows[j]);
+            for (int x = 0, i = pad; x < width; x++, i++) {
+                final double heat = (adjustHeat(rawHeat(sinX[i], cosX[i], sinY[j], cosY[j]), heights[i][j],
+                        codes[i][j], lat) - minHeat1) * heatDiff1,
+                        wet = (rawMoisture(sinX[i], cosX[i], sinY[j], cosY[j]) - minWet0) * wetDiff;
+                if (layers == null) {
+                    tile.heightData[x][y] = heights[i][j];
+                    tile.heightCodeData[x][y] = codes[i][j];
+                    tile.heatData[x][y] = heat;
+                    tile.moistureData[x][y] = wet;
+                } else {
+                    layers.set(x, y, heights[i][j], heat, wet, codes[i][j]);
+                    if (codes[i][j] >= 4)
+                        layers.landData.insert(x, y);
+                }
+            }
+        }
+        if (layers == null)
+            tile.landData.refill(tile.heightCodeData, 4, 999);
+        if (rivers)
+            addRivers(tile, heights, codes, startX - pad, rows, pad);
+        return tile;
+    }
+
+    /**
+     * Checks whether the given world cell starts a river, if it is high enough; this only depends on the seed and the
+     * position, so every tile agrees on it.
+     */
+    protected boolean isRiverSource(final int worldX, final int worldY) {
+        return (LightRNG.determine(riverSeed + LightRNG.determine(worldX, worldY)) >>> 11) * 0x1p-53
+                < RIVER_SOURCE_CHANCE;
+    }
+
+    /**
+     * Traces every river that starts in the tile or its border downhill through the bordered heights, then keeps the
+     * parts of rivers and lakes that are in the tile itself. A river stops when it reaches water, when it reaches a
+     * cell some other river already flowed through (the rest of its path would be the same from there), or at the
+     * edge of the border; one that reaches a cell with no lower neighbor makes a small lake there.
+     */
+    protected void addRivers(final Tile tile, final double[][] heights, final int[][] codes, final int originX,
+                             final int[] rows, final int pad) {
+        final int fullWidth = heights.length, fullHeight = heights[0].length;
+        final GreasedRegion rivers = new GreasedRegion(fullWidth, fullHeight),
+                lakes = new GreasedRegion(fullWidth, fullHeight),
+                visited = new GreasedRegion(fullWidth, fullHeight);
+        for (int i = 0; i < fullWidth; i++) {
+            final int worldX = wrapColumn(originX + i);
+            for (int j = 0; j < fullHeight; j++) {
+                if (codes[i][j] < 6 || !isRiverSource(worldX, rows[j]))
+                    continue;
+                int cx = i, cy = j;
+                while (!visited.contains(cx, cy)) {
+                    visited.insert(cx, cy);
+                    rivers.insert(cx, cy);
+                    if (cx == 0 || cy == 0 || cx == fullWidth - 1 || cy == fullHeight - 1)
+                        break;
+                    double best = heights[cx][cy];
+                    int bx = -1, by = -1;
+                    for (int d = 0; d < 8; d++) {
+                        final int nx = cx + Direction.OUTWARDS[d].deltaX, ny = cy + Direction.OUTWARDS[d].deltaY;
+                        if (heights[nx][ny] < best) {
+                            best = heights[nx][ny];
+                            bx = nx;
+                            by = ny;
+                        }
+                    }
+                    if (bx < 0) {
+                        lakes.insert(cx, cy).insert(cx + 1, cy).insert(cx - 1, cy)
+                                .insert(cx, cy + 1).insert(cx, cy - 1);
+                        break;
+                    }
+                    if (codes[bx][by] <= 3)
+                        break;
+                    // keeps diagonal steps 4-connected, using the lower of the two cells between them
+                    if (bx != cx && by != cy) {
+                        if (heights[bx][cy] <= heights[cx][by])
+                            rivers.insert(bx, cy);
+                        else
+                            rivers.insert(cx, by);
+                    }
+                    cx = bx;
+                    cy = by;
+                }
+            }
+        }
+        for (int x = 0; x < tile.width; x++) {
+            for (int y = 0; y < tile.height; y++) {
+                if (rivers.contains(x + pad, y + pad))
+                    tile.riverData.insert(x, y);
+                if (lakes.contains(x + pad, y + pad))
+                    tile.lakeData.insert(x, y);
+            }
+        }
+    }
+
+    /**
+     * One tile of a TiledWorldMap. Its data is indexed by position within the tile, so {@code heightData[x][y]} is
+     * the height of the world cell at {@code startX + x, startY + y}. The fields have the same meanings as the fields
+     * with the same names in {@link WorldMapGenerator}. If the TiledWorldMap that made this tile was set to be
+     * {@link TiledWorldMap#compact}, the {@code double[][]} and {@code int[][]} fields are null and the same data is in
+     * {@link #compact} instead; the GreasedRegion fields are shared with it.
+     */
+    public static class Tile {
+        public final int tileX, tileY, startX, startY, width, height;
+        public final double[][] heightData, heatData, moistureData;
+        public final int[][] heightCodeData;
+        public final GreasedRegion landData, riverData, lakeData;
+        public final CompactWorldMap compact;
+
+        public Tile(final int tileX, final int tileY, final int startX, final int startY,
+                    final int width, final int height) {
+            this(tileX, tileY, startX, startY, width, height, null);
+        }
+
+        public Tile(final int tileX, final int tileY, final int startX, final int startY,
+                    final int width, final int height, final CompactWorldMap compact) {
+            this.tileX = tileX;
+            this.tileY = tileY;
+            this.startX = startX;
+            this.startY = startY;
+            this.width = width;
+            this.height = height;
+            this.compact = compact;
+            if (compact == null) {
+                heightData = new double[width][height];
+                heatData = new double[width][height];
+                moistureData = new double[width][height];
+                heightCodeData = new int[width][height];
+                landData = new GreasedRegion(width, height);
+                riverData = new GreasedRegion(width, height);
+                lakeData = new GreasedRegion(width, height);
+            } else {
+                heightData = heatData = moistureData = null;
+                heightCodeData = null;
+                landData = compact.landData;
+                riverData = compact.riverData;
+                lakeData = compact.lakeData;
+            }
+        }
+    }
+
+    private class TileUnit implements Callable<Tile> {
+        private final int tileX, tileY;
+        private final boolean rivers, compact, quantized;
+
+        TileUnit(final int tileX, final int tileY, final boolean rivers, final boolean compact,
+                 final boolean quantized) {
+            this.tileX = tileX;
+            this.tileY = tileY;
+            this.rivers = rivers;
+            this.compact = compact;
+            this.quantized = quantized;
+        }
+
+        @Override
+        public Tile call() {
+            return makeTile(tileX, tileY, rivers, compact, quantized);
+        }
+    }
+
+    /**
+     * A cached tile that removes itself from the cache if making the tile throws, so the next request tries again
+     * instead of getting the same failure back forever.
+     */
+    private class TileTask extends FutureTask<Tile> {
+        private final Long key;
+
+        TileTask(final Long key, final TileUnit unit) {
+            super(unit);
+            this.key = key;
+        }
+
+        @Override
+        protected void setException(final Throwable t) {
+            synchronized (cache) {
+                if (cache.get(key) == this)
+                    cache.remove(key);
+            }
+            super.setException(t);
+        }
+    }
+
+    /**
+     * Fills the raw values of the preview grid for the columns from startX (inclusive) to endX (exclusive).
+     */
+    private class PreviewUnit implements Callable<Void> {
+        private final int[] xs, ys;
+        private final double[][] heights, heats, wets;
+        private final int startX, endX;
+
+        PreviewUnit(final int[] xs, final int[] ys, final double[][] heights, final double[][] heats,
+                    final double[][] wets, final int startX, final int endX) {
+            this.xs = xs;
+            this.ys = ys;
+            this.heights = heights;
+            this.heats = heats;
+            this.wets = wets;
+            this.startX = startX;
+            this.endX = endX;
+        }
+
+        @Override
+        public Void call() {
+            final int rows = ys.length;
+            final double[] sinY = new double[rows], cosY = new double[rows];
+            for (int y = 0; y < rows; y++) {
+                final double q = rowAngle(ys[y]);
+                sinY[y] = Math.sin(q);
+                cosY[y] = Math.cos(q);
+            }
+            for (int x = startX; x < endX; x++) {
+                final double p = columnAngle(xs[x]), sinX = Math.sin(p), cosX = Math.cos(p);
+                for (int y = 0; y < rows; y++) {
+                    heights[x][y] = rawHeight(sinX, cosX, sinY[y], cosY[y]);
+                    heats[x][y] = rawHeat(sinX, cosX, sinY[y], cosY[y]);
+                    wets[x][y] = rawMoisture(sinX, cosX, sinY[y], cosY[y]);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A TiledWorldMap with the same noise and projection as {@link WorldMapGenerator.TilingMap}, wrapping both
+     * east-to-west and north-to-south.
+     */
+    public static class TilingMap extends TiledWorldMap {
+        public final Noise4D terrain, terrainRidged, heat, moisture, otherRidged;
+
+        /**
+         * Constructs a TilingMap with 256x256 tiles, a halo of 32 cells, up to 64 cached tiles, one thread for each
+         * available processor, SeededNoise, an octave multiplier of 1.0, and random water and cooling modifiers.
+         * @param seed the seed for the whole world
+         * @param worldWidth the width of the whole world, in cells
+         * @param worldHeight the height of the whole world, in cells
+         */
+        public TilingMap(final long seed, final int worldWidth, final int worldHeight) {
+            this(seed, worldWidth, worldHeight, 256, 32, 64, Runtime.getRuntime().availableProcessors(),
+                    SeededNoise.instance, 1.0, -1.0, -1.0);
+        }
+
+        /**
+         * Constructs a TilingMap with full control over tiling, caching, threading, and the noise used.
+         * @param seed the seed for the whole world, used like the state given to
+         *             {@link WorldMapGenerator#generate(long)}
+         * @param worldWidth the width of the whole world, in cells
+         * @param worldHeight the height of the whole world, in cells
+         * @param tileSize the width and height of each tile, in cells
+         * @param halo how many cells of extra border to generate around each tile for rivers
+         * @param maxTiles how many tiles to keep cached at most
+         * @param threads how many threads to make tiles with; should be at least 1
+         * @param noiseGenerator an instance of a noise generator capable of 4D noise, almost always
+         *                       {@link SeededNoise}
+         * @param octaveMultiplier used to adjust the level of detail, with 0.5 at the bare-minimum detail and 1.0
+         *                         normal
+         * @param waterMod should be between 0.85 and 1.2; a random value will be used if this is negative
+         * @param coolMod should be between 0.85 and 1.4; a random value will be used if this is negative
+         */
+        public TilingMap(final long seed, final int worldWidth, final int worldHeight, final int tileSize,
+                         final int halo, final int maxTiles, final int threads, final Noise4D noiseGenerator,
+                         final double octaveMultiplier, final double waterMod, final double coolMod) {
+            super(seed, worldWidth, worldHeight, tileSize, halo, maxTiles, threads, waterMod, coolMod);
+            terrain = new Noise.Layered4D(noiseGenerator, (int) (0.5 + octaveMultiplier * 8),
+                    WorldMapGenerator.TilingMap.terrainFreq);
+            terrainRidged = new Noise.Ridged4D(noiseGenerator, (int) (0.5 + octaveMultiplier * 10),
+                    WorldMapGenerator.TilingMap.terrainRidgedFreq);
+            heat = new Noise.Layered4D(noiseGenerator, (int) (0.5 + octaveMultiplier * 3),
+                    WorldMapGenerator.TilingMap.heatFreq);
+            moisture = new Noise.Layered4D(noiseGenerator, (int) (0.5 + octaveMultiplier * 4),
+                    WorldMapGenerator.TilingMap.moistureFreq);
+            otherRidged = new Noise.Ridged4D(noiseGenerator, (int) (0.5 + octaveMultiplier * 6),
+                    WorldMapGenerator.TilingMap.otherFreq);
+            estimateRanges();
+        }
+
+        @Override
+        protected double rawHeight(final double sinX, final double cosX, final double sinY, final double cosY) {
+            return terrain.getNoiseWithSeed(cosX +
+                            terrainRidged.getNoiseWithSeed(cosX, sinX, cosY, sinY, seedA + seedB),
+                    sinX, cosY, sinY, seedA) * waterModifier;
+        }
+
+        @Override
+        protected double rawHeat(final double sinX, final double cosX, final double sinY, final double cosY) {
+            return heat.getNoiseWithSeed(cosX, sinX, cosY
+                            + otherRidged.getNoiseWithSeed(cosX, sinX, cosY, sinY, seedB + seedC)
+                    , sinY, seedB);
+        }
+
+        @Override
+        protected double rawMoisture(final double sinX, final double cosX, final double sinY, final double cosY) {
+            return moisture.getNoiseWithSeed(cosX, sinX, cosY, sinY
+                            + otherRidged.getNoiseWithSeed(cosX, sinX, cosY, sinY, seedC + seedA)
+                    , seedC);
+        }
+
+        @Override
+        protected double rowAngle(final int worldY) {
+            return worldY * (6.283185307179586 / worldHeight);
+        }
+
+        @Override
+        protected double latitude(final int worldY) {
+            return worldY;
+        }
+
+        @Override
+        protected int wrapRow(final int worldY) {
+            return (worldY % worldHeight + worldHeight) % worldHeight;
+        }
+
+        @Override
+        protected int wrapTileRow(final int tileY) {
+            return (tileY % tileRows + tileRows) % tileRows;
+        }
+    }
+
+    /**
+     * A TiledWorldMap with the same noise and projection as {@link WorldMapGenerator.SphereMap}, wrapping
+     * east-to-west and stretching toward the poles.
+     */
+    public static class SphereMap extends TiledWorldMap {
+        public final Noise3D terrain, terrainRidged, heat, moisture, otherRidged;
+
+        /**
+         * Constructs a SphereMap with 256x256 tiles, a halo of 32 cells, up to 64 cached tiles, one thread for each
+         * available processor, SeededNoise, an octave multiplier of 1.0, and random water and cooling modifiers.
+         * @param seed the seed for the whole world
+         * @param worldWidth the width of the whole world, in cells
+         * @param worldHeight the height of the whole world, in cells
+         */
+        public SphereMap(final long seed, final int worldWidth, final int worldHeight) {
+            this(seed, worldWidth, worldHeight, 256, 32, 64, Runtime.getRuntime().availableProcessors(),
+                    SeededNoise.instance, 1.0, -1.0, -1.0);
+        }
+
+        /**
+         * Constructs a SphereMap with full control over tiling, caching, threading, and the noise used.
+         * @param seed the seed for the whole world, used like the state given to
+         *             {@link WorldMapGenerator#generate(long)}
+         * @param worldWidth the width of the whole world, in cells
+         * @param worldHeight the height of the whole world, in cells
+         * @param tileSize the width and height of each tile, in cells
+         * @param halo how many cells of extra border to generate around each tile for rivers
+         * @param maxTiles how many tiles to keep cached at most
+         * @param threads how many threads to make tiles with; should be at least 1
+         * @param noiseGenerator an instance of a noise generator capable of 3D noise, almost always
+         *                       {@link SeededNoise}
+         * @param octaveMultiplier used to adjust the level of detail, with 0.5 at the bare-minimum detail and 1.0
+         *                         normal
+         * @param waterMod should be between 0.85 and 1.2; a random value will be used if this is negative
+         * @param coolMod should be between 0.85 and 1.4; a random value will be used if this is negative
+         */
+        public SphereMap(final long seed, final int worldWidth, final int worldHeight, final int tileSize,
+                         final int halo, final int maxTiles, final int threads, final Noise3D noiseGenerator,
+                         final double octaveMultiplier, final double waterMod, final double coolMod) {
+            super(seed, worldWidth, worldHeight, tileSize, halo, maxTiles, threads, waterMod, coolMod);
+            terrain = new Noise.Layered3D(noiseGenerator, (int) (0.5 + octaveMultiplier * 8),
+                    WorldMapGenerator.SphereMap.terrainFreq);
+            terrainRidged = new Noise.Ridged3D(noiseGenerator, (int) (0.5 + octaveMultiplier * 10),
+                    WorldMapGenerator.SphereMap.terrainRidgedFreq);
+            heat = new Noise.Layered3D(noiseGenerator, (int) (0.5 + octaveMultiplier * 3),
+                    WorldMapGenerator.SphereMap.heatFreq);
+            moisture = new Noise.Layered3D(noiseGenerator, (int) (0.5 + octaveMultiplier * 4),
+                    WorldMapGenerator.SphereMap.moistureFreq);
+            otherRidged = new Noise.Ridged3D(noiseGenerator, (int) (0.5 + octaveMultiplier * 6),
+                    WorldMapGenerator.SphereMap.otherFreq);
+            estimateRanges();
+        }
+
+        @Override
+        protected double rawHeight(final double sinX, final double cosX, final double sinY, final double cosY) {
+            final double ps = sinX * cosY, pc = cosX * cosY;
+            return terrain.getNoiseWithSeed(pc +
+                            terrainRidged.getNoiseWithSeed(pc, ps, sinY, seedA + seedB),
+                    ps, sinY, seedA) * waterModifier;
+        }
+
+        @Override
+        protected double rawHeat(final double sinX, final double cosX, final double sinY, final double cosY) {
+            final double ps = sinX * cosY, pc = cosX * cosY;
+            return heat.getNoiseWithSeed(pc, ps
+                            + otherRidged.getNoiseWithSeed(pc, ps, sinY, seedB + seedC)
+                    , sinY, seedB);
+        }
+
+        @Override
+        protected double rawMoisture(final double sinX, final double cosX, final double sinY, final double cosY) {
+            final double ps = sinX * cosY, pc = cosX * cosY;
+            return moisture.getNoiseWithSeed(pc, ps, sinY
+                            + otherRidged.getNoiseWithSeed(pc, ps, sinY, seedC + seedA)
+                    , seedC);
+        }
+
+        @Override
+        protected double rowAngle(final int worldY) {
+            return -1.5707963267948966 + latitude(worldY) * (3.141592653589793 / (worldHeight + 2.0));
+        }
+
+        @Override
+        protected double latitude(final int worldY) {
+            return (worldY + 1) * (worldHeight / (worldHeight + 2.0));
+        }
+
+        @Override
+        protected int wrapRow(final int worldY) {
+            return Math.max(0, Math.min(worldY, worldHeight - 1));
+        }
+
+        @Override
+        protected int wrapTileRow(final int tileY) {
+            return Math.max(0, Math.min(tileY, tileRows - 1));
+        }
+    }
+}
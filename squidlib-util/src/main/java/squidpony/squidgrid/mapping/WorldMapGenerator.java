@@ -659,45 +659,89 @@ public abstract class WorldMapGenerator {
             final double i_hot = (world.maxHeat == world.minHeat) ? 1.0 : 1.0 / (world.maxHeat - world.minHeat);
             for (int x = 0; x < world.width; x++) {
                 for (int y = 0; y < world.height; y++) {
-                    final double hot = (world.heatData[x][y] - world.minHeat) * i_hot, moist = world.moistureData[x][y];
                     final int heightCode = world.heightCodeData[x][y];
-                    int hc, mc;
-                    boolean isLake = world.generateRivers && world.partialLakeData.contains(x, y) && heightCode >= 4,
-                            isRiver = world.generateRivers && world.partialRiverData.contains(x, y) && heightCode >= 4;
-                    if (moist > wetterValueUpper) {
-                        mc = 5;
-                    } else if (moist > wetValueUpper) {
-                        mc = 4;
-                    } else if (moist > dryValueUpper) {
-                        mc = 3;
-                    } else if (moist > drierValueUpper) {
-                        mc = 2;
-                    } else if (moist > driestValueUpper) {
-                        mc = 1;
-                    } else {
-                        mc = 0;
-                    }
+                    assign(x, y, (world.heatData[x][y] - world.minHeat) * i_hot, world.moistureData[x][y], heightCode,
+                            world.generateRivers && world.partialLakeData.contains(x, y) && heightCode >= 4,
+                            world.generateRivers && world.partialRiverData.contains(x, y) && heightCode >= 4);
+                }
+            }
+        }
 
-                    if (hot > warmerValueUpper) {
-                        hc = 5;
-                    } else if (hot > warmValueUpper) {
-                        hc = 4;
-                    } else if (hot > coldValueUpper) {
-                        hc = 3;
-                    } else if (hot > colderValueUpper) {
-                        hc = 2;
-                    } else if (hot > coldestValueUpper) {
-                        hc = 1;
+        /**
+         * Analyzes a CompactWorldMap, reading its flat float or short arrays directly, and assigns biome codes for each
+         * cell (along with heat and moisture codes) the same way {@link #makeBiomes(WorldMapGenerator)} does. After
+         * calling this, biome codes can be taken from {@link #biomeCodeData} and used as indices into
+         * {@link #biomeTable} or a custom biome table.
+         * @param world a CompactWorldMap, such as one copied from a WorldMapGenerator or a tile of a TiledWorldMap
+         */
+        public void makeBiomes(CompactWorldMap world) {
+            if(world == null || world.width <= 0 || world.height <= 0)
+                return;
+            if(heatCodeData == null || (heatCodeData.length != world.width || heatCodeData[0].length != world.height))
+                heatCodeData = new int[world.width][world.height];
+            if(moistureCodeData == null || (moistureCodeData.length != world.width || moistureCodeData[0].length != world.height))
+                moistureCodeData = new int[world.width][world.height];
+            if(biomeCodeData == null || (biomeCodeData.length != world.width || biomeCodeData[0].length != world.height))
+                biomeCodeData = new int[world.width][world.height];
+            final double i_hot = (world.maxHeat == world.minHeat) ? 1.0 : 1.0 / (world.maxHeat - world.minHeat);
+            final byte[] codes = world.heightCodeData;
+            for (int x = 0, i = 0; x < world.width; x++) {
+                for (int y = 0; y < world.height; y++, i++) {
+                    final int heightCode = codes[i];
+                    final double heat, moist;
+                    if (world.quantized) {
+                        heat = world.getHeat(x, y);
+                        moist = world.getMoisture(x, y);
                     } else {
-                        hc = 0;
+                        heat = world.heatFloats[i];
+                        moist = world.moistureFloats[i];
                     }
-
-                    heatCodeData[x][y] = hc;
-                    moistureCodeData[x][y] = mc;
-                    biomeCodeData[x][y] = isLake ? hc + 48 : (isRiver ? hc + 42 : ((heightCode == 4) ? hc + 36 : hc + mc * 6));
+                    assign(x, y, (heat - world.minHeat) * i_hot, moist, heightCode,
+                            heightCode >= 4 && world.lakeData.contains(x, y),
+                            heightCode >= 4 && world.riverData.contains(x, y));
                 }
             }
         }
+
+        /**
+         * Assigns the heat, moisture, and biome codes for one cell.
+         * @param hot the cell's heat, scaled so the world's minimum heat is 0.0 and its maximum is 1.0
+         */
+        protected void assign(final int x, final int y, final double hot, final double moist, final int heightCode,
+                              final boolean isLake, final boolean isRiver) {
+            int hc, mc;
+            if (moist > wetterValueUpper) {
+                mc = 5;
+            } else if (moist > wetValueUpper) {
+                mc = 4;
+            } else if (moist > dryValueUpper) {
+                mc = 3;
+            } else if (moist > drierValueUpper) {
+                mc = 2;
+            } else if (moist > driestValueUpper) {
+                mc = 1;
+            } else {
+                mc = 0;
+            }
+
+            if (hot > warmerValueUpper) {
+                hc = 5;
+            } else if (hot > warmValueUpper) {
+                hc = 4;
+            } else if (hot > coldValueUpper) {
+                hc = 3;
+            } else if (hot > colderValueUpper) {
+                hc = 2;
+            } else if (hot > coldestValueUpper) {
+                hc = 1;
+            } else {
+                hc = 0;
+            }
+
+            heatCodeData[x][y] = hc;
+            moistureCodeData[x][y] = mc;
+            biomeCodeData[x][y] = isLake ? hc + 48 : (isRiver ? hc + 42 : ((heightCode == 4) ? hc + 36 : hc + mc * 6));
+        }
     }
 
     /**
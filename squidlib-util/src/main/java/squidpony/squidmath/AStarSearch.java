@@ -31,7 +31,9 @@ import java.util.Queue;
  * {@code IndexedAStarPathFinder} class outperforms all of the pathfinders in squidlib in all
  * cases tested, though it has less features than DijkstraMap. You would need a dependency on
  * gdx-ai and libGDX, which the squidlib-util module does not have, but if you use the squidlib
- * display module, then you already depend on libGDX.
+ * display module, then you already depend on libGDX. {@link IndexedAStarSearch} uses the same maps and search types as
+ * this class, but keeps its open set in a binary heap and doesn't allocate per query, and should be preferred.
+ * @see IndexedAStarSearch a much faster A* that takes the same maps and produces paths of the same cost
  * @see squidpony.squidai.DijkstraMap a sometimes-faster pathfinding algorithm that can pathfind to multiple goals
  * @see squidpony.squidai.CustomDijkstraMap an alternative to DijkstraMap; faster and supports complex adjacency rules
  * @author Eben Howard - http://squidpony.com - howard@squidpony.com
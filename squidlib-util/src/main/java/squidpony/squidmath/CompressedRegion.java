@@ -0,0 +1,881 @@
+package squidpony.squidmath;
+
+import squidpony.annotation.Beta;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A compressed alternative to {@link GreasedRegion} for huge maps where most regions are sparse, like the rivers,
+ * roads, and borders on an 8192x8192 world map. A GreasedRegion of that size always uses 8 megabytes; this splits the
+ * area into 64x64 chunks and stores each chunk in whichever of three containers is smallest for its contents, so a
+ * thin road only uses a few kilobytes:
+ * <ul>
+ *     <li>an empty chunk isn't stored at all;</li>
+ *     <li>an array container keeps the sorted positions of up to 255 "on" cells, 2 bytes each;</li>
+ *     <li>a run container keeps the start and end of each run of "on" cells, which suits large filled areas;</li>
+ *     <li>a bitmap container keeps 64 longs, one bit per cell, laid out just like a GreasedRegion's data.</li>
+ * </ul>
+ * Each chunk lines up exactly with one 64-cell section of 64 columns in a GreasedRegion of the same size, so
+ * converting between the two (with {@link #CompressedRegion(GreasedRegion)} and {@link #toGreasedRegion()}) only
+ * copies whole longs. The methods here are named and behave like the GreasedRegion methods they match, including
+ * {@link #and(CompressedRegion)}, {@link #or(CompressedRegion)}, {@link #expand()}, {@link #flood(CompressedRegion)},
+ * and {@link #contains(int, int)}, and produce the same cells a GreasedRegion would. Spatial methods work on bitmaps
+ * of only the chunks that are in use or next to them, then pick new containers when they finish, so the work they do
+ * scales with the area near "on" cells rather than with the size of the map.
+ * <br>
+ * Like GreasedRegion, this is mutable, and methods that change it return it for chaining.
+ */
+@Beta
+public class CompressedRegion implements Iterable<Coord>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The kinds of container a chunk can use.
+     */
+    protected static final byte ARRAY = 0, BITMAP = 1, RUN = 2;
+    /**
+     * The most "on" cells an array container holds; any more and a bitmap is no larger.
+     */
+    protected static final int ARRAY_LIMIT = 255;
+
+    public final int width, height;
+    /**
+     * How many chunks there are across and down; a chunk covers 64x64 cells, and chunks on the right and bottom edges
+     * may be only partly used.
+     */
+    protected final int chunkWidth, chunkHeight;
+    protected final long yEndMask;
+    /**
+     * The chunks, indexed by {@code chunkX * chunkHeight + chunkY}; null for an empty chunk.
+     */
+    protected Chunk[] chunks;
+
+    private transient long[] scratch, scratch2;
+    private transient short[] packing;
+
+    /**
+     * One 64x64 chunk. Cells inside a chunk are numbered {@code localX * 64 + localY}, which is the order a
+     * GreasedRegion stores them in.
+     */
+    protected static final class Chunk implements Serializable {
+        private static final long serialVersionUID = 1L;
+        /**
+         * {@link #ARRAY}, {@link #BITMAP}, or {@link #RUN}.
+         */
+        byte kind;
+        /**
+         * How many cells are "on" in this chunk.
+         */
+        int size;
+        /**
+         * For an array container, the sorted cell numbers; for a run container, pairs of first and last cell numbers.
+         */
+        short[] values;
+        /**
+         * For a bitmap container, 64 longs, one per column, with bit y set for each "on" cell.
+         */
+        long[] bits;
+
+        Chunk(final byte kind, final int size, final short[] values, final long[] bits) {
+            this.kind = kind;
+            this.size = size;
+            this.values = values;
+            this.bits = bits;
+        }
+
+        Chunk copy() {
+            return new Chunk(kind, size, values == null ? null : values.clone(), bits == null ? null : bits.clone());
+        }
+
+        boolean contains(final int cell) {
+            switch (kind) {
+                case BITMAP:
+                    return (bits[cell >>> 6] & 1L << (cell & 63)) != 0;
+                case ARRAY:
+                    return Arrays.binarySearch(values, (short) cell) >= 0;
+                default: {
+                    int lo = 0, hi = (values.length >>> 1) - 1, mid;
+                    while (lo < hi) {
+                        mid = lo + hi + 1 >>> 1;
+                        if (values[mid << 1] <= cell)
+                            lo = mid;
+                        else
+                            hi = mid - 1;
+                    }
+                    return values[lo << 1] <= cell && cell <= values[lo << 1 | 1];
+                }
+            }
+        }
+
+        /**
+         * Writes this chunk as 64 longs into into, which must have length 64, and returns into.
+         */
+        long[] toBits(final long[] into) {
+            if (kind == BITMAP) {
+                System.arraycopy(bits, 0, into, 0, 64);
+                return into;
+            }
+            Arrays.fill(into, 0L);
+            if (kind == ARRAY) {
+                for (int i = 0; i < values.length; i++) {
+                    into[values[i] >>> 6] |= 1L << (values[i] & 63);
+                }
+            } else {
+                for (int i = 0; i < values.length; i += 2) {
+                    for (int c = values[i], end = values[i + 1]; c <= end; ) {
+                        final int bit = c & 63, len = Math.min(64 - bit, end - c + 1);
+                        into[c >>> 6] |= (len == 64 ? -1L : (1L << len) - 1L) << bit;
+                        c += len;
+                    }
+                }
+            }
+            return into;
+        }
+    }
+
+    /**
+     * Constructs an empty 64x64 CompressedRegion.
+     */
+    public CompressedRegion() {
+        this(64, 64);
+    }
+
+    /**
+     * Constructs an empty CompressedRegion with the given width and height; this doesn't store any chunks yet.
+     * @param width the maximum width of the area this can hold
+     * @param height the maximum height of the area this can hold
+     */
+    public CompressedRegion(final int width, final int height) {
+        this.width = Math.max(0, width);
+        this.height = Math.max(0, height);
+        chunkWidth = this.width + 63 >>> 6;
+        chunkHeight = this.height + 63 >>> 6;
+        yEndMask = -1L >>> (64 - (this.height & 63));
+        chunks = new Chunk[chunkWidth * chunkHeight];
+    }
+
+    /**
+     * Constructs a CompressedRegion with the same size and "on" cells as the given GreasedRegion.
+     * @param region a GreasedRegion that will not be modified
+     */
+    public CompressedRegion(final GreasedRegion region) {
+        this(region.width, region.height);
+        remake(region);
+    }
+
+    /**
+     * Copy constructor; the chunks of other are copied, not shared.
+     * @param other another CompressedRegion that will not be modified
+     */
+    public CompressedRegion(final CompressedRegion other) {
+        this(other.width, other.height);
+        for (int i = 0; i < chunks.length; i++) {
+            if (other.chunks[i] != null)
+                chunks[i] = other.chunks[i].copy();
+        }
+    }
+
+    public CompressedRegion copy() {
+        return new CompressedRegion(this);
+    }
+
+    /**
+     * Replaces the contents of this with the "on" cells of region, which should have the same width and height; if it
+     * is smaller, the rest of this will be empty, and if it is larger, cells outside this will be ignored.
+     * @param region a GreasedRegion that will not be modified
+     * @return this for chaining
+     */
+    public CompressedRegion remake(final GreasedRegion region) {
+        final long[] bits = scratch();
+        final int ys = region.ySections;
+        for (int cx = 0; cx < chunkWidth; cx++) {
+            for (int cy = 0; cy < chunkHeight; cy++) {
+                for (int lx = 0, x = cx << 6; lx < 64; lx++, x++) {
+                    bits[lx] = x < region.width && cy < ys ? region.data[x * ys + cy] : 0L;
+                }
+                chunks[cx * chunkHeight + cy] = pack(clip(bits, cx, cy));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes the "on" cells of this into region, resizing and emptying region first.
+     * @param region a GreasedRegion that will be changed to match this
+     * @return region, after modification
+     */
+    public GreasedRegion into(final GreasedRegion region) {
+        region.resizeAndEmpty(width, height);
+        final long[] bits = scratch();
+        final int ys = region.ySections;
+        for (int cx = 0; cx < chunkWidth; cx++) {
+            for (int cy = 0; cy < chunkHeight; cy++) {
+                final Chunk c = chunks[cx * chunkHeight + cy];
+                if (c == null)
+                    continue;
+                c.toBits(bits);
+                for (int lx = 0, x = cx << 6; lx < 64 && x < width; lx++, x++) {
+                    region.data[x * ys + cy] = bits[lx];
+                }
+            }
+        }
+        region.tallied = false;
+        return region;
+    }
+
+    /**
+     * @return a new GreasedRegion with the same size and "on" cells as this
+     */
+    public GreasedRegion toGreasedRegion() {
+        return into(new GreasedRegion(width, height));
+    }
+
+    private long[] scratch() {
+        if (scratch == null)
+            scratch = new long[64];
+        return scratch;
+    }
+
+    private long[] scratch2() {
+        if (scratch2 == null)
+            scratch2 = new long[64];
+        return scratch2;
+    }
+
+    /**
+     * Turns off any bits in a chunk's 64 longs that are past the right or bottom edge of this region.
+     */
+    private long[] clip(final long[] bits, final int cx, final int cy) {
+        if (cy == chunkHeight - 1) {
+            for (int lx = 0; lx < 64; lx++) {
+                bits[lx] &= yEndMask;
+            }
+        }
+        if (cx == chunkWidth - 1) {
+            for (int lx = width - (cx << 6); lx < 64; lx++) {
+                bits[lx] = 0L;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Picks the smallest container for the 64 longs in bits, copying what it needs, or returns null if they are all 0.
+     */
+    private Chunk pack(final long[] bits) {
+        int size = 0, runs = 0;
+        long prevTop = 0L, t;
+        for (int lx = 0; lx < 64; lx++) {
+            t = bits[lx];
+            size += Long.bitCount(t);
+            runs += Long.bitCount(t & ~(t << 1 | prevTop));
+            prevTop = t >>> 63;
+        }
+        if (size == 0)
+            return null;
+        if (runs << 1 < Math.min(size, 256)) {
+            if (packing == null)
+                packing = new short[4096];
+            int n = 0;
+            for (int lx = 0; lx < 64; lx++) {
+                t = bits[lx];
+                while (t != 0) {
+                    final int s = Long.numberOfTrailingZeros(t), len = Long.numberOfTrailingZeros(~(t >>> s)),
+                            start = lx << 6 | s;
+                    if (n > 0 && packing[n - 1] == start - 1)
+                        packing[n - 1] = (short) (start + len - 1);
+                    else {
+                        packing[n++] = (short) start;
+                        packing[n++] = (short) (start + len - 1);
+                    }
+                    t = len == 64 ? 0L : t & ~(((1L << len) - 1L) << s);
+                }
+            }
+            return new Chunk(RUN, size, Arrays.copyOf(packing, n), null);
+        }
+        if (size <= ARRAY_LIMIT) {
+            final short[] values = new short[size];
+            int n = 0;
+            for (int lx = 0; lx < 64; lx++) {
+                for (t = bits[lx]; t != 0; t &= t - 1) {
+                    values[n++] = (short) (lx << 6 | Long.numberOfTrailingZeros(t));
+                }
+            }
+            return new Chunk(ARRAY, size, values, null);
+        }
+        return new Chunk(BITMAP, size, null, bits.clone());
+    }
+
+    /**
+     * Re-picks the container of every chunk, which can shrink this after many single-cell changes, since
+     * {@link #insert(int, int)} and {@link #remove(int, int)} leave chunks as bitmaps once they have become bitmaps.
+     * @return this for chaining
+     */
+    public CompressedRegion optimize() {
+        final long[] bits = scratch();
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i] != null)
+                chunks[i] = pack(chunks[i].toBits(bits));
+        }
+        return this;
+    }
+
+    public boolean contains(final int x, final int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            return false;
+        final Chunk c = chunks[(x >>> 6) * chunkHeight + (y >>> 6)];
+        return c != null && c.contains((x & 63) << 6 | (y & 63));
+    }
+
+    public boolean contains(final Coord point) {
+        return contains(point.x, point.y);
+    }
+
+    public CompressedRegion insert(final int x, final int y) {
+        return set(true, x, y);
+    }
+
+    public CompressedRegion insert(final Coord point) {
+        return set(true, point.x, point.y);
+    }
+
+    public CompressedRegion insertSeveral(final Coord... points) {
+        for (int i = 0; i < points.length; i++) {
+            set(true, points[i].x, points[i].y);
+        }
+        return this;
+    }
+
+    public CompressedRegion remove(final int x, final int y) {
+        return set(false, x, y);
+    }
+
+    public CompressedRegion remove(final Coord point) {
+        return set(false, point.x, point.y);
+    }
+
+    /**
+     * Turns the cell at x,y on or off, doing nothing if it is outside this region. A chunk that holds an array keeps
+     * using an array until it has more than {@link #ARRAY_LIMIT} cells; chunks that hold runs are re-packed, and
+     * chunks that hold bitmaps stay as bitmaps until they are empty or {@link #optimize()} is called.
+     * @param value true to turn the cell on, false to turn it off
+     * @param x the x position of the cell
+     * @param y the y position of the cell
+     * @return this for chaining
+     */
+    public CompressedRegion set(final boolean value, final int x, final int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            return this;
+        final int idx = (x >>> 6) * chunkHeight + (y >>> 6), cell = (x & 63) << 6 | (y & 63);
+        final Chunk c = chunks[idx];
+        if (c == null) {
+            if (value)
+                chunks[idx] = new Chunk(ARRAY, 1, new short[]{(short) cell}, null);
+            return this;
+        }
+        if (c.kind == BITMAP) {
+            final long bit = 1L << (cell & 63), old = c.bits[cell >>> 6];
+            if (((old & bit) != 0) != value) {
+                c.bits[cell >>> 6] = old ^ bit;
+                if ((c.size += value ? 1 : -1) == 0)
+                    chunks[idx] = null;
+            }
+            return this;
+        }
+        if (c.kind == ARRAY) {
+            final int pos = Arrays.binarySearch(c.values, (short) cell);
+            if (value && pos < 0 && c.size < ARRAY_LIMIT) {
+                final int at = -pos - 1;
+                final short[] values = new short[c.size + 1];
+                System.arraycopy(c.values, 0, values, 0, at);
+                values[at] = (short) cell;
+                System.arraycopy(c.values, at, values, at + 1, c.size - at);
+                c.values = values;
+                c.size++;
+                return this;
+            }
+            if (!value && pos >= 0) {
+                if (c.size == 1) {
+                    chunks[idx] = null;
+                    return this;
+                }
+                final short[] values = new short[c.size - 1];
+                System.arraycopy(c.values, 0, values, 0, pos);
+                System.arraycopy(c.values, pos + 1, values, pos, c.size - 1 - pos);
+                c.values = values;
+                c.size--;
+                return this;
+            }
+            if ((pos >= 0) == value)
+                return this;
+        } else if (c.contains(cell) == value)
+            return this;
+        final long[] bits = c.toBits(scratch());
+        bits[cell >>> 6] ^= 1L << (cell & 63);
+        chunks[idx] = pack(bits);
+        return this;
+    }
+
+    /**
+     * Removes all "on" cells, letting go of every chunk.
+     * @return this for chaining
+     */
+    public CompressedRegion empty() {
+        Arrays.fill(chunks, null);
+        return this;
+    }
+
+    public int size() {
+        int c = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i] != null)
+                c += chunks[i].size;
+        }
+        return c;
+    }
+
+    public boolean isEmpty() {
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i] != null)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Estimates how many bytes the containers in this use, not counting object headers; this is useful to check how
+     * much smaller this is than a GreasedRegion, which uses {@code width * ((height + 63) / 64) * 8} bytes.
+     * @return an estimate of the memory this uses for cell data, in bytes
+     */
+    public long approximateBytes() {
+        long b = chunks.length * 4L;
+        for (int i = 0; i < chunks.length; i++) {
+            final Chunk c = chunks[i];
+            if (c != null)
+                b += c.kind == BITMAP ? 512 : c.values.length * 2L;
+        }
+        return b;
+    }
+
+    /**
+     * Combines the chunks of other into the matching chunks of this with one of the bitwise operations, clipping to
+     * the bounds of this.
+     */
+    private CompressedRegion combine(final CompressedRegion other, final int op) {
+        final long[] a = scratch(), b = scratch2();
+        for (int cx = 0; cx < chunkWidth; cx++) {
+            for (int cy = 0; cy < chunkHeight; cy++) {
+                final int idx = cx * chunkHeight + cy;
+                final Chunk mine = chunks[idx],
+                        theirs = cx < other.chunkWidth && cy < other.chunkHeight
+                                ? other.chunks[cx * other.chunkHeight + cy] : null;
+                if (theirs == null) {
+                    if (op == 1)
+                        chunks[idx] = null;
+                    continue;
+                }
+                if (mine == null && op != 0 && op != 3)
+                    continue;
+                if (mine == null)
+                    Arrays.fill(a, 0L);
+                else
+                    mine.toBits(a);
+                theirs.toBits(b);
+                switch (op) {
+                    case 0:
+                        for (int i = 0; i < 64; i++) a[i] |= b[i];
+                        break;
+                    case 1:
+                        for (int i = 0; i < 64; i++) a[i] &= b[i];
+                        break;
+                    case 2:
+                        for (int i = 0; i < 64; i++) a[i] &= ~b[i];
+                        break;
+                    default:
+                        for (int i = 0; i < 64; i++) a[i] ^= b[i];
+                        break;
+                }
+                chunks[idx] = pack(clip(a, cx, cy));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Union of two CompressedRegions, assigning the result into this one.
+     * @param other another CompressedRegion that will not be modified
+     * @return this, after modification, for chaining
+     */
+    public CompressedRegion or(final CompressedRegion other) {
+        return combine(other, 0);
+    }
+
+    /**
+     * Intersection of two CompressedRegions, assigning the result into this one.
+     * @param other another CompressedRegion that will not be modified
+     * @return this, after modification, for chaining
+     */
+    public CompressedRegion and(final CompressedRegion other) {
+        return combine(other, 1);
+    }
+
+    /**
+     * Difference of two CompressedRegions, assigning the result into this one.
+     * @param other another CompressedRegion that will not be modified
+     * @return this, after modification, for chaining
+     */
+    public CompressedRegion andNot(final CompressedRegion other) {
+        return combine(other, 2);
+    }
+
+    /**
+     * Symmetric difference of two CompressedRegions, assigning the result into this one.
+     * @param other another CompressedRegion that will not be modified
+     * @return this, after modification, for chaining
+     */
+    public CompressedRegion xor(final CompressedRegion other) {
+        return combine(other, 3);
+    }
+
+    /**
+     * Gets each chunk as 64 longs, or null for empty chunks. Bitmap containers are copied so the result can be
+     * written to.
+     */
+    private static long[][] bitmaps(final CompressedRegion region) {
+        final long[][] views = new long[region.chunks.length][];
+        for (int i = 0; i < views.length; i++) {
+            if (region.chunks[i] != null)
+                views[i] = region.chunks[i].toBits(new long[64]);
+        }
+        return views;
+    }
+
+    private long columnAt(final long[][] views, final int x, final int cy) {
+        if (x < 0 || x >= width || cy < 0 || cy >= chunkHeight)
+            return 0L;
+        final long[] v = views[(x >>> 6) * chunkHeight + cy];
+        return v == null ? 0L : v[x & 63];
+    }
+
+    private long dilateColumn(final long[][] views, final int x, final int cy) {
+        final long d = columnAt(views, x, cy);
+        return d | d << 1 | d >>> 1 | columnAt(views, x, cy - 1) >>> 63 | columnAt(views, x, cy + 1) << 63;
+    }
+
+    private long erodeColumn(final long[][] views, final int x, final int cy) {
+        final long d = columnAt(views, x, cy);
+        return d & (d << 1 | columnAt(views, x, cy - 1) >>> 63) & (d >>> 1 | columnAt(views, x, cy + 1) << 63);
+    }
+
+    /**
+     * True if the chunk at cx,cy or any chunk touching it has a view, so expanding could reach it.
+     */
+    private boolean near(final long[][] views, final int cx, final int cy) {
+        for (int i = Math.max(0, cx - 1); i <= cx + 1 && i < chunkWidth; i++) {
+            for (int j = Math.max(0, cy - 1); j <= cy + 1 && j < chunkHeight; j++) {
+                if (views[i * chunkHeight + j] != null)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs one step of expansion or retraction from src into dest, reusing the arrays already in dest when it can, and
+     * returns the number of "on" cells in dest.
+     */
+    private int step(final long[][] src, final long[][] dest, final boolean grow, final boolean eightWay,
+                     final long[][] bounds) {
+        final long[] bits = scratch();
+        int total = 0;
+        for (int cx = 0; cx < chunkWidth; cx++) {
+            for (int cy = 0; cy < chunkHeight; cy++) {
+                final int idx = cx * chunkHeight + cy;
+                long any = 0L;
+                if (grow ? (bounds == null || bounds[idx] != null) && near(src, cx, cy) : src[idx] != null) {
+                    for (int lx = 0, x = cx << 6; lx < 64; lx++, x++) {
+                        long n;
+                        if (x >= width)
+                            n = 0L;
+                        else if (grow) {
+                            n = dilateColumn(src, x, cy) | (eightWay
+                                    ? dilateColumn(src, x - 1, cy) | dilateColumn(src, x + 1, cy)
+                                    : columnAt(src, x - 1, cy) | columnAt(src, x + 1, cy));
+                            if (bounds != null)
+                                n &= bounds[idx][lx];
+                        } else if (x == 0 || x == width - 1)
+                            n = 0L;
+                        else
+                            n = erodeColumn(src, x, cy) & (eightWay
+                                    ? erodeColumn(src, x - 1, cy) & erodeColumn(src, x + 1, cy)
+                                    : columnAt(src, x - 1, cy) & columnAt(src, x + 1, cy));
+                        if (cy == chunkHeight - 1)
+                            n &= yEndMask;
+                        bits[lx] = n;
+                        any |= n;
+                    }
+                }
+                if (any == 0L)
+                    dest[idx] = null;
+                else {
+                    long[] d = dest[idx];
+                    if (d == null)
+                        d = dest[idx] = new long[64];
+                    for (int lx = 0; lx < 64; lx++) {
+                        total += Long.bitCount(d[lx] = bits[lx]);
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Runs up to amount steps of expansion or retraction, stopping early for floods that stop growing, then packs the
+     * result back into chunks.
+     */
+    private CompressedRegion spatial(final int amount, final boolean grow, final boolean eightWay,
+                                     final CompressedRegion bounds) {
+        if (amount <= 0 || width == 0 || height == 0)
+            return this;
+        if (bounds != null && (bounds.width != width || bounds.height != height))
+            return spatial(amount, grow, eightWay, new CompressedRegion(width, height).or(bounds));
+        long[][] src = bitmaps(this), dest = new long[chunks.length][], t;
+        final long[][] limit = bounds == null ? null : bitmaps(bounds);
+        int ct = bounds == null ? -1 : size(), ct2;
+        for (int i = 0; i < amount; i++) {
+            ct2 = step(src, dest, grow, eightWay, limit);
+            t = src;
+            src = dest;
+            dest = t;
+            if (bounds != null) {
+                if (ct == ct2)
+                    break;
+                ct = ct2;
+            }
+        }
+        return fromViews(src);
+    }
+
+    private CompressedRegion fromViews(final long[][] views) {
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = views[i] == null ? null : pack(views[i]);
+        }
+        return this;
+    }
+
+    public CompressedRegion expand() {
+        return spatial(1, true, false, null);
+    }
+
+    public CompressedRegion expand(final int amount) {
+        return spatial(amount, true, false, null);
+    }
+
+    public CompressedRegion expand8way() {
+        return spatial(1, true, true, null);
+    }
+
+    public CompressedRegion expand8way(final int amount) {
+        return spatial(amount, true, true, null);
+    }
+
+    public CompressedRegion retract() {
+        return spatial(1, false, false, null);
+    }
+
+    public CompressedRegion retract(final int amount) {
+        return spatial(amount, false, false, null);
+    }
+
+    public CompressedRegion retract8way() {
+        return spatial(1, false, true, null);
+    }
+
+    public CompressedRegion retract8way(final int amount) {
+        return spatial(amount, false, true, null);
+    }
+
+    public CompressedRegion fringe() {
+        return fringe(1);
+    }
+
+    public CompressedRegion fringe(final int amount) {
+        final CompressedRegion original = copy();
+        return expand(amount).andNot(original);
+    }
+
+    public CompressedRegion fringe8way() {
+        return fringe8way(1);
+    }
+
+    public CompressedRegion fringe8way(final int amount) {
+        final CompressedRegion original = copy();
+        return expand8way(amount).andNot(original);
+    }
+
+    public CompressedRegion surface() {
+        return surface(1);
+    }
+
+    public CompressedRegion surface(final int amount) {
+        final CompressedRegion original = copy();
+        return retract(amount).xor(original);
+    }
+
+    public CompressedRegion surface8way() {
+        return surface8way(1);
+    }
+
+    public CompressedRegion surface8way(final int amount) {
+        final CompressedRegion original = copy();
+        return retract8way(amount).xor(original);
+    }
+
+    /**
+     * Like {@link GreasedRegion#flood(GreasedRegion)}, expands this by one cell in the 4 orthogonal directions, only
+     * into cells that are "on" in bounds.
+     * @param bounds the area this is allowed to flood into; will not be modified
+     * @return this for chaining
+     */
+    public CompressedRegion flood(final CompressedRegion bounds) {
+        return spatial(1, true, false, bounds);
+    }
+
+    /**
+     * Like {@link GreasedRegion#flood(GreasedRegion, int)}, floods this into bounds up to amount times, stopping early
+     * once a step doesn't add any cells.
+     * @param bounds the area this is allowed to flood into; will not be modified
+     * @param amount the most steps to flood by
+     * @return this for chaining
+     */
+    public CompressedRegion flood(final CompressedRegion bounds, final int amount) {
+        return spatial(amount, true, false, bounds);
+    }
+
+    public CompressedRegion flood8way(final CompressedRegion bounds) {
+        return spatial(1, true, true, bounds);
+    }
+
+    public CompressedRegion flood8way(final CompressedRegion bounds, final int amount) {
+        return spatial(amount, true, true, bounds);
+    }
+
+    /**
+     * Calls visitor with the x and y of every "on" cell, chunk by chunk, without allocating for bitmap chunks.
+     * @param visitor a {@link GreasedRegion.CellVisitor} that will receive each "on" cell; must not change this
+     * @return this for chaining
+     */
+    public CompressedRegion visit(final GreasedRegion.CellVisitor visitor) {
+        for (int cx = 0; cx < chunkWidth; cx++) {
+            for (int cy = 0; cy < chunkHeight; cy++) {
+                final Chunk c = chunks[cx * chunkHeight + cy];
+                if (c == null)
+                    continue;
+                final int bx = cx << 6, by = cy << 6;
+                if (c.kind == ARRAY) {
+                    for (int i = 0; i < c.values.length; i++) {
+                        visitor.visit(bx + (c.values[i] >>> 6), by + (c.values[i] & 63));
+                    }
+                } else if (c.kind == RUN) {
+                    for (int i = 0; i < c.values.length; i += 2) {
+                        for (int cell = c.values[i], end = c.values[i + 1]; cell <= end; cell++) {
+                            visitor.visit(bx + (cell >>> 6), by + (cell & 63));
+                        }
+                    }
+                } else {
+                    for (int lx = 0; lx < 64; lx++) {
+                        for (long t = c.bits[lx]; t != 0; t &= t - 1) {
+                            visitor.visit(bx + lx, by + Long.numberOfTrailingZeros(t));
+                        }
+                    }
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the first "on" cell, going chunk by chunk, or (-1,-1) if this is empty
+     */
+    public Coord first() {
+        for (int cx = 0; cx < chunkWidth; cx++) {
+            for (int cy = 0; cy < chunkHeight; cy++) {
+                final Chunk c = chunks[cx * chunkHeight + cy];
+                if (c == null)
+                    continue;
+                final int cell;
+                if (c.kind == BITMAP) {
+                    int lx = 0;
+                    while (c.bits[lx] == 0) lx++;
+                    cell = lx << 6 | Long.numberOfTrailingZeros(c.bits[lx]);
+                } else
+                    cell = c.values[0];
+                return Coord.get((cx << 6) + (cell >>> 6), (cy << 6) + (cell & 63));
+            }
+        }
+        return Coord.get(-1, -1);
+    }
+
+    /**
+     * @return every "on" cell as a Coord, chunk by chunk
+     */
+    public Coord[] asCoords() {
+        final Coord[] points = new Coord[size()];
+        visit(new GreasedRegion.CellVisitor() {
+            private int i = 0;
+
+            @Override
+            public void visit(int x, int y) {
+                points[i++] = Coord.get(x, y);
+            }
+        });
+        return points;
+    }
+
+    public List<Coord> getAll() {
+        return Arrays.asList(asCoords());
+    }
+
+    @Override
+    public Iterator<Coord> iterator() {
+        return getAll().iterator();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final CompressedRegion other = (CompressedRegion) o;
+        if (width != other.width || height != other.height)
+            return false;
+        final long[] a = scratch(), b = scratch2();
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i] == null || other.chunks[i] == null) {
+                if (chunks[i] != other.chunks[i])
+                    return false;
+            } else if (chunks[i].size != other.chunks[i].size
+                    || !Arrays.equals(chunks[i].toBits(a), other.chunks[i].toBits(b)))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        final long[] a = scratch();
+        int result = 31 * width + height;
+        for (int i = 0; i < chunks.length; i++) {
+            result = 31 * result + (chunks[i] == null ? 0 : Arrays.hashCode(chunks[i].toBits(a)));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return toGreasedRegion().toString();
+    }
+}
@@ -47,6 +47,9 @@ import java.util.*;
  * construct a fresh GreasedRegion to an existing one of the same dimensions with {@link #refill(boolean[][])} or any
  * of the overloads of refill(). These re-methods don't do as much work as a constructor does if the width and height
  * of their argument are identical to their current width and height, and don't create more garbage for the GC.
+ * The spatial methods, such as {@link #expand()}, {@link #retract()}, {@link #fringe()}, {@link #surface()}, and
+ * {@link #flood(GreasedRegion)}, also avoid garbage by writing into a spare array kept with each GreasedRegion and then
+ * swapping it with {@link #data}, so code that holds onto the data array directly should fetch it again afterwards.
  * <br>
  * Created by Tommy Ettinger on 6/24/2016.
  */
@@ -60,6 +63,21 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
     public int width;
     protected int ySections;
     protected long yEndMask;
+    /**
+     * Scratch arrays kept between calls so the morphology methods don't allocate; see {@link #spare()}.
+     */
+    private transient long[] spare, held;
+    /**
+     * The rank index used by {@link #nth(int)}, {@link #singleRandom(RNG)}, and similar methods; counts[i] is how many
+     * "on" cells are stored in data before data[i], and the last item is the total. Built lazily by {@link #tally()}.
+     */
+    private transient int[] counts;
+    /**
+     * True while the rank index built by {@link #tally()} matches {@link #data}. Every method here that changes the
+     * cells sets this to false, so the index is rebuilt the next time it is needed; code that changes data directly
+     * must also set this to false (or call tally() afterwards).
+     */
+    public transient boolean tallied;
 
     /**
      * Constructs an empty 64x64 GreasedRegion.
@@ -101,6 +119,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion refill(final boolean[][] map) {
+        tallied = false;
         if (map != null && map.length > 0 && width == map.length && height == map[0].length) {
             Arrays.fill(data, 0L);
             for (int x = 0; x < width; x++) {
@@ -152,6 +171,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion refill(final char[][] map, final char yes) {
+        tallied = false;
         if (map != null && map.length > 0 && width == map.length && height == map[0].length) {
             Arrays.fill(data, 0L);
             for (int x = 0; x < width; x++) {
@@ -203,6 +223,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion refill(final String[] map, final char yes) {
+        tallied = false;
         if (map != null && map.length > 0 && height == map.length && width == map[0].length()) {
             Arrays.fill(data, 0L);
             for (int x = 0; x < width; x++) {
@@ -253,6 +274,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion refill(final int[][] map, final int yes) {
+        tallied = false;
         if (map != null && map.length > 0 && width == map.length && height == map[0].length) {
             Arrays.fill(data, 0L);
             for (int x = 0; x < width; x++) {
@@ -310,6 +332,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion refill(final int[][] map, final int lower, final int upper) {
+        tallied = false;
         if (map != null && map.length > 0 && width == map.length && height == map[0].length) {
             Arrays.fill(data, 0L);
             int[] column;
@@ -371,6 +394,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion refill(final short[][] map, final int lower, final int upper) {
+        tallied = false;
         if (map != null && map.length > 0 && width == map.length && height == map[0].length) {
             Arrays.fill(data, 0L);
             short[] column;
@@ -428,6 +452,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion refill(final double[][] map, final double upperBound) {
+        tallied = false;
         if (map != null && map.length > 0 && width == map.length && height == map[0].length) {
             Arrays.fill(data, 0L);
             for (int x = 0; x < width; x++) {
@@ -486,6 +511,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion refill(final double[][] map, final double lower, final double upper) {
+        tallied = false;
         if (map != null && map.length > 0 && width == map.length && height == map[0].length) {
             Arrays.fill(data, 0L);
             double[] column;
@@ -564,6 +590,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion refill(final double[][] map, final double lowerBound, final double upperBound, int scale) {
+        tallied = false;
         scale = Math.min(63, Math.max(1, scale));
         if (map != null && map.length > 0 && width == map.length * scale && height == map[0].length * scale) {
             Arrays.fill(data, 0L);
@@ -641,6 +668,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion refill(final boolean[] bits, final int width, final int height) {
+        tallied = false;
         if (bits != null && this.width == width && this.height == height) {
             Arrays.fill(data, 0L);
             for (int a = 0, x = 0, y = 0; a < bits.length; a++, x = a / height, y = a % height) {
@@ -688,6 +716,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this GreasedRegion, always with all contents "off", and with the height and width set.
      */
     public GreasedRegion resizeAndEmpty(final int width, final int height) {
+        tallied = false;
         if (width == this.width && height == this.height) {
             Arrays.fill(data, 0L);
         } else {
@@ -808,6 +837,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion refill(final RandomnessSource random, final int width, final int height) {
+        tallied = false;
         if (random != null){
             if(this.width == width && this.height == height) {
                 for (int i = 0; i < width * ySections; i++) {
@@ -900,6 +930,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion refill(final RNG random, final double fraction, final int width, final int height) {
+        tallied = false;
         if (random != null){
             int bitCount = (int) (fraction * 64);
             if(this.width == width && this.height == height) {
@@ -1030,6 +1061,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion refill(final long[] data2, final int dataWidth, final int dataHeight, final int width, final int height)
     {
+        tallied = false;
         if(width != this.width || height != this.height) {
             this.width = width;
             this.height = height;
@@ -1082,6 +1114,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion remake(GreasedRegion other) {
+        tallied = false;
         if (width == other.width && height == other.height) {
             System.arraycopy(other.data, 0, data, 0, width * ySections);
             return this;
@@ -1109,6 +1142,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion alterBounds(int widthChange, int heightChange)
     {
+        tallied = false;
         int newWidth = width + widthChange;
         int newHeight = height + heightChange;
         if(newWidth <= 0 || newHeight <= 0)
@@ -1149,6 +1183,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion set(boolean value, int x, int y)
     {
+        tallied = false;
         if(x < width && y < height && x >= 0 && y >= 0) {
             if(value)
                 data[x * ySections + (y >> 6)] |= 1L << (y & 63);
@@ -1180,6 +1215,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion insert(int x, int y)
     {
+        tallied = false;
         if(x < width && y < height && x >= 0 && y >= 0)
             data[x * ySections + (y >> 6)] |= 1L << (y & 63);
         return this;
@@ -1193,6 +1229,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion insert(int tight)
     {
+        tallied = false;
         if(tight < width * height && tight >= 0)
             data[(tight % width) * ySections + ((tight / width) >>> 6)] |= 1L << ((tight / width) & 63);
         return this;
@@ -1223,6 +1260,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion insert(int x, int y, GreasedRegion other)
     {
+        tallied = false;
         if(other == null || other.ySections <= 0 || other.width <= 0)
             return this;
 
@@ -1338,6 +1376,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
 
     public GreasedRegion insertSeveral(Coord... points)
     {
+        tallied = false;
         for (int i = 0, x, y; i < points.length; i++) {
             x = points[i].x;
             y = points[i].y;
@@ -1349,6 +1388,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
 
     public GreasedRegion insertSeveral(final int[] points)
     {
+        tallied = false;
         for (int i = 0, tight; i < points.length; i++) {
             tight = points[i];
             if(tight < width * height && tight >= 0)
@@ -1359,6 +1399,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
 
     public GreasedRegion insertSeveral(Iterable<Coord> points)
     {
+        tallied = false;
         int x, y;
         for (Coord pt : points) {
             x = pt.x;
@@ -1371,6 +1412,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
 
     public GreasedRegion insertRectangle(int startX, int startY, int rectangleWidth, int rectangleHeight)
     {
+        tallied = false;
         if(rectangleWidth < 1 || rectangleHeight < 1 || ySections <= 0)
             return this;
         if(startX < 0)
@@ -1426,6 +1468,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
 
     public GreasedRegion remove(int x, int y)
     {
+        tallied = false;
         if(x < width && y < height && x >= 0 && y >= 0)
             data[x * ySections + (y >> 6)] &= ~(1L << (y & 63));
         return this;
@@ -1449,6 +1492,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion remove(int x, int y, GreasedRegion other)
     {
+        tallied = false;
         if(other == null || other.ySections <= 0 || other.width <= 0)
             return this;
 
@@ -1563,6 +1607,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
     }
     public GreasedRegion removeSeveral(Coord... points)
     {
+        tallied = false;
         for (int i = 0, x, y; i < points.length; i++) {
             x = points[i].x;
             y = points[i].y;
@@ -1574,6 +1619,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
 
     public GreasedRegion removeSeveral(Iterable<Coord> points)
     {
+        tallied = false;
         int x, y;
         for (Coord pt : points) {
             x = pt.x;
@@ -1586,6 +1632,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
 
     public GreasedRegion removeRectangle(int startX, int startY, int rectangleWidth, int rectangleHeight)
     {
+        tallied = false;
         if(startX < 0)
         {
             rectangleWidth += startX;
@@ -1651,6 +1698,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion empty()
     {
+        tallied = false;
         Arrays.fill(data, 0L);
         return this;
     }
@@ -1661,6 +1709,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion allOn()
     {
+        tallied = false;
         if(ySections > 0)
         {
             if(yEndMask == -1) {
@@ -1686,6 +1735,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion fill(boolean contents)
     {
+        tallied = false;
         if(contents)
         {
             if(ySections > 0)
@@ -1717,6 +1767,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion removeEdges()
     {
+        tallied = false;
         if(ySections > 0) {
             for (int i = 0; i < ySections; i++) {
                 data[i] = 0L;
@@ -2000,6 +2051,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion or(GreasedRegion other)
     {
+        tallied = false;
         for (int x = 0; x < width && x < other.width; x++) {
             for (int y = 0; y < ySections && y < other.ySections; y++) {
                 data[x * ySections + y] |= other.data[x * ySections + y];
@@ -2023,6 +2075,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion and(GreasedRegion other)
     {
+        tallied = false;
         for (int x = 0; x < width && x < other.width; x++) {
             for (int y = 0; y < ySections && y < other.ySections; y++) {
                 data[x * ySections + y] &= other.data[x * ySections + y];
@@ -2039,6 +2092,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion andNot(GreasedRegion other)
     {
+        tallied = false;
         for (int x = 0; x < width && x < other.width; x++) {
             for (int y = 0; y < ySections && y < other.ySections; y++) {
                 data[x * ySections + y] &= ~other.data[x * ySections + y];
@@ -2056,6 +2110,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion notAnd(GreasedRegion other)
     {
+        tallied = false;
         for (int x = 0; x < width && x < other.width; x++) {
             for (int y = 0; y < ySections && y < other.ySections; y++) {
                 data[x * ySections + y] = other.data[x * ySections + y] & ~data[x * ySections + y];
@@ -2074,6 +2129,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion xor(GreasedRegion other)
     {
+        tallied = false;
         for (int x = 0; x < width && x < other.width; x++) {
             for (int y = 0; y < ySections && y < other.ySections; y++) {
                 data[x * ySections + y] ^= other.data[x * ySections + y];
@@ -2094,6 +2150,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion not()
     {
+        tallied = false;
         for (int a = 0; a < data.length; a++)
         {
             data[a] = ~data[a];
@@ -2115,6 +2172,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion translate(int x, int y)
     {
+        tallied = false;
         if(width < 1 || ySections <= 0 || (x == 0 && y == 0))
             return this;
         int start = Math.max(0, x), len = Math.min(width, width + x) - start,
@@ -2186,6 +2244,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion insertTranslation(int x, int y)
     {
+        tallied = false;
         if(width < 1 || ySections <= 0 || (x == 0 && y == 0))
             return this;
         int start = Math.max(0, x), len = Math.min(width, width + x) - start,
@@ -2261,6 +2320,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion zoom(int x, int y)
     {
+        tallied = false;
         if(width < 1 || ySections <= 0)
             return this;
         x = -x;
@@ -2394,6 +2454,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion connect()
     {
+        tallied = false;
         if(width < 2 || ySections == 0)
             return this;
 
@@ -2453,6 +2514,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion connect8way()
     {
+        tallied = false;
         if(width < 2 || ySections == 0)
             return this;
 
@@ -2522,6 +2584,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion connectLines()
     {
+        tallied = false;
         if(width < 2 || ySections == 0)
             return this;
 
@@ -2624,6 +2687,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion disperse()
     {
+        tallied = false;
         if(width < 1 || ySections <= 0)
             return this;
         long mask = 0x5555555555555555L;
@@ -2643,6 +2707,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion disperse8way()
     {
+        tallied = false;
         if(width < 1 || ySections <= 0)
             return this;
         int len = data.length;
@@ -2662,6 +2727,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion disperseRandom(RNG random)
     {
+        tallied = false;
         if(width < 1 || ySections <= 0)
             return this;
         int len = data.length;
@@ -2671,6 +2737,110 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
         return this;
     }
 
+    /**
+     * Gets the spare array that morphology methods write their results into before swapping it with {@link #data},
+     * allocating it only if it is missing or the wrong size.
+     */
+    long[] spare()
+    {
+        if(spare == null || spare.length != width * ySections)
+            spare = new long[width * ySections];
+        return spare;
+    }
+
+    /**
+     * Gets a second scratch array, used to hold the original contents while methods like {@link #fringe(int)} make
+     * several steps, allocating it only if it is missing or the wrong size.
+     */
+    long[] held()
+    {
+        if(held == null || held.length != width * ySections)
+            held = new long[width * ySections];
+        return held;
+    }
+
+    GreasedRegion swapSpare()
+    {
+        tallied = false;
+        final long[] t = data;
+        data = spare;
+        spare = t;
+        return this;
+    }
+
+    /**
+     * The cells in one long of a column, plus the cells just above and below them (carrying across longs).
+     */
+    private static long dilateColumn(final long[] src, final int i, final int a, final int last)
+    {
+        final long d = src[i];
+        return d | d << 1 | d >>> 1 | (a > 0 ? src[i - 1] >>> 63 : 0L) | (a < last ? src[i + 1] << 63 : 0L);
+    }
+
+    /**
+     * The cells in one long of a column that also have cells just above and below them (carrying across longs).
+     */
+    private static long erodeColumn(final long[] src, final int i, final int a, final int last)
+    {
+        final long d = src[i];
+        return d & (d << 1 | (a > 0 ? src[i - 1] >>> 63 : 0L)) & (d >>> 1 | (a < last ? src[i + 1] << 63 : 0L));
+    }
+
+    /**
+     * Expands src by one cell into dest, walking both arrays front to back so every long is read and written in
+     * order. If bounds is non-null the result is limited to it (for flood), and if fringe is true the cells of src
+     * are removed from the result. Only the columns from startX (inclusive) to endX (exclusive) are written to dest,
+     * though the columns on either side of that band are read from src, so separate bands can run at the same time.
+     */
+    static void dilate(final long[] src, final long[] dest, final int width, final int ySections,
+                       final long yEndMask, final boolean eightWay, final long[] bounds, final boolean fringe,
+                       final int startX, final int endX)
+    {
+        final int last = ySections - 1, limit = width * ySections, end = endX * ySections;
+        for (int i = startX * ySections; i < end; ) {
+            for (int a = 0; a < ySections; a++, i++) {
+                long n = dilateColumn(src, i, a, last);
+                if(i >= ySections)
+                    n |= eightWay ? dilateColumn(src, i - ySections, a, last) : src[i - ySections];
+                if(i + ySections < limit)
+                    n |= eightWay ? dilateColumn(src, i + ySections, a, last) : src[i + ySections];
+                if(bounds != null)
+                    n &= bounds[i];
+                if(fringe)
+                    n &= ~src[i];
+                dest[i] = n;
+            }
+            dest[i - 1] &= yEndMask;
+        }
+    }
+
+    /**
+     * Retracts src by one cell into dest, treating cells outside the region as off and walking both arrays front to
+     * back. If surface is true, dest gets the cells of src that were removed instead of the ones that remain. Like
+     * {@link #dilate(long[], long[], int, int, long, boolean, long[], boolean, int, int)}, this only writes the columns
+     * from startX (inclusive) to endX (exclusive).
+     */
+    static void erode(final long[] src, final long[] dest, final int width, final int ySections,
+                      final long yEndMask, final boolean eightWay, final boolean surface,
+                      final int startX, final int endX)
+    {
+        final int last = ySections - 1, limit = width * ySections, end = endX * ySections;
+        for (int i = startX * ySections; i < end; ) {
+            for (int a = 0; a < ySections; a++, i++) {
+                long n = 0L;
+                if(i >= ySections && i + ySections < limit) {
+                    n = erodeColumn(src, i, a, last);
+                    if(eightWay)
+                        n &= erodeColumn(src, i - ySections, a, last) & erodeColumn(src, i + ySections, a, last);
+                    else
+                        n &= src[i - ySections] & src[i + ySections];
+                }
+                dest[i] = surface ? src[i] & ~n : n;
+            }
+            dest[i - 1] &= yEndMask;
+        }
+    }
+
     /**
      * Takes the "on" cells in this GreasedRegion and expands them by one cell in the 4 orthogonal directions, making
      * each "on" cell take up a plus-shaped area that may overlap with other "on" cells (which is just a normal "on"
@@ -2683,39 +2853,11 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion expand()
     {
+        tallied = false;
         if(width < 2 || ySections == 0)
             return this;
-
-        final long[] next = new long[width * ySections];
-        System.arraycopy(data, 0, next, 0, width * ySections);
-        for (int a = 0; a < ySections; a++) {
-            next[a] |= (data[a] << 1) | (data[a] >>> 1) | data[a+ySections];
-            next[(width-1)*ySections+a] |= (data[(width-1)*ySections+a] << 1) | (data[(width-1)*ySections+a] >>> 1) | data[(width-2) *ySections+a];
-
-            for (int i = ySections+a; i < (width - 1) * ySections; i+= ySections) {
-                next[i] |= (data[i] << 1) | (data[i] >>> 1) | data[i - ySections] | data[i + ySections];
-            }
-
-            if(a > 0) {
-                for (int i = ySections+a; i < (width-1) * ySections; i+= ySections) {
-                    next[i] |= (data[i - 1] & 0x8000000000000000L) >>> 63;
-                }
-            }
-
-            if(a < ySections - 1) {
-                for (int i = ySections+a; i < (width-1) * ySections; i+= ySections) {
-                    next[i] |= (data[i + 1] & 1L) << 63;
-                }
-            }
-        }
-
-        if(ySections > 0 && yEndMask != -1) {
-            for (int a = ySections - 1; a < next.length; a += ySections) {
-                next[a] &= yEndMask;
-            }
-        }
-        data = next;
-        return this;
+        dilate(data, spare(), width, ySections, yEndMask, false, null, false, 0, width);
+        return swapSpare();
     }
     /**
      * Takes the "on" cells in this GreasedRegion and expands them by amount cells in the 4 orthogonal directions,
@@ -2774,15 +2916,17 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * <br>
      * This method is very efficient due to how the class is implemented, and the various spatial increase/decrease
      * methods (including {@link #expand()}, {@link #retract()}, {@link #fringe()}, and {@link #surface()}) all perform
-     * very well by operating in bulk on up to 64 cells at a time. The surface and fringe methods do allocate one
-     * temporary GreasedRegion to store the original before modification, but the others generally don't.
+     * very well by operating in bulk on up to 64 cells at a time. None of these allocate once the spare arrays
+     * kept by this GreasedRegion exist, including surface and fringe with an amount, which hold the original there.
      * @return this for chaining
      */
     public GreasedRegion fringe()
     {
-        GreasedRegion cpy = new GreasedRegion(this);
-        expand();
-        return andNot(cpy);
+        tallied = false;
+        if(width < 2 || ySections == 0)
+            return empty();
+        dilate(data, spare(), width, ySections, yEndMask, false, null, true, 0, width);
+        return swapSpare();
     }
     /**
      * Takes the "on" cells in this GreasedRegion and expands them by amount cells in the 4 orthogonal directions
@@ -2793,16 +2937,23 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * <br>
      * This method is very efficient due to how the class is implemented, and the various spatial increase/decrease
      * methods (including {@link #expand()}, {@link #retract()}, {@link #fringe()}, and {@link #surface()}) all perform
-     * very well by operating in bulk on up to 64 cells at a time. The surface and fringe methods do allocate one
-     * temporary GreasedRegion to store the original before modification, but the others generally don't.
+     * very well by operating in bulk on up to 64 cells at a time. None of these allocate once the spare arrays
+     * kept by this GreasedRegion exist, including surface and fringe with an amount, which hold the original there.
      * @return this for chaining
      */
 
     public GreasedRegion fringe(int amount)
     {
-        GreasedRegion cpy = new GreasedRegion(this);
+        tallied = false;
+        if(amount == 1)
+            return fringe();
+        final long[] original = held();
+        System.arraycopy(data, 0, original, 0, width * ySections);
         expand(amount);
-        return andNot(cpy);
+        for (int i = 0; i < width * ySections; i++) {
+            data[i] &= ~original[i];
+        }
+        return this;
     }
 
     /**
@@ -2854,51 +3005,11 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion retract()
     {
+        tallied = false;
         if(width <= 2 || ySections <= 0)
             return this;
-
-        final long[] next = new long[width * ySections];
-        System.arraycopy(data, ySections, next, ySections, (width - 2) * ySections);
-        for (int a = 0; a < ySections; a++) {
-            if(a > 0 && a < ySections - 1) {
-                for (int i = ySections+a; i < (width - 1) * ySections; i+= ySections) {
-                    next[i] &= ((data[i] << 1) | ((data[i - 1] & 0x8000000000000000L) >>> 63))
-                            & ((data[i] >>> 1) | ((data[i + 1] & 1L) << 63))
-                            & data[i - ySections]
-                            & data[i + ySections];
-                }
-            }
-            else if(a > 0) {
-                for (int i = ySections+a; i < (width - 1) * ySections; i+= ySections) {
-                    next[i] &= ((data[i] << 1) | ((data[i - 1] & 0x8000000000000000L) >>> 63))
-                            & (data[i] >>> 1)
-                            & data[i - ySections]
-                            & data[i + ySections];
-                }
-            }
-            else if(a < ySections - 1) {
-                for (int i = ySections+a; i < (width - 1) * ySections; i+= ySections) {
-                    next[i] &= (data[i] << 1)
-                            & ((data[i] >>> 1) | ((data[i + 1] & 1L) << 63))
-                            & data[i - ySections]
-                            & data[i + ySections];
-                }
-            }
-            else // only the case when ySections == 1
-            {
-                for (int i = ySections+a; i < (width - 1) * ySections; i+= ySections) {
-                    next[i] &= (data[i] << 1) & (data[i] >>> 1) & data[i - ySections] & data[i + ySections];
-                }
-            }
-        }
-
-        if(yEndMask != -1) {
-            for (int a = ySections - 1; a < next.length; a += ySections) {
-                next[a] &= yEndMask;
-            }
-        }
-        data = next;
-        return this;
+        erode(data, spare(), width, ySections, yEndMask, false, false, 0, width);
+        return swapSpare();
     }
 
     /**
@@ -2942,13 +3053,24 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
 
     public GreasedRegion surface()
     {
-        GreasedRegion cpy = new GreasedRegion(this).retract();
-        return xor(cpy);
+        tallied = false;
+        if(width <= 2 || ySections <= 0)
+            return empty();
+        erode(data, spare(), width, ySections, yEndMask, false, true, 0, width);
+        return swapSpare();
     }
     public GreasedRegion surface(int amount)
     {
-        GreasedRegion cpy = new GreasedRegion(this).retract(amount);
-        return xor(cpy);
+        tallied = false;
+        if(amount == 1)
+            return surface();
+        final long[] original = held();
+        System.arraycopy(data, 0, original, 0, width * ySections);
+        retract(amount);
+        for (int i = 0; i < width * ySections; i++) {
+            data[i] ^= original[i];
+        }
+        return this;
     }
 
     public GreasedRegion[] surfaceSeries(int amount)
@@ -2980,47 +3102,11 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
     }
     public GreasedRegion expand8way()
     {
+        tallied = false;
         if(width < 2 || ySections <= 0)
             return this;
-
-        final long[] next = new long[width * ySections];
-        System.arraycopy(data, 0, next, 0, width * ySections);
-        for (int a = 0; a < ySections; a++) {
-            next[a] |= (data[a] << 1) | (data[a] >>> 1)
-                    | data[a+ySections] | (data[a+ySections] << 1) | (data[a+ySections] >>> 1);
-            next[(width-1)*ySections+a] |= (data[(width-1)*ySections+a] << 1) | (data[(width-1)*ySections+a] >>> 1)
-                    | data[(width-2) *ySections+a] | (data[(width-2)*ySections+a] << 1) | (data[(width-2)*ySections+a] >>> 1);
-
-            for (int i = ySections+a; i < (width - 1) * ySections; i+= ySections) {
-                next[i] |= (data[i] << 1) | (data[i] >>> 1)
-                        | data[i - ySections] | (data[i - ySections] << 1) | (data[i - ySections] >>> 1)
-                        | data[i + ySections] | (data[i + ySections] << 1) | (data[i + ySections] >>> 1);
-            }
-
-            if(a > 0) {
-                for (int i = ySections+a; i < (width-1) * ySections; i+= ySections) {
-                    next[i] |= ((data[i - 1] & 0x8000000000000000L) >>> 63) |
-                            ((data[i - ySections - 1] & 0x8000000000000000L) >>> 63) |
-                            ((data[i + ySections - 1] & 0x8000000000000000L) >>> 63);
-                }
-            }
-
-            if(a < ySections - 1) {
-                for (int i = ySections+a; i < (width-1) * ySections; i+= ySections) {
-                    next[i] |= ((data[i + 1] & 1L) << 63) |
-                            ((data[i - ySections + 1] & 1L) << 63) |
-                            ((data[i + ySections+ 1] & 1L) << 63);
-                }
-            }
-        }
-
-        if(ySections > 0 && yEndMask != -1) {
-            for (int a = ySections - 1; a < next.length; a += ySections) {
-                next[a] &= yEndMask;
-            }
-        }
-        data = next;
-        return this;
+        dilate(data, spare(), width, ySections, yEndMask, true, null, false, 0, width);
+        return swapSpare();
     }
 
     @Override
@@ -3054,15 +3140,24 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
 
     public GreasedRegion fringe8way()
     {
-        GreasedRegion cpy = new GreasedRegion(this);
-        expand8way();
-        return andNot(cpy);
+        tallied = false;
+        if(width < 2 || ySections <= 0)
+            return empty();
+        dilate(data, spare(), width, ySections, yEndMask, true, null, true, 0, width);
+        return swapSpare();
     }
     public GreasedRegion fringe8way(int amount)
     {
-        GreasedRegion cpy = new GreasedRegion(this);
+        tallied = false;
+        if(amount == 1)
+            return fringe8way();
+        final long[] original = held();
+        System.arraycopy(data, 0, original, 0, width * ySections);
         expand8way(amount);
-        return andNot(cpy);
+        for (int i = 0; i < width * ySections; i++) {
+            data[i] &= ~original[i];
+        }
+        return this;
     }
 
     public GreasedRegion[] fringeSeries8way(int amount)
@@ -3092,70 +3187,11 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
 
     public GreasedRegion retract8way()
     {
+        tallied = false;
         if(width <= 2 || ySections <= 0)
             return this;
-
-        final long[] next = new long[width * ySections];
-        System.arraycopy(data, ySections, next, ySections, (width - 2) * ySections);
-        for (int a = 0; a < ySections; a++) {
-            if(a > 0 && a < ySections - 1) {
-                for (int i = ySections+a; i < (width - 1) * ySections; i+= ySections) {
-                    next[i] &= ((data[i] << 1) | ((data[i - 1] & 0x8000000000000000L) >>> 63))
-                            & ((data[i] >>> 1) | ((data[i + 1] & 1L) << 63))
-                            & data[i - ySections]
-                            & data[i + ySections]
-                            & ((data[i - ySections] << 1) | ((data[i - 1 - ySections] & 0x8000000000000000L) >>> 63))
-                            & ((data[i + ySections] << 1) | ((data[i - 1 + ySections] & 0x8000000000000000L) >>> 63))
-                            & ((data[i - ySections] >>> 1) | ((data[i + 1 - ySections] & 1L) << 63))
-                            & ((data[i + ySections] >>> 1) | ((data[i + 1 + ySections] & 1L) << 63));
-                }
-            }
-            else if(a > 0) {
-                for (int i = ySections+a; i < (width - 1) * ySections; i+= ySections) {
-                    next[i] &= ((data[i] << 1) | ((data[i - 1] & 0x8000000000000000L) >>> 63))
-                            & (data[i] >>> 1)
-                            & data[i - ySections]
-                            & data[i + ySections]
-                            & ((data[i - ySections] << 1) | ((data[i - 1 - ySections] & 0x8000000000000000L) >>> 63))
-                            & ((data[i + ySections] << 1) | ((data[i - 1 + ySections] & 0x8000000000000000L) >>> 63))
-                            & (data[i - ySections] >>> 1)
-                            & (data[i + ySections] >>> 1);
-                }
-            }
-            else if(a < ySections - 1) {
-                for (int i = ySections+a; i < (width - 1) * ySections; i+= ySections) {
-                    next[i] &= (data[i] << 1)
-                            & ((data[i] >>> 1) | ((data[i + 1] & 1L) << 63))
-                            & data[i - ySections]
-                            & data[i + ySections]
-                            & (data[i - ySections] << 1)
-                            & (data[i + ySections] << 1)
-                            & ((data[i - ySections] >>> 1) | ((data[i + 1 - ySections] & 1L) << 63))
-                            & ((data[i + ySections] >>> 1) | ((data[i + 1 + ySections] & 1L) << 63));
-                }
-            }
-            else // only the case when ySections == 1
-            {
-                for (int i = ySections+a; i < (width - 1) * ySections; i+= ySections) {
-                    next[i] &= (data[i] << 1)
-                            & (data[i] >>> 1)
-                            & data[i - ySections]
-                            & data[i + ySections]
-                            & (data[i - ySections] << 1)
-                            & (data[i + ySections] << 1)
-                            & (data[i - ySections] >>> 1)
-                            & (data[i + ySections] >>> 1);
-                }
-            }
-        }
-
-        if(yEndMask != -1) {
-            for (int a = ySections - 1; a < next.length; a += ySections) {
-                next[a] &= yEndMask;
-            }
-        }
-        data = next;
-        return this;
+        erode(data, spare(), width, ySections, yEndMask, true, false, 0, width);
+        return swapSpare();
     }
 
     public GreasedRegion retract8way(int amount)
@@ -3189,14 +3225,25 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
 
     public GreasedRegion surface8way()
     {
-        GreasedRegion cpy = new GreasedRegion(this).retract8way();
-        return xor(cpy);
+        tallied = false;
+        if(width <= 2 || ySections <= 0)
+            return empty();
+        erode(data, spare(), width, ySections, yEndMask, true, true, 0, width);
+        return swapSpare();
     }
 
     public GreasedRegion surface8way(int amount)
     {
-        GreasedRegion cpy = new GreasedRegion(this).retract8way(amount);
-        return xor(cpy);
+        tallied = false;
+        if(amount == 1)
+            return surface8way();
+        final long[] original = held();
+        System.arraycopy(data, 0, original, 0, width * ySections);
+        retract8way(amount);
+        for (int i = 0; i < width * ySections; i++) {
+            data[i] ^= original[i];
+        }
+        return this;
     }
 
     public GreasedRegion[] surfaceSeries8way(int amount)
@@ -3227,6 +3274,18 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
     }
     public GreasedRegion flood(GreasedRegion bounds)
     {
+        tallied = false;
+        if(width < 2 || ySections <= 0 || bounds == null || bounds.width < 2 || bounds.ySections <= 0)
+            return this;
+        if(bounds.width != width || bounds.height != height)
+            return floodResized(bounds);
+        dilate(data, spare(), width, ySections, yEndMask, false, bounds.data, false, 0, width);
+        return swapSpare();
+    }
+
+    private GreasedRegion floodResized(GreasedRegion bounds)
+    {
+        tallied = false;
         if(width < 2 || ySections <= 0 || bounds == null || bounds.width < 2 || bounds.ySections <= 0)
             return this;
 
@@ -3333,6 +3392,18 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
 
     public GreasedRegion flood8way(GreasedRegion bounds)
     {
+        tallied = false;
+        if(width < 2 || ySections <= 0 || bounds == null || bounds.width < 2 || bounds.ySections <= 0)
+            return this;
+        if(bounds.width != width || bounds.height != height)
+            return flood8wayResized(bounds);
+        dilate(data, spare(), width, ySections, yEndMask, true, bounds.data, false, 0, width);
+        return swapSpare();
+    }
+
+    private GreasedRegion flood8wayResized(GreasedRegion bounds)
+    {
+        tallied = false;
         if(width < 2 || ySections <= 0 || bounds == null || bounds.width < 2 || bounds.ySections <= 0)
             return this;
 
@@ -3460,6 +3531,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
 
     public GreasedRegion removeCorners()
     {
+        tallied = false;
         if(width <= 2 || ySections <= 0)
             return this;
 
@@ -3613,6 +3685,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion neighborUp()
     {
+        tallied = false;
         if(width < 2 || ySections <= 0)
             return this;
         for (int a = ySections - 1; a >= 0; a--) {
@@ -3639,6 +3712,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion neighborDown()
     {
+        tallied = false;
         if(width < 2 || ySections <= 0)
             return this;
         for (int a = 0; a < ySections; a++) {
@@ -3665,6 +3739,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion neighborLeft()
     {
+        tallied = false;
         if(width < 2 || ySections <= 0)
             return this;
         for (int a = 0; a < ySections; a++) {
@@ -3684,6 +3759,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion neighborRight()
     {
+        tallied = false;
         if(width < 2 || ySections <= 0)
             return this;
         for (int a = 0; a < ySections; a++) {
@@ -3704,6 +3780,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion neighborUpLeft()
     {
+        tallied = false;
         if(width < 2 || ySections <= 0)
             return this;
         for (int a = ySections - 1; a >= 0; a--) {
@@ -3732,6 +3809,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion neighborUpRight()
     {
+        tallied = false;
         if(width < 2 || ySections <= 0)
             return this;
         for (int a = ySections - 1; a >= 0; a--) {
@@ -3760,6 +3838,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion neighborDownLeft()
     {
+        tallied = false;
         if(width < 2 || ySections <= 0)
             return this;
         for (int a = 0; a < ySections; a++) {
@@ -3788,6 +3867,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      */
     public GreasedRegion neighborDownRight()
     {
+        tallied = false;
         if(width < 2 || ySections <= 0)
             return this;
         for (int a = 0; a < ySections; a++) {
@@ -4180,6 +4260,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion mixedRandomRegion(double fraction, int limit) {
+        tallied = false;
         int ct = 0, idx, run = 0;
         for (int i = 0; i < width * ySections; i++) {
             ct += Long.bitCount(data[i]);
@@ -4351,6 +4432,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion quasiRandomRegion(double fraction, int limit) {
+        tallied = false;
         int ct = 0, idx, run = 0;
         for (int i = 0; i < width * ySections; i++) {
             ct += Long.bitCount(data[i]);
@@ -4435,6 +4517,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining
      */
     public GreasedRegion randomScatter(RNG rng, int minimumDistance, int limit) {
+        tallied = false;
         int ic = 0;
         for (; ic < width * ySections; ic++) {
             if(Long.bitCount(data[ic]) > 0)
@@ -4590,6 +4673,87 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
         return points;
     }
 
+    /**
+     * Receives the x and y of each "on" cell from {@link #visit(CellVisitor)}, without any Coord being looked up.
+     */
+    public interface CellVisitor {
+        void visit(int x, int y);
+    }
+
+    /**
+     * Receives one int per "on" cell from {@link #visitEncoded(IntVisitor)} or {@link #visitTight(IntVisitor)}.
+     */
+    public interface IntVisitor {
+        void visit(int cell);
+    }
+
+    /**
+     * Calls visitor with the x and y of every "on" cell, in the same order as {@link #asCoords()}, without allocating.
+     * The visitor must not change this GreasedRegion.
+     * @param visitor a CellVisitor that will receive each "on" cell
+     * @return this for chaining
+     */
+    public GreasedRegion visit(final CellVisitor visitor)
+    {
+        long t;
+        for (int x = 0, i = 0; x < width; x++) {
+            for (int s = 0; s < ySections; s++, i++) {
+                for (t = data[i]; t != 0; t &= t - 1) {
+                    visitor.visit(x, s << 6 | Long.numberOfTrailingZeros(t));
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Calls visitor with every "on" cell encoded as by {@link Coord#pureEncode(int, int)}, in the same order as
+     * {@link #asEncoded()}, without allocating. The visitor must not change this GreasedRegion.
+     * @param visitor an IntVisitor that will receive each "on" cell, encoded
+     * @return this for chaining
+     */
+    public GreasedRegion visitEncoded(final IntVisitor visitor)
+    {
+        long t;
+        for (int x = 0, i = 0; x < width; x++) {
+            for (int s = 0; s < ySections; s++, i++) {
+                for (t = data[i]; t != 0; t &= t - 1) {
+                    visitor.visit(Coord.pureEncode(x, s << 6 | Long.numberOfTrailingZeros(t)));
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Calls visitor with every "on" cell encoded as {@code y * width + x}, in the same order as
+     * {@link #asTightEncoded()}, without allocating. The visitor must not change this GreasedRegion.
+     * @param visitor an IntVisitor that will receive each "on" cell, tightly encoded
+     * @return this for chaining
+     */
+    public GreasedRegion visitTight(final IntVisitor visitor)
+    {
+        long t;
+        for (int x = 0, i = 0; x < width; x++) {
+            for (int s = 0; s < ySections; s++, i++) {
+                for (t = data[i]; t != 0; t &= t - 1) {
+                    visitor.visit((s << 6 | Long.numberOfTrailingZeros(t)) * width + x);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Gets a new Cursor that steps through the "on" cells of this GreasedRegion in the same order as
+     * {@link #asCoords()}. A Cursor can be {@link Cursor#reset() reset} and used again, so only this call allocates.
+     * @return a new Cursor positioned before the first "on" cell
+     */
+    public Cursor cursor()
+    {
+        return new Cursor();
+    }
+
     /**
      * @return All cells in this zone.
      */
@@ -4627,144 +4791,126 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
         return Coord.get(-1, -1);
     }
 
-    public Coord nth(final int index)
+    /**
+     * Builds the rank index used by {@link #nth(int)}, {@link #atFraction(double)}, {@link #singleRandom(RNG)}, and
+     * their tight variants, which lets them find a cell with a binary search instead of counting through all of
+     * {@link #data}. Those methods call this on their own when the index is missing or out of date, so you only need to
+     * call it yourself after changing data directly (and {@link #tallied} is also there for that case). The index is
+     * reused until a method changes this GreasedRegion, so repeated random picks from an unchanging region are cheap.
+     * @return the number of "on" cells, the same as {@link #size()}
+     */
+    public int tally()
     {
-        int ct = 0, tmp;
-        int[] counts = new int[width * ySections];
-        for (int i = 0; i < width * ySections; i++) {
-            tmp = Long.bitCount(data[i]);
-            counts[i] = tmp == 0 ? -1 : (ct += tmp);
-        }
-        if(index >= ct)
-            return Coord.get(-1, -1);
-        long t, w;
-        for (int s = 0; s < ySections; s++) {
-            for (int x = 0; x < width; x++) {
-                if ((ct = counts[x * ySections + s]) > index) {
-                    t = data[x * ySections + s];
-                    w = Long.lowestOneBit(t);
-                    for (--ct; w != 0; ct--) {
-                        if (ct == index)
-                            return Coord.get(x, (s << 6) | Long.numberOfTrailingZeros(w));
-                        t ^= w;
-                        w = Long.lowestOneBit(t);
-                    }
-                }
-            }
+        final int len = width * ySections;
+        if(counts == null || counts.length != len + 1)
+            counts = new int[len + 1];
+        int c = 0;
+        for (int i = 0; i < len; i++) {
+            counts[i] = c;
+            c += Long.bitCount(data[i]);
         }
-        return Coord.get(-1, -1);
+        counts[len] = c;
+        tallied = true;
+        return c;
     }
 
-    public Coord atFraction(final double fraction)
+    /**
+     * Gets the rank index, building it first with {@link #tally()} if it is missing or out of date.
+     */
+    private int[] ranks()
     {
-        int ct = 0, tmp;
-        int[] counts = new int[width * ySections];
-        for (int i = 0; i < width * ySections; i++) {
-            tmp = Long.bitCount(data[i]);
-            counts[i] = tmp == 0 ? -1 : (ct += tmp);
+        if(!tallied || counts == null || counts.length != width * ySections + 1)
+            tally();
+        return counts;
+    }
+
+    /**
+     * Finds the "on" cell with the given index, counting in the same order as {@link #iterator()}, using the rank
+     * index. Like iterator(), this goes through the longs in data in order, but goes from the highest "on" bit in each
+     * long to the lowest, which is the reverse of {@link #asCoords()} within each long.
+     * @param index the index of the "on" cell to find
+     * @return the position of that cell in data, times 64, plus its bit; -1 if index is out of range
+     */
+    private int locate(final int index)
+    {
+        final int len = width * ySections;
+        final int[] counts = ranks();
+        if(index < 0 || index >= counts[len])
+            return -1;
+        int lo = 0, hi = len - 1, mid;
+        while (lo < hi) {
+            mid = lo + hi + 1 >>> 1;
+            if(counts[mid] <= index)
+                lo = mid;
+            else
+                hi = mid - 1;
         }
-        tmp = Math.abs((int)(fraction * ct) % ct);
-        long t, w;
-        for (int s = 0; s < ySections; s++) {
-            for (int x = 0; x < width; x++) {
-                if ((ct = counts[x * ySections + s]) > tmp) {
-                    t = data[x * ySections + s];
-                    w = Long.lowestOneBit(t);
-                    for (--ct; w != 0; ct--) {
-                        if (ct == tmp)
-                            return Coord.get(x, (s << 6) | Long.numberOfTrailingZeros(w));
-                        t ^= w;
-                        w = Long.lowestOneBit(t);
-                    }
-                }
-            }
+        long t = data[lo];
+        for (int r = counts[lo + 1] - 1 - index; r > 0; r--) {
+            t &= t - 1;
         }
-        return Coord.get(-1, -1);
+        return lo << 6 | Long.numberOfTrailingZeros(t);
+    }
+
+    private Coord located(final int position)
+    {
+        if(position < 0)
+            return Coord.get(-1, -1);
+        final int i = position >>> 6, x = i / ySections;
+        return Coord.get(x, (i - x * ySections) << 6 | (position & 63));
+    }
+
+    private int locatedTight(final int position)
+    {
+        if(position < 0)
+            return -1;
+        final int i = position >>> 6, x = i / ySections;
+        return ((i - x * ySections) << 6 | (position & 63)) * width + x;
+    }
+
+    /**
+     * Gets the "on" cell with the given index, counting in the same order as {@link #iterator()}. The first call after
+     * this GreasedRegion changes builds a rank index (see {@link #tally()}); later calls take time proportional to the
+     * log of the data size.
+     * @param index the index of the "on" cell to get, from 0 inclusive to {@link #size()} exclusive
+     * @return the Coord at that index, or (-1,-1) if index is out of range
+     */
+    public Coord nth(final int index)
+    {
+        return located(locate(index));
+    }
+
+    public Coord atFraction(final double fraction)
+    {
+        final int ct = ranks()[width * ySections];
+        if(ct <= 0) return Coord.get(-1, -1);
+        return located(locate(Math.abs((int)(fraction * ct) % ct)));
     }
 
     public int atFractionTight(final double fraction)
     {
-        int ct = 0, tmp;
-        int[] counts = new int[width * ySections];
-        for (int i = 0; i < width * ySections; i++) {
-            tmp = Long.bitCount(data[i]);
-            counts[i] = tmp == 0 ? -1 : (ct += tmp);
-        }
+        final int ct = ranks()[width * ySections];
         if(ct <= 0) return -1;
-        tmp = Math.abs((int)(fraction * ct) % ct);
-        long t, w;
-
-        for (int x = 0; x < width; x++) {
-            for (int s = 0; s < ySections; s++) {
-                if ((ct = counts[x * ySections + s]) > tmp) {
-                    t = data[x * ySections + s];
-                    w = Long.lowestOneBit(t);
-                    for (--ct; w != 0; ct--) {
-                        if (ct == tmp)
-                            return ((s << 6) | Long.numberOfTrailingZeros(w)) * width + x;
-                        t ^= w;
-                        w = Long.lowestOneBit(t);
-                    }
-                }
-            }
-        }
-        return -1;
+        return locatedTight(locate(Math.abs((int)(fraction * ct) % ct)));
     }
 
+    /**
+     * Gets a random "on" cell from this GreasedRegion, using one call to rng.nextInt(). Like {@link #nth(int)}, this
+     * uses a rank index that is only rebuilt when this GreasedRegion changes, so picking many random cells from the
+     * same region only scans it once.
+     * @param rng the RNG to get randomness from
+     * @return a random "on" cell, or (-1,-1) if this is empty
+     */
     public Coord singleRandom(RNG rng)
     {
-        int ct = 0, tmp;
-        int[] counts = new int[width * ySections];
-        for (int i = 0; i < width * ySections; i++) {
-            tmp = Long.bitCount(data[i]);
-            counts[i] = tmp == 0 ? -1 : (ct += tmp);
-        }
-        tmp = rng.nextInt(ct);
-        long t, w;
-        for (int s = 0; s < ySections; s++) {
-            for (int x = 0; x < width; x++) {
-                if ((ct = counts[x * ySections + s]) > tmp) {
-                    t = data[x * ySections + s];
-                    w = Long.lowestOneBit(t);
-                    for (--ct; w != 0; ct--) {
-                        if (ct == tmp)
-                            return Coord.get(x, (s << 6) | Long.numberOfTrailingZeros(w));
-                        t ^= w;
-                        w = Long.lowestOneBit(t);
-                    }
-                }
-            }
-        }
-
-        return Coord.get(-1, -1);
+        final int ct = ranks()[width * ySections];
+        return located(locate(rng.nextInt(ct)));
     }
 
     public int singleRandomTight(RNG rng)
     {
-        int ct = 0, tmp;
-        int[] counts = new int[width * ySections];
-        for (int i = 0; i < width * ySections; i++) {
-            tmp = Long.bitCount(data[i]);
-            counts[i] = tmp == 0 ? -1 : (ct += tmp);
-        }
-        tmp = rng.nextInt(ct);
-        long t, w;
-        for (int s = 0; s < ySections; s++) {
-            for (int x = 0; x < width; x++) {
-                if ((ct = counts[x * ySections + s]) > tmp) {
-                    t = data[x * ySections + s];
-                    w = Long.lowestOneBit(t);
-                    for (--ct; w != 0; ct--) {
-                        if (ct == tmp)
-                            return ((s << 6) | Long.numberOfTrailingZeros(w)) * width + x;
-                        t ^= w;
-                        w = Long.lowestOneBit(t);
-                    }
-                }
-            }
-        }
-
-        return -1;
+        final int ct = ranks()[width * ySections];
+        return locatedTight(locate(rng.nextInt(ct)));
     }
 
     /**
@@ -5034,6 +5180,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
 
     public GreasedRegion randomRegion(RNG rng, int size)
     {
+        tallied = false;
         int ct = 0, idx = 0, run = 0;
         for (int i = 0; i < width * ySections; i++) {
             ct += Long.bitCount(data[i]);
@@ -5493,6 +5640,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
     @Override
     public void clear()
     {
+        tallied = false;
         Arrays.fill(data, 0L);
     }
 
@@ -5564,6 +5712,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return a randomly modified change to this GreasedRegion
      */
     public GreasedRegion deteriorate(RNG rng, int preservation) {
+        tallied = false;
         if(rng == null || width <= 2 || ySections <= 0 || preservation <= 0)
             return this;
         long mash;
@@ -5589,6 +5738,7 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return a randomly modified change to this GreasedRegion
      */
     public GreasedRegion deteriorate(final RNG rng, final double preservation) {
+        tallied = false;
         if(rng == null || width <= 2 || ySections <= 0 || preservation >= 1)
             return this;
         if(preservation <= 0)
@@ -5607,27 +5757,94 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
      * @return this for chaining, modified
      */
     public GreasedRegion flip(int x, int y) {
+        tallied = false;
         if(x >= 0 && y >= 0 && x < width && y < height && ySections > 0)
             data[x * ySections + (y >> 6)] ^= (1L << (y & 63));
         return this;
 
     }
 
+    /**
+     * Steps through the "on" cells of a GreasedRegion without allocating, exposing the current cell as the ints
+     * {@link #x} and {@link #y}. Call {@link #next()} until it returns false; the GreasedRegion must not change while a
+     * Cursor is in use, unless the Cursor is reset afterwards.
+     * <pre>
+     * GreasedRegion.Cursor c = region.cursor();
+     * while (c.next()) {
+     *     doSomething(c.x, c.y);
+     * }
+     * </pre>
+     */
+    public class Cursor
+    {
+        /**
+         * The position of the current "on" cell; both are -1 before the first call to {@link #next()} and after the
+         * last cell.
+         */
+        public int x = -1, y = -1;
+        private int i = -1, s, cx;
+        private long t;
+
+        /**
+         * Moves to the next "on" cell, if there is one.
+         * @return true if {@link #x} and {@link #y} now hold an "on" cell, or false if there are no more
+         */
+        public boolean next()
+        {
+            while (t == 0) {
+                if(++i >= width * ySections) {
+                    i = width * ySections;
+                    x = y = -1;
+                    return false;
+                }
+                t = data[i];
+                cx = i / ySections;
+                s = i - cx * ySections;
+            }
+            x = cx;
+            y = s << 6 | Long.numberOfTrailingZeros(t);
+            t &= t - 1;
+            return true;
+        }
+
+        /**
+         * @return the current cell encoded as by {@link Coord#pureEncode(int, int)}
+         */
+        public int encoded()
+        {
+            return Coord.pureEncode(x, y);
+        }
+
+        /**
+         * @return the current cell encoded as {@code y * width + x}
+         */
+        public int tight()
+        {
+            return y * width + x;
+        }
+
+        /**
+         * Moves this Cursor back to before the first "on" cell, so it can be used again.
+         * @return this for chaining
+         */
+        public Cursor reset()
+        {
+            i = -1;
+            t = 0L;
+            x = y = -1;
+            return this;
+        }
+    }
+
     public class GRIterator implements Iterator<Coord>
     {
         public int index = 0;
-        private int[] counts;
-        private int limit;
-        private long t, w;
+        private final int limit;
+        private int i = -1;
+        private long t;
         public GRIterator()
         {
-            limit = 0;
-            counts = new int[width * ySections];
-            int tmp;
-            for (int i = 0; i < width * ySections; i++) {
-                tmp = Long.bitCount(data[i]);
-                counts[i] = tmp == 0 ? -1 : (limit += tmp);
-            }
+            limit = size();
         }
         @Override
         public boolean hasNext() {
@@ -5636,42 +5853,17 @@ public class GreasedRegion extends Zone.Skeleton implements Collection<Coord>, S
 
         @Override
         public Coord next() {
-            int ct;
             if(index >= limit)
                 return null;
-            for (int s = 0; s < ySections; s++) {
-                for (int x = 0; x < width; x++) {
-                    if ((ct = counts[x * ySections + s]) > index) {
-                        t = data[x * ySections + s];
-                        w = Long.lowestOneBit(t);
-                        for (--ct; w != 0; ct--) {
-                            if (ct == index)
-                            {
-                                if(index++ < limit)
-                                    return Coord.get(x, (s << 6) | Long.numberOfTrailingZeros(w));
-                                else
-                                    return null;
-                            }
-                            t ^= w;
-                            w = Long.lowestOneBit(t);
-                        }
-                    }
-                }
-            }
-            return null;
-
-            /*
-            for (int x = 0; x < width; x++) {
-                for (int s = 0; s < ySections; s++) {
-                    if ((w = Long.lowestOneBit(data[x * ySections + s])) != 0 && i++ >= index) {
-                        if(index++ < limit)
-                            return Coord.get(x, (s << 6) | Long.numberOfTrailingZeros(w));
-                        else
-                            return null;
-                    }
-                }
-            }
-            */
+            while (t == 0) {
+                if(++i >= width * ySections)
+                    return null;
+                t = data[i];
+            }
+            final int x = i / ySections, b = 63 - Long.numberOfLeadingZeros(t);
+            t ^= 1L << b;
+            index++;
+            return Coord.get(x, (i - x * ySections) << 6 | b);
         }
 
         @Override
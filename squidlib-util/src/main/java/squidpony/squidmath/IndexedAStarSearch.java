@@ -0,0 +1,306 @@
+package squidpony.squidmath;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Performs A* search using an indexed binary heap over encoded cells, and allocates nothing per query.
+ * <br>
+ * This is meant as a faster replacement for {@link AStarSearch}, and it accepts the same kind of map and the same
+ * {@link AStarSearch.SearchType} values, producing paths of the same cost: negative values in the map are impassable,
+ * and entering a cell costs 1 plus the value in the map at that cell (so a map from
+ * {@link squidpony.squidgrid.mapping.DungeonUtility#generateAStarCostMap(char[][], java.util.Map, double)} with a
+ * default of 0 has all floors cost 1 to enter). Where AStarSearch scans every open cell to find the next one to
+ * expand, this keeps open cells in a binary heap keyed on their f value, with each cell's position in the heap stored
+ * so that a cheaper route to an open cell can be applied in place. Instead of clearing several width * height arrays
+ * before each query, every cell stores the number of the query that last visited it, so cells from older queries are
+ * simply treated as unvisited; the arrays are only cleared once every 4 billion or so queries. Paths are written into
+ * a buffer the caller provides, either an int array of encoded cells or a List of Coord, so no LinkedList is created.
+ * <br>
+ * Cells are encoded as {@code x + y * width}, the same way {@link squidpony.squidai.DijkstraMap#encode(int, int)}
+ * does. The map is copied when this is constructed, so if it changes afterwards, use
+ * {@link #changeCellWeight(int, int, double)} or {@link #refreshCosts(double[][])} to update this object.
+ * <br>
+ * Like AStarSearch, diagonal moves (for every SearchType but MANHATTAN) cost the same as orthogonal moves, and the
+ * EUCLIDEAN heuristic can overestimate with that cost model, so it may not always find the very shortest path. The
+ * CHEBYSHEV and MANHATTAN heuristics never overestimate, so paths found with them are always optimal.
+ * @see AStarSearch the older implementation this is meant to replace
+ * @see squidpony.squidai.DijkstraMap pathfinding to the nearest of multiple goals, and many other features
+ */
+public class IndexedAStarSearch implements Serializable {
+    private static final long serialVersionUID = 5081395641874320611L;
+
+    private static final int[] DX = {0, 0, -1, 1, -1, 1, -1, 1}, DY = {-1, 1, 0, 0, -1, -1, 1, 1};
+
+    protected final int width, height;
+    protected final AStarSearch.SearchType type;
+    protected final double[] costs;
+    protected final int dirCount;
+    /**
+     * The cheapest cost to enter any passable cell; the heuristic is multiplied by this so it stays as close to the
+     * real remaining cost as it can without ever overestimating it.
+     */
+    protected double cheapestStep = 1.0;
+
+    private transient int[] stamps, parents, heapIndices, heap, scratch;
+    private transient double[] gScores, fScores;
+    private transient int generation, heapSize, targetX, targetY;
+
+    /**
+     * Builds a pathing object to run searches on.
+     * <br>
+     * Values in the map are treated as positive values (and 0) being legal weights, with higher values being harder to
+     * pass through. Any negative value is treated as being an impassable space. The map is copied, so changes to it
+     * after this is constructed only take effect if you call {@link #refreshCosts(double[][])}.
+     * <br>
+     * If the type is Manhattan, only the cardinal directions will be used. All other search types will return results
+     * based on intercardinal and cardinal pathing.
+     * @param map the search map, as produced by DungeonUtility.generateAStarCostMap()
+     * @param type the manner of search; if null, this uses DIJKSTRA
+     */
+    public IndexedAStarSearch(double[][] map, AStarSearch.SearchType type) {
+        if (map == null)
+            throw new NullPointerException("map should not be null when building an IndexedAStarSearch");
+        width = map.length;
+        height = width == 0 ? 0 : map[0].length;
+        this.type = type == null ? AStarSearch.SearchType.DIJKSTRA : type;
+        dirCount = this.type == AStarSearch.SearchType.MANHATTAN ? 4 : 8;
+        costs = new double[width * height];
+        refreshCosts(map);
+    }
+
+    /**
+     * Copies all of the weights in map into this object, which must have the same width and height as the map this
+     * was constructed with.
+     * @param map the search map, with negative values for impassable cells
+     */
+    public void refreshCosts(double[][] map) {
+        double cheapest = Double.POSITIVE_INFINITY, c;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0, i = x; y < height; y++, i += width) {
+                costs[i] = c = map[x][y];
+                if (c >= 0 && c < cheapest)
+                    cheapest = c;
+            }
+        }
+        cheapestStep = (cheapest == Double.POSITIVE_INFINITY) ? 1.0 : cheapest + 1.0;
+    }
+
+    /**
+     * Changes the weight of one cell; negative weights are impassable.
+     * @param x the x coordinate of the cell to change
+     * @param y the y coordinate of the cell to change
+     * @param d the new weight for the cell
+     */
+    public void changeCellWeight(int x, int y, double d) {
+        costs[x + y * width] = d;
+        if (d >= 0 && d + 1.0 < cheapestStep)
+            cheapestStep = d + 1.0;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Finds an A* path to the target from the start, clearing buffer and then filling it with the cells of the path in
+     * order. The path does not include start, but does include target. If no path is possible, buffer will be empty
+     * and this returns false.
+     * @param start the start location
+     * @param target the target location
+     * @param buffer a List of Coord that will be cleared and then filled with the path; an ArrayList is a good choice
+     * @return true if a path was found, false otherwise
+     */
+    public boolean path(Coord start, Coord target, List<Coord> buffer) {
+        buffer.clear();
+        final int length = search(start.x, start.y, target.x, target.y);
+        if (length < 0)
+            return false;
+        for (int i = length - 1; i >= 0; i--) {
+            buffer.add(Coord.get(scratch[i] % width, scratch[i] / width));
+        }
+        return true;
+    }
+
+    /**
+     * Finds an A* path to the target from the start, writing the encoded cells of the path into buffer in order,
+     * starting at index 0. The path does not include start, but does include target. If buffer is too small for the
+     * whole path, only as many cells as fit are written, starting with the step closest to start, and the return value
+     * will be larger than buffer's length. Cells are encoded as {@code x + y * width}.
+     * @param startX the x coordinate of the start location
+     * @param startY the y coordinate of the start location
+     * @param targetX the x coordinate of the target location
+     * @param targetY the y coordinate of the target location
+     * @param buffer an int array that will receive encoded cells of the path
+     * @return the length of the path found, which may be greater than buffer's length, or -1 if there was no path
+     */
+    public int pathEncoded(int startX, int startY, int targetX, int targetY, int[] buffer) {
+        final int length = search(startX, startY, targetX, targetY);
+        for (int i = length - 1, j = 0; i >= 0 && j < buffer.length; i--, j++) {
+            buffer[j] = scratch[i];
+        }
+        return length;
+    }
+
+    /**
+     * Runs the search and stores the path in scratch, in reverse order (target first).
+     * @return the length of the path, or -1 if there is none
+     */
+    protected int search(final int startX, final int startY, final int targetX, final int targetY) {
+        if (startX < 0 || startX >= width || startY < 0 || startY >= height
+                || targetX < 0 || targetX >= width || targetY < 0 || targetY >= height)
+            return -1;
+        final int size = width * height;
+        if (stamps == null) {
+            stamps = new int[size];
+            parents = new int[size];
+            heapIndices = new int[size];
+            heap = new int[size];
+            scratch = new int[size];
+            gScores = new double[size];
+            fScores = new double[size];
+            generation = 0;
+        }
+        if (++generation == 0) {
+            // wrapped around after about 4 billion searches, so older stamps could look current
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+        final int gen = generation, start = startX + startY * width, target = targetX + targetY * width;
+        if (start == target)
+            return 0;
+        if (costs[target] < 0)
+            return -1;
+        this.targetX = targetX;
+        this.targetY = targetY;
+        final int[] stamps = this.stamps, parents = this.parents, heapIndices = this.heapIndices;
+        final double[] gScores = this.gScores, fScores = this.fScores, costs = this.costs;
+        heapSize = 0;
+        stamps[start] = gen;
+        gScores[start] = 0.0;
+        parents[start] = -1;
+        fScores[start] = h(startX, startY);
+        push(start);
+        int current, cx, cy, nx, ny, next;
+        double g;
+        while (heapSize > 0) {
+            current = pop();
+            if (current == target) {
+                int length = 0;
+                for (int p = target; p != start; p = parents[p]) {
+                    scratch[length++] = p;
+                }
+                return length;
+            }
+            cx = current % width;
+            cy = current / width;
+            for (int d = 0; d < dirCount; d++) {
+                nx = cx + DX[d];
+                ny = cy + DY[d];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                    continue;
+                next = nx + ny * width;
+                if (costs[next] < 0)
+                    continue;
+                g = gScores[current] + costs[next] + 1.0;
+                if (stamps[next] != gen) {
+                    stamps[next] = gen;
+                    gScores[next] = g;
+                    fScores[next] = g + h(nx, ny);
+                    parents[next] = current;
+                    push(next);
+                } else if (g < gScores[next] && heapIndices[next] >= 0) {
+                    fScores[next] -= gScores[next] - g;
+                    gScores[next] = g;
+                    parents[next] = current;
+                    siftUp(heapIndices[next]);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the heuristic distance from the given cell to the current target, using the current search type and
+     * scaled by the cheapest cost to enter a cell.
+     * @param x coordinate
+     * @param y coordinate
+     * @return distance
+     */
+    protected double h(int x, int y) {
+        final int xDist = Math.abs(x - targetX), yDist = Math.abs(y - targetY);
+        switch (type) {
+            case MANHATTAN:
+                return (xDist + yDist) * cheapestStep;
+            case CHEBYSHEV:
+                return Math.max(xDist, yDist) * cheapestStep;
+            case EUCLIDEAN:
+                return Math.sqrt(xDist * xDist + yDist * yDist) * cheapestStep;
+            case DIJKSTRA:
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Orders cells by f, breaking ties in favor of the cell that has come further (larger g), which tends to expand
+     * fewer cells when many routes are equally good.
+     */
+    private boolean before(final int a, final int b) {
+        return fScores[a] < fScores[b] || (fScores[a] == fScores[b] && gScores[a] > gScores[b]);
+    }
+
+    private void push(final int cell) {
+        heap[heapSize] = cell;
+        heapIndices[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        final int top = heap[0];
+        heapIndices[top] = -1;
+        if (--heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndices[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        final int cell = heap[i];
+        int parent;
+        while (i > 0) {
+            parent = (i - 1) >>> 1;
+            if (!before(cell, heap[parent]))
+                break;
+            heap[i] = heap[parent];
+            heapIndices[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = cell;
+        heapIndices[cell] = i;
+    }
+
+    private void siftDown(int i) {
+        final int cell = heap[i], half = heapSize >>> 1;
+        int child;
+        while (i < half) {
+            child = (i << 1) + 1;
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child]))
+                child++;
+            if (!before(heap[child], cell))
+                break;
+            heap[i] = heap[child];
+            heapIndices[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = cell;
+        heapIndices[cell] = i;
+    }
+}
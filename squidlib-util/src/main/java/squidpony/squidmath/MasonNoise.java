@@ -47,6 +47,8 @@
  */
 package squidpony.squidmath;
 
+import java.util.Arrays;
+
 /**
  * Noise functions that try to conceal undesirable patterns, in 2D, 3D, 4D, and 6D, using 32-bit int math wherever
  * possible and only yielding floats or doubles if requested. All functions can take an int seed that should
@@ -60,7 +62,7 @@ package squidpony.squidmath;
  * sounds a lot like MerlinNoise, which sounds a lot like PerlinNoise and WhirlingNoise. This class is very close in
  * implementation to WhirlingNoise.
  */
-public class MasonNoise implements Noise.Noise2D, Noise.Noise3D, Noise.Noise4D, Noise.Noise6D {
+public class MasonNoise implements Noise.Bulk2D, Noise.Bulk3D, Noise.Bulk4D, Noise.Noise6D {
 
     protected final int defaultSeed;
     public static final MasonNoise instance = new MasonNoise();
@@ -99,6 +101,320 @@ public class MasonNoise implements Noise.Noise2D, Noise.Noise3D, Noise.Noise4D,
         return noise(x, y, z, w, u, v, seed);
     }
 
+    /**
+     * Fills all of out with 2D noise, where {@code out[row * width + col]} gets the same value as {@code (float)
+     * getNoiseWithSeed(x0 + col * dx, y0 + row * dy, seed)}. The grid square a sample is in only has its four corners
+     * hashed once for all the samples in that square, and the x and y positions are only interpolated once per column
+     * and once per row.
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to use for the noise
+     */
+    public void fillNoise(final float[] out, final int width, final int height, final double x0, final double y0,
+                          final double dx, final double dy, final int seed) {
+        fillRows(out, width, 0, height, x0, y0, dx, dy, seed);
+    }
+
+    public void fillRows(final float[] out, final int width, final int startRow, final int endRow,
+                         final double x0, final double y0, final double dx, final double dy, final int seed) {
+        // the y position, its interpolation, and its hashes are the same for a whole row
+        // the x position and its interpolation are the same for a whole column
+        final int[] floors = new int[width];
+        final float[] fractions = new float[width];
+        for (int col = 0; col < width; col++) {
+            final float x = (float) (x0 + col * dx);
+            fractions[col] = querp(x - (floors[col] = fastFloor(x)));
+        }
+        int cx = 0;
+        float r00 = 0f, r01 = 0f, r10 = 0f, r11 = 0f;
+        for (int row = startRow, idx = startRow * width; row < endRow; row++) {
+            final float y = (float) (y0 + row * dy);
+            final int yy0 = fastFloor(y), sy0 = BirdRNG.splitMix32(yy0), sy1 = BirdRNG.splitMix32(yy0 + 1);
+            final float fy = querp(y - yy0);
+            for (int col = 0; col < width; col++) {
+                final int xx0 = floors[col];
+                if (col == 0 || xx0 != cx) {
+                    cx = xx0;
+                    r00 = NumberTools.randomFloat(BirdRNG.splitMix32(xx0 + sy0));
+                    r01 = NumberTools.randomFloat(BirdRNG.splitMix32(xx0 + sy1));
+                    r10 = NumberTools.randomFloat(BirdRNG.splitMix32(xx0 + 1 + sy0));
+                    r11 = NumberTools.randomFloat(BirdRNG.splitMix32(xx0 + 1 + sy1));
+                }
+                final float fx = fractions[col];
+                out[idx++] = interpolate(interpolate(r00, r10, fx), interpolate(r01, r11, fx), fy) * 2f - 1f;
+            }
+        }
+    }
+
+    /**
+     * Fills all of out with 3D noise from the plane at z, where {@code out[row * width + col]} gets the same value as
+     * {@code (float) getNoiseWithSeed(x0 + col * dx, y0 + row * dy, z, seed)}. The hashes of a simplex cell's corners
+     * are only found once for all the samples in that cell, which saves the most when several samples fall in each cell
+     * (when dx and dy are less than 1).
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param z the z position of every cell
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to use for the noise
+     */
+    public void fillNoise(final float[] out, final int width, final int height, final double x0, final double y0,
+                          final double z, final double dx, final double dy, final int seed) {
+        fillRows(out, width, 0, height, x0, y0, z, dx, dy, seed);
+    }
+
+    public void fillRows(final float[] out, final int width, final int startRow, final int endRow,
+                         final double x0, final double y0, final double z, final double dx, final double dy,
+                         final int seed) {
+        final float[] gradient3DLUT = SeededNoise.gradient3DLUT;
+        final float zf = (float) z;
+        // the current cell's corner hashes, indexed by which coordinates are one higher; -1 means not found yet
+        final int[] corners = new int[8];
+        corners[0] = -1;
+        int ci = 0, cj = 0, ck = 0;
+        for (int row = startRow, idx = startRow * width; row < endRow; row++) {
+            final float y = (float) (y0 + row * dy);
+            for (int col = 0; col < width; col++) {
+                final float x = (float) (x0 + col * dx);
+                double n0, n1, n2, n3;
+                final float s = (x + y + zf) * F3;
+                final int i = fastFloor(x + s),
+                        j = fastFloor(y + s),
+                        k = fastFloor(zf + s);
+                if (i != ci || j != cj || k != ck || corners[0] < 0) {
+                    ci = i;
+                    cj = j;
+                    ck = k;
+                    Arrays.fill(corners, -1);
+                }
+                final float t = (i + j + k) * G3;
+                final float X0 = i - t, Y0 = j - t, Z0 = k - t,
+                        xa = x - X0, ya = y - Y0, za = zf - Z0;
+                int i1, j1, k1;
+                int i2, j2, k2;
+                if (xa >= ya) {
+                    if (ya >= za) {
+                        i1 = 1;
+                        j1 = 0;
+                        k1 = 0;
+                        i2 = 1;
+                        j2 = 1;
+                        k2 = 0;
+                    } else if (xa >= za) {
+                        i1 = 1;
+                        j1 = 0;
+                        k1 = 0;
+                        i2 = 1;
+                        j2 = 0;
+                        k2 = 1;
+                    } else {
+                        i1 = 0;
+                        j1 = 0;
+                        k1 = 1;
+                        i2 = 1;
+                        j2 = 0;
+                        k2 = 1;
+                    }
+                } else {
+                    if (ya < za) {
+                        i1 = 0;
+                        j1 = 0;
+                        k1 = 1;
+                        i2 = 0;
+                        j2 = 1;
+                        k2 = 1;
+                    } else if (xa < za) {
+                        i1 = 0;
+                        j1 = 1;
+                        k1 = 0;
+                        i2 = 0;
+                        j2 = 1;
+                        k2 = 1;
+                    } else {
+                        i1 = 0;
+                        j1 = 1;
+                        k1 = 0;
+                        i2 = 1;
+                        j2 = 1;
+                        k2 = 0;
+                    }
+                }
+                float x1 = xa - i1 + G3,
+                        y1 = ya - j1 + G3,
+                        z1 = za - k1 + G3,
+                        x2 = xa - i2 + 2f * G3,
+                        y2 = ya - j2 + 2f * G3,
+                        z2 = za - k2 + 2f * G3,
+                        x3 = xa - 1f + 3f * G3,
+                        y3 = ya - 1f + 3f * G3,
+                        z3 = za - 1f + 3f * G3;
+                final int h0 = corners[0] < 0 ? (corners[0] = hash(i, j, k, seed) * 3) : corners[0];
+                final int q1 = i1 << 2 | j1 << 1 | k1;
+                final int h1 = corners[q1] < 0 ? (corners[q1] = hash(i + i1, j + j1, k + k1, seed) * 3) : corners[q1];
+                final int q2 = i2 << 2 | j2 << 1 | k2;
+                final int h2 = corners[q2] < 0 ? (corners[q2] = hash(i + i2, j + j2, k + k2, seed) * 3) : corners[q2];
+                final int h3 = corners[7] < 0 ? (corners[7] = hash(i + 1, j + 1, k + 1, seed) * 3) : corners[7];
+                float t0 = 0.6f - xa * xa - ya * ya - za * za;
+                if (t0 < 0.0)
+                    n0 = 0.0;
+                else {
+                    t0 *= t0;
+                    n0 = t0 * t0 * (xa * gradient3DLUT[h0] + ya * gradient3DLUT[h0 + 1] + za * gradient3DLUT[h0 + 2]);
+                }
+                float t1 = 0.6f - x1 * x1 - y1 * y1 - z1 * z1;
+                if (t1 < 0.0)
+                    n1 = 0.0;
+                else {
+                    t1 *= t1;
+                    n1 = t1 * t1 * (x1 * gradient3DLUT[h1] + y1 * gradient3DLUT[h1 + 1] + z1 * gradient3DLUT[h1 + 2]);
+                }
+                float t2 = 0.6f - x2 * x2 - y2 * y2 - z2 * z2;
+                if (t2 < 0)
+                    n2 = 0.0;
+                else {
+                    t2 *= t2;
+                    n2 = t2 * t2 * (x2 * gradient3DLUT[h2] + y2 * gradient3DLUT[h2 + 1] + z2 * gradient3DLUT[h2 + 2]);
+                }
+                float t3 = 0.6f - x3 * x3 - y3 * y3 - z3 * z3;
+                if (t3 < 0)
+                    n3 = 0.0;
+                else {
+                    t3 *= t3;
+                    n3 = t3 * t3 * (x3 * gradient3DLUT[h3] + y3 * gradient3DLUT[h3 + 1] + z3 * gradient3DLUT[h3 + 2]);
+                }
+                out[idx++] = (float) ((32f * (n0 + n1 + n2 + n3)) * 1.25086885 + 0.0003194984);
+            }
+        }
+    }
+
+    /**
+     * Fills all of out with 4D noise from the plane at z and w, where {@code out[row * width + col]} gets the same
+     * value as {@code (float) getNoiseWithSeed(x0 + col * dx, y0 + row * dy, z, w, seed)}. The hashes of a simplex
+     * cell's corners are only found once for all the samples in that cell, which saves the most when several samples
+     * fall in each cell (when dx and dy are less than 1).
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param z the z position of every cell
+     * @param w the w position of every cell
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to use for the noise
+     */
+    public void fillNoise(final float[] out, final int width, final int height, final double x0, final double y0,
+                          final double z, final double w, final double dx, final double dy, final int seed) {
+        fillRows(out, width, 0, height, x0, y0, z, w, dx, dy, seed);
+    }
+
+    public void fillRows(final float[] out, final int width, final int startRow, final int endRow,
+                         final double x0, final double y0, final double z, final double w,
+                         final double dx, final double dy, final int seed) {
+        final float[] gradient4DLUT = MasonNoise.gradient4DLUT;
+        final float zf = (float) z, wf = (float) w;
+        // the current cell's corner hashes, indexed by which coordinates are one higher; -1 means not found yet
+        final int[] corners = new int[16];
+        corners[0] = -1;
+        int ci = 0, cj = 0, ck = 0, cl = 0;
+        for (int row = startRow, idx = startRow * width; row < endRow; row++) {
+            final float y = (float) (y0 + row * dy);
+            for (int col = 0; col < width; col++) {
+                final float x = (float) (x0 + col * dx);
+                float n = 0.0f;
+                final float s = (x + y + zf + wf) * F4;
+                final int i = fastFloor(x + s), j = fastFloor(y + s), k = fastFloor(zf + s), l = fastFloor(wf + s);
+                if (i != ci || j != cj || k != ck || l != cl || corners[0] < 0) {
+                    ci = i;
+                    cj = j;
+                    ck = k;
+                    cl = l;
+                    Arrays.fill(corners, -1);
+                }
+                final float t = (i + j + k + l) * G4,
+                        X0 = i - t,
+                        Y0 = j - t,
+                        Z0 = k - t,
+                        W0 = l - t,
+                        xa = x - X0,
+                        ya = y - Y0,
+                        za = zf - Z0,
+                        wa = wf - W0;
+                final int c = (xa > ya ? 128 : 0) | (xa > za ? 64 : 0) | (ya > za ? 32 : 0) | (xa > wa ? 16 : 0) | (ya > wa ? 8 : 0) | (za > wa ? 4 : 0);
+                final int i1 = SIMPLEX[c] >>> 2,
+                        j1 = SIMPLEX[c | 1] >>> 2,
+                        k1 = SIMPLEX[c | 2] >>> 2,
+                        l1 = SIMPLEX[c | 3] >>> 2,
+                        i2 = SIMPLEX[c] >>> 1 & 1,
+                        j2 = SIMPLEX[c | 1] >>> 1 & 1,
+                        k2 = SIMPLEX[c | 2] >>> 1 & 1,
+                        l2 = SIMPLEX[c | 3] >>> 1 & 1,
+                        i3 = SIMPLEX[c] & 1,
+                        j3 = SIMPLEX[c | 1] & 1,
+                        k3 = SIMPLEX[c | 2] & 1,
+                        l3 = SIMPLEX[c | 3] & 1;
+                final float x1 = xa - i1 + G4,
+                        y1 = ya - j1 + G4,
+                        z1 = za - k1 + G4,
+                        w1 = wa - l1 + G4,
+                        x2 = xa - i2 + 2f * G4,
+                        y2 = ya - j2 + 2f * G4,
+                        z2 = za - k2 + 2f * G4,
+                        w2 = wa - l2 + 2f * G4,
+                        x3 = xa - i3 + 3f * G4,
+                        y3 = ya - j3 + 3f * G4,
+                        z3 = za - k3 + 3f * G4,
+                        w3 = wa - l3 + 3f * G4,
+                        x4 = xa - 1f + 4f * G4,
+                        y4 = ya - 1f + 4f * G4,
+                        z4 = za - 1f + 4f * G4,
+                        w4 = wa - 1f + 4f * G4;
+                final int h0 = corners[0] < 0 ? (corners[0] = hash(i, j, k, l, seed) << 2) : corners[0];
+                final int q1 = i1 << 3 | j1 << 2 | k1 << 1 | l1;
+                final int h1 = corners[q1] < 0 ? (corners[q1] = hash(i + i1, j + j1, k + k1, l + l1, seed) << 2) : corners[q1];
+                final int q2 = i2 << 3 | j2 << 2 | k2 << 1 | l2;
+                final int h2 = corners[q2] < 0 ? (corners[q2] = hash(i + i2, j + j2, k + k2, l + l2, seed) << 2) : corners[q2];
+                final int q3 = i3 << 3 | j3 << 2 | k3 << 1 | l3;
+                final int h3 = corners[q3] < 0 ? (corners[q3] = hash(i + i3, j + j3, k + k3, l + l3, seed) << 2) : corners[q3];
+                final int h4 = corners[15] < 0 ? (corners[15] = hash(i + 1, j + 1, k + 1, l + 1, seed) << 2) : corners[15];
+                float t0 = LIMIT4 - xa * xa - ya * ya - za * za - wa * wa;
+                if(t0 > 0) {
+                    t0 *= t0;
+                    n += t0 * t0 * (xa * gradient4DLUT[h0] + ya * gradient4DLUT[h0 | 1] + za * gradient4DLUT[h0 | 2] + wa * gradient4DLUT[h0 | 3]);
+                }
+                float t1 = LIMIT4 - x1 * x1 - y1 * y1 - z1 * z1 - w1 * w1;
+                if (t1 > 0) {
+                    t1 *= t1;
+                    n += t1 * t1 * (x1 * gradient4DLUT[h1] + y1 * gradient4DLUT[h1 | 1] + z1 * gradient4DLUT[h1 | 2] + w1 * gradient4DLUT[h1 | 3]);
+                }
+                float t2 = LIMIT4 - x2 * x2 - y2 * y2 - z2 * z2 - w2 * w2;
+                if (t2 > 0) {
+                    t2 *= t2;
+                    n += t2 * t2 * (x2 * gradient4DLUT[h2] + y2 * gradient4DLUT[h2 | 1] + z2 * gradient4DLUT[h2 | 2] + w2 * gradient4DLUT[h2 | 3]);
+                }
+                float t3 = LIMIT4 - x3 * x3 - y3 * y3 - z3 * z3 - w3 * w3;
+                if (t3 > 0) {
+                    t3 *= t3;
+                    n += t3 * t3 * (x3 * gradient4DLUT[h3] + y3 * gradient4DLUT[h3 | 1] + z3 * gradient4DLUT[h3 | 2] + w3 * gradient4DLUT[h3 | 3]);
+                }
+                float t4 = LIMIT4 - x4 * x4 - y4 * y4 - z4 * z4 - w4 * w4;
+                if (t4 > 0) {
+                    t4 *= t4;
+                    n += t4 * t4 * (x4 * gradient4DLUT[h4] + y4 * gradient4DLUT[h4 | 1] + z4 * gradient4DLUT[h4 | 2] + w4 * gradient4DLUT[h4 | 3]);
+                }
+                out[idx++] = (float) (NumberTools.bounce(5.0 + 41.0 * n));
+            }
+        }
+    }
+
     protected static final float[] gradient4DLUT = {
             0.22552454980774f, 0.66749286953929f, 0.53967936463105f, -0.46080161668515f,
             0.52981737633302f, 0.80705123608169f, 0.25001068952995f, 0.073868160904199f,
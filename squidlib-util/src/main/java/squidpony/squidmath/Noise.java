@@ -31,6 +31,58 @@ public class Noise {
         double getNoiseWithSeed(double x, double y, double z, double w, double u, double v, int seed);
     }
 
+    /**
+     * A Noise2D that can fill a whole grid of samples in one call, sharing the work that neighboring samples have in
+     * common instead of starting over for each one. The grid is a float array in row-major order, where
+     * {@code out[row * width + col]} gets the same value {@link #getNoiseWithSeed(double, double, int)} would return
+     * for {@code x0 + col * dx, y0 + row * dy, seed}, stored as a float. {@link Noise#fillNoise(Noise2D, float[], int,
+     * int, double, double, double, double, int)} can fill from any Noise2D, using this when it is available, and
+     * ParallelNoise can split large grids into bands of rows that fill on several threads.
+     */
+    public interface Bulk2D extends Noise2D {
+        /**
+         * Fills all of out with noise; out should have a length of at least width times height.
+         */
+        void fillNoise(float[] out, int width, int height, double x0, double y0, double dx, double dy, int seed);
+        /**
+         * Fills only the rows of out from startRow (inclusive) to endRow (exclusive) with noise, using the same
+         * positions {@link #fillNoise(float[], int, int, double, double, double, double, int)} would for those rows.
+         */
+        void fillRows(float[] out, int width, int startRow, int endRow, double x0, double y0, double dx, double dy, int seed);
+    }
+
+    /**
+     * A Noise3D that can fill a grid of samples from a plane of constant z in one call; see {@link Bulk2D}. Each item
+     * {@code out[row * width + col]} gets the value {@link #getNoiseWithSeed(double, double, double, int)} would return
+     * for {@code x0 + col * dx, y0 + row * dy, z, seed}, stored as a float.
+     */
+    public interface Bulk3D extends Noise3D {
+        /**
+         * Fills all of out with noise; out should have a length of at least width times height.
+         */
+        void fillNoise(float[] out, int width, int height, double x0, double y0, double z, double dx, double dy, int seed);
+        /**
+         * Fills only the rows of out from startRow (inclusive) to endRow (exclusive) with noise.
+         */
+        void fillRows(float[] out, int width, int startRow, int endRow, double x0, double y0, double z, double dx, double dy, int seed);
+    }
+
+    /**
+     * A Noise4D that can fill a grid of samples from a plane of constant z and w in one call; see {@link Bulk2D}. Each
+     * item {@code out[row * width + col]} gets the value {@link #getNoiseWithSeed(double, double, double, double, int)}
+     * would return for {@code x0 + col * dx, y0 + row * dy, z, w, seed}, stored as a float.
+     */
+    public interface Bulk4D extends Noise4D {
+        /**
+         * Fills all of out with noise; out should have a length of at least width times height.
+         */
+        void fillNoise(float[] out, int width, int height, double x0, double y0, double z, double w, double dx, double dy, int seed);
+        /**
+         * Fills only the rows of out from startRow (inclusive) to endRow (exclusive) with noise.
+         */
+        void fillRows(float[] out, int width, int startRow, int endRow, double x0, double y0, double z, double w, double dx, double dy, int seed);
+    }
+
     public static class Layered1D implements Noise1D {
         protected int octaves;
         protected Noise1D basis;
@@ -1665,4 +1717,103 @@ public class Noise {
 
     }
 
+    /**
+     * Fills out, a row-major grid of width by height floats, with noise from generator, where
+     * {@code out[row * width + col]} gets the noise at {@code x0 + col * dx, y0 + row * dy}. If generator is a
+     * {@link Bulk2D}, such as {@link SeededNoise}, {@link WhirlingNoise}, {@link MasonNoise}, or {@link ValueNoise},
+     * this uses its faster bulk method; otherwise it calls getNoiseWithSeed once per cell.
+     * @param generator any Noise2D
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to give to generator
+     * @return out, after filling it
+     */
+    public static float[] fillNoise(final Noise2D generator, final float[] out, final int width, final int height,
+                                    final double x0, final double y0, final double dx, final double dy, final int seed) {
+        if(generator instanceof Bulk2D)
+        {
+            ((Bulk2D) generator).fillNoise(out, width, height, x0, y0, dx, dy, seed);
+            return out;
+        }
+        for (int row = 0, idx = 0; row < height; row++) {
+            final double y = y0 + row * dy;
+            for (int col = 0; col < width; col++) {
+                out[idx++] = (float) generator.getNoiseWithSeed(x0 + col * dx, y, seed);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Fills out, a row-major grid of width by height floats, with noise from a plane of constant z in generator, where
+     * {@code out[row * width + col]} gets the noise at {@code x0 + col * dx, y0 + row * dy, z}. If generator is a
+     * {@link Bulk3D}, this uses its faster bulk method; otherwise it calls getNoiseWithSeed once per cell.
+     * @param generator any Noise3D
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param z the z position of every cell
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to give to generator
+     * @return out, after filling it
+     */
+    public static float[] fillNoise(final Noise3D generator, final float[] out, final int width, final int height,
+                                    final double x0, final double y0, final double z,
+                                    final double dx, final double dy, final int seed) {
+        if(generator instanceof Bulk3D)
+        {
+            ((Bulk3D) generator).fillNoise(out, width, height, x0, y0, z, dx, dy, seed);
+            return out;
+        }
+        for (int row = 0, idx = 0; row < height; row++) {
+            final double y = y0 + row * dy;
+            for (int col = 0; col < width; col++) {
+                out[idx++] = (float) generator.getNoiseWithSeed(x0 + col * dx, y, z, seed);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Fills out, a row-major grid of width by height floats, with noise from a plane of constant z and w in generator,
+     * where {@code out[row * width + col]} gets the noise at {@code x0 + col * dx, y0 + row * dy, z, w}. If generator
+     * is a {@link Bulk4D}, this uses its faster bulk method; otherwise it calls getNoiseWithSeed once per cell.
+     * @param generator any Noise4D
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param z the z position of every cell
+     * @param w the w position of every cell
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to give to generator
+     * @return out, after filling it
+     */
+    public static float[] fillNoise(final Noise4D generator, final float[] out, final int width, final int height,
+                                    final double x0, final double y0, final double z, final double w,
+                                    final double dx, final double dy, final int seed) {
+        if(generator instanceof Bulk4D)
+        {
+            ((Bulk4D) generator).fillNoise(out, width, height, x0, y0, z, w, dx, dy, seed);
+            return out;
+        }
+        for (int row = 0, idx = 0; row < height; row++) {
+            final double y = y0 + row * dy;
+            for (int col = 0; col < width; col++) {
+                out[idx++] = (float) generator.getNoiseWithSeed(x0 + col * dx, y, z, w, seed);
+            }
+        }
+        return out;
+    }
+
 }
@@ -0,0 +1,524 @@
+package squidpony.squidmath;
+
+import squidpony.annotation.Beta;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A run-length packed region like the short[] data {@link CoordPacker} produces, but for any width and height instead
+ * of only maps that fit in 256x256. CoordPacker walks a fixed 256x256 Hilbert curve and stores run lengths as shorts;
+ * this walks a Hilbert curve ({@link #HILBERT}) or a Z-order curve ({@link #MORTON}) over the smallest power-of-two
+ * square that holds the map, and stores where each run of "on" cells starts and ends along that curve as ints, so maps
+ * up to 32768x32768 can be packed. Because both curves visit every aligned power-of-two square in one unbroken stretch,
+ * filled or empty areas of a map pack into very few runs, and packing from or unpacking to a {@link GreasedRegion}
+ * works a square at a time rather than a cell at a time.
+ * <br>
+ * Like CoordPacker's data, a PackedRegion is never changed after it is made; {@link #union(PackedRegion)},
+ * {@link #intersect(PackedRegion)}, {@link #difference(PackedRegion)}, {@link #xor(PackedRegion)}, and the spatial
+ * methods all return a new PackedRegion. The boolean operations merge the two run lists directly, and
+ * {@link #contains(int, int)} uses a binary search over the runs. The spatial methods ({@link #expand(int)},
+ * {@link #flood(PackedRegion, int)}, and their 8-way versions) unpack into a GreasedRegion, use its methods, and pack
+ * the result again, since GreasedRegion is much faster at moving areas around than any run-length format.
+ */
+@Beta
+public class PackedRegion implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Walk the cells along a Hilbert curve, which keeps cells that are next to each other in the map close together
+     * along the curve more often than the Z-order curve does; this is what CoordPacker uses.
+     */
+    public static final int HILBERT = 0;
+    /**
+     * Walk the cells along a Z-order (Morton) curve, which is a little faster to compute than a Hilbert curve.
+     */
+    public static final int MORTON = 1;
+
+    public final int width, height;
+    /**
+     * Either {@link #HILBERT} or {@link #MORTON}.
+     */
+    public final int order;
+    /**
+     * The side length of the power-of-two square the curve covers; at least as big as width and height.
+     */
+    protected final int side;
+    /**
+     * Pairs of positions along the curve; each pair is the first "on" position of a run and the position just after it.
+     * Positions always increase, and runs never touch each other.
+     */
+    protected final int[] runs;
+
+    /**
+     * Constructs an empty PackedRegion with the given size, using a Hilbert curve.
+     * @param width the width of the map; at most 32768
+     * @param height the height of the map; at most 32768
+     */
+    public PackedRegion(final int width, final int height) {
+        this(width, height, HILBERT, new int[0]);
+    }
+
+    /**
+     * Packs the "on" cells of region along a Hilbert curve.
+     * @param region a GreasedRegion that will not be modified; its width and height can be at most 32768
+     */
+    public PackedRegion(final GreasedRegion region) {
+        this(region, HILBERT);
+    }
+
+    /**
+     * Packs the "on" cells of region along the given curve.
+     * @param region a GreasedRegion that will not be modified; its width and height can be at most 32768
+     * @param order either {@link #HILBERT} or {@link #MORTON}
+     */
+    public PackedRegion(final GreasedRegion region, final int order) {
+        this(region.width, region.height, order, pack(region, order));
+    }
+
+    /**
+     * Constructs a PackedRegion from existing runs, such as those returned by {@link #getRuns()}. The runs array is
+     * used directly, not copied, and must be valid for the given size and order.
+     * @param width the width of the map; at most 32768
+     * @param height the height of the map; at most 32768
+     * @param order either {@link #HILBERT} or {@link #MORTON}
+     * @param runs pairs of start (inclusive) and end (exclusive) positions along the curve, in increasing order
+     */
+    public PackedRegion(final int width, final int height, final int order, final int[] runs) {
+        if (width < 0 || height < 0 || width > 32768 || height > 32768)
+            throw new IllegalArgumentException("PackedRegion width and height must be between 0 and 32768");
+        this.width = width;
+        this.height = height;
+        this.order = order == MORTON ? MORTON : HILBERT;
+        side = sideFor(width, height);
+        this.runs = runs;
+    }
+
+    private static int sideFor(final int width, final int height) {
+        final int big = Math.max(1, Math.max(width, height));
+        return Integer.highestOneBit(big) == big ? big : Integer.highestOneBit(big) << 1;
+    }
+
+    /**
+     * Gets the runs this stores: pairs of start (inclusive) and end (exclusive) positions along the curve. This is the
+     * array this uses, not a copy, and must not be changed.
+     * @return the int array of runs
+     */
+    public int[] getRuns() {
+        return runs;
+    }
+
+    /**
+     * @return the number of runs of "on" cells along the curve
+     */
+    public int runCount() {
+        return runs.length >>> 1;
+    }
+
+    /**
+     * Gets the position along this PackedRegion's curve of the cell at x,y.
+     * @param x the x position, from 0 to width - 1
+     * @param y the y position, from 0 to height - 1
+     * @return the position along the curve
+     */
+    public int encode(final int x, final int y) {
+        return order == MORTON ? mortonEncode(x, y) : hilbertEncode(side, x, y);
+    }
+
+    /**
+     * Gets the cell at the given position along this PackedRegion's curve.
+     * @param position a position along the curve, as from {@link #encode(int, int)}
+     * @return the Coord at that position
+     */
+    public Coord decode(final int position) {
+        final int xy = order == MORTON ? mortonDecode(position) : hilbertDecode(side, position);
+        return Coord.get(xy >>> 16, xy & 0xFFFF);
+    }
+
+    private static int spread(int n) {
+        n &= 0xFFFF;
+        n = (n | n << 8) & 0x00FF00FF;
+        n = (n | n << 4) & 0x0F0F0F0F;
+        n = (n | n << 2) & 0x33333333;
+        return (n | n << 1) & 0x55555555;
+    }
+
+    private static int gather(int n) {
+        n &= 0x55555555;
+        n = (n | n >>> 1) & 0x33333333;
+        n = (n | n >>> 2) & 0x0F0F0F0F;
+        n = (n | n >>> 4) & 0x00FF00FF;
+        return (n | n >>> 8) & 0xFFFF;
+    }
+
+    private static int mortonEncode(final int x, final int y) {
+        return spread(x) | spread(y) << 1;
+    }
+
+    /**
+     * @return x in the upper 16 bits and y in the lower 16
+     */
+    private static int mortonDecode(final int position) {
+        return gather(position) << 16 | gather(position >>> 1);
+    }
+
+    private static int hilbertEncode(final int n, int x, int y) {
+        int rx, ry, d = 0, t;
+        for (int s = n >>> 1; s > 0; s >>>= 1) {
+            rx = (x & s) != 0 ? 1 : 0;
+            ry = (y & s) != 0 ? 1 : 0;
+            d += s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * @return x in the upper 16 bits and y in the lower 16
+     */
+    private static int hilbertDecode(final int n, final int position) {
+        int rx, ry, x = 0, y = 0, t = position, tmp;
+        for (int s = 1; s < n; s <<= 1) {
+            rx = 1 & (t >>> 1);
+            ry = 1 & (t ^ rx);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                tmp = x;
+                x = y;
+                y = tmp;
+            }
+            x += s * rx;
+            y += s * ry;
+            t >>>= 2;
+        }
+        return x << 16 | y;
+    }
+
+    /**
+     * Adds the run from start (inclusive) to end (exclusive) to runs, joining it to the last run if they touch.
+     */
+    private static void addRun(final IntVLA runs, final int start, final int end) {
+        if (runs.size > 0 && runs.items[runs.size - 1] == start)
+            runs.items[runs.size - 1] = end;
+        else {
+            runs.add(start);
+            runs.add(end);
+        }
+    }
+
+    private static int[] pack(final GreasedRegion region, final int order) {
+        if (region.width > 32768 || region.height > 32768)
+            throw new IllegalArgumentException("PackedRegion width and height must be between 0 and 32768");
+        final IntVLA runs = new IntVLA(64);
+        final int side = sideFor(region.width, region.height);
+        if (region.width > 0 && region.height > 0)
+            packSquare(region, order, side, 0, 0, side, runs);
+        return runs.toArray();
+    }
+
+    /**
+     * Packs the aligned square at x0,y0 with the given size, visiting its four quarters in curve order. Squares of up
+     * to 64 cells on a side fit in one 64-cell section of each column, so they can be checked for being empty or full
+     * with a few masked longs before splitting them further.
+     */
+    private static void packSquare(final GreasedRegion region, final int order, final int side,
+                                   final int x0, final int y0, final int size, final IntVLA runs) {
+        if (x0 >= region.width || y0 >= region.height)
+            return;
+        if (size <= 64) {
+            final int ys = region.ySections, sec = y0 >>> 6;
+            long mask = (size == 64 ? -1L : (1L << size) - 1L) << (y0 & 63);
+            if (sec == ys - 1)
+                mask &= region.yEndMask;
+            final int endX = Math.min(x0 + size, region.width);
+            boolean empty = true, full = x0 + size <= region.width && y0 + size <= region.height;
+            for (int x = x0; x < endX; x++) {
+                final long d = region.data[x * ys + sec] & mask;
+                empty &= d == 0L;
+                full &= d == mask;
+            }
+            if (empty)
+                return;
+            if (full) {
+                final int start = (order == MORTON ? mortonEncode(x0, y0) : hilbertEncode(side, x0, y0))
+                        & -(size * size);
+                addRun(runs, start, start + size * size);
+                return;
+            }
+        }
+        final int half = size >>> 1, area = half * half;
+        final int[] xs = {x0, x0 + half, x0, x0 + half}, ys = {y0, y0, y0 + half, y0 + half},
+                bases = new int[4];
+        for (int i = 0; i < 4; i++) {
+            bases[i] = (order == MORTON ? mortonEncode(xs[i], ys[i]) : hilbertEncode(side, xs[i], ys[i])) & -area;
+        }
+        for (int done = 0; done < 4; done++) {
+            int best = -1;
+            for (int i = 0; i < 4; i++) {
+                if (bases[i] >= 0 && (best < 0 || bases[i] < bases[best]))
+                    best = i;
+            }
+            packSquare(region, order, side, xs[best], ys[best], half, runs);
+            bases[best] = -1;
+        }
+    }
+
+    /**
+     * Turns on the cells of region in the aligned square at x0,y0 with the given size, clipped to region's bounds.
+     */
+    private static void fillSquare(final GreasedRegion region, final int x0, final int y0, final int size) {
+        final int endX = Math.min(x0 + size, region.width), endY = Math.min(y0 + size, region.height),
+                ys = region.ySections;
+        for (int y = y0; y < endY; ) {
+            final int sec = y >>> 6, bit = y & 63, count = Math.min(64 - bit, endY - y);
+            final long mask = (count == 64 ? -1L : (1L << count) - 1L) << bit;
+            for (int x = x0; x < endX; x++) {
+                region.data[x * ys + sec] |= mask;
+            }
+            y += count;
+        }
+    }
+
+    /**
+     * Writes the "on" cells of this into region, resizing and emptying region first. Each run is split into the
+     * aligned squares the curve passes through, and each square is filled a column at a time.
+     * @param region a GreasedRegion that will be changed to match this
+     * @return region, after modification
+     */
+    public GreasedRegion into(final GreasedRegion region) {
+        region.resizeAndEmpty(width, height);
+        unpackInto(region);
+        return region;
+    }
+
+    private void unpackInto(final GreasedRegion region) {
+        for (int r = 0; r < runs.length; r += 2) {
+            int start = runs[r];
+            final int end = runs[r + 1];
+            while (start < end) {
+                int area = start == 0 ? Integer.highestOneBit(end) : Math.min(start & -start, Integer.highestOneBit(end - start));
+                // only squares (areas that are powers of 4) map to a square of cells
+                if ((Integer.numberOfTrailingZeros(area) & 1) != 0)
+                    area >>>= 1;
+                final int xy = order == MORTON ? mortonDecode(start) : hilbertDecode(side, start),
+                        size = 1 << (Integer.numberOfTrailingZeros(area) >>> 1);
+                fillSquare(region, (xy >>> 16) & -size, (xy & 0xFFFF) & -size, size);
+                start += area;
+            }
+        }
+        region.tallied = false;
+    }
+
+    /**
+     * @return a new GreasedRegion with the same size and "on" cells as this
+     */
+    public GreasedRegion toGreasedRegion() {
+        return into(new GreasedRegion(width, height));
+    }
+
+    /**
+     * Gets other with the same width, height, and curve as this, re-packing it if needed; cells outside this are
+     * dropped.
+     */
+    private PackedRegion conform(final PackedRegion other) {
+        if (other.width == width && other.height == height && other.order == order)
+            return other;
+        final GreasedRegion g = new GreasedRegion(width, height);
+        final GreasedRegion o = other.toGreasedRegion();
+        for (int x = 0; x < width && x < o.width; x++) {
+            for (int y = 0; y < height && y < o.height; y++) {
+                if (o.contains(x, y))
+                    g.insert(x, y);
+            }
+        }
+        return new PackedRegion(g, order);
+    }
+
+    /**
+     * Merges the runs of this and other, keeping positions where the operation is true. op is 0 for union, 1 for
+     * intersection, 2 for difference, and 3 for exclusive or.
+     */
+    private PackedRegion merge(final PackedRegion o, final int op) {
+        final int[] a = runs, b = conform(o).runs;
+        final IntVLA out = new IntVLA(a.length + b.length);
+        boolean inA = false, inB = false, inR = false, r;
+        int i = 0, j = 0, pos;
+        while (i < a.length || j < b.length) {
+            pos = Math.min(i < a.length ? a[i] : Integer.MAX_VALUE, j < b.length ? b[j] : Integer.MAX_VALUE);
+            if (i < a.length && a[i] == pos) {
+                inA = !inA;
+                i++;
+            }
+            if (j < b.length && b[j] == pos) {
+                inB = !inB;
+                j++;
+            }
+            switch (op) {
+                case 0: r = inA | inB;
+                    break;
+                case 1: r = inA & inB;
+                    break;
+                case 2: r = inA & !inB;
+                    break;
+                default: r = inA ^ inB;
+            }
+            if (r != inR) {
+                out.add(pos);
+                inR = r;
+            }
+        }
+        return new PackedRegion(width, height, order, out.toArray());
+    }
+
+    /**
+     * @param other another PackedRegion; if its size or curve differs, it is re-packed to match this first
+     * @return a new PackedRegion with the cells that are "on" in this or other
+     */
+    public PackedRegion union(final PackedRegion other) {
+        return merge(other, 0);
+    }
+
+    /**
+     * @param other another PackedRegion; if its size or curve differs, it is re-packed to match this first
+     * @return a new PackedRegion with the cells that are "on" in both this and other
+     */
+    public PackedRegion intersect(final PackedRegion other) {
+        return merge(other, 1);
+    }
+
+    /**
+     * @param other another PackedRegion; if its size or curve differs, it is re-packed to match this first
+     * @return a new PackedRegion with the cells that are "on" in this but not in other
+     */
+    public PackedRegion difference(final PackedRegion other) {
+        return merge(other, 2);
+    }
+
+    /**
+     * @param other another PackedRegion; if its size or curve differs, it is re-packed to match this first
+     * @return a new PackedRegion with the cells that are "on" in exactly one of this and other
+     */
+    public PackedRegion xor(final PackedRegion other) {
+        return merge(other, 3);
+    }
+
+    public boolean contains(final int x, final int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height || runs.length == 0)
+            return false;
+        final int d = encode(x, y);
+        int lo = 0, hi = runs.length - 1, mid;
+        if (d < runs[0])
+            return false;
+        while (lo < hi) {
+            mid = lo + hi + 1 >>> 1;
+            if (runs[mid] <= d)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return (lo & 1) == 0;
+    }
+
+    public boolean contains(final Coord point) {
+        return contains(point.x, point.y);
+    }
+
+    public int size() {
+        int c = 0;
+        for (int i = 0; i < runs.length; i += 2) {
+            c += runs[i + 1] - runs[i];
+        }
+        return c;
+    }
+
+    public boolean isEmpty() {
+        return runs.length == 0;
+    }
+
+    /**
+     * @return the first "on" cell along the curve, or (-1,-1) if this is empty
+     */
+    public Coord first() {
+        return runs.length == 0 ? Coord.get(-1, -1) : decode(runs[0]);
+    }
+
+    /**
+     * @return every "on" cell, in order along the curve
+     */
+    public Coord[] asCoords() {
+        final Coord[] points = new Coord[size()];
+        for (int r = 0, i = 0; r < runs.length; r += 2) {
+            for (int d = runs[r]; d < runs[r + 1]; d++) {
+                points[i++] = decode(d);
+            }
+        }
+        return points;
+    }
+
+    public PackedRegion expand(final int amount) {
+        return new PackedRegion(toGreasedRegion().expand(amount), order);
+    }
+
+    public PackedRegion expand8way(final int amount) {
+        return new PackedRegion(toGreasedRegion().expand8way(amount), order);
+    }
+
+    public PackedRegion retract(final int amount) {
+        return new PackedRegion(toGreasedRegion().retract(amount), order);
+    }
+
+    public PackedRegion retract8way(final int amount) {
+        return new PackedRegion(toGreasedRegion().retract8way(amount), order);
+    }
+
+    /**
+     * Like {@link GreasedRegion#flood(GreasedRegion, int)}, expands this up to amount times in the 4 orthogonal
+     * directions, only into cells that are "on" in bounds, stopping early if a step doesn't add any cells.
+     * @param bounds the area this can flood into; if its size or curve differs, it is re-packed to match this first
+     * @param amount the most steps to flood by
+     * @return a new PackedRegion with the flooded area
+     */
+    public PackedRegion flood(final PackedRegion bounds, final int amount) {
+        return new PackedRegion(toGreasedRegion().flood(conform(bounds).toGreasedRegion(), amount), order);
+    }
+
+    /**
+     * Like {@link GreasedRegion#flood8way(GreasedRegion, int)}, expands this up to amount times in all 8 directions,
+     * only into cells that are "on" in bounds, stopping early if a step doesn't add any cells.
+     * @param bounds the area this can flood into; if its size or curve differs, it is re-packed to match this first
+     * @param amount the most steps to flood by
+     * @return a new PackedRegion with the flooded area
+     */
+    public PackedRegion flood8way(final PackedRegion bounds, final int amount) {
+        return new PackedRegion(toGreasedRegion().flood8way(conform(bounds).toGreasedRegion(), amount), order);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final PackedRegion that = (PackedRegion) o;
+        return width == that.width && height == that.height && order == that.order && Arrays.equals(runs, that.runs);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * width + height) + order) + Arrays.hashCode(runs);
+    }
+
+    @Override
+    public String toString() {
+        return toGreasedRegion().toString();
+    }
+}
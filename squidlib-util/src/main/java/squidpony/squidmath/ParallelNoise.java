@@ -0,0 +1,225 @@
+package squidpony.squidmath;
+
+import squidpony.annotation.GwtIncompatible;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Fills large grids of noise on several threads at once, using the bulk methods of {@link Noise.Bulk2D},
+ * {@link Noise.Bulk3D}, and {@link Noise.Bulk4D} (which {@link SeededNoise}, {@link WhirlingNoise}, {@link MasonNoise},
+ * and {@link ValueNoise} all implement). The rows of the grid are split into bands, two per thread so a band that
+ * finishes early doesn't leave its thread idle, and each band is filled by one task on a ForkJoinPool with the
+ * generator's fillRows method. Since every cell only depends on its own position, the result is exactly the same as
+ * the generator's single-threaded fillNoise method.
+ * <br>
+ * Grids with fewer than {@link #threshold} cells, and pools with only one thread, just call fillNoise on the
+ * generator directly, since handing work to other threads costs more than it saves there.
+ * <br>
+ * One ParallelNoise can be shared by any number of generators, but it only fills one grid at a time; calls from
+ * several threads wait for each other. When the game is closed or this is no longer needed, call {@link #destroy()} to
+ * shut down its threads.
+ */
+@GwtIncompatible
+public class ParallelNoise {
+    /**
+     * The smallest number of cells (width times height) a grid must have to be split over several threads; smaller
+     * grids are filled on the calling thread. Defaults to 65536, which is 256x256 cells.
+     */
+    public int threshold = 65536;
+    protected final int threadCount;
+    private final ExecutorService executor;
+    private final ArrayList<RowUnit> units;
+
+    private Noise.Bulk2D generator2D;
+    private Noise.Bulk3D generator3D;
+    private Noise.Bulk4D generator4D;
+    private float[] out;
+    private int width, seed;
+    private double x0, y0, z, w, dx, dy;
+
+    /**
+     * Constructs a ParallelNoise that uses one thread for each available processor.
+     */
+    public ParallelNoise() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a ParallelNoise that uses the given number of threads.
+     * @param threads how many threads to split fills over; should be at least 1
+     */
+    public ParallelNoise(final int threads) {
+        threadCount = Math.max(1, threads);
+        executor = new ForkJoinPool(threadCount);
+        units = new ArrayList<>(threadCount * 2);
+    }
+
+    /**
+     * Checks whether filling a grid with the given size will be split over several threads.
+     * @param width the width of a grid that may be given to a method here
+     * @param height the height of a grid that may be given to a method here
+     * @return true if the grid is large enough to fill in parallel, false if it would be filled on one thread
+     */
+    public boolean isParallel(final int width, final int height) {
+        return threadCount > 1 && height > 1 && (long) width * height >= threshold;
+    }
+
+    /**
+     * Fills out with 2D noise from generator, exactly like
+     * {@link Noise.Bulk2D#fillNoise(float[], int, int, double, double, double, double, int)} would, but splitting the
+     * rows over several threads if the grid is large enough.
+     * @param generator any Bulk2D, such as {@link SeededNoise#instance}
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to give to generator
+     * @return out, after filling it
+     */
+    public synchronized float[] fillNoise(final Noise.Bulk2D generator, final float[] out, final int width,
+                                          final int height, final double x0, final double y0,
+                                          final double dx, final double dy, final int seed) {
+        if (!isParallel(width, height)) {
+            generator.fillNoise(out, width, height, x0, y0, dx, dy, seed);
+            return out;
+        }
+        generator2D = generator;
+        setup(out, width, x0, y0, 0.0, 0.0, dx, dy, seed);
+        runBands(height);
+        return out;
+    }
+
+    /**
+     * Fills out with 3D noise from the plane at z in generator, exactly like
+     * {@link Noise.Bulk3D#fillNoise(float[], int, int, double, double, double, double, double, int)} would, but
+     * splitting the rows over several threads if the grid is large enough.
+     * @param generator any Bulk3D, such as {@link SeededNoise#instance}
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param z the z position of every cell
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to give to generator
+     * @return out, after filling it
+     */
+    public synchronized float[] fillNoise(final Noise.Bulk3D generator, final float[] out, final int width,
+                                          final int height, final double x0, final double y0, final double z,
+                                          final double dx, final double dy, final int seed) {
+        if (!isParallel(width, height)) {
+            generator.fillNoise(out, width, height, x0, y0, z, dx, dy, seed);
+            return out;
+        }
+        generator3D = generator;
+        setup(out, width, x0, y0, z, 0.0, dx, dy, seed);
+        runBands(height);
+        return out;
+    }
+
+    /**
+     * Fills out with 4D noise from the plane at z and w in generator, exactly like
+     * {@link Noise.Bulk4D#fillNoise(float[], int, int, double, double, double, double, double, double, int)} would,
+     * but splitting the rows over several threads if the grid is large enough.
+     * @param generator any Bulk4D, such as {@link SeededNoise#instance}
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param z the z position of every cell
+     * @param w the w position of every cell
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to give to generator
+     * @return out, after filling it
+     */
+    public synchronized float[] fillNoise(final Noise.Bulk4D generator, final float[] out, final int width,
+                                          final int height, final double x0, final double y0, final double z,
+                                          final double w, final double dx, final double dy, final int seed) {
+        if (!isParallel(width, height)) {
+            generator.fillNoise(out, width, height, x0, y0, z, w, dx, dy, seed);
+            return out;
+        }
+        generator4D = generator;
+        setup(out, width, x0, y0, z, w, dx, dy, seed);
+        runBands(height);
+        return out;
+    }
+
+    private void setup(final float[] out, final int width, final double x0, final double y0, final double z,
+                       final double w, final double dx, final double dy, final int seed) {
+        this.out = out;
+        this.width = width;
+        this.x0 = x0;
+        this.y0 = y0;
+        this.z = z;
+        this.w = w;
+        this.dx = dx;
+        this.dy = dy;
+        this.seed = seed;
+    }
+
+    /**
+     * Splits the rows into bands, two per thread, then fills every band and waits for all of them.
+     */
+    private void runBands(final int height) {
+        final int bands = Math.min(height, threadCount * 2);
+        while (units.size() < bands)
+            units.add(new RowUnit());
+        final List<RowUnit> current = units.subList(0, bands);
+        for (int i = 0; i < bands; i++) {
+            final RowUnit unit = current.get(i);
+            unit.startRow = (int) ((long) height * i / bands);
+            unit.endRow = (int) ((long) height * (i + 1) / bands);
+        }
+        try {
+            final List<Future<Void>> invoke = executor.invokeAll(current);
+            for (int i = 0; i < bands; i++) {
+                try {
+                    invoke.get(i).get();
+                } catch (ExecutionException e) {
+                    e.printStackTrace();
+                }
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        generator2D = null;
+        generator3D = null;
+        generator4D = null;
+        out = null;
+    }
+
+    /**
+     * Shuts down any threads that may prevent the game from closing properly.
+     * You don't have to do anything special after you call this, other than not using this ParallelNoise any more.
+     */
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * Fills the rows from startRow (inclusive) to endRow (exclusive) with the current generator.
+     */
+    private class RowUnit implements Callable<Void> {
+        protected int startRow, endRow;
+
+        @Override
+        public Void call() {
+            if (generator2D != null)
+                generator2D.fillRows(out, width, startRow, endRow, x0, y0, dx, dy, seed);
+            else if (generator3D != null)
+                generator3D.fillRows(out, width, startRow, endRow, x0, y0, z, dx, dy, seed);
+            else if (generator4D != null)
+                generator4D.fillRows(out, width, startRow, endRow, x0, y0, z, w, dx, dy, seed);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package squidpony.squidmath;
+
+import squidpony.annotation.GwtIncompatible;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs the bulk operations of very large GreasedRegions, like the 4096x2048 maps a WorldMapGenerator can produce, on
+ * several threads at once. The data of a GreasedRegion is split into bands of whole columns, and each band is handled
+ * by one task on a ForkJoinPool; the morphology methods (expand, retract, fringe, surface, flood, and their 8-way
+ * forms) read the column on either side of their band as a halo from the previous step, and write only their own
+ * columns, so every step produces exactly the same data as the single-threaded method on GreasedRegion would. Methods
+ * that take an amount wait for all bands to finish one step before starting the next.
+ * <br>
+ * Regions smaller than {@link #threshold} longs of data (about a million cells by default), regions whose other
+ * argument has a different size, and pools with only one thread just call the normal GreasedRegion method, since
+ * handing work to other threads costs more than it saves there. Every method modifies and returns the GreasedRegion
+ * it was given, the same as the matching GreasedRegion method, and uses the same spare arrays that GreasedRegion keeps
+ * for its own morphology methods, so repeated calls don't allocate.
+ * <br>
+ * One ParallelRegionOps can be shared by any number of GreasedRegions, but it only runs one operation at a time; calls
+ * from several threads wait for each other. When the game is closed or this is no longer needed, call
+ * {@link #destroy()} to shut down its threads.
+ */
+@GwtIncompatible
+public class ParallelRegionOps {
+    /**
+     * The smallest number of longs (width times the number of 64-cell sections per column) a GreasedRegion must have
+     * for its operations to be split up; smaller regions use the normal single-threaded methods. Defaults to 16384,
+     * which is 1024x1024 cells.
+     */
+    public int threshold = 16384;
+    protected final int threadCount;
+    private final ExecutorService executor;
+    private final ArrayList<BandUnit> units;
+
+    private static final int DILATE = 0, ERODE = 1, OR = 2, AND = 3, AND_NOT = 4, XOR = 5, NOT = 6;
+    private int op;
+    private boolean eightWay, edge;
+    private GreasedRegion region;
+    private long[] source, target, other;
+
+    /**
+     * Constructs a ParallelRegionOps that uses one thread for each available processor.
+     */
+    public ParallelRegionOps() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a ParallelRegionOps that uses the given number of threads.
+     * @param threads how many threads to split operations over; should be at least 1
+     */
+    public ParallelRegionOps(final int threads) {
+        threadCount = Math.max(1, threads);
+        executor = new ForkJoinPool(threadCount);
+        units = new ArrayList<>(threadCount * 2);
+    }
+
+    /**
+     * Checks whether an operation on region will be split over several threads.
+     * @param region a GreasedRegion that may be given to a method here
+     * @return true if region is large enough to run in parallel, false if it would use the single-threaded methods
+     */
+    public boolean isParallel(final GreasedRegion region) {
+        return threadCount > 1 && region.width > 2 && region.ySections > 0
+                && region.width * region.ySections >= threshold;
+    }
+
+    private boolean isParallel(final GreasedRegion region, final GreasedRegion other) {
+        return other != null && other.width == region.width && other.height == region.height && isParallel(region);
+    }
+
+    /**
+     * Splits the columns of region into bands, two per thread so a band that finishes early doesn't leave its thread
+     * idle, then runs the current operation on every band and waits for all of them.
+     */
+    private void runBands(final GreasedRegion region) {
+        final int width = region.width, bands = Math.min(width, threadCount * 2);
+        while (units.size() < bands)
+            units.add(new BandUnit());
+        final List<BandUnit> current = units.subList(0, bands);
+        for (int i = 0; i < bands; i++) {
+            final BandUnit unit = current.get(i);
+            unit.startX = (int) ((long) width * i / bands);
+            unit.endX = (int) ((long) width * (i + 1) / bands);
+        }
+        this.region = region;
+        try {
+            final List<Future<Void>> invoke = executor.invokeAll(current);
+            for (int i = 0; i < bands; i++) {
+                try {
+                    invoke.get(i).get();
+                } catch (ExecutionException e) {
+                    e.printStackTrace();
+                }
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        this.region = null;
+        source = null;
+        target = null;
+        other = null;
+    }
+
+    private void dilateStep(final GreasedRegion region, final boolean eightWay, final long[] bounds,
+                            final boolean fringe) {
+        op = DILATE;
+        this.eightWay = eightWay;
+        edge = fringe;
+        source = region.data;
+        target = region.spare();
+        other = bounds;
+        runBands(region);
+        region.swapSpare();
+    }
+
+    private void erodeStep(final GreasedRegion region, final boolean eightWay, final boolean surface) {
+        op = ERODE;
+        this.eightWay = eightWay;
+        edge = surface;
+        source = region.data;
+        target = region.spare();
+        runBands(region);
+        region.swapSpare();
+    }
+
+    private GreasedRegion combine(final GreasedRegion region, final int op, final long[] other) {
+        this.op = op;
+        source = region.data;
+        this.other = other;
+        runBands(region);
+        region.tallied = false;
+        return region;
+    }
+
+    /**
+     * Parallel version of {@link GreasedRegion#expand(int)}.
+     * @param region the GreasedRegion to modify
+     * @param amount how many cells to expand by
+     * @return region, after modification, for chaining
+     */
+    public synchronized GreasedRegion expand(final GreasedRegion region, final int amount) {
+        if (!isParallel(region))
+            return region.expand(amount);
+        for (int i = 0; i < amount; i++) {
+            dilateStep(region, false, null, false);
+        }
+        return region;
+    }
+
+    /**
+     * Parallel version of {@link GreasedRegion#expand8way(int)}.
+     * @param region the GreasedRegion to modify
+     * @param amount how many cells to expand by
+     * @return region, after modification, for chaining
+     */
+    public synchronized GreasedRegion expand8way(final GreasedRegion region, final int amount) {
+        if (!isParallel(region))
+            return region.expand8way(amount);
+        for (int i = 0; i < amount; i++) {
+            dilateStep(region, true, null, false);
+        }
+        return region;
+    }
+
+    /**
+     * Parallel version of {@link GreasedRegion#retract(int)}.
+     * @param region the GreasedRegion to modify
+     * @param amount how many cells to retract by
+     * @return region, after modification, for chaining
+     */
+    public synchronized GreasedRegion retract(final GreasedRegion region, final int amount) {
+        if (!isParallel(region))
+            return region.retract(amount);
+        for (int i = 0; i < amount; i++) {
+            erodeStep(region, false, false);
+        }
+        return region;
+    }
+
+    /**
+     * Parallel version of {@link GreasedRegion#retract8way(int)}.
+     * @param region the GreasedRegion to modify
+     * @param amount how many cells to retract by
+     * @return region, after modification, for chaining
+     */
+    public synchronized GreasedRegion retract8way(final GreasedRegion region, final int amount) {
+        if (!isParallel(region))
+            return region.retract8way(amount);
+        for (int i = 0; i < amount; i++) {
+            erodeStep(region, true, false);
+        }
+        return region;
+    }
+
+    /**
+     * Parallel version of {@link GreasedRegion#fringe(int)}.
+     * @param region the GreasedRegion to modify
+     * @param amount how many cells out from the original region the fringe should reach
+     * @return region, after modification, for chaining
+     */
+    public synchronized GreasedRegion fringe(final GreasedRegion region, final int amount) {
+        if (!isParallel(region))
+            return region.fringe(amount);
+        if (amount == 1) {
+            dilateStep(region, false, null, true);
+            return region;
+        }
+        final long[] original = region.held();
+        System.arraycopy(region.data, 0, original, 0, original.length);
+        for (int i = 0; i < amount; i++) {
+            dilateStep(region, false, null, false);
+        }
+        return combine(region, AND_NOT, original);
+    }
+
+    /**
+     * Parallel version of {@link GreasedRegion#fringe8way(int)}.
+     * @param region the GreasedRegion to modify
+     * @param amount how many cells out from the original region the fringe should reach
+     * @return region, after modification, for chaining
+     */
+    public synchronized GreasedRegion fringe8way(final GreasedRegion region, final int amount) {
+        if (!isParallel(region))
+            return region.fringe8way(amount);
+        if (amount == 1) {
+            dilateStep(region, true, null, true);
+            return region;
+        }
+        final long[] original = region.held();
+        System.arraycopy(region.data, 0, original, 0, original.length);
+        for (int i = 0; i < amount; i++) {
+            dilateStep(region, true, null, false);
+        }
+        return combine(region, AND_NOT, original);
+    }
+
+    /**
+     * Parallel version of {@link GreasedRegion#surface(int)}.
+     * @param region the GreasedRegion to modify
+     * @param amount how many cells in from the edge of the original region the surface should reach
+     * @return region, after modification, for chaining
+     */
+    public synchronized GreasedRegion surface(final GreasedRegion region, final int amount) {
+        if (!isParallel(region))
+            return region.surface(amount);
+        if (amount == 1) {
+            erodeStep(region, false, true);
+            return region;
+        }
+        final long[] original = region.held();
+        System.arraycopy(region.data, 0, original, 0, original.length);
+        for (int i = 0; i < amount; i++) {
+            erodeStep(region, false, false);
+        }
+        return combine(region, XOR, original);
+    }
+
+    /**
+     * Parallel version of {@link GreasedRegion#surface8way(int)}.
+     * @param region the GreasedRegion to modify
+     * @param amount how many cells in from the edge of the original region the surface should reach
+     * @return region, after modification, for chaining
+     */
+    public synchronized GreasedRegion surface8way(final GreasedRegion region, final int amount) {
+        if (!isParallel(region))
+            return region.surface8way(amount);
+        if (amount == 1) {
+            erodeStep(region, true, true);
+            return region;
+        }
+        final long[] original = region.held();
+        System.arraycopy(region.data, 0, original, 0, original.length);
+        for (int i = 0; i < amount; i++) {
+            erodeStep(region, true, false);
+        }
+        return combine(region, XOR, original);
+    }
+
+    /**
+     * Parallel version of {@link GreasedRegion#flood(GreasedRegion, int)}; like that method, this stops early if a
+     * step doesn't add any cells. If bounds has a different size than region, this uses the single-threaded method.
+     * @param region the GreasedRegion to modify
+     * @param bounds the GreasedRegion that limits where region can flood into; will not be modified
+     * @param amount the most steps to flood by
+     * @return region, after modification, for chaining
+     */
+    public synchronized GreasedRegion flood(final GreasedRegion region, final GreasedRegion bounds, final int amount) {
+        if (!isParallel(region, bounds))
+            return region.flood(bounds, amount);
+        int ct = region.size(), ct2;
+        for (int i = 0; i < amount; i++) {
+            dilateStep(region, false, bounds.data, false);
+            if (ct == (ct2 = region.size()))
+                break;
+            ct = ct2;
+        }
+        return region;
+    }
+
+    /**
+     * Parallel version of {@link GreasedRegion#flood8way(GreasedRegion, int)}; like that method, this stops early if a
+     * step doesn't add any cells. If bounds has a different size than region, this uses the single-threaded method.
+     * @param region the GreasedRegion to modify
+     * @param bounds the GreasedRegion that limits where region can flood into; will not be modified
+     * @param amount the most steps to flood by
+     * @return region, after modification, for chaining
+     */
+    public synchronized GreasedRegion flood8way(final GreasedRegion region, final GreasedRegion bounds,
+                                                final int amount) {
+        if (!isParallel(region, bounds))
+            return region.flood8way(bounds, amount);
+        int ct = region.size(), ct2;
+        for (int i = 0; i < amount; i++) {
+            dilateStep(region, true, bounds.data, false);
+            if (ct == (ct2 = region.size()))
+                break;
+            ct = ct2;
+        }
+        return region;
+    }
+
+    /**
+     * Parallel version of {@link GreasedRegion#or(GreasedRegion)}.
+     * @param region the GreasedRegion to modify
+     * @param other another GreasedRegion that will not be modified
+     * @return region, after modification, for chaining
+     */
+    public synchronized GreasedRegion or(final GreasedRegion region, final GreasedRegion other) {
+        return isParallel(region, other) ? combine(region, OR, other.data) : region.or(other);
+    }
+
+    /**
+     * Parallel version of {@link GreasedRegion#and(GreasedRegion)}.
+     * @param region the GreasedRegion to modify
+     * @param other another GreasedRegion that will not be modified
+     * @return region, after modification, for chaining
+     */
+    public synchronized GreasedRegion and(final GreasedRegion region, final GreasedRegion other) {
+        return isParallel(region, other) ? combine(region, AND, other.data) : region.and(other);
+    }
+
+    /**
+     * Parallel version of {@link GreasedRegion#andNot(GreasedRegion)}.
+     * @param region the GreasedRegion to modify
+     * @param other another GreasedRegion that will not be modified
+     * @return region, after modification, for chaining
+     */
+    public synchronized GreasedRegion andNot(final GreasedRegion region, final GreasedRegion other) {
+        return isParallel(region, other) ? combine(region, AND_NOT, other.data) : region.andNot(other);
+    }
+
+    /**
+     * Parallel version of {@link GreasedRegion#xor(GreasedRegion)}.
+     * @param region the GreasedRegion to modify
+     * @param other another GreasedRegion that will not be modified
+     * @return region, after modification, for chaining
+     */
+    public synchronized GreasedRegion xor(final GreasedRegion region, final GreasedRegion other) {
+        return isParallel(region, other) ? combine(region, XOR, other.data) : region.xor(other);
+    }
+
+    /**
+     * Parallel version of {@link GreasedRegion#not()}.
+     * @param region the GreasedRegion to modify
+     * @return region, after modification, for chaining
+     */
+    public synchronized GreasedRegion not(final GreasedRegion region) {
+        return isParallel(region) ? combine(region, NOT, null) : region.not();
+    }
+
+    /**
+     * Shuts down any threads that may prevent the game from closing properly.
+     * You don't have to do anything special after you call this, other than not using this ParallelRegionOps any more.
+     */
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * Runs the current operation on the columns from startX (inclusive) to endX (exclusive).
+     */
+    private class BandUnit implements Callable<Void> {
+        protected int startX, endX;
+
+        @Override
+        public Void call() {
+            final GreasedRegion r = region;
+            final int ySections = r.ySections;
+            switch (op) {
+                case DILATE:
+                    GreasedRegion.dilate(source, target, r.width, ySections, r.yEndMask, eightWay, other, edge,
+                            startX, endX);
+                    return null;
+                case ERODE:
+                    GreasedRegion.erode(source, target, r.width, ySections, r.yEndMask, eightWay, edge,
+                            startX, endX);
+                    return null;
+            }
+            final long[] data = source, o = other;
+            final int start = startX * ySections, end = endX * ySections;
+            switch (op) {
+                case OR:
+                    for (int i = start; i < end; i++) data[i] |= o[i];
+                    break;
+                case AND:
+                    for (int i = start; i < end; i++) data[i] &= o[i];
+                    break;
+                case AND_NOT:
+                    for (int i = start; i < end; i++) data[i] &= ~o[i];
+                    break;
+                case XOR:
+                    for (int i = start; i < end; i++) data[i] ^= o[i];
+                    break;
+                case NOT:
+                    for (int i = start; i < end; i++) data[i] = ~data[i];
+                    break;
+            }
+            if (op != AND && op != AND_NOT) {
+                for (int i = start + ySections - 1; i < end; i += ySections) data[i] &= r.yEndMask;
+            }
+            return null;
+        }
+    }
+}
@@ -57,7 +57,7 @@ package squidpony.squidmath;
  * http://accidentalnoise.sourceforge.net/index.html . Both Joise and ANL have many features that SquidLib has not (yet)
  * incorporated, but now that SquidLib has seamless noise, that's a nice feature that would have needed Joise before.
  */
-public class SeededNoise implements Noise.Noise2D, Noise.Noise3D, Noise.Noise4D, Noise.Noise6D {
+public class SeededNoise implements Noise.Bulk2D, Noise.Bulk3D, Noise.Bulk4D, Noise.Noise6D {
 
     protected final int defaultSeed;
     public static final SeededNoise instance = new SeededNoise();
@@ -96,6 +96,369 @@ public class SeededNoise implements Noise.Noise2D, Noise.Noise3D, Noise.Noise4D,
         return noise(x, y, z, w, u, v, seed);
     }
 
+    /**
+     * Fills all of out with 2D noise, where {@code out[row * width + col]} gets the same value as
+     * {@code getNoiseWithSeed(x0 + col * dx, y0 + row * dy, seed)}. This is faster than calling getNoiseWithSeed for
+     * each cell, mostly because the hashes of a simplex cell's corners are only found once for all the samples in that
+     * cell, which matters when several samples fall in each cell (when dx and dy are less than 1).
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to use for the noise
+     */
+    public void fillNoise(final float[] out, final int width, final int height, final double x0, final double y0,
+                          final double dx, final double dy, final int seed) {
+        fillRows(out, width, 0, height, x0, y0, dx, dy, seed);
+    }
+
+    public void fillRows(final float[] out, final int width, final int startRow, final int endRow,
+                         final double x0, final double y0, final double dx, final double dy, final int seed) {
+        final float[] gradient2DLUT = SeededNoise.gradient2DLUT;
+        // hashes of the current cell's corners, found only when first needed; -1 means not found yet
+        int ci = 0, cj = 0, c00 = -1, c10 = -1, c01 = -1, c11 = -1;
+        for (int row = startRow, idx = startRow * width; row < endRow; row++) {
+            final float y = (float) (y0 + row * dy);
+            for (int col = 0; col < width; col++) {
+                final float x = (float) (x0 + col * dx);
+                final float s = (x + y) * F2;
+                final int i = fastFloor(x + s),
+                        j = fastFloor(y + s);
+                if (i != ci || j != cj || c00 < 0) {
+                    ci = i;
+                    cj = j;
+                    c00 = hash(i, j, seed) << 1;
+                    c11 = hash(i + 1, j + 1, seed) << 1;
+                    c10 = c01 = -1;
+                }
+                final float t = (i + j) * G2,
+                        X0 = i - t,
+                        Y0 = j - t,
+                        xa = x - X0,
+                        ya = y - Y0;
+                final int h1;
+                final float xb, yb;
+                if (xa > ya) {
+                    xb = xa - 1 + G2;
+                    yb = ya + G2;
+                    h1 = c10 < 0 ? (c10 = hash(i + 1, j, seed) << 1) : c10;
+                } else {
+                    xb = xa + G2;
+                    yb = ya - 1 + G2;
+                    h1 = c01 < 0 ? (c01 = hash(i, j + 1, seed) << 1) : c01;
+                }
+                final float
+                        xc = xa - 1f + 2f * G2,
+                        yc = ya - 1f + 2f * G2;
+                float n0, n1, n2;
+                float t0 = 0.5f - xa * xa - ya * ya;
+                if (t0 < 0)
+                    n0 = 0;
+                else {
+                    t0 *= t0;
+                    n0 = t0 * t0 * (xa * gradient2DLUT[c00] + ya * gradient2DLUT[c00 | 1]);
+                }
+                float t1 = 0.5f - xb * xb - yb * yb;
+                if (t1 < 0)
+                    n1 = 0;
+                else {
+                    t1 *= t1;
+                    n1 = t1 * t1 * (xb * gradient2DLUT[h1] + yb * gradient2DLUT[h1 | 1]);
+                }
+                float t2 = 0.5f - xc * xc - yc * yc;
+                if (t2 < 0)
+                    n2 = 0;
+                else {
+                    t2 *= t2;
+                    n2 = t2 * t2 * (xc * gradient2DLUT[c11] + yc * gradient2DLUT[c11 | 1]);
+                }
+                out[idx++] = (70f * (n0 + n1 + n2)) * 1.42188695f + 0.001054489f;
+            }
+        }
+    }
+
+    /**
+     * Fills all of out with 3D noise from the plane at z, where {@code out[row * width + col]} gets the same value as
+     * {@code getNoiseWithSeed(x0 + col * dx, y0 + row * dy, z, seed)}. Like
+     * {@link #fillNoise(float[], int, int, double, double, double, double, int)}, the hashes of a simplex cell's
+     * corners are only found once for all the samples in that cell.
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param z the z position of every cell
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to use for the noise
+     */
+    public void fillNoise(final float[] out, final int width, final int height, final double x0, final double y0,
+                          final double z, final double dx, final double dy, final int seed) {
+        fillRows(out, width, 0, height, x0, y0, z, dx, dy, seed);
+    }
+
+    public void fillRows(final float[] out, final int width, final int startRow, final int endRow,
+                         final double x0, final double y0, final double z, final double dx, final double dy,
+                         final int seed) {
+        final float[] gradient3DLUT = SeededNoise.gradient3DLUT;
+        final float zf = (float) z;
+        // hashes of the current cell's corners, indexed by which of i, j, and k are one higher; -1 means not found yet
+        final int[] corners = {-1, -1, -1, -1, -1, -1, -1, -1};
+        int ci = 0, cj = 0, ck = 0;
+        for (int row = startRow, idx = startRow * width; row < endRow; row++) {
+            final float y = (float) (y0 + row * dy);
+            for (int col = 0; col < width; col++) {
+                final float x = (float) (x0 + col * dx);
+                float n0, n1, n2, n3;
+                final float s = (x + y + zf) * F3;
+                final int i = fastFloor(x + s),
+                        j = fastFloor(y + s),
+                        k = fastFloor(zf + s);
+                if (i != ci || j != cj || k != ck || corners[0] < 0) {
+                    ci = i;
+                    cj = j;
+                    ck = k;
+                    corners[0] = corners[1] = corners[2] = corners[3] =
+                            corners[4] = corners[5] = corners[6] = corners[7] = -1;
+                    corners[0] = hash(i, j, k, seed) * 3;
+                    corners[7] = hash(i + 1, j + 1, k + 1, seed) * 3;
+                }
+
+                final float t = (i + j + k) * G3;
+                final float X0 = i - t, Y0 = j - t, Z0 = k - t,
+                        xa = x - X0, ya = y - Y0, za = zf - Z0;
+
+                int i1, j1, k1;
+                int i2, j2, k2;
+
+                if (xa >= ya) {
+                    if (ya >= za) {
+                        i1 = 1;
+                        j1 = 0;
+                        k1 = 0;
+                        i2 = 1;
+                        j2 = 1;
+                        k2 = 0;
+                    } else if (xa >= za) {
+                        i1 = 1;
+                        j1 = 0;
+                        k1 = 0;
+                        i2 = 1;
+                        j2 = 0;
+                        k2 = 1;
+                    } else {
+                        i1 = 0;
+                        j1 = 0;
+                        k1 = 1;
+                        i2 = 1;
+                        j2 = 0;
+                        k2 = 1;
+                    }
+                } else {
+                    if (ya < za) {
+                        i1 = 0;
+                        j1 = 0;
+                        k1 = 1;
+                        i2 = 0;
+                        j2 = 1;
+                        k2 = 1;
+                    } else if (xa < za) {
+                        i1 = 0;
+                        j1 = 1;
+                        k1 = 0;
+                        i2 = 0;
+                        j2 = 1;
+                        k2 = 1;
+                    } else {
+                        i1 = 0;
+                        j1 = 1;
+                        k1 = 0;
+                        i2 = 1;
+                        j2 = 1;
+                        k2 = 0;
+                    }
+                }
+
+                float x1 = xa - i1 + G3,
+                        y1 = ya - j1 + G3,
+                        z1 = za - k1 + G3,
+                        x2 = xa - i2 + 2f * G3,
+                        y2 = ya - j2 + 2f * G3,
+                        z2 = za - k2 + 2f * G3,
+                        x3 = xa - 1f + 3f * G3,
+                        y3 = ya - 1f + 3f * G3,
+                        z3 = za - 1f + 3f * G3;
+
+                final int c1 = i1 << 2 | j1 << 1 | k1, c2 = i2 << 2 | j2 << 1 | k2,
+                        h0 = corners[0],
+                        h1 = corners[c1] < 0 ? (corners[c1] = hash(i + i1, j + j1, k + k1, seed) * 3) : corners[c1],
+                        h2 = corners[c2] < 0 ? (corners[c2] = hash(i + i2, j + j2, k + k2, seed) * 3) : corners[c2],
+                        h3 = corners[7];
+
+                float t0 = 0.6f - xa * xa - ya * ya - za * za;
+                if (t0 < 0.0f)
+                    n0 = 0.0f;
+                else {
+                    t0 *= t0;
+                    n0 = t0 * t0 * (xa * gradient3DLUT[h0] + ya * gradient3DLUT[h0 + 1] + za * gradient3DLUT[h0 + 2]);
+                }
+
+                float t1 = 0.6f - x1 * x1 - y1 * y1 - z1 * z1;
+                if (t1 < 0.0f)
+                    n1 = 0.0f;
+                else {
+                    t1 *= t1;
+                    n1 = t1 * t1 * (x1 * gradient3DLUT[h1] + y1 * gradient3DLUT[h1 + 1] + z1 * gradient3DLUT[h1 + 2]);
+                }
+
+                float t2 = 0.6f - x2 * x2 - y2 * y2 - z2 * z2;
+                if (t2 < 0.0f)
+                    n2 = 0.0f;
+                else {
+                    t2 *= t2;
+                    n2 = t2 * t2 * (x2 * gradient3DLUT[h2] + y2 * gradient3DLUT[h2 + 1] + z2 * gradient3DLUT[h2 + 2]);
+                }
+
+                float t3 = 0.6f - x3 * x3 - y3 * y3 - z3 * z3;
+                if (t3 < 0.0f)
+                    n3 = 0.0f;
+                else {
+                    t3 *= t3;
+                    n3 = t3 * t3 * (x3 * gradient3DLUT[h3] + y3 * gradient3DLUT[h3 + 1] + z3 * gradient3DLUT[h3 + 2]);
+                }
+
+                out[idx++] = (32f * (n0 + n1 + n2 + n3)) * 1.25086885f + 0.0003194984f;
+            }
+        }
+    }
+
+    /**
+     * Fills all of out with 4D noise from the plane at z and w, where {@code out[row * width + col]} gets the same
+     * value as {@code getNoiseWithSeed(x0 + col * dx, y0 + row * dy, z, w, seed)}. Like
+     * {@link #fillNoise(float[], int, int, double, double, double, double, int)}, the hashes of a simplex cell's
+     * corners are only found once for all the samples in that cell.
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param z the z position of every cell
+     * @param w the w position of every cell
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to use for the noise
+     */
+    public void fillNoise(final float[] out, final int width, final int height, final double x0, final double y0,
+                          final double z, final double w, final double dx, final double dy, final int seed) {
+        fillRows(out, width, 0, height, x0, y0, z, w, dx, dy, seed);
+    }
+
+    public void fillRows(final float[] out, final int width, final int startRow, final int endRow,
+                         final double x0, final double y0, final double z, final double w,
+                         final double dx, final double dy, final int seed) {
+        final float[] gradient4DLUT = SeededNoise.gradient4DLUT;
+        final float zf = (float) z, wf = (float) w;
+        // hashes of the current cell's corners, indexed by which of i, j, k, and l are one higher
+        final int[] corners = new int[16];
+        corners[0] = -1;
+        int ci = 0, cj = 0, ck = 0, cl = 0;
+        for (int row = startRow, idx = startRow * width; row < endRow; row++) {
+            final float y = (float) (y0 + row * dy);
+            for (int col = 0; col < width; col++) {
+                final float x = (float) (x0 + col * dx);
+                float n = 0.0f;
+                final float s = (x + y + zf + wf) * F4;
+                final int i = fastFloor(x + s), j = fastFloor(y + s), k = fastFloor(zf + s), l = fastFloor(wf + s);
+                if (i != ci || j != cj || k != ck || l != cl || corners[0] < 0) {
+                    ci = i;
+                    cj = j;
+                    ck = k;
+                    cl = l;
+                    for (int c = 1; c < 15; c++) {
+                        corners[c] = -1;
+                    }
+                    corners[0] = hash(i, j, k, l, seed) << 2;
+                    corners[15] = hash(i + 1, j + 1, k + 1, l + 1, seed) << 2;
+                }
+                final float t = (i + j + k + l) * G4,
+                        X0 = i - t,
+                        Y0 = j - t,
+                        Z0 = k - t,
+                        W0 = l - t,
+                        xa = x - X0,
+                        ya = y - Y0,
+                        za = zf - Z0,
+                        wa = wf - W0;
+                final int c = (xa > ya ? 128 : 0) | (xa > za ? 64 : 0) | (ya > za ? 32 : 0) | (xa > wa ? 16 : 0) | (ya > wa ? 8 : 0) | (za > wa ? 4 : 0);
+                final int i1 = SIMPLEX[c] >>> 2,
+                        j1 = SIMPLEX[c | 1] >>> 2,
+                        k1 = SIMPLEX[c | 2] >>> 2,
+                        l1 = SIMPLEX[c | 3] >>> 2,
+                        i2 = SIMPLEX[c] >>> 1 & 1,
+                        j2 = SIMPLEX[c | 1] >>> 1 & 1,
+                        k2 = SIMPLEX[c | 2] >>> 1 & 1,
+                        l2 = SIMPLEX[c | 3] >>> 1 & 1,
+                        i3 = SIMPLEX[c] & 1,
+                        j3 = SIMPLEX[c | 1] & 1,
+                        k3 = SIMPLEX[c | 2] & 1,
+                        l3 = SIMPLEX[c | 3] & 1;
+                final float x1 = xa - i1 + G4,
+                        y1 = ya - j1 + G4,
+                        z1 = za - k1 + G4,
+                        w1 = wa - l1 + G4,
+                        x2 = xa - i2 + 2f * G4,
+                        y2 = ya - j2 + 2f * G4,
+                        z2 = za - k2 + 2f * G4,
+                        w2 = wa - l2 + 2f * G4,
+                        x3 = xa - i3 + 3f * G4,
+                        y3 = ya - j3 + 3f * G4,
+                        z3 = za - k3 + 3f * G4,
+                        w3 = wa - l3 + 3f * G4,
+                        x4 = xa - 1f + 4f * G4,
+                        y4 = ya - 1f + 4f * G4,
+                        z4 = za - 1f + 4f * G4,
+                        w4 = wa - 1f + 4f * G4;
+                final int c1 = i1 << 3 | j1 << 2 | k1 << 1 | l1,
+                        c2 = i2 << 3 | j2 << 2 | k2 << 1 | l2,
+                        c3 = i3 << 3 | j3 << 2 | k3 << 1 | l3,
+                        h0 = corners[0],
+                        h1 = corners[c1] < 0 ? (corners[c1] = hash(i + i1, j + j1, k + k1, l + l1, seed) << 2) : corners[c1],
+                        h2 = corners[c2] < 0 ? (corners[c2] = hash(i + i2, j + j2, k + k2, l + l2, seed) << 2) : corners[c2],
+                        h3 = corners[c3] < 0 ? (corners[c3] = hash(i + i3, j + j3, k + k3, l + l3, seed) << 2) : corners[c3],
+                        h4 = corners[15];
+                float t0 = LIMIT4 - xa * xa - ya * ya - za * za - wa * wa;
+                if(t0 > 0) {
+                    t0 *= t0;
+                    n += t0 * t0 * (xa * gradient4DLUT[h0] + ya * gradient4DLUT[h0 | 1] + za * gradient4DLUT[h0 | 2] + wa * gradient4DLUT[h0 | 3]);
+                }
+                float t1 = LIMIT4 - x1 * x1 - y1 * y1 - z1 * z1 - w1 * w1;
+                if (t1 > 0) {
+                    t1 *= t1;
+                    n += t1 * t1 * (x1 * gradient4DLUT[h1] + y1 * gradient4DLUT[h1 | 1] + z1 * gradient4DLUT[h1 | 2] + w1 * gradient4DLUT[h1 | 3]);
+                }
+                float t2 = LIMIT4 - x2 * x2 - y2 * y2 - z2 * z2 - w2 * w2;
+                if (t2 > 0) {
+                    t2 *= t2;
+                    n += t2 * t2 * (x2 * gradient4DLUT[h2] + y2 * gradient4DLUT[h2 | 1] + z2 * gradient4DLUT[h2 | 2] + w2 * gradient4DLUT[h2 | 3]);
+                }
+                float t3 = LIMIT4 - x3 * x3 - y3 * y3 - z3 * z3 - w3 * w3;
+                if (t3 > 0) {
+                    t3 *= t3;
+                    n += t3 * t3 * (x3 * gradient4DLUT[h3] + y3 * gradient4DLUT[h3 | 1] + z3 * gradient4DLUT[h3 | 2] + w3 * gradient4DLUT[h3 | 3]);
+                }
+                float t4 = LIMIT4 - x4 * x4 - y4 * y4 - z4 * z4 - w4 * w4;
+                if (t4 > 0) {
+                    t4 *= t4;
+                    n += t4 * t4 * (x4 * gradient4DLUT[h4] + y4 * gradient4DLUT[h4 | 1] + z4 * gradient4DLUT[h4 | 2] + w4 * gradient4DLUT[h4 | 3]);
+                }
+                out[idx++] = NumberTools.bounce(5.0f + 41.0f * n);
+            }
+        }
+    }
+
     protected static final float[] gradient2DLUT = {0, 1, 0, -1,
             1, 0, -1, 0, 0, 1, 0, -1, 1, 0, -1, 0, 0, 1,
             0, -1, 1, 0, -1, 0, 0, 1, 0, -1, 1, 0, -1, 0,
@@ -21,7 +21,7 @@ package squidpony.squidmath;
  * This can also be used as a sort of hashing function that produces a double, if you find a need for such a thing, with
  * {@link #hash(double...)}.
  */
-public class ValueNoise implements Noise.Noise1D, Noise.Noise2D, Noise.Noise3D, Noise.Noise4D, Noise.Noise6D {
+public class ValueNoise implements Noise.Noise1D, Noise.Bulk2D, Noise.Bulk3D, Noise.Bulk4D, Noise.Noise6D {
     public static final ValueNoise instance = new ValueNoise();
 
     public ValueNoise() {
@@ -106,6 +106,137 @@ public class ValueNoise implements Noise.Noise1D, Noise.Noise2D, Noise.Noise3D,
         return NumberTools.longBitsToDouble(((result * (a | 1L) ^ (result >>> 27 | result << 37)) >>> 12) | 0x4000000000000000L)  - 3.0;
     }
 
+    /**
+     * Fills all of out with 2D noise, where {@code out[row * width + col]} gets the same value as {@code (float)
+     * getNoiseWithSeed(x0 + col * dx, y0 + row * dy, seed)}. Each coordinate is hashed on its own before they are mixed
+     * together, so the hash of x is only found once per column, and the hashes of the other coordinates and the seed
+     * only once per row or once per call.
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to use for the noise
+     */
+    @Override
+    public void fillNoise(final float[] out, final int width, final int height, final double x0, final double y0,
+                          final double dx, final double dy, final int seed) {
+        fillRows(out, width, 0, height, x0, y0, dx, dy, seed);
+    }
+
+    @Override
+    public void fillRows(final float[] out, final int width, final int startRow, final int endRow,
+                         final double x0, final double y0, final double dx, final double dy, final int seed) {
+        final long ks = 0x8329C6EB9E6AD3E3L * seed;
+        final long[] columns = new long[width];
+        for (int col = 0; col < width; col++) {
+            columns[col] = 0x632BE59BD9B4E019L ^ 0x8329C6EB9E6AD3E3L * NumberTools.doubleToMixedIntBits((x0 + col * dx) * 0x11.9E3779B9p3);
+        }
+        for (int row = startRow, idx = startRow * width; row < endRow; row++) {
+            final long ky = 0x8329C6EB9E6AD3E3L * NumberTools.doubleToMixedIntBits((y0 + row * dy) * 0x11.8329C6DFp3);
+            for (int col = 0; col < width; col++) {
+                final long a1 = columns[col],
+                        a2 = a1 ^ ky,
+                        a3 = a2 ^ ks,
+                        result = 0x9E3779B97F4A7C94L + a1 + a2 + a3;
+                out[idx++] = (float) (NumberTools.longBitsToDouble(((result * (a3 | 1L) ^ (result >>> 27 | result << 37)) >>> 12) | 0x4000000000000000L) - 3.0);
+            }
+        }
+    }
+
+    /**
+     * Fills all of out with 3D noise from the plane at z, where {@code out[row * width + col]} gets the same value as
+     * {@code (float) getNoiseWithSeed(x0 + col * dx, y0 + row * dy, z, seed)}. Each coordinate is hashed on its own
+     * before they are mixed together, so the hash of x is only found once per column, and the hashes of the other
+     * coordinates and the seed only once per row or once per call.
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param z the z position of every cell
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to use for the noise
+     */
+    @Override
+    public void fillNoise(final float[] out, final int width, final int height, final double x0, final double y0,
+                          final double z, final double dx, final double dy, final int seed) {
+        fillRows(out, width, 0, height, x0, y0, z, dx, dy, seed);
+    }
+
+    @Override
+    public void fillRows(final float[] out, final int width, final int startRow, final int endRow,
+                         final double x0, final double y0, final double z, final double dx, final double dy,
+                         final int seed) {
+        final long kz = 0x8329C6EB9E6AD3E3L * NumberTools.doubleToMixedIntBits(z * 0x11.85157AF5p3);
+        final long ks = 0x8329C6EB9E6AD3E3L * seed;
+        final long[] columns = new long[width];
+        for (int col = 0; col < width; col++) {
+            columns[col] = 0x632BE59BD9B4E019L ^ 0x8329C6EB9E6AD3E3L * NumberTools.doubleToMixedIntBits((x0 + col * dx) * 0x11.9E3779B9p3);
+        }
+        for (int row = startRow, idx = startRow * width; row < endRow; row++) {
+            final long ky = 0x8329C6EB9E6AD3E3L * NumberTools.doubleToMixedIntBits((y0 + row * dy) * 0x11.8329C6DFp3);
+            for (int col = 0; col < width; col++) {
+                final long a1 = columns[col],
+                        a2 = a1 ^ ky,
+                        a3 = a2 ^ kz,
+                        a4 = a3 ^ ks,
+                        result = 0x9E3779B97F4A7C94L + a1 + a2 + a3 + a4;
+                out[idx++] = (float) (NumberTools.longBitsToDouble(((result * (a4 | 1L) ^ (result >>> 27 | result << 37)) >>> 12) | 0x4000000000000000L) - 3.0);
+            }
+        }
+    }
+
+    /**
+     * Fills all of out with 4D noise from the plane at z and w, where {@code out[row * width + col]} gets the same
+     * value as {@code (float) getNoiseWithSeed(x0 + col * dx, y0 + row * dy, z, w, seed)}. Each coordinate is hashed on
+     * its own before they are mixed together, so the hash of x is only found once per column, and the hashes of the
+     * other coordinates and the seed only once per row or once per call.
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param z the z position of every cell
+     * @param w the w position of every cell
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to use for the noise
+     */
+    @Override
+    public void fillNoise(final float[] out, final int width, final int height, final double x0, final double y0,
+                          final double z, final double w, final double dx, final double dy, final int seed) {
+        fillRows(out, width, 0, height, x0, y0, z, w, dx, dy, seed);
+    }
+
+    @Override
+    public void fillRows(final float[] out, final int width, final int startRow, final int endRow,
+                         final double x0, final double y0, final double z, final double w,
+                         final double dx, final double dy, final int seed) {
+        final long kz = 0x8329C6EB9E6AD3E3L * NumberTools.doubleToMixedIntBits(z * 0x11.85157AF5p3);
+        final long kw = 0x8329C6EB9E6AD3E3L * NumberTools.doubleToMixedIntBits(w * 0x11.8329C6DFp3);
+        final long ks = 0x8329C6EB9E6AD3E3L * seed;
+        final long[] columns = new long[width];
+        for (int col = 0; col < width; col++) {
+            columns[col] = 0x632BE59BD9B4E019L ^ 0x8329C6EB9E6AD3E3L * NumberTools.doubleToMixedIntBits((x0 + col * dx) * 0x11.9E3779B9p3);
+        }
+        for (int row = startRow, idx = startRow * width; row < endRow; row++) {
+            final long ky = 0x8329C6EB9E6AD3E3L * NumberTools.doubleToMixedIntBits((y0 + row * dy) * 0x11.953976F9p3);
+            for (int col = 0; col < width; col++) {
+                final long a1 = columns[col],
+                        a2 = a1 ^ ky,
+                        a3 = a2 ^ kz,
+                        a4 = a3 ^ kw,
+                        a5 = a4 ^ ks,
+                        result = 0x9E3779B97F4A7C94L + a1 + a2 + a3 + a4 + a5;
+                out[idx++] = (float) (NumberTools.longBitsToDouble(((result * (a5 | 1L) ^ (result >>> 27 | result << 37)) >>> 12) | 0x4000000000000000L) - 3.0);
+            }
+        }
+    }
+
     @Override
     public double getNoise(double x, double y, double z, double w, double u, double v) {
         long a = 0x632BE59BD9B4E019L,
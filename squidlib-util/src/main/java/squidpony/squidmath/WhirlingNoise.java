@@ -2,6 +2,8 @@ package squidpony.squidmath;
 
 import squidpony.annotation.Beta;
 
+import java.util.Arrays;
+
 import static squidpony.squidmath.LightRNG.determine;
 import static squidpony.squidmath.LightRNG.determineBounded;
 
@@ -17,7 +19,7 @@ import static squidpony.squidmath.LightRNG.determineBounded;
  * Created by Tommy Ettinger on 12/14/2016.
  */
 @Beta
-public class WhirlingNoise extends PerlinNoise implements Noise.Noise2D, Noise.Noise3D, Noise.Noise4D {
+public class WhirlingNoise extends PerlinNoise implements Noise.Bulk2D, Noise.Bulk3D, Noise.Bulk4D {
 
     public static final WhirlingNoise instance = new WhirlingNoise();
 
@@ -325,6 +327,374 @@ public class WhirlingNoise extends PerlinNoise implements Noise.Noise2D, Noise.N
         return noise(x, y, z, w, seed);
     }
 
+    /**
+     * Fills all of out with 2D noise, where {@code out[row * width + col]} gets the same value as {@code (float)
+     * getNoiseWithSeed(x0 + col * dx, y0 + row * dy, seed)}. Each corner hash takes two calls to LightRNG.determine,
+     * and is only found once for all the samples in its simplex cell, which saves the most when several samples fall in
+     * each cell (when dx and dy are less than 1).
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to use for the noise
+     */
+    public void fillNoise(final float[] out, final int width, final int height, final double x0, final double y0,
+                          final double dx, final double dy, final int seed) {
+        fillRows(out, width, 0, height, x0, y0, dx, dy, seed);
+    }
+
+    public void fillRows(final float[] out, final int width, final int startRow, final int endRow,
+                         final double x0, final double y0, final double dx, final double dy, final int seed) {
+        // the current cell's corner hashes, indexed by which coordinates are one higher; -1 means not found yet
+        final int[] corners = new int[4];
+        corners[0] = -1;
+        int ci = 0, cj = 0;
+        for (int row = startRow, idx = startRow * width; row < endRow; row++) {
+            final double yin = y0 + row * dy;
+            for (int col = 0; col < width; col++) {
+                final double xin = x0 + col * dx;
+                double noise0, noise1, noise2;
+                double skew = (xin + yin) * F2;
+                int i = fastFloor(xin + skew);
+                int j = fastFloor(yin + skew);
+                if (i != ci || j != cj || corners[0] < 0) {
+                    ci = i;
+                    cj = j;
+                    Arrays.fill(corners, -1);
+                }
+                double t = (i + j) * G2;
+                double X0 = i - t;
+                double Y0 = j - t;
+                double xa = xin - X0;
+                double ya = yin - Y0;
+                int i1, j1;
+                if (xa > ya) {
+                    i1 = 1;
+                    j1 = 0;
+                }
+                else {
+                    i1 = 0;
+                    j1 = 1;
+                }
+                double x1 = xa - i1 + G2;
+                double y1 = ya - j1 + G2;
+                double x2 = xa - 1.0 + 2.0 * G2;
+                double y2 = ya - 1.0 + 2.0 * G2;
+                final int gi0 = corners[0] < 0 ? (corners[0] = determineBounded(seed + i + determine(j), 16)) : corners[0];
+                final int q1 = i1 << 1 | j1;
+                final int gi1 = corners[q1] < 0 ? (corners[q1] = determineBounded(seed + i + i1 + determine(j + j1), 16)) : corners[q1];
+                final int gi2 = corners[3] < 0 ? (corners[3] = determineBounded(seed + i + 1 + determine(j + 1), 16)) : corners[3];
+                double t0 = 0.5 - xa * xa - ya * ya;
+                if (t0 < 0) {
+                    noise0 = 0.0;
+                } else {
+                    t0 *= t0;
+                    noise0 = t0 * t0 * dot(phiGrad2[gi0], xa, ya);
+                }
+                double t1 = 0.5 - x1 * x1 - y1 * y1;
+                if (t1 < 0) {
+                    noise1 = 0.0;
+                } else {
+                    t1 *= t1;
+                    noise1 = t1 * t1 * dot(phiGrad2[gi1], x1, y1);
+                }
+                double t2 = 0.5 - x2 * x2 - y2 * y2;
+                if (t2 < 0) {
+                    noise2 = 0.0;
+                } else {
+                    t2 *= t2;
+                    noise2 = t2 * t2 * dot(phiGrad2[gi2], x2, y2);
+                }
+                out[idx++] = (float) (70.0 * (noise0 + noise1 + noise2));
+            }
+        }
+    }
+
+    /**
+     * Fills all of out with 3D noise from the plane at z, where {@code out[row * width + col]} gets the same value as
+     * {@code (float) getNoiseWithSeed(x0 + col * dx, y0 + row * dy, z, seed)}. The hashes of a simplex cell's corners
+     * are only found once for all the samples in that cell, which saves the most when several samples fall in each cell
+     * (when dx and dy are less than 1).
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param z the z position of every cell
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to use for the noise
+     */
+    public void fillNoise(final float[] out, final int width, final int height, final double x0, final double y0,
+                          final double z, final double dx, final double dy, final int seed) {
+        fillRows(out, width, 0, height, x0, y0, z, dx, dy, seed);
+    }
+
+    public void fillRows(final float[] out, final int width, final int startRow, final int endRow,
+                         final double x0, final double y0, final double z, final double dx, final double dy,
+                         final int seed) {
+        final double zin = z;
+        // the current cell's corner hashes, indexed by which coordinates are one higher; -1 means not found yet
+        final int[] corners = new int[8];
+        corners[0] = -1;
+        int ci = 0, cj = 0, ck = 0;
+        for (int row = startRow, idx = startRow * width; row < endRow; row++) {
+            final double yin = y0 + row * dy;
+            for (int col = 0; col < width; col++) {
+                final double xin = x0 + col * dx;
+                double n0, n1, n2, n3;
+                double s = (xin + yin + zin) * F3;
+                int i = fastFloor(xin + s);
+                int j = fastFloor(yin + s);
+                int k = fastFloor(zin + s);
+                if (i != ci || j != cj || k != ck || corners[0] < 0) {
+                    ci = i;
+                    cj = j;
+                    ck = k;
+                    Arrays.fill(corners, -1);
+                }
+                double t = (i + j + k) * G3;
+                double X0 = i - t;
+                double Y0 = j - t;
+                double Z0 = k - t;
+                double xa = xin - X0;
+                double ya = yin - Y0;
+                double za = zin - Z0;
+                int i1, j1, k1;
+                int i2, j2, k2;
+                if (xa >= ya) {
+                    if (ya >= za) {
+                        i1 = 1;
+                        j1 = 0;
+                        k1 = 0;
+                        i2 = 1;
+                        j2 = 1;
+                        k2 = 0;
+                    }
+                    else if (xa >= za) {
+                        i1 = 1;
+                        j1 = 0;
+                        k1 = 0;
+                        i2 = 1;
+                        j2 = 0;
+                        k2 = 1;
+                    }
+                    else {
+                        i1 = 0;
+                        j1 = 0;
+                        k1 = 1;
+                        i2 = 1;
+                        j2 = 0;
+                        k2 = 1;
+                    }
+                } else {
+                    if (ya < za) {
+                        i1 = 0;
+                        j1 = 0;
+                        k1 = 1;
+                        i2 = 0;
+                        j2 = 1;
+                        k2 = 1;
+                    }
+                    else if (xa < za) {
+                        i1 = 0;
+                        j1 = 1;
+                        k1 = 0;
+                        i2 = 0;
+                        j2 = 1;
+                        k2 = 1;
+                    }
+                    else {
+                        i1 = 0;
+                        j1 = 1;
+                        k1 = 0;
+                        i2 = 1;
+                        j2 = 1;
+                        k2 = 0;
+                    }
+                }
+                double x1 = xa - i1 + G3;
+                double y1 = ya - j1 + G3;
+                double z1 = za - k1 + G3;
+                double x2 = xa - i2 + F3;
+                double y2 = ya - j2 + F3;
+                double z2 = za - k2 + F3;
+                double x3 = xa - 0.5;
+                double y3 = ya - 0.5;
+                double z3 = za - 0.5;
+                final int gi0 = corners[0] < 0 ? (corners[0] = determineBounded(seed + i + determine(j + determine(k)), 92)) : corners[0];
+                final int q1 = i1 << 2 | j1 << 1 | k1;
+                final int gi1 = corners[q1] < 0 ? (corners[q1] = determineBounded(seed + i + i1 + determine(j + j1 + determine(k + k1)), 92)) : corners[q1];
+                final int q2 = i2 << 2 | j2 << 1 | k2;
+                final int gi2 = corners[q2] < 0 ? (corners[q2] = determineBounded(seed + i + i2 + determine(j + j2 + determine(k + k2)), 92)) : corners[q2];
+                final int gi3 = corners[7] < 0 ? (corners[7] = determineBounded(seed + i + 1 + determine(j + 1 + determine(k + 1)), 92)) : corners[7];
+                double t0 = 0.6 - xa * xa - ya * ya - za * za;
+                if (t0 < 0) {
+                    n0 = 0.0;
+                } else {
+                    t0 *= t0;
+                    n0 = t0 * t0 * dot(grad3f[gi0], xa, ya, za);
+                }
+                double t1 = 0.6 - x1 * x1 - y1 * y1 - z1 * z1;
+                if (t1 < 0) {
+                    n1 = 0.0;
+                } else {
+                    t1 *= t1;
+                    n1 = t1 * t1 * dot(grad3f[gi1], x1, y1, z1);
+                }
+                double t2 = 0.6 - x2 * x2 - y2 * y2 - z2 * z2;
+                if (t2 < 0) {
+                    n2 = 0.0;
+                } else {
+                    t2 *= t2;
+                    n2 = t2 * t2 * dot(grad3f[gi2], x2, y2, z2);
+                }
+                double t3 = 0.6 - x3 * x3 - y3 * y3 - z3 * z3;
+                if (t3 < 0) {
+                    n3 = 0.0;
+                } else {
+                    t3 *= t3;
+                    n3 = t3 * t3 * dot(grad3f[gi3], x3, y3, z3);
+                }
+                out[idx++] = (float) (32.0 * (n0 + n1 + n2 + n3));
+            }
+        }
+    }
+
+    /**
+     * Fills all of out with 4D noise from the plane at z and w, where {@code out[row * width + col]} gets the same
+     * value as {@code (float) getNoiseWithSeed(x0 + col * dx, y0 + row * dy, z, w, seed)}. The hashes of a simplex
+     * cell's corners are only found once for all the samples in that cell, which saves the most when several samples
+     * fall in each cell (when dx and dy are less than 1).
+     * @param out a float array with a length of at least width times height; will be modified
+     * @param width how many columns of noise to fill
+     * @param height how many rows of noise to fill
+     * @param x0 the x position of the first column
+     * @param y0 the y position of the first row
+     * @param z the z position of every cell
+     * @param w the w position of every cell
+     * @param dx how much x changes from one column to the next
+     * @param dy how much y changes from one row to the next
+     * @param seed the seed to use for the noise
+     */
+    public void fillNoise(final float[] out, final int width, final int height, final double x0, final double y0,
+                          final double z, final double w, final double dx, final double dy, final int seed) {
+        fillRows(out, width, 0, height, x0, y0, z, w, dx, dy, seed);
+    }
+
+    public void fillRows(final float[] out, final int width, final int startRow, final int endRow,
+                         final double x0, final double y0, final double z, final double w,
+                         final double dx, final double dy, final int seed) {
+        // the current cell's corner hashes, indexed by which coordinates are one higher; -1 means not found yet
+        final int[] corners = new int[16];
+        corners[0] = -1;
+        int ci = 0, cj = 0, ck = 0, cl = 0;
+        for (int row = startRow, idx = startRow * width; row < endRow; row++) {
+            final double y = y0 + row * dy;
+            for (int col = 0; col < width; col++) {
+                final double x = x0 + col * dx;
+                double s = (x + y + z + w) * F4;
+                int i = fastFloor(x + s);
+                int j = fastFloor(y + s);
+                int k = fastFloor(z + s);
+                int l = fastFloor(w + s);
+                if (i != ci || j != cj || k != ck || l != cl || corners[0] < 0) {
+                    ci = i;
+                    cj = j;
+                    ck = k;
+                    cl = l;
+                    Arrays.fill(corners, -1);
+                }
+                double t = (i + j + k + l) * G4;
+                double X0 = i - t;
+                double Y0 = j - t;
+                double Z0 = k - t;
+                double W0 = l - t;
+                double xa = x - X0;
+                double ya = y - Y0;
+                double za = z - Z0;
+                double wa = w - W0;
+                int c = (xa > ya ? 32 : 0) | (xa > za ? 16 : 0) | (ya > za ? 8 : 0) |
+                        (xa > wa ? 4 : 0) | (ya > wa ? 2 : 0) | (za > wa ? 1 : 0);
+                int i1 = simplex[c][0] >= 3 ? 1 : 0;
+                int j1 = simplex[c][1] >= 3 ? 1 : 0;
+                int k1 = simplex[c][2] >= 3 ? 1 : 0;
+                int l1 = simplex[c][3] >= 3 ? 1 : 0;
+                int i2 = simplex[c][0] >= 2 ? 1 : 0;
+                int j2 = simplex[c][1] >= 2 ? 1 : 0;
+                int k2 = simplex[c][2] >= 2 ? 1 : 0;
+                int l2 = simplex[c][3] >= 2 ? 1 : 0;
+                int i3 = simplex[c][0] >= 1 ? 1 : 0;
+                int j3 = simplex[c][1] >= 1 ? 1 : 0;
+                int k3 = simplex[c][2] >= 1 ? 1 : 0;
+                int l3 = simplex[c][3] >= 1 ? 1 : 0;
+                double x1 = xa - i1 + G4;
+                double y1 = ya - j1 + G4;
+                double z1 = za - k1 + G4;
+                double w1 = wa - l1 + G4;
+                double x2 = xa - i2 + 2.0 * G4;
+                double y2 = ya - j2 + 2.0 * G4;
+                double z2 = za - k2 + 2.0 * G4;
+                double w2 = wa - l2 + 2.0 * G4;
+                double x3 = xa - i3 + 3.0 * G4;
+                double y3 = ya - j3 + 3.0 * G4;
+                double z3 = za - k3 + 3.0 * G4;
+                double w3 = wa - l3 + 3.0 * G4;
+                double x4 = xa - 1.0 + 4.0 * G4;
+                double y4 = ya - 1.0 + 4.0 * G4;
+                double z4 = za - 1.0 + 4.0 * G4;
+                double w4 = wa - 1.0 + 4.0 * G4;
+                final int gi0 = corners[0] < 0 ? (corners[0] = determineBounded(seed + i + determine(j + determine(k + determine(l))), 32)) : corners[0];
+                final int q1 = i1 << 3 | j1 << 2 | k1 << 1 | l1;
+                final int gi1 = corners[q1] < 0 ? (corners[q1] = determineBounded(seed + i + i1 + determine(j + j1 + determine(k + k1 + determine(l + l1))), 32)) : corners[q1];
+                final int q2 = i2 << 3 | j2 << 2 | k2 << 1 | l2;
+                final int gi2 = corners[q2] < 0 ? (corners[q2] = determineBounded(seed + i + i2 + determine(j + j2 + determine(k + k2 + determine(l + l2))), 32)) : corners[q2];
+                final int q3 = i3 << 3 | j3 << 2 | k3 << 1 | l3;
+                final int gi3 = corners[q3] < 0 ? (corners[q3] = determineBounded(seed + i + i3 + determine(j + j3 + determine(k + k3 + determine(l + l3))), 32)) : corners[q3];
+                final int gi4 = corners[15] < 0 ? (corners[15] = determineBounded(seed + i + 1 + determine(j + 1 + determine(k + 1 + determine(l + 1))), 32)) : corners[15];
+                double t0 = 0.6 - xa * xa - ya * ya - za * za - wa * wa, n0;
+                if (t0 < 0) {
+                    n0 = 0.0;
+                } else {
+                    t0 *= t0;
+                    n0 = t0 * t0 * dot(grad4f[gi0], xa, ya, za, wa);
+                }
+                double t1 = 0.6 - x1 * x1 - y1 * y1 - z1 * z1 - w1 * w1, n1;
+                if (t1 < 0) {
+                    n1 = 0.0;
+                } else {
+                    t1 *= t1;
+                    n1 = t1 * t1 * dot(grad4f[gi1], x1, y1, z1, w1);
+                }
+                double t2 = 0.6 - x2 * x2 - y2 * y2 - z2 * z2 - w2 * w2,  n2;
+                if (t2 < 0) {
+                    n2 = 0.0;
+                } else {
+                    t2 *= t2;
+                    n2 = t2 * t2 * dot(grad4f[gi2], x2, y2, z2, w2);
+                }
+                double t3 = 0.6 - x3 * x3 - y3 * y3 - z3 * z3 - w3 * w3, n3;
+                if (t3 < 0) {
+                    n3 = 0.0;
+                } else {
+                    t3 *= t3;
+                    n3 = t3 * t3 * dot(grad4f[gi3], x3, y3, z3, w3);
+                }
+                double t4 = 0.6 - x4 * x4 - y4 * y4 - z4 * z4 - w4 * w4, n4;
+                if (t4 < 0) {
+                    n4 = 0.0;
+                } else {
+                    t4 *= t4;
+                    n4 = t4 * t4 * dot(grad4f[gi4], x4, y4, z4, w4);
+                }
+                out[idx++] = (float) (27.0 * (n0 + n1 + n2 + n3 + n4));
+            }
+        }
+    }
+
 
     /**
      * 2D simplex noise. Unlike {@link PerlinNoise}, uses its parameters verbatim, so the scale of the result will be
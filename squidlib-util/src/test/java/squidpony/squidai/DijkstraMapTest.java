@@ -0,0 +1,191 @@
+package squidpony.squidai;
+
+import org.junit.Test;
+import squidpony.squidgrid.mapping.DungeonGenerator;
+import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.GreasedRegion;
+import squidpony.squidmath.StatefulRNG;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks DijkstraMap's incremental updates against doing the same work from scratch: distances fixed by repair()
+ * against a new scan, clearance kept up to date by setWall() against clearance found by brute force, and the paths
+ * of large creatures against that clearance. Also checks that bucketScan() finds the same gradients as scan().
+ */
+public class DijkstraMapTest {
+    private static char[][] dungeon(long seed) {
+        return DungeonUtility.simplifyDungeon(new DungeonGenerator(60, 44, new StatefulRNG(seed)).generate());
+    }
+
+    /**
+     * The side length of the largest square with its minimum-x, minimum-y corner at x,y that has no walls in it.
+     */
+    private static int bruteClearance(double[][] physical, int x, int y) {
+        int size = 0;
+        while (x + size < physical.length && y + size < physical[0].length) {
+            for (int i = 0; i <= size; i++) {
+                if (physical[x + size][y + i] > DijkstraMap.FLOOR || physical[x + i][y + size] > DijkstraMap.FLOOR)
+                    return size;
+            }
+            size++;
+        }
+        return size;
+    }
+
+    private static int[][] bruteClearance(double[][] physical) {
+        final int[][] clearance = new int[physical.length][physical[0].length];
+        for (int x = 0; x < physical.length; x++) {
+            for (int y = 0; y < physical[0].length; y++) {
+                clearance[x][y] = bruteClearance(physical, x, y);
+            }
+        }
+        return clearance;
+    }
+
+    @Test
+    public void testRepair() {
+        for (DijkstraMap.Measurement measurement : DijkstraMap.Measurement.values()) {
+            StatefulRNG rng = new StatefulRNG(0xF1AAL);
+            final char[][] map = dungeon(0xF1AAL);
+            final GreasedRegion floors = new GreasedRegion(map, '.'),
+                    inner = new GreasedRegion(map.length, map[0].length).not().retract();
+            final Coord[] goals = {floors.singleRandom(rng), floors.singleRandom(rng)};
+            inner.remove(goals[0]).remove(goals[1]);
+            DijkstraMap dijkstra = new DijkstraMap(map, measurement);
+            dijkstra.setGoals(goals);
+            dijkstra.scan(null);
+            final ArrayList<Coord> changed = new ArrayList<>();
+            for (int round = 0; round < 40; round++) {
+                changed.clear();
+                // a few cells at a time, both adding and removing walls
+                for (int i = rng.nextInt(4); i >= 0; i--) {
+                    final Coord c = inner.singleRandom(rng);
+                    dijkstra.setWall(c.x, c.y, dijkstra.physicalMap[c.x][c.y] <= DijkstraMap.FLOOR);
+                    changed.add(c);
+                }
+                dijkstra.repair(changed);
+                final double[][] physical = new double[map.length][];
+                for (int x = 0; x < map.length; x++) {
+                    physical[x] = dijkstra.physicalMap[x].clone();
+                }
+                DijkstraMap fresh = new DijkstraMap(physical, measurement);
+                fresh.setGoals(goals);
+                fresh.scan(null);
+                for (int x = 0; x < map.length; x++) {
+                    assertArrayEquals(measurement + " round " + round + " column " + x, fresh.gradientMap[x],
+                            dijkstra.gradientMap[x], 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testClearanceUpdates() {
+        StatefulRNG rng = new StatefulRNG(0xC1EA7L);
+        final char[][] map = dungeon(0xC1EA7L);
+        DijkstraMap dijkstra = new DijkstraMap(map);
+        dijkstra.initializeClearance();
+        assertClearance(bruteClearance(dijkstra.physicalMap), dijkstra.clearance);
+        final GreasedRegion inner = new GreasedRegion(map.length, map[0].length).not().retract();
+        for (int i = 0; i < 300; i++) {
+            final Coord c = inner.singleRandom(rng);
+            // mostly opens walls, so large open areas form and far-reaching changes get tested
+            dijkstra.setWall(c.x, c.y, rng.nextInt(3) == 0);
+            assertClearance(bruteClearance(dijkstra.physicalMap), dijkstra.clearance);
+        }
+        final int[][] incremental = new int[map.length][];
+        for (int x = 0; x < map.length; x++) {
+            incremental[x] = dijkstra.clearance[x].clone();
+        }
+        assertClearance(dijkstra.initializeClearance().clearance, incremental);
+    }
+
+    private static void assertClearance(int[][] expected, int[][] actual) {
+        for (int x = 0; x < expected.length; x++) {
+            assertArrayEquals("column " + x, expected[x], actual[x]);
+        }
+    }
+
+    @Test
+    public void testFindPathLarge() {
+        StatefulRNG rng = new StatefulRNG(0xB16L);
+        final char[][] map = dungeon(0xB16L);
+        DijkstraMap dijkstra = new DijkstraMap(map, DijkstraMap.Measurement.CHEBYSHEV, rng);
+        final GreasedRegion inner = new GreasedRegion(map.length, map[0].length).not().retract();
+        int paths = 0;
+        for (int round = 0; round < 3; round++) {
+            final int[][] clearance = bruteClearance(dijkstra.physicalMap);
+            for (int size = 2; size <= 3; size++) {
+                final GreasedRegion fits = new GreasedRegion(map.length, map[0].length);
+                for (int x = 0; x < map.length; x++) {
+                    for (int y = 0; y < map[0].length; y++) {
+                        if (clearance[x][y] >= size)
+                            fits.insert(x, y);
+                    }
+                }
+                for (int i = 0; i < 20; i++) {
+                    final Coord start = fits.singleRandom(rng), target = fits.singleRandom(rng);
+                    final ArrayList<Coord> path = dijkstra.findPathLarge(size, 200, null, null, start, target);
+                    for (Coord c : path) {
+                        assertTrue(c + " in a path for size " + size, clearance[c.x][c.y] >= size);
+                    }
+                    if (!path.isEmpty())
+                        paths++;
+                }
+            }
+            // changes the map between rounds, so paths also use clearance that setWall() updated
+            for (int i = 0; i < 60; i++) {
+                final Coord c = inner.singleRandom(rng);
+                dijkstra.setWall(c.x, c.y, rng.nextInt(4) == 0);
+            }
+        }
+        assertTrue(paths > 20);
+    }
+
+    @Test
+    public void testBucketScan() {
+        StatefulRNG rng = new StatefulRNG(0xB0C4E7L);
+        final char[][] map = dungeon(0xB0C4E7L);
+        final GreasedRegion floors = new GreasedRegion(map, '.');
+        final double[][] varied = new double[map.length][map[0].length],
+                wide = new double[map.length][map[0].length];
+        for (int x = 0; x < map.length; x++) {
+            for (int y = 0; y < map[0].length; y++) {
+                varied[x][y] = 1 + rng.nextInt(4) * 0.5;
+                // a range wide enough that the buckets can't be exact
+                wide[x][y] = 1 + rng.nextInt(100000) * 2.5;
+            }
+        }
+        for (DijkstraMap.Measurement measurement : DijkstraMap.Measurement.values()) {
+            for (double[][] costs : new double[][][]{null, varied, wide}) {
+                for (int round = 0; round < 4; round++) {
+                    final Coord[] goals = {floors.singleRandom(rng), floors.singleRandom(rng)};
+                    final ArrayList<Coord> impassable = new ArrayList<>();
+                    for (int i = 0; i < 12; i++) {
+                        impassable.add(floors.singleRandom(rng));
+                    }
+                    impassable.remove(goals[0]);
+                    impassable.remove(goals[1]);
+                    DijkstraMap scanned = new DijkstraMap(map, measurement),
+                            bucketed = new DijkstraMap(map, measurement);
+                    if (costs != null) {
+                        scanned.initializeCost(costs);
+                        bucketed.initializeCost(costs);
+                    }
+                    scanned.setGoals(goals);
+                    bucketed.setGoals(goals);
+                    final double[][] expected = scanned.scan(impassable), actual = bucketed.bucketScan(impassable);
+                    for (int x = 0; x < map.length; x++) {
+                        assertArrayEquals(measurement + (costs == null ? " standard" : costs == varied ? " varied"
+                                : " wide") + " round " + round + " column " + x, expected[x], actual[x], 1e-9);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package squidpony.squidai;
+
+import org.junit.Test;
+import squidpony.squidgrid.mapping.DungeonGenerator;
+import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.GreasedRegion;
+import squidpony.squidmath.StatefulRNG;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Checks that each gradient DijkstraPool scans in parallel matches a serial DijkstraMap scan of the same goals, over
+ * several batches so that reused scanners and released gradient buffers are tested too.
+ */
+public class DijkstraPoolTest {
+    @Test
+    public void testScanAll() {
+        StatefulRNG rng = new StatefulRNG(0x9001L);
+        final char[][] map = DungeonUtility.simplifyDungeon(
+                new DungeonGenerator(60, 44, new StatefulRNG(0x9001L)).generate());
+        final int width = map.length, height = map[0].length;
+        final GreasedRegion floors = new GreasedRegion(map, '.');
+        // obstacles are kept apart from goals, which DijkstraMap doesn't expect to overlap
+        final ArrayList<Coord> impassable = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final Coord c = floors.singleRandom(rng);
+            impassable.add(c);
+            floors.remove(c);
+        }
+        final double[][] costs = new double[width][height];
+        for (DijkstraMap.Measurement measurement : DijkstraMap.Measurement.values()) {
+            DijkstraMap terrain = new DijkstraMap(map, measurement);
+            DijkstraPool pool = new DijkstraPool(terrain, 4);
+            try {
+                for (int batch = 0; batch < 4; batch++) {
+                    // odd batches use varied costs, so scanners reused from the last batch must pick up the change
+                    if ((batch & 1) == 1) {
+                        for (int x = 0; x < width; x++) {
+                            for (int y = 0; y < height; y++) {
+                                costs[x][y] = 1 + rng.nextInt(3) * 0.5;
+                            }
+                        }
+                        terrain.initializeCost(costs);
+                    } else {
+                        terrain.initializeCost(map);
+                    }
+                    final List<Iterable<Coord>> goalSets = new ArrayList<>();
+                    for (int i = 0; i < 24; i++) {
+                        if (i % 6 == 0) {
+                            goalSets.add(new GreasedRegion(floors).randomRegion(rng, 3));
+                        } else {
+                            final ArrayList<Coord> goals = new ArrayList<>();
+                            for (int g = rng.between(1, 4); g > 0; g--) {
+                                goals.add(floors.singleRandom(rng));
+                            }
+                            goalSets.add(goals);
+                        }
+                    }
+                    final double[][][] gradients = pool.scanAll(goalSets, impassable);
+                    assertEquals(goalSets.size(), gradients.length);
+                    for (int i = 0; i < gradients.length; i++) {
+                        final ArrayList<Coord> goals = new ArrayList<>();
+                        for (Coord c : goalSets.get(i)) {
+                            goals.add(c);
+                        }
+                        DijkstraMap serial = new DijkstraMap(map, measurement);
+                        if ((batch & 1) == 1)
+                            serial.initializeCost(costs);
+                        serial.setGoals(goals);
+                        final double[][] expected = serial.scan(impassable);
+                        assertNotNull(gradients[i]);
+                        for (int x = 0; x < width; x++) {
+                            assertArrayEquals(measurement + " batch " + batch + " set " + i + " column " + x,
+                                    expected[x], gradients[i][x], 1e-9);
+                        }
+                    }
+                    pool.releaseAll(gradients);
+                }
+            } finally {
+                pool.destroy();
+            }
+        }
+    }
+}
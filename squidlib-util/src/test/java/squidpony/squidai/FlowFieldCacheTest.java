@@ -0,0 +1,174 @@
+package squidpony.squidai;
+
+import org.junit.Test;
+import squidpony.squidgrid.Direction;
+import squidpony.squidgrid.mapping.DungeonGenerator;
+import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.GreasedRegion;
+import squidpony.squidmath.StatefulRNG;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks FlowFieldCache's eviction and invalidation, and that the steps it gives in both full and compact modes are
+ * shortest-path steps by the gradient a fresh DijkstraMap scan finds.
+ */
+public class FlowFieldCacheTest {
+    private static char[][] dungeon(long seed) {
+        return DungeonUtility.simplifyDungeon(new DungeonGenerator(60, 44, new StatefulRNG(seed)).generate());
+    }
+
+    private static double[][] freshScan(double[][] physical, double[][] costs, DijkstraMap.Measurement measurement,
+                                        List<Coord> goals) {
+        final double[][] copy = new double[physical.length][];
+        for (int x = 0; x < physical.length; x++) {
+            copy[x] = physical[x].clone();
+        }
+        DijkstraMap fresh = new DijkstraMap(copy, measurement);
+        if (costs != null)
+            fresh.initializeCost(costs);
+        fresh.setGoals(goals);
+        return fresh.scan(null);
+    }
+
+    @Test
+    public void testEviction() {
+        StatefulRNG rng = new StatefulRNG(0xE71C7L);
+        final char[][] map = dungeon(0xE71C7L);
+        final GreasedRegion floors = new GreasedRegion(map, '.');
+        final long gradientSize = map.length * map[0].length * 8L;
+        FlowFieldCache cache = new FlowFieldCache(new DijkstraMap(map), gradientSize * 3, false);
+        final List<Coord> a = Arrays.asList(floors.singleRandom(rng)), b = Arrays.asList(floors.singleRandom(rng)),
+                c = Arrays.asList(floors.singleRandom(rng)), d = Arrays.asList(floors.singleRandom(rng));
+        final double[][] ga = cache.gradient(a), gb = cache.gradient(b), gc = cache.gradient(c);
+        assertEquals(3, cache.size());
+        assertEquals(gradientSize * 3, cache.getUsed());
+        // a is used again, so b is now the least recently used and is the one discarded for d
+        assertSame(ga, cache.gradient(a));
+        cache.gradient(d);
+        assertEquals(3, cache.size());
+        assertTrue(cache.getUsed() <= cache.getBudget());
+        assertSame(ga, cache.gradient(a));
+        assertSame(gc, cache.gradient(c));
+        assertNotSame(gb, cache.gradient(b));
+        // shrinking the budget keeps only the most recent entry, which is b
+        cache.setBudget(gradientSize / 2);
+        assertEquals(1, cache.size());
+        assertEquals(gradientSize, cache.getUsed());
+
+        // compact entries take 1 byte per cell, so 8 times as many fit
+        FlowFieldCache compact = new FlowFieldCache(new DijkstraMap(map), gradientSize * 3, true);
+        final ArrayList<List<Coord>> goalSets = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            goalSets.add(Arrays.asList(floors.singleRandom(rng), floors.singleRandom(rng)));
+            compact.directions(goalSets.get(i));
+            assertTrue(compact.getUsed() <= compact.getBudget());
+        }
+        assertEquals(24, compact.size());
+        final byte[] newest = compact.directions(goalSets.get(29));
+        assertSame(newest, compact.directions(goalSets.get(29)));
+    }
+
+    @Test
+    public void testVersion() {
+        StatefulRNG rng = new StatefulRNG(0x7E25L);
+        final char[][] map = dungeon(0x7E25L);
+        final GreasedRegion floors = new GreasedRegion(map, '.'),
+                inner = new GreasedRegion(map.length, map[0].length).not().retract();
+        final DijkstraMap terrain = new DijkstraMap(map);
+        FlowFieldCache cache = new FlowFieldCache(terrain);
+        final List<Coord> goals = Arrays.asList(floors.singleRandom(rng), floors.singleRandom(rng));
+        final double[][] before = cache.gradient(goals);
+        cache.gradient(Arrays.asList(floors.singleRandom(rng)));
+        assertEquals(2, cache.size());
+        // setting the same version keeps everything
+        cache.setVersion(cache.getVersion());
+        assertEquals(2, cache.size());
+        assertSame(before, cache.gradient(goals));
+        for (int i = 0; i < 80; i++) {
+            final Coord c = inner.singleRandom(rng);
+            if (!goals.contains(c))
+                terrain.setWall(c.x, c.y, terrain.physicalMap[c.x][c.y] <= DijkstraMap.FLOOR);
+        }
+        cache.mapChanged();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getUsed());
+        final double[][] after = cache.gradient(goals), expected = freshScan(terrain.physicalMap, null,
+                terrain.measurement, goals);
+        assertNotSame(before, after);
+        for (int x = 0; x < map.length; x++) {
+            assertArrayEquals("column " + x, expected[x], after[x], 1e-9);
+        }
+        cache.setVersion(1000);
+        assertEquals(0, cache.size());
+        assertNotSame(after, cache.gradient(goals));
+    }
+
+    @Test
+    public void testDirections() {
+        StatefulRNG rng = new StatefulRNG(0xD12EC7L);
+        final char[][] map = dungeon(0xD12EC7L);
+        final int width = map.length, height = map[0].length;
+        final GreasedRegion floors = new GreasedRegion(map, '.');
+        final double[][] varied = new double[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                varied[x][y] = 1 + rng.nextInt(4) * 0.5;
+            }
+        }
+        for (DijkstraMap.Measurement measurement : DijkstraMap.Measurement.values()) {
+            for (double[][] costs : new double[][][]{null, varied}) {
+                DijkstraMap terrain = new DijkstraMap(map, measurement);
+                if (costs != null)
+                    terrain.initializeCost(costs);
+                FlowFieldCache full = new FlowFieldCache(terrain),
+                        compact = new FlowFieldCache(terrain, 16L << 20, true);
+                for (int round = 0; round < 3; round++) {
+                    final List<Coord> goals = Arrays.asList(floors.singleRandom(rng), floors.singleRandom(rng));
+                    final double[][] expected = freshScan(terrain.physicalMap, costs, measurement, goals);
+                    final String label = measurement + (costs == null ? " standard" : " varied") + " round " + round;
+                    for (int x = 0; x < width; x++) {
+                        for (int y = 0; y < height; y++) {
+                            final Direction dir = full.direction(goals, x, y);
+                            assertEquals(label + " at " + x + "," + y, dir, compact.direction(goals, x, y));
+                            if (expected[x][y] <= DijkstraMap.GOAL || expected[x][y] >= DijkstraMap.FLOOR) {
+                                assertEquals(Direction.NONE, dir);
+                                continue;
+                            }
+                            assertNotEquals(label + " at " + x + "," + y, Direction.NONE, dir);
+                            // the step must lose exactly the cost of leaving this cell in that direction
+                            assertEquals(label + " at " + x + "," + y, expected[x][y],
+                                    expected[x + dir.deltaX][y + dir.deltaY]
+                                            + measurement.heuristic(dir) * terrain.costMap[x][y], 1e-9);
+                        }
+                    }
+                    for (int i = 0; i < 20; i++) {
+                        final Coord start = floors.singleRandom(rng);
+                        final ArrayList<Coord> path = full.findPath(goals, start, -1);
+                        assertEquals(label, path, compact.findPath(goals, start, -1));
+                        if (expected[start.x][start.y] >= DijkstraMap.FLOOR) {
+                            assertTrue(path.isEmpty());
+                            continue;
+                        }
+                        Coord prev = start;
+                        double cost = 0;
+                        for (Coord step : path) {
+                            final Direction dir = Direction.getDirection(step.x - prev.x, step.y - prev.y);
+                            cost += measurement.heuristic(dir) * terrain.costMap[prev.x][prev.y];
+                            prev = step;
+                        }
+                        assertTrue(label, path.isEmpty() ? goals.contains(start) : goals.contains(prev));
+                        assertEquals(label + " from " + start, expected[start.x][start.y], cost, 1e-9);
+                        if (path.size() > 2)
+                            assertEquals(path.subList(0, 2), full.findPath(goals, start, 2));
+                    }
+                }
+            }
+        }
+    }
+}
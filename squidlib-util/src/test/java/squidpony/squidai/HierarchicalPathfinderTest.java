@@ -0,0 +1,81 @@
+package squidpony.squidai;
+
+import org.junit.Test;
+import squidpony.squidgrid.mapping.DungeonGenerator;
+import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidgrid.mapping.RoomFinder;
+import squidpony.squidgrid.mapping.SectionMap;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.GreasedRegion;
+import squidpony.squidmath.StatefulRNG;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that every path HierarchicalPathfinder finds is a legal walk from the start to the target, never shorter than
+ * the shortest path DijkstraMap finds, and that it finds a path exactly when DijkstraMap says the target is reachable.
+ */
+public class HierarchicalPathfinderTest {
+    @Test
+    public void testPaths() {
+        StatefulRNG rng = new StatefulRNG(0x4BA5L);
+        final char[][] map = DungeonUtility.simplifyDungeon(
+                new DungeonGenerator(90, 60, new StatefulRNG(0x4BA5L)).generate());
+        // a wall down the middle splits the map, so some targets can't be reached
+        for (int y = 0; y < map[0].length; y++) {
+            map[45][y] = '#';
+        }
+        final GreasedRegion floors = new GreasedRegion(map, '.');
+        final SectionMap sections = new SectionMap(new RoomFinder(map));
+        int found = 0, unreachable = 0;
+        for (DijkstraMap.Measurement measurement : DijkstraMap.Measurement.values()) {
+            for (int blocking = 0; blocking <= 2; blocking++) {
+                HierarchicalPathfinder hpa = new HierarchicalPathfinder(map, sections, measurement, 16, blocking);
+                DijkstraMap dijkstra = new DijkstraMap(map, measurement);
+                dijkstra.setBlockingRequirement(blocking);
+                for (int i = 0; i < 150; i++) {
+                    final Coord start = floors.singleRandom(rng), target = floors.singleRandom(rng);
+                    final ArrayList<Coord> path = hpa.findPath(start, target);
+                    dijkstra.clearGoals();
+                    dijkstra.resetMap();
+                    dijkstra.setGoal(target);
+                    dijkstra.scan(null);
+                    final double shortest = dijkstra.gradientMap[start.x][start.y];
+                    final String label = measurement + " blocking " + blocking + " from " + start + " to " + target;
+                    if (shortest >= DijkstraMap.FLOOR || start.equals(target)) {
+                        assertTrue(label, path.isEmpty());
+                        if (shortest >= DijkstraMap.FLOOR)
+                            unreachable++;
+                        continue;
+                    }
+                    assertEquals(label, target, path.get(path.size() - 1));
+                    Coord prev = start;
+                    double cost = 0.0;
+                    for (Coord c : path) {
+                        assertTrue(label + " at " + c, map[c.x][c.y] != '#');
+                        final int dx = Math.abs(c.x - prev.x), dy = Math.abs(c.y - prev.y);
+                        assertTrue(label + " at " + c, Math.max(dx, dy) == 1);
+                        if (dx == 1 && dy == 1) {
+                            assertTrue(label + " at " + c, measurement != DijkstraMap.Measurement.MANHATTAN);
+                            assertTrue(label + " at " + c, blocking == 0 || (map[prev.x][c.y] == '#' ? 1 : 0)
+                                    + (map[c.x][prev.y] == '#' ? 1 : 0) < blocking);
+                            cost += measurement == DijkstraMap.Measurement.EUCLIDEAN ? Math.sqrt(2.0) : 1.0;
+                        } else
+                            cost += 1.0;
+                        prev = c;
+                    }
+                    assertTrue(label, cost >= shortest - 1e-9);
+                    // asking for only the first few steps gives the start of the same path
+                    if (path.size() > 3)
+                        assertEquals(label, path.subList(0, 3), hpa.findPath(3, start, target));
+                    found++;
+                }
+            }
+        }
+        assertTrue(found > 500);
+        assertTrue(unreachable > 100);
+    }
+}
@@ -0,0 +1,87 @@
+package squidpony.squidai;
+
+import org.junit.Test;
+import squidpony.squidgrid.mapping.DungeonGenerator;
+import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.GreasedRegion;
+import squidpony.squidmath.StatefulRNG;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that JumpPointSearch finds paths exactly as long as the shortest paths DijkstraMap finds, for every
+ * measurement and blocking requirement, on dungeons and on maps of scattered walls where many targets can't be
+ * reached, and that each path is a legal walk from the start to the target.
+ */
+public class JumpPointSearchTest {
+    private static char[][] scattered(StatefulRNG rng, int width, int height, int wallsInTen) {
+        final char[][] map = new char[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                map[x][y] = rng.nextInt(10) < wallsInTen ? '#' : '.';
+            }
+        }
+        return map;
+    }
+
+    @Test
+    public void testShortestPaths() {
+        StatefulRNG rng = new StatefulRNG(0x1E4BL);
+        int found = 0, unreachable = 0;
+        for (int m = 0; m < 6; m++) {
+            final char[][] map = m % 3 == 0
+                    ? DungeonUtility.simplifyDungeon(new DungeonGenerator(70, 50, new StatefulRNG(m)).generate())
+                    : scattered(rng, 50, 40, m % 3 + 2);
+            final GreasedRegion floors = new GreasedRegion(map, '.');
+            for (DijkstraMap.Measurement measurement : DijkstraMap.Measurement.values()) {
+                for (int blocking = 0; blocking <= 2; blocking++) {
+                    JumpPointSearch jps = new JumpPointSearch(map, measurement);
+                    jps.setBlockingRequirement(blocking);
+                    DijkstraMap dijkstra = new DijkstraMap(map, measurement);
+                    dijkstra.setBlockingRequirement(blocking);
+                    for (int i = 0; i < 100; i++) {
+                        final Coord start = floors.singleRandom(rng), target = floors.singleRandom(rng);
+                        final ArrayList<Coord> path = jps.findPath(start, target);
+                        dijkstra.clearGoals();
+                        dijkstra.resetMap();
+                        dijkstra.setGoal(target);
+                        dijkstra.scan(null);
+                        final double shortest = dijkstra.gradientMap[start.x][start.y];
+                        final String label = "map " + m + " " + measurement + " blocking " + blocking + " from "
+                                + start + " to " + target;
+                        if (shortest >= DijkstraMap.FLOOR || start.equals(target)) {
+                            assertTrue(label, path.isEmpty());
+                            if (shortest >= DijkstraMap.FLOOR)
+                                unreachable++;
+                            continue;
+                        }
+                        assertEquals(label, target, path.get(path.size() - 1));
+                        Coord prev = start;
+                        double cost = 0.0;
+                        for (Coord c : path) {
+                            assertTrue(label + " at " + c, map[c.x][c.y] != '#');
+                            final int dx = Math.abs(c.x - prev.x), dy = Math.abs(c.y - prev.y);
+                            assertTrue(label + " at " + c, Math.max(dx, dy) == 1);
+                            if (dx == 1 && dy == 1) {
+                                assertTrue(label + " at " + c, measurement != DijkstraMap.Measurement.MANHATTAN);
+                                assertTrue(label + " at " + c, blocking == 0 || (map[prev.x][c.y] == '#' ? 1 : 0)
+                                        + (map[c.x][prev.y] == '#' ? 1 : 0) < blocking);
+                                cost += measurement == DijkstraMap.Measurement.EUCLIDEAN ? Math.sqrt(2.0) : 1.0;
+                            } else
+                                cost += 1.0;
+                            prev = c;
+                        }
+                        assertEquals(label, shortest, cost, 1e-9);
+                        found++;
+                    }
+                }
+            }
+        }
+        assertTrue(found > 3000);
+        assertTrue(unreachable > 100);
+    }
+}
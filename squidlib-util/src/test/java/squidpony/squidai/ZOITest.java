@@ -0,0 +1,103 @@
+package squidpony.squidai;
+
+import org.junit.Test;
+import squidpony.squidgrid.Radius;
+import squidpony.squidgrid.mapping.DungeonGenerator;
+import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.GreasedRegion;
+import squidpony.squidmath.StatefulRNG;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the zones ZOI.label() finds match what a separate DijkstraMap for each influence group gives, including
+ * cells that are exactly as far from more than one group.
+ */
+public class ZOITest {
+    private static final Radius[] RADII = {Radius.DIAMOND, Radius.SQUARE, Radius.CIRCLE};
+
+    /**
+     * Checks every cell's labels against the groups with the lowest DijkstraMap distance there, and returns how many
+     * cells are tied between groups.
+     */
+    private static int check(Coord[][] groups, char[][] map, Radius radius) {
+        final int width = map.length, height = map[0].length;
+        final double[][][] distances = new double[groups.length][][];
+        for (int g = 0; g < groups.length; g++) {
+            DijkstraMap dijkstra = new DijkstraMap(map, DijkstraMap.findMeasurement(radius));
+            dijkstra.setGoals(groups[g]);
+            distances[g] = dijkstra.scan();
+        }
+        ZOI zoi = new ZOI(groups, map, radius);
+        final int[] labels = zoi.label();
+        final GreasedRegion[] regions = zoi.calculateRegions();
+        final int[] nearest = new int[groups.length];
+        int ties = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                double best = DijkstraMap.FLOOR;
+                int count = 0;
+                for (int g = 0; g < groups.length; g++) {
+                    final double d = distances[g][x][y];
+                    if (d >= DijkstraMap.FLOOR)
+                        continue;
+                    if (d < best - 1e-9) {
+                        best = d;
+                        count = 0;
+                    }
+                    if (d <= best + 1e-9)
+                        nearest[count++] = g;
+                }
+                final int[] expected = Arrays.copyOf(nearest, count);
+                assertArrayEquals("at " + x + "," + y + " with " + radius, expected, zoi.labelsAt(x, y));
+                assertEquals(count == 0 ? -1 : expected[0], labels[x * height + y]);
+                for (int g = 0; g < groups.length; g++) {
+                    assertEquals(Arrays.binarySearch(expected, g) >= 0, regions[g].contains(x, y));
+                }
+                if (count > 1)
+                    ties++;
+            }
+        }
+        return ties;
+    }
+
+    @Test
+    public void testMatchesDijkstraMap() {
+        StatefulRNG rng = new StatefulRNG(0xAB1DEL);
+        DungeonGenerator dungeonGen = new DungeonGenerator(50, 40, rng);
+        final char[][] map = DungeonUtility.simplifyDungeon(dungeonGen.generate());
+        final GreasedRegion floors = new GreasedRegion(map, '.');
+        final Coord[][] groups = new Coord[6][];
+        for (int g = 0; g < groups.length; g++) {
+            groups[g] = new Coord[1 + g % 3];
+            for (int i = 0; i < groups[g].length; i++) {
+                groups[g][i] = floors.singleRandom(rng);
+            }
+        }
+        // a cell shared by two groups is tied at distance 0
+        groups[5][0] = groups[2][0];
+        for (Radius radius : RADII) {
+            assertTrue(check(groups, map, radius) > 0);
+        }
+    }
+
+    @Test
+    public void testSymmetricTies() {
+        // two groups mirrored across the middle column of an open room, with a pillar in the way of one diagonal
+        final char[][] map = DungeonUtility.wallWrap(new GreasedRegion(11, 9).not().toChars('.', '#'));
+        map[5][3] = '#';
+        final Coord[][] groups = {{Coord.get(2, 4)}, {Coord.get(8, 4)}, {Coord.get(5, 1)}};
+        for (Radius radius : RADII) {
+            assertTrue(check(groups, map, radius) > 0);
+            ZOI zoi = new ZOI(groups, map, radius);
+            zoi.label();
+            assertArrayEquals(new int[]{0, 1}, zoi.labelsAt(5, 6));
+            assertEquals(0, zoi.labelsAt(0, 0).length);
+        }
+    }
+}
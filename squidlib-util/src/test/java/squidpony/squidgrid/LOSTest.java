@@ -0,0 +1,71 @@
+package squidpony.squidgrid;
+
+import org.junit.Test;
+import squidpony.squidgrid.mapping.DungeonGenerator;
+import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.GreasedRegion;
+import squidpony.squidmath.StatefulRNG;
+
+import java.util.LinkedList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link LOS#SYMMETRIC} gives the same answer when the start and target are swapped, and that the paths
+ * of lines it finds are unbroken and never pass through a wall, on dungeons and on maps of scattered walls.
+ */
+public class LOSTest {
+    private static char[][] scattered(StatefulRNG rng, int width, int height) {
+        final char[][] map = new char[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                map[x][y] = rng.nextInt(4) == 0 ? '#' : '.';
+            }
+        }
+        return map;
+    }
+
+    @Test
+    public void testSymmetric() {
+        StatefulRNG rng = new StatefulRNG(0x5E7L);
+        // the short table makes longer lines fall back to computing their rays
+        final LOS[] lines = {new LOS(LOS.SYMMETRIC), new LOS(LOS.SYMMETRIC, 8)};
+        int reached = 0;
+        for (int m = 0; m < 6; m++) {
+            final char[][] map = (m & 1) == 0
+                    ? DungeonUtility.simplifyDungeon(new DungeonGenerator(60, 44, new StatefulRNG(m)).generate())
+                    : scattered(rng, 60, 44);
+            final double[][] resistance = DungeonUtility.generateSimpleResistances(map);
+            final GreasedRegion floors = new GreasedRegion(map, '.');
+            for (LOS los : lines) {
+                for (int i = 0; i < 2000; i++) {
+                    final Coord a = floors.singleRandom(rng), b = floors.singleRandom(rng);
+                    final boolean forward = los.isReachable(map, a.x, a.y, b.x, b.y);
+                    if (forward) {
+                        reached++;
+                        assertPath(map, a, b, los.getLastPath());
+                    }
+                    assertEquals(a + " to " + b, forward, los.isReachable(map, b.x, b.y, a.x, a.y));
+                    if (forward)
+                        assertPath(map, b, a, los.getLastPath());
+                    assertEquals(a + " to " + b, forward, los.isReachable(resistance, a.x, a.y, b.x, b.y));
+                }
+            }
+        }
+        assertTrue(reached > 1000);
+    }
+
+    private static void assertPath(char[][] map, Coord start, Coord target, LinkedList<Coord> path) {
+        assertEquals(start, path.getFirst());
+        assertEquals(target, path.getLast());
+        Coord prev = null;
+        for (Coord c : path) {
+            assertTrue(c + " on the line from " + start + " to " + target, map[c.x][c.y] != '#');
+            if (prev != null)
+                assertTrue(prev + " then " + c, Math.max(Math.abs(c.x - prev.x), Math.abs(c.y - prev.y)) == 1);
+            prev = c;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package squidpony.squidgrid;
+
+import org.junit.Test;
+import squidpony.squidgrid.mapping.DungeonGenerator;
+import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.GreasedRegion;
+import squidpony.squidmath.StatefulRNG;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Checks that the light LightingManager keeps up to date incrementally matches calculating every light's FOV on the
+ * full map and summing them, after lights are added, moved, reshaped, brightened, and removed, and after walls change.
+ */
+public class LightingManagerTest {
+    private static double[][] bruteForce(double[][] resistances, LightingManager manager, ArrayList<Integer> ids,
+                                         int fovType) {
+        final double[][] total = new double[resistances.length][resistances[0].length];
+        final FOV fov = new FOV(fovType);
+        for (int id : ids) {
+            final LightingManager.Light light = manager.getLight(id);
+            final double[][] lit = fov.calculateFOV(resistances, light.x, light.y, light.radius, light.radiusKind);
+            for (int x = 0; x < total.length; x++) {
+                for (int y = 0; y < total[0].length; y++) {
+                    total[x][y] += lit[x][y] * light.intensity;
+                }
+            }
+        }
+        return total;
+    }
+
+    @Test
+    public void testIncremental() {
+        final Radius[] kinds = {Radius.CIRCLE, Radius.SQUARE, Radius.DIAMOND};
+        for (int fovType : new int[]{FOV.SHADOW, FOV.RIPPLE}) {
+            StatefulRNG rng = new StatefulRNG(0x11647L + fovType);
+            final char[][] map = DungeonUtility.simplifyDungeon(
+                    new DungeonGenerator(60, 44, new StatefulRNG(0x11647L)).generate());
+            final double[][] resistances = DungeonUtility.generateResistances(map);
+            final GreasedRegion floors = new GreasedRegion(map, '.'),
+                    inner = new GreasedRegion(map.length, map[0].length).not().retract();
+            LightingManager manager = new LightingManager(resistances, fovType);
+            final ArrayList<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                final Coord c = floors.singleRandom(rng);
+                ids.add(manager.addLight(c.x, c.y, rng.between(2, 9), 0.25 + rng.nextDouble(),
+                        kinds[rng.nextInt(3)]));
+            }
+            for (int round = 0; round < 40; round++) {
+                final int id = ids.get(rng.nextInt(ids.size()));
+                switch (round % 5) {
+                    case 0:
+                        final Coord moved = floors.singleRandom(rng);
+                        manager.moveLight(id, moved.x, moved.y);
+                        break;
+                    case 1:
+                        manager.setIntensity(id, 0.25 + rng.nextDouble());
+                        break;
+                    case 2:
+                        manager.setRadius(id, rng.between(2, 9), kinds[rng.nextInt(3)]);
+                        break;
+                    case 3:
+                        for (int i = 0; i < 8; i++) {
+                            final Coord c = inner.singleRandom(rng);
+                            manager.setResistance(c.x, c.y, resistances[c.x][c.y] > 0.5 ? 0.0 : 1.0);
+                        }
+                        break;
+                    default:
+                        final double[][] changedMap = new double[map.length][];
+                        for (int x = 0; x < map.length; x++) {
+                            changedMap[x] = resistances[x].clone();
+                        }
+                        final ArrayList<Coord> changed = new ArrayList<>();
+                        for (int i = 0; i < 8; i++) {
+                            final Coord c = inner.singleRandom(rng);
+                            changedMap[c.x][c.y] = changedMap[c.x][c.y] > 0.5 ? 0.0 : 1.0;
+                            changed.add(c);
+                        }
+                        manager.setResistances(changedMap, changed);
+                        if (round % 10 == 9) {
+                            manager.removeLight(id);
+                            ids.remove((Integer) id);
+                            final Coord c = floors.singleRandom(rng);
+                            ids.add(manager.addLight(c.x, c.y, rng.between(2, 9), 0.25 + rng.nextDouble(),
+                                    kinds[rng.nextInt(3)]));
+                        }
+                }
+                manager.update();
+                final double[][] expected = bruteForce(resistances, manager, ids, fovType);
+                for (int x = 0; x < map.length; x++) {
+                    assertArrayEquals("FOV type " + fovType + " round " + round + " column " + x,
+                            expected[x], manager.lighting[x], 1e-9);
+                }
+            }
+        }
+    }
+}
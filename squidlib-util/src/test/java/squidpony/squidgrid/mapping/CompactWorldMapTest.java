@@ -0,0 +1,111 @@
+package squidpony.squidgrid.mapping;
+
+import org.junit.Test;
+import squidpony.squidmath.SeededNoise;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that CompactWorldMap keeps a world's layers to within float or short precision, that biomes assigned from it
+ * match biomes assigned from the WorldMapGenerator it was copied from, and that compact TiledWorldMap tiles hold the
+ * same data as ordinary ones.
+ */
+public class CompactWorldMapTest {
+    private static final long SEED = 0xC0FFEEL;
+    private static final double[] HEAT_BOUNDARIES = {
+            WorldMapGenerator.SimpleBiomeMapper.coldestValueUpper, WorldMapGenerator.SimpleBiomeMapper.colderValueUpper,
+            WorldMapGenerator.SimpleBiomeMapper.coldValueUpper, WorldMapGenerator.SimpleBiomeMapper.warmValueUpper,
+            WorldMapGenerator.SimpleBiomeMapper.warmerValueUpper},
+            WET_BOUNDARIES = {
+            WorldMapGenerator.SimpleBiomeMapper.driestValueUpper, WorldMapGenerator.SimpleBiomeMapper.drierValueUpper,
+            WorldMapGenerator.SimpleBiomeMapper.dryValueUpper, WorldMapGenerator.SimpleBiomeMapper.wetValueUpper,
+            WorldMapGenerator.SimpleBiomeMapper.wetterValueUpper};
+
+    private static boolean nearBoundary(final double value, final double[] boundaries, final double distance) {
+        for (double b : boundaries) {
+            if (Math.abs(value - b) <= distance)
+                return true;
+        }
+        return false;
+    }
+
+    @Test
+    public void testCopiedWorld() {
+        WorldMapGenerator world = new WorldMapGenerator.SphereMap(SEED, 128, 64, SeededNoise.instance, 1.0);
+        world.generate(SEED);
+        WorldMapGenerator.SimpleBiomeMapper expected = new WorldMapGenerator.SimpleBiomeMapper(),
+                actual = new WorldMapGenerator.SimpleBiomeMapper();
+        expected.makeBiomes(world);
+        for (boolean quantized : new boolean[]{false, true}) {
+            CompactWorldMap compact = new CompactWorldMap(world, quantized);
+            final double heightError = quantized ? 1.6e-5 : 1e-7,
+                    heatError = quantized ? (world.maxHeat - world.minHeat) * 7.7e-6 : 1e-7,
+                    wetError = quantized ? (world.maxWet - world.minWet) * 7.7e-6 : 1e-7;
+            for (int x = 0; x < world.width; x++) {
+                for (int y = 0; y < world.height; y++) {
+                    assertEquals(world.heightData[x][y], compact.getHeight(x, y), heightError);
+                    assertEquals(world.heatData[x][y], compact.getHeat(x, y), heatError);
+                    assertEquals(world.moistureData[x][y], compact.getMoisture(x, y), wetError);
+                    assertEquals(world.heightCodeData[x][y], compact.getHeightCode(x, y));
+                }
+            }
+            actual.makeBiomes(compact);
+            if (quantized) {
+                // rounding to a short moves heat and moisture by up to half a step (1/131070 of each range), so a
+                // cell that close to a heat or moisture boundary can cross it; any other biome change is an error
+                final double heatStep = 0.5 / 65535.0 + 1e-9,
+                        wetStep = (world.maxWet - world.minWet) * 0.5 / 65535.0 + 1e-9;
+                for (int x = 0; x < world.width; x++) {
+                    for (int y = 0; y < world.height; y++) {
+                        if (expected.biomeCodeData[x][y] == actual.biomeCodeData[x][y])
+                            continue;
+                        final boolean heatMoved = expected.heatCodeData[x][y] != actual.heatCodeData[x][y],
+                                wetMoved = expected.moistureCodeData[x][y] != actual.moistureCodeData[x][y];
+                        assertTrue(heatMoved || wetMoved);
+                        if (heatMoved)
+                            assertTrue(nearBoundary((world.heatData[x][y] - world.minHeat)
+                                    / (world.maxHeat - world.minHeat), HEAT_BOUNDARIES, heatStep));
+                        if (wetMoved)
+                            assertTrue(nearBoundary(world.moistureData[x][y], WET_BOUNDARIES, wetStep));
+                    }
+                }
+            } else {
+                for (int x = 0; x < world.width; x++) {
+                    assertArrayEquals(expected.biomeCodeData[x], actual.biomeCodeData[x]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCompactTiles() {
+        TiledWorldMap plain = new TiledWorldMap.TilingMap(SEED, 160, 96, 64, 16, 8, 2,
+                SeededNoise.instance, 1.0, -1.0, -1.0),
+                compact = new TiledWorldMap.TilingMap(SEED, 160, 96, 64, 16, 8, 2,
+                        SeededNoise.instance, 1.0, -1.0, -1.0);
+        compact.compact = true;
+        TiledWorldMap.Tile[][] a = plain.getTiles(0, 0, 3, 2), b = compact.getTiles(0, 0, 3, 2);
+        for (int tx = 0; tx < 3; tx++) {
+            for (int ty = 0; ty < 2; ty++) {
+                TiledWorldMap.Tile p = a[tx][ty], c = b[tx][ty];
+                assertNull(c.heightData);
+                for (int x = 0; x < p.width; x++) {
+                    for (int y = 0; y < p.height; y++) {
+                        assertEquals(p.heightData[x][y], c.compact.getHeight(x, y), 1e-7);
+                        assertEquals(p.heatData[x][y], c.compact.getHeat(x, y), 1e-7);
+                        assertEquals(p.moistureData[x][y], c.compact.getMoisture(x, y), 1e-7);
+                        assertEquals(p.heightCodeData[x][y], c.compact.getHeightCode(x, y));
+                    }
+                }
+                assertArrayEquals(p.landData.data, c.landData.data);
+                assertArrayEquals(p.riverData.data, c.compact.riverData.data);
+                assertArrayEquals(p.lakeData.data, c.lakeData.data);
+            }
+        }
+        plain.destroy();
+        compact.destroy();
+    }
+}
@@ -0,0 +1,46 @@
+package squidpony.squidgrid.mapping;
+
+import org.junit.Test;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.SeededNoise;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that RiverRouter gives the same rivers and lakes no matter how the map is split into tiles or how many
+ * threads route it, and that rivers only run over land.
+ */
+public class RiverRouterTest {
+    private static final long SEED = 0xFEEDFACEL;
+
+    private static void check(WorldMapGenerator world) {
+        RiverRouter single = new RiverRouter(1), pair = new RiverRouter(2);
+        single.tileSize = 1 << 20;
+        single.generate(world, SEED);
+        final long[] rivers = world.riverData.data.clone(), lakes = world.lakeData.data.clone();
+        assertTrue(world.riverData.size() > 0);
+        for (Coord c : world.riverData) {
+            assertTrue(world.heightCodeData[c.x][c.y] >= 4);
+        }
+        for (int size : new int[]{8, 13, 64}) {
+            pair.tileSize = size;
+            pair.route(world);
+            assertArrayEquals(rivers, world.riverData.data);
+            assertArrayEquals(lakes, world.lakeData.data);
+            assertArrayEquals(rivers, world.partialRiverData.data);
+        }
+        single.destroy();
+        pair.destroy();
+    }
+
+    @Test
+    public void testTilingMap() {
+        check(new WorldMapGenerator.TilingMap(SEED, 192, 96, SeededNoise.instance, 1.0));
+    }
+
+    @Test
+    public void testSphereMap() {
+        check(new WorldMapGenerator.SphereMap(SEED, 192, 96, SeededNoise.instance, 1.0));
+    }
+}
@@ -0,0 +1,124 @@
+package squidpony.squidgrid.mapping;
+
+import org.junit.Test;
+import squidpony.squidmath.SeededNoise;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that TiledWorldMap's tiles match a WorldMapGenerator of the same small world, and that tiles with rivers come
+ * out the same no matter how or in what order they are requested.
+ */
+public class TiledWorldMapTest {
+    private static final long SEED = 0x1337BEEFL;
+
+    @Test
+    public void testMatchesTilingMap() {
+        WorldMapGenerator full = new WorldMapGenerator.TilingMap(SEED, 96, 64, SeededNoise.instance, 1.0);
+        full.generateRivers = false;
+        full.generate(SEED);
+        TiledWorldMap tiled = new TiledWorldMap.TilingMap(SEED, 96, 64, 32, 8, 16, 2,
+                SeededNoise.instance, 1.0, -1.0, -1.0);
+        tiled.generateRivers = false;
+        assertEquals(full.minHeat, tiled.minHeat, 0.0);
+        assertEquals(full.maxHeat, tiled.maxHeat, 0.0);
+        assertEquals(full.minWet, tiled.minWet, 0.0);
+        assertEquals(full.maxWet, tiled.maxWet, 0.0);
+        TiledWorldMap.Tile[][] tiles = tiled.getTiles(0, 0, 3, 2);
+        for (int tx = 0; tx < 3; tx++) {
+            for (int ty = 0; ty < 2; ty++) {
+                TiledWorldMap.Tile tile = tiles[tx][ty];
+                assertNotNull(tile);
+                for (int x = 0; x < tile.width; x++) {
+                    for (int y = 0; y < tile.height; y++) {
+                        final int wx = tile.startX + x, wy = tile.startY + y;
+                        assertEquals(full.heightData[wx][wy], tile.heightData[x][y], 0.0);
+                        assertEquals(full.heatData[wx][wy], tile.heatData[x][y], 0.0);
+                        assertEquals(full.moistureData[wx][wy], tile.moistureData[x][y], 0.0);
+                        assertEquals(full.heightCodeData[wx][wy], tile.heightCodeData[x][y]);
+                        assertEquals(full.landData.contains(wx, wy), tile.landData.contains(x, y));
+                    }
+                }
+            }
+        }
+        tiled.destroy();
+    }
+
+    @Test
+    public void testMatchesSphereMap() {
+        WorldMapGenerator full = new WorldMapGenerator.SphereMap(SEED, 80, 40, SeededNoise.instance, 1.0);
+        full.generateRivers = false;
+        full.generate(SEED);
+        TiledWorldMap tiled = new TiledWorldMap.SphereMap(SEED, 80, 40, 32, 8, 16, 2,
+                SeededNoise.instance, 1.0, -1.0, -1.0);
+        tiled.generateRivers = false;
+        TiledWorldMap.Tile[][] tiles = tiled.getTiles(0, 0, 3, 2);
+        for (int tx = 0; tx < 3; tx++) {
+            for (int ty = 0; ty < 2; ty++) {
+                TiledWorldMap.Tile tile = tiles[tx][ty];
+                for (int x = 0; x < tile.width; x++) {
+                    for (int y = 0; y < tile.height; y++) {
+                        final int wx = tile.startX + x, wy = tile.startY + y;
+                        assertEquals(full.heightData[wx][wy], tile.heightData[x][y], 1e-9);
+                        assertEquals(full.heatData[wx][wy], tile.heatData[x][y], 1e-9);
+                        assertEquals(full.moistureData[wx][wy], tile.moistureData[x][y], 1e-9);
+                    }
+                }
+            }
+        }
+        tiled.destroy();
+    }
+
+    @Test
+    public void testRiversAreOrderIndependent() {
+        TiledWorldMap parallel = new TiledWorldMap.TilingMap(SEED, 192, 128, 64, 24, 16, 2,
+                SeededNoise.instance, 1.0, -1.0, -1.0),
+                serial = new TiledWorldMap.TilingMap(SEED, 192, 128, 64, 24, 1, 1,
+                        SeededNoise.instance, 1.0, -1.0, -1.0);
+        TiledWorldMap.Tile[][] tiles = parallel.getTiles(-1, 0, 4, 2);
+        int riverCells = 0;
+        for (int tx = 3; tx >= 0; tx--) {
+            for (int ty = 1; ty >= 0; ty--) {
+                TiledWorldMap.Tile a = tiles[tx][ty], b = serial.getTile(tx - 1, ty);
+                assertEquals(a.tileX, b.tileX);
+                assertEquals(a.tileY, b.tileY);
+                assertArrayEquals(a.riverData.data, b.riverData.data);
+                assertArrayEquals(a.lakeData.data, b.lakeData.data);
+                riverCells += a.riverData.size();
+            }
+        }
+        assertEquals(1, serial.cachedTiles());
+        parallel.destroy();
+        serial.destroy();
+        assertTrue(riverCells > 0);
+    }
+
+    @Test
+    public void testFailedTilesAreRetried() {
+        final int[] failures = {1};
+        TiledWorldMap flaky = new TiledWorldMap.TilingMap(SEED, 96, 64, 32, 8, 16, 2,
+                SeededNoise.instance, 1.0, -1.0, -1.0) {
+            @Override
+            protected Tile makeTile(int tileX, int tileY, boolean rivers, boolean compact, boolean quantized) {
+                if (failures[0]-- > 0)
+                    throw new IllegalStateException("deliberate failure; this stack trace is expected");
+                return super.makeTile(tileX, tileY, rivers, compact, quantized);
+            }
+        };
+        assertNull(flaky.getTile(1, 1));
+        assertEquals(0, flaky.cachedTiles());
+        assertNotNull(flaky.getTile(1, 1));
+        assertEquals(1, flaky.cachedTiles());
+        // the settings a tile is made with are the ones in place when it was requested
+        flaky.compact = true;
+        flaky.prefetch(2, 0, 1, 1);
+        flaky.compact = false;
+        assertNotNull(flaky.getTile(2, 0).compact);
+        assertNull(flaky.getTile(0, 0).compact);
+        flaky.destroy();
+    }
+}
@@ -35,6 +35,27 @@ public class CoordPackerTest {
         assertArrayEquals(dataCross, doubleNegative);
     }
 
+    @Test
+    public void testPackedRegion() {
+        GreasedRegion big = new GreasedRegion(srng, 0.3, 300, 270).expand8way(2),
+                bounds = new GreasedRegion(300, 270).insertRectangle(20, 10, 250, 200);
+        for (int order = PackedRegion.HILBERT; order <= PackedRegion.MORTON; order++) {
+            PackedRegion packed = new PackedRegion(big, order), packedBounds = new PackedRegion(bounds, order);
+            assertEquals(big, packed.toGreasedRegion());
+            assertEquals(big.size(), packed.size());
+            assertEquals(big.copy().or(bounds), packed.union(packedBounds).toGreasedRegion());
+            assertEquals(big.copy().and(bounds), packed.intersect(packedBounds).toGreasedRegion());
+            assertEquals(big.copy().andNot(bounds), packed.difference(packedBounds).toGreasedRegion());
+            assertEquals(big.copy().retract(2).flood(bounds, 5),
+                    packed.retract(2).flood(packedBounds, 5).toGreasedRegion());
+            for (int x = 0; x < 300; x += 7) {
+                for (int y = 0; y < 270; y += 3) {
+                    assertEquals(big.contains(x, y), packed.contains(x, y));
+                }
+            }
+        }
+    }
+
     public static int FOV_RANGE = 12;
     public static Radius RADIUS = Radius.SQUARE;
 
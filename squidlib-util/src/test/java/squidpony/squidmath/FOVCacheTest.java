@@ -1,12 +1,17 @@
 package squidpony.squidmath;
 
 import org.junit.Test;
+import squidpony.ArrayTools;
 import squidpony.squidgrid.FOVCache;
 import squidpony.squidgrid.Radius;
+import squidpony.squidgrid.TiledFOVCache;
 import squidpony.squidgrid.mapping.DungeonGenerator;
 import squidpony.squidgrid.mapping.DungeonUtility;
 import squidpony.squidgrid.mapping.styled.TilesetType;
 
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -117,4 +122,37 @@ public class FOVCacheTest {
 
         }
     }
+
+    @Test
+    public void testTiledBudget()
+    {
+        char[][] map = ArrayTools.fill('.', 128, 128);
+        // 8x8 tiles with radius 8; one tile with every viewer cached is well over the 10000 byte budget
+        TiledFOVCache cache = new TiledFOVCache(map, 8, Radius.SQUARE, 8, 10000L);
+        assertTrue(cache.queryLOS(16, 0, 20, 0));
+        assertTrue(cache.queryLOS(0, 0, 4, 0));
+        assertTrue(cache.queryLOS(8, 0, 12, 0));
+        // touches the tiles at x 8 and 16, but not the one at x 0
+        map[20][0] = '#';
+        assertTrue(cache.refreshCells(map, Collections.singletonList(Coord.get(20, 0))) > 0);
+        assertTrue(cache.approximateMemoryUsage() <= 10000L);
+        // fills the tile queried last, which must not be evicted while it is still being filled
+        for (int x = 8; x < 16; x++) {
+            for (int y = 0; y < 8; y++) {
+                cache.queryLOS(x, y, x, y + 1);
+            }
+        }
+        // once every older tile has been evicted, the usage must match a cache that only made these queries
+        TiledFOVCache fresh = new TiledFOVCache(map, 8, Radius.SQUARE, 8, 10000L);
+        for (int x = 0; x < 128; x += 8) {
+            for (int y = 32; y < 128; y += 16) {
+                cache.queryLOS(x, y, x, y + 1);
+                fresh.queryLOS(x, y, x, y + 1);
+                assertTrue(cache.approximateMemoryUsage() <= 10000L);
+            }
+        }
+        assertEquals(fresh.approximateMemoryUsage(), cache.approximateMemoryUsage());
+        assertEquals(fresh.tileCount(), cache.tileCount());
+        assertTrue(cache.queryLOS(16, 0, 20, 0) && !cache.queryLOS(20, 0, 21, 0));
+    }
 }
@@ -8,7 +8,9 @@ import squidpony.squidgrid.mapping.DungeonUtility;
 import squidpony.squidgrid.mapping.styled.TilesetType;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 
@@ -391,5 +393,215 @@ public class GreasedRegionTest {
             System.out.println(current);
     }
 
-}
+    @Test
+    public void testParallel()
+    {
+        ParallelRegionOps ops = new ParallelRegionOps(3);
+        ops.threshold = 1;
+        GreasedRegion bounds = new GreasedRegion(srng, 0.7, 150, 130), start = new GreasedRegion(srng, 0.45, 150, 130),
+                serial, parallel;
+        for (int amount = 1; amount < 4; amount++) {
+            assertTrue(start.copy().expand(amount).equals(ops.expand(start.copy(), amount)));
+            assertTrue(start.copy().expand8way(amount).equals(ops.expand8way(start.copy(), amount)));
+            assertTrue(start.copy().retract(amount).equals(ops.retract(start.copy(), amount)));
+            assertTrue(start.copy().retract8way(amount).equals(ops.retract8way(start.copy(), amount)));
+            assertTrue(start.copy().fringe(amount).equals(ops.fringe(start.copy(), amount)));
+            assertTrue(start.copy().fringe8way(amount).equals(ops.fringe8way(start.copy(), amount)));
+            assertTrue(start.copy().surface(amount).equals(ops.surface(start.copy(), amount)));
+            assertTrue(start.copy().surface8way(amount).equals(ops.surface8way(start.copy(), amount)));
+        }
+        serial = new GreasedRegion(150, 130).insert(bounds.first());
+        parallel = serial.copy();
+        assertTrue(serial.flood(bounds, 40).equals(ops.flood(parallel, bounds, 40)));
+        assertTrue(serial.flood8way(bounds, 40).equals(ops.flood8way(parallel, bounds, 40)));
+        assertTrue(start.copy().or(bounds).equals(ops.or(start.copy(), bounds)));
+        assertTrue(start.copy().and(bounds).equals(ops.and(start.copy(), bounds)));
+        assertTrue(start.copy().andNot(bounds).equals(ops.andNot(start.copy(), bounds)));
+        assertTrue(start.copy().xor(bounds).equals(ops.xor(start.copy(), bounds)));
+        assertTrue(start.copy().not().equals(ops.not(start.copy())));
+        ops.destroy();
+    }
+
+    @Test
+    public void testIteration()
+    {
+        GreasedRegion tall = new GreasedRegion(srng, 0.3, 70, 150);
+        Coord[] coords = tall.asCoords();
+        int[] tight = tall.asTightEncoded();
+        GreasedRegion.Cursor cursor = tall.cursor();
+        int i = 0;
+        while (cursor.next()) {
+            assertTrue(cursor.x == coords[i].x && cursor.y == coords[i].y && cursor.tight() == tight[i]);
+            i++;
+        }
+        assertTrue(i == coords.length);
+        GreasedRegion seen = new GreasedRegion(70, 150);
+        i = 0;
+        for (Coord c : tall) {
+            assertTrue(tall.nth(i).equals(c));
+            seen.insert(c);
+            i++;
+        }
+        assertTrue(i == coords.length && seen.equals(tall));
+        assertTrue(tall.nth(i).equals(Coord.get(-1, -1)));
+        Coord second = tall.nth(1);
+        tall.remove(tall.nth(0));
+        assertTrue(tall.nth(0).equals(second) && tall.size() == coords.length - 1);
+        assertTrue(tall.contains(tall.singleRandom(srng)));
+    }
+
+    @Test
+    public void testPinnedOrder()
+    {
+        // nth(), singleRandom(), and iteration must keep picking the same cells for the same seed, or every generator
+        // that uses them makes different maps; these values come from the original linear-scan implementations.
+        GreasedRegion small = new GreasedRegion(new RNG(0x1337BEEFL), 0.5, 10, 10),
+                tall = new GreasedRegion(new RNG(0x1337BEEFL), 0.5, 9, 130);
+        int[] indices = {0, 1, 2, 17, small.size() - 1};
+        Coord[] smallNth = {Coord.get(0, 9), Coord.get(0, 6), Coord.get(0, 4), Coord.get(3, 0), Coord.get(9, 1)},
+                smallRandom = {Coord.get(6, 4), Coord.get(5, 9), Coord.get(1, 6), Coord.get(3, 9), Coord.get(8, 0)};
+        int[] smallTight = {46, 95, 61, 93, 8};
+        assertEquals(45, small.size());
+        RNG random = new RNG(42), randomTight = new RNG(42);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(smallNth[i], small.nth(indices[i]));
+            assertEquals(smallRandom[i], small.singleRandom(random));
+            assertEquals(smallTight[i], small.singleRandomTight(randomTight));
+        }
+        indices[4] = tall.size() - 1;
+        Coord[] tallNth = {Coord.get(0, 63), Coord.get(0, 62), Coord.get(0, 61), Coord.get(0, 41), Coord.get(8, 128)},
+                tallRandom = {Coord.get(1, 76), Coord.get(3, 89), Coord.get(1, 52), Coord.get(2, 86), Coord.get(8, 119)};
+        int[] tallTight = {685, 804, 469, 776, 1079};
+        assertEquals(588, tall.size());
+        random = new RNG(42);
+        randomTight = new RNG(42);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(tallNth[i], tall.nth(indices[i]));
+            assertEquals(tallRandom[i], tall.singleRandom(random));
+            assertEquals(tallTight[i], tall.singleRandomTight(randomTight));
+        }
+        Iterator<Coord> it = small.iterator();
+        assertEquals(smallNth[0], it.next());
+        assertEquals(smallNth[1], it.next());
+        assertEquals(smallNth[2], it.next());
+    }
+
+    @Test
+    public void testCompressed()
+    {
+        GreasedRegion sparse = new GreasedRegion(srng, 0.01, 200, 150), bounds = new GreasedRegion(srng, 0.6, 200, 150);
+        CompressedRegion compressed = new CompressedRegion(sparse), compressedBounds = new CompressedRegion(bounds);
+        assertTrue(compressed.toGreasedRegion().equals(sparse) && compressed.size() == sparse.size());
+        assertTrue(compressed.copy().expand8way(3).toGreasedRegion().equals(sparse.copy().expand8way(3)));
+        assertTrue(compressed.copy().retract().toGreasedRegion().equals(sparse.copy().retract()));
+        assertTrue(compressed.copy().flood(compressedBounds, 30).toGreasedRegion()
+                .equals(sparse.copy().flood(bounds, 30)));
+        assertTrue(compressed.copy().or(compressedBounds).toGreasedRegion().equals(sparse.copy().or(bounds)));
+        assertTrue(compressed.copy().and(compressedBounds).toGreasedRegion().equals(sparse.copy().and(bounds)));
+        for(Coord c : sparse)
+        {
+            assertTrue(compressed.contains(c));
+        }
+        compressed.insert(199, 149).remove(sparse.first());
+        assertTrue(compressed.contains(199, 149) && !compressed.contains(sparse.first()));
+    }
 
+    /**
+     * Expands (grow) or retracts (not grow) a region by one cell the slow way, one cell at a time; cells outside the
+     * map count as "off", and if bounds isn't null, growing keeps only cells in bounds, like flood().
+     */
+    private static GreasedRegion perCell(GreasedRegion region, GreasedRegion bounds, boolean eight, boolean grow)
+    {
+        final int w = region.width, h = region.height;
+        GreasedRegion next = new GreasedRegion(w, h);
+        boolean any, all, on;
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                any = all = region.contains(x, y);
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        if((dx == 0 && dy == 0) || (!eight && dx != 0 && dy != 0))
+                            continue;
+                        on = region.contains(x + dx, y + dy);
+                        any |= on;
+                        all &= on;
+                    }
+                }
+                if(grow ? any && (bounds == null || bounds.contains(x, y)) : all)
+                    next.insert(x, y);
+            }
+        }
+        return next;
+    }
+
+    private static GreasedRegion perCell(GreasedRegion region, GreasedRegion bounds, boolean eight, boolean grow,
+                                         int amount)
+    {
+        for (int i = 0; i < amount; i++) {
+            region = perCell(region, bounds, eight, grow);
+        }
+        return region;
+    }
+
+    @Test
+    public void testEdgeSections()
+    {
+        // cells next to the 64-cell section boundaries in the first and last columns, where a carry between longs
+        // is needed to reach the neighbor in the other section
+        final int w = 40, h = 130;
+        GreasedRegion edges = new GreasedRegion(w, h, Coord.get(0, 63), Coord.get(w - 1, 64), Coord.get(0, 128),
+                Coord.get(w - 1, 127));
+        GreasedRegion expanded = new GreasedRegion(w, h, Coord.get(0, 62), Coord.get(0, 63), Coord.get(0, 64),
+                Coord.get(1, 63), Coord.get(w - 1, 63), Coord.get(w - 1, 64), Coord.get(w - 1, 65), Coord.get(w - 2, 64),
+                Coord.get(0, 127), Coord.get(0, 128), Coord.get(0, 129), Coord.get(1, 128), Coord.get(w - 1, 126),
+                Coord.get(w - 1, 127), Coord.get(w - 1, 128), Coord.get(w - 2, 127));
+        assertEquals(expanded, edges.copy().expand());
+        assertEquals(perCell(edges, null, false, true), edges.copy().expand());
+        assertEquals(new GreasedRegion(expanded).andNot(edges), edges.copy().fringe());
+        assertEquals(perCell(edges, null, true, true), edges.copy().expand8way());
+        assertEquals(perCell(edges, null, false, true, 3), edges.copy().expand(3));
+        GreasedRegion bounds = new GreasedRegion(w, h).insertRectangle(0, 60, 1, 10).insertRectangle(w - 1, 120, 1, 10);
+        assertEquals(perCell(edges, bounds, false, true), edges.copy().flood(bounds));
+        assertEquals(perCell(edges, bounds, true, true, 4), edges.copy().flood8way(bounds, 4));
+        assertTrue(edges.copy().flood(bounds, 4).contains(0, 67));
+        GreasedRegion columns = new GreasedRegion(w, h).insertRectangle(0, 0, 2, h).insertRectangle(w - 2, 0, 2, h)
+                .remove(1, 63).remove(w - 2, 64);
+        assertEquals(perCell(columns, null, false, false), columns.copy().retract());
+        assertEquals(perCell(columns, null, true, false), columns.copy().retract8way());
+        assertEquals(new GreasedRegion(columns).andNot(perCell(columns, null, false, false)), columns.copy().surface());
+    }
+
+    @Test
+    public void testMorphologyPerCell()
+    {
+        RNG rng = new RNG(0xB0BAFE77L);
+        int[][] sizes = {{10, 10}, {67, 130}, {3, 200}, {130, 64}, {40, 65}};
+        for (int[] size : sizes) {
+            for (double fraction : new double[]{0.2, 0.6, 0.9}) {
+                GreasedRegion region = new GreasedRegion(rng, fraction, size[0], size[1]),
+                        bounds = new GreasedRegion(rng, 0.7, size[0], size[1]);
+                for (int amount = 1; amount <= 3; amount++) {
+                    GreasedRegion grown = perCell(region, null, false, true, amount),
+                            grown8 = perCell(region, null, true, true, amount),
+                            shrunk = perCell(region, null, false, false, amount),
+                            shrunk8 = perCell(region, null, true, false, amount);
+                    assertEquals(grown, region.copy().expand(amount));
+                    assertEquals(grown8, region.copy().expand8way(amount));
+                    assertEquals(shrunk, region.copy().retract(amount));
+                    assertEquals(shrunk8, region.copy().retract8way(amount));
+                    assertEquals(grown.andNot(region), region.copy().fringe(amount));
+                    assertEquals(grown8.andNot(region), region.copy().fringe8way(amount));
+                    assertEquals(region.copy().andNot(shrunk), region.copy().surface(amount));
+                    assertEquals(region.copy().andNot(shrunk8), region.copy().surface8way(amount));
+                    assertEquals(perCell(region, bounds, false, true, amount), region.copy().flood(bounds, amount));
+                    assertEquals(perCell(region, bounds, true, true, amount), region.copy().flood8way(bounds, amount));
+                }
+                assertEquals(perCell(region, null, false, true), region.copy().expand());
+                assertEquals(perCell(region, null, false, false), region.copy().retract());
+                assertEquals(perCell(region, bounds, false, true), region.copy().flood(bounds));
+                assertEquals(perCell(region, bounds, true, true), region.copy().flood8way(bounds));
+            }
+        }
+    }
+
+}
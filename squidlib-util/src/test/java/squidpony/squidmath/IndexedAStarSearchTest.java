@@ -0,0 +1,49 @@
+package squidpony.squidmath;
+
+import org.junit.Test;
+import squidpony.squidai.DijkstraMap;
+import squidpony.squidgrid.mapping.DungeonGenerator;
+import squidpony.squidgrid.mapping.DungeonUtility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IndexedAStarSearchTest {
+    @Test
+    public void testMatchesDijkstra()
+    {
+        StatefulRNG rng = new StatefulRNG(0xA57A12L);
+        char[][] map = new DungeonGenerator(60, 50, rng).generate();
+        GreasedRegion floors = new GreasedRegion(map, '.');
+        double[][] costs = DungeonUtility.generateAStarCostMap(map, Collections.<Character, Double>emptyMap(), 0);
+        IndexedAStarSearch astar = new IndexedAStarSearch(costs, AStarSearch.SearchType.CHEBYSHEV);
+        DijkstraMap dijkstra = new DijkstraMap(map, DijkstraMap.Measurement.CHEBYSHEV);
+        dijkstra.setBlockingRequirement(0);
+        ArrayList<Coord> path = new ArrayList<>();
+        int[] encoded = new int[8];
+        for (int i = 0; i < 100; i++) {
+            Coord start = floors.singleRandom(rng), target = floors.singleRandom(rng);
+            dijkstra.reset();
+            dijkstra.setGoal(target);
+            double[][] gradient = dijkstra.scan(null);
+            assertTrue(astar.path(start, target, path));
+            assertEquals((int) gradient[start.x][start.y], path.size());
+            Coord prev = start;
+            for (Coord c : path) {
+                assertTrue(Math.abs(c.x - prev.x) <= 1 && Math.abs(c.y - prev.y) <= 1);
+                assertTrue(map[c.x][c.y] != '#');
+                prev = c;
+            }
+            assertEquals(target, prev);
+            int length = astar.pathEncoded(start.x, start.y, target.x, target.y, encoded);
+            assertEquals(path.size(), length);
+            for (int j = 0; j < length && j < encoded.length; j++) {
+                assertEquals(path.get(j).x + path.get(j).y * 60, encoded[j]);
+            }
+        }
+        assertEquals(-1, astar.pathEncoded(1, 1, 0, 0, encoded));
+    }
+}
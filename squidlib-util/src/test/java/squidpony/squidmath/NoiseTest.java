@@ -0,0 +1,58 @@
+package squidpony.squidmath;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the bulk fillNoise methods, and ParallelNoise, produce exactly what calling getNoiseWithSeed once per
+ * cell would.
+ */
+public class NoiseTest {
+    private static final Object[] generators = {SeededNoise.instance, WhirlingNoise.instance, MasonNoise.instance,
+            ValueNoise.instance};
+
+    @Test
+    public void testFillNoise() {
+        LightRNG rng = new LightRNG(0xBEEFL);
+        ParallelNoise parallel = new ParallelNoise(2);
+        parallel.threshold = 1;
+        for (int trial = 0; trial < 20; trial++) {
+            final int width = rng.nextInt(1, 60), height = rng.nextInt(1, 40), seed = rng.nextInt();
+            final double x0 = rng.nextDouble(200.0) - 100.0, y0 = rng.nextDouble(200.0) - 100.0,
+                    z = rng.nextDouble(20.0), w = rng.nextDouble(20.0),
+                    dx = rng.nextDouble(2.0) - 1.0, dy = rng.nextDouble(0.5);
+            final float[] out = new float[width * height], par = new float[width * height];
+            for (int g = 0; g < generators.length; g++) {
+                Noise.Bulk2D n2 = (Noise.Bulk2D) generators[g];
+                n2.fillNoise(out, width, height, x0, y0, dx, dy, seed);
+                parallel.fillNoise(n2, par, width, height, x0, y0, dx, dy, seed);
+                for (int row = 0, i = 0; row < height; row++) {
+                    for (int col = 0; col < width; col++, i++) {
+                        assertEquals((float) n2.getNoiseWithSeed(x0 + col * dx, y0 + row * dy, seed), out[i], 0f);
+                        assertEquals(out[i], par[i], 0f);
+                    }
+                }
+                Noise.Bulk3D n3 = (Noise.Bulk3D) generators[g];
+                n3.fillNoise(out, width, height, x0, y0, z, dx, dy, seed);
+                parallel.fillNoise(n3, par, width, height, x0, y0, z, dx, dy, seed);
+                for (int row = 0, i = 0; row < height; row++) {
+                    for (int col = 0; col < width; col++, i++) {
+                        assertEquals((float) n3.getNoiseWithSeed(x0 + col * dx, y0 + row * dy, z, seed), out[i], 0f);
+                        assertEquals(out[i], par[i], 0f);
+                    }
+                }
+                Noise.Bulk4D n4 = (Noise.Bulk4D) generators[g];
+                n4.fillNoise(out, width, height, x0, y0, z, w, dx, dy, seed);
+                parallel.fillNoise(n4, par, width, height, x0, y0, z, w, dx, dy, seed);
+                for (int row = 0, i = 0; row < height; row++) {
+                    for (int col = 0; col < width; col++, i++) {
+                        assertEquals((float) n4.getNoiseWithSeed(x0 + col * dx, y0 + row * dy, z, w, seed), out[i], 0f);
+                        assertEquals(out[i], par[i], 0f);
+                    }
+                }
+            }
+        }
+        parallel.destroy();
+    }
+}